@@ -0,0 +1,244 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui;
+
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import xdev.ui.ItemList.Entry;
+import xdev.vt.VirtualTable;
+
+
+/**
+ * A hash index over the entries of an {@link ItemList}, used by
+ * {@link XdevDualListBox} to match entries and data without scanning the
+ * whole list for every lookup.
+ * <p>
+ * Entries are bucketed by a normalized form of their data, the final
+ * comparison is done with {@link VirtualTable#equals(Object, Object)} for data
+ * and {@link Entry#equals(Object)} for entries, so the semantics of the
+ * previous linear scans are retained.
+ * </p>
+ * <p>
+ * The positions reflect the list at the time the index was created. Entries
+ * which are added to the list afterwards can be registered with
+ * {@link #add(Entry)} to keep {@link #contains(Entry)} current, which is not
+ * affected by shifted positions; they have no position themselves.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+class ItemListIndex
+{
+	private static final Object			NULL_KEY	= new Object();
+	
+	private final Map<Object, List<Slot>>	buckets;
+	
+	
+	
+	private static class Slot
+	{
+		final Entry	entry;
+		final int	index;
+		
+		
+		Slot(Entry entry, int index)
+		{
+			this.entry = entry;
+			this.index = index;
+		}
+	}
+	
+	
+	/**
+	 * Creates an index over the current content of <code>itemList</code>.
+	 * 
+	 * @param itemList
+	 *            the list to index
+	 */
+	ItemListIndex(ItemList itemList)
+	{
+		int size = itemList.size();
+		this.buckets = new HashMap<Object, List<Slot>>(Math.max(16,size * 4 / 3 + 1));
+		for(int i = 0; i < size; i++)
+		{
+			Entry entry = itemList.get(i);
+			bucket(entry.getData()).add(new Slot(entry,i));
+		}
+	}
+	
+	
+	private List<Slot> bucket(Object data)
+	{
+		Object key = key(data);
+		List<Slot> bucket = this.buckets.get(key);
+		if(bucket == null)
+		{
+			bucket = new ArrayList<Slot>(1);
+			this.buckets.put(key,bucket);
+		}
+		return bucket;
+	}
+	
+	
+	/**
+	 * Returns the hash key for <code>data</code>. Values which are equal
+	 * according to {@link VirtualTable#equals(Object, Object)} must share the
+	 * same key, e.g. numbers of different types with the same value.
+	 */
+	private static Object key(Object data)
+	{
+		if(data == null)
+		{
+			return NULL_KEY;
+		}
+		if(data instanceof Number)
+		{
+			return ((Number)data).doubleValue();
+		}
+		if(data instanceof Date)
+		{
+			return ((Date)data).getTime();
+		}
+		if(data.getClass().isArray())
+		{
+			return data.getClass();
+		}
+		return data;
+	}
+	
+	
+	/**
+	 * Registers an entry which has been added to the list after the index was
+	 * created.
+	 * 
+	 * @param entry
+	 *            the added entry
+	 */
+	void add(Entry entry)
+	{
+		bucket(entry.getData()).add(new Slot(entry,-1));
+	}
+	
+	
+	/**
+	 * Returns the position of the first entry whose data equals
+	 * <code>data</code>.
+	 * 
+	 * @param data
+	 *            the data to look up
+	 * @return the index of the entry, or <code>-1</code>
+	 */
+	int indexOfData(Object data)
+	{
+		List<Slot> bucket = this.buckets.get(key(data));
+		if(bucket != null)
+		{
+			for(Slot slot : bucket)
+			{
+				if(slot.index >= 0 && VirtualTable.equals(slot.entry.getData(),data))
+				{
+					return slot.index;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	
+	/**
+	 * Returns the position of the first entry equal to <code>entry</code>.
+	 * 
+	 * @param entry
+	 *            the entry to look up
+	 * @return the index of the entry, or <code>-1</code>
+	 */
+	int indexOf(Entry entry)
+	{
+		List<Slot> bucket = this.buckets.get(key(entry.getData()));
+		if(bucket != null)
+		{
+			for(Slot slot : bucket)
+			{
+				if(slot.index >= 0 && slot.entry.equals(entry))
+				{
+					return slot.index;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	
+	/**
+	 * Marks the positions of all entries equal to <code>entry</code>.
+	 * 
+	 * @param entry
+	 *            the entry to look up
+	 * @param marks
+	 *            the flags to set, indexed by position
+	 * @return <code>true</code> if at least one position has been marked
+	 */
+	boolean markIndicesOf(Entry entry, boolean[] marks)
+	{
+		boolean found = false;
+		List<Slot> bucket = this.buckets.get(key(entry.getData()));
+		if(bucket != null)
+		{
+			for(Slot slot : bucket)
+			{
+				if(slot.index >= 0 && slot.entry.equals(entry))
+				{
+					marks[slot.index] = true;
+					found = true;
+				}
+			}
+		}
+		return found;
+	}
+	
+	
+	/**
+	 * Checks if the list contains an entry equal to <code>entry</code>,
+	 * including the entries registered with {@link #add(Entry)}.
+	 * 
+	 * @param entry
+	 *            the entry to look up
+	 * @return <code>true</code> if an equal entry is contained
+	 */
+	boolean contains(Entry entry)
+	{
+		List<Slot> bucket = this.buckets.get(key(entry.getData()));
+		if(bucket != null)
+		{
+			for(Slot slot : bucket)
+			{
+				if(slot.entry.equals(entry))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
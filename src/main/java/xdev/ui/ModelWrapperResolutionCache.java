@@ -0,0 +1,439 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui;
+
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.ComboBoxModel;
+import javax.swing.ListModel;
+import javax.swing.table.TableModel;
+
+import com.jidesoft.combobox.ComboBoxModelWrapperUtils;
+import com.jidesoft.grid.TableModelWrapperUtils;
+import com.jidesoft.list.ListModelWrapperUtils;
+
+
+/**
+ * Shared cache of resolved JIDE model wrapper chains.
+ * <p>
+ * {@link TableModelWrapperUtils}, {@link ListModelWrapperUtils} and
+ * {@link ComboBoxModelWrapperUtils} walk the whole wrapper chain for every
+ * lookup of an inner model. This cache stores the results per outer model and
+ * inner model class. Outer models are weakly referenced and compared by
+ * identity, so models with value based <code>equals</code> don't share their
+ * entries. The resolved inner models are weakly referenced too.
+ * </p>
+ * <p>
+ * A component whose model's wrapper chain may change registers
+ * {@link #getModelChangeListener()} for its <code>model</code> property;
+ * the entries of the previous and the new model are invalidated then. For all
+ * other changes of a wrapper chain {@link #invalidate(Object)} has to be
+ * called.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public final class ModelWrapperResolutionCache
+{
+	private ModelWrapperResolutionCache()
+	{
+	}
+	
+	/**
+	 * Marker of a cached lookup without result.
+	 */
+	private final static Reference<Object>								NOT_FOUND	= new WeakReference<Object>(
+																					null);
+	
+	/**
+	 * Result of {@link #lookup(Object, Class)} if the lookup is not cached.
+	 */
+	private final static Object											MISS		= new Object();
+	
+	/**
+	 * Entries of the outer models, by their identity hash code.
+	 */
+	private final static Map<Integer, List<ModelEntry>>					cache		= new HashMap<Integer, List<ModelEntry>>();
+	
+	/**
+	 * Receives the entries of collected outer models.
+	 */
+	private final static ReferenceQueue<Object>							queue		= new ReferenceQueue<Object>();
+	
+	private static long													hitCount	= 0;
+	private static long													missCount	= 0;
+	
+	private final static PropertyChangeListener							modelChangeListener;
+	
+	static
+	{
+		modelChangeListener = new PropertyChangeListener()
+		{
+			@Override
+			public void propertyChange(PropertyChangeEvent evt)
+			{
+				invalidate(evt.getOldValue());
+				invalidate(evt.getNewValue());
+			}
+		};
+	}
+	
+	
+	/**
+	 * Cached version of
+	 * {@link TableModelWrapperUtils#getActualTableModel(TableModel, Class)}.
+	 * 
+	 * @param outerModel
+	 *            the outermost model
+	 * @param innerModelClass
+	 *            the class of the wanted model
+	 * @return the first model of the wrapper chain which is an instance of
+	 *         <code>innerModelClass</code>, or <code>null</code>
+	 */
+	public static TableModel getActualTableModel(TableModel outerModel, Class<?> innerModelClass)
+	{
+		if(outerModel == null)
+		{
+			return null;
+		}
+		
+		synchronized(cache)
+		{
+			Object cached = lookup(outerModel,innerModelClass);
+			if(cached != MISS)
+			{
+				return (TableModel)cached;
+			}
+			
+			TableModel model = TableModelWrapperUtils.getActualTableModel(outerModel,
+					innerModelClass);
+			store(outerModel,innerModelClass,model);
+			return model;
+		}
+	}
+	
+	
+	/**
+	 * Cached version of
+	 * {@link ListModelWrapperUtils#getActualListModel(ListModel, Class)}.
+	 * 
+	 * @param outerModel
+	 *            the outermost model
+	 * @param innerModelClass
+	 *            the class of the wanted model
+	 * @return the first model of the wrapper chain which is an instance of
+	 *         <code>innerModelClass</code>, or <code>null</code>
+	 */
+	public static ListModel getActualListModel(ListModel outerModel, Class<?> innerModelClass)
+	{
+		if(outerModel == null)
+		{
+			return null;
+		}
+		
+		synchronized(cache)
+		{
+			Object cached = lookup(outerModel,innerModelClass);
+			if(cached != MISS)
+			{
+				return (ListModel)cached;
+			}
+			
+			ListModel model = ListModelWrapperUtils.getActualListModel(outerModel,innerModelClass);
+			store(outerModel,innerModelClass,model);
+			return model;
+		}
+	}
+	
+	
+	/**
+	 * Cached version of
+	 * {@link ComboBoxModelWrapperUtils#getActualComboBoxModel(ComboBoxModel, Class)}
+	 * .
+	 * 
+	 * @param outerModel
+	 *            the outermost model
+	 * @param innerModelClass
+	 *            the class of the wanted model
+	 * @return the first model of the wrapper chain which is an instance of
+	 *         <code>innerModelClass</code>, or <code>null</code>
+	 */
+	public static ComboBoxModel getActualComboBoxModel(ComboBoxModel outerModel,
+			Class<?> innerModelClass)
+	{
+		if(outerModel == null)
+		{
+			return null;
+		}
+		
+		synchronized(cache)
+		{
+			Object cached = lookup(outerModel,innerModelClass);
+			if(cached != MISS)
+			{
+				return (ComboBoxModel)cached;
+			}
+			
+			ComboBoxModel model = ComboBoxModelWrapperUtils.getActualComboBoxModel(outerModel,
+					innerModelClass);
+			store(outerModel,innerModelClass,model);
+			return model;
+		}
+	}
+	
+	
+	/**
+	 * Discards the cached lookups of <code>outerModel</code>.
+	 * 
+	 * @param outerModel
+	 *            a model whose wrapper chain has changed, may be
+	 *            <code>null</code>
+	 */
+	public static void invalidate(Object outerModel)
+	{
+		if(outerModel != null)
+		{
+			synchronized(cache)
+			{
+				expungeStaleEntries();
+				removeEntry(outerModel);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Discards all cached lookups.
+	 */
+	public static void invalidateAll()
+	{
+		synchronized(cache)
+		{
+			cache.clear();
+			while(queue.poll() != null)
+			{
+				// entries are gone already
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns a listener for the <code>model</code> property of components,
+	 * which invalidates the lookups of the previous and the new model.
+	 * 
+	 * @return the model change listener
+	 */
+	public static PropertyChangeListener getModelChangeListener()
+	{
+		return modelChangeListener;
+	}
+	
+	
+	/**
+	 * Returns the count of lookups answered by the cache.
+	 * 
+	 * @return the hit count
+	 */
+	public static long getHitCount()
+	{
+		synchronized(cache)
+		{
+			return hitCount;
+		}
+	}
+	
+	
+	/**
+	 * Returns the count of lookups which had to walk the wrapper chain.
+	 * 
+	 * @return the miss count
+	 */
+	public static long getMissCount()
+	{
+		synchronized(cache)
+		{
+			return missCount;
+		}
+	}
+	
+	
+	/**
+	 * Resets the hit and miss count.
+	 */
+	public static void resetStatistics()
+	{
+		synchronized(cache)
+		{
+			hitCount = 0;
+			missCount = 0;
+		}
+	}
+	
+	
+	/**
+	 * @return the cached model, <code>null</code> for a cached failed lookup
+	 *         or {@link #MISS} if not cached
+	 */
+	private static Object lookup(Object outerModel, Class<?> innerModelClass)
+	{
+		expungeStaleEntries();
+		
+		ModelEntry entry = getEntry(outerModel);
+		if(entry != null)
+		{
+			Reference<Object> reference = entry.lookups.get(innerModelClass);
+			if(reference == NOT_FOUND)
+			{
+				hitCount++;
+				return null;
+			}
+			if(reference != null)
+			{
+				Object model = reference.get();
+				if(model != null)
+				{
+					hitCount++;
+					return model;
+				}
+			}
+		}
+		
+		missCount++;
+		return MISS;
+	}
+	
+	
+	private static void store(Object outerModel, Class<?> innerModelClass, Object model)
+	{
+		ModelEntry entry = getEntry(outerModel);
+		if(entry == null)
+		{
+			entry = new ModelEntry(outerModel,queue);
+			List<ModelEntry> bucket = cache.get(entry.hash);
+			if(bucket == null)
+			{
+				bucket = new ArrayList<ModelEntry>(1);
+				cache.put(entry.hash,bucket);
+			}
+			bucket.add(entry);
+		}
+		
+		entry.lookups.put(innerModelClass,model != null ? new WeakReference<Object>(model)
+				: NOT_FOUND);
+	}
+	
+	
+	private static ModelEntry getEntry(Object outerModel)
+	{
+		List<ModelEntry> bucket = cache.get(System.identityHashCode(outerModel));
+		if(bucket != null)
+		{
+			for(int i = 0, c = bucket.size(); i < c; i++)
+			{
+				ModelEntry entry = bucket.get(i);
+				if(entry.get() == outerModel)
+				{
+					return entry;
+				}
+			}
+		}
+		return null;
+	}
+	
+	
+	private static void removeEntry(Object outerModel)
+	{
+		Integer hash = System.identityHashCode(outerModel);
+		List<ModelEntry> bucket = cache.get(hash);
+		if(bucket != null)
+		{
+			for(int i = bucket.size() - 1; i >= 0; i--)
+			{
+				if(bucket.get(i).get() == outerModel)
+				{
+					bucket.remove(i);
+				}
+			}
+			if(bucket.isEmpty())
+			{
+				cache.remove(hash);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Removes the entries of outer models which have been garbage collected.
+	 */
+	private static void expungeStaleEntries()
+	{
+		Reference<?> reference;
+		while((reference = queue.poll()) != null)
+		{
+			ModelEntry entry = (ModelEntry)reference;
+			List<ModelEntry> bucket = cache.get(entry.hash);
+			if(bucket != null)
+			{
+				for(int i = bucket.size() - 1; i >= 0; i--)
+				{
+					if(bucket.get(i) == entry)
+					{
+						bucket.remove(i);
+					}
+				}
+				if(bucket.isEmpty())
+				{
+					cache.remove(entry.hash);
+				}
+			}
+		}
+	}
+	
+	
+	
+	/**
+	 * The cached lookups of one outer model, which is weakly referenced.
+	 */
+	private static class ModelEntry extends WeakReference<Object>
+	{
+		/**
+		 * The identity hash code of the outer model, it is still needed after
+		 * the model has been collected.
+		 */
+		final int								hash;
+		final Map<Class<?>, Reference<Object>>	lookups	= new HashMap<Class<?>, Reference<Object>>(4);
+		
+		
+		ModelEntry(Object outerModel, ReferenceQueue<Object> queue)
+		{
+			super(outerModel,queue);
+			this.hash = System.identityHashCode(outerModel);
+		}
+	}
+}
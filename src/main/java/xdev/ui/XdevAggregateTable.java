@@ -37,11 +37,17 @@ import xdev.db.Operator;
 import xdev.db.sql.Condition;
 import xdev.db.sql.SELECT;
 import xdev.ui.persistence.Persistable;
+import xdev.ui.table.AggregationEngine;
+import xdev.ui.table.AggregationEvent;
+import xdev.ui.table.AggregationListener;
+import xdev.ui.table.AggregationResult;
+import xdev.ui.table.AggregationSummaryCalculator;
 import xdev.ui.table.ExtendedTable;
 import xdev.ui.table.ExtendedTableSupport;
 import xdev.ui.table.TableRowSelectionHandler;
 import xdev.ui.table.XdevTableModelWrapper;
 import xdev.util.ArrayUtils;
+import xdev.util.IntList;
 import xdev.util.ObjectUtils;
 import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTable.VirtualTableRow;
@@ -51,7 +57,9 @@ import xdev.vt.VirtualTableWrapper;
 import com.jidesoft.grid.SortListener;
 import com.jidesoft.grid.TableHeaderPopupMenuInstaller;
 import com.jidesoft.pivot.AggregateTable;
+import com.jidesoft.pivot.AggregateTableModel;
 import com.jidesoft.pivot.AggregateTablePopupMenuCustomizer;
+import com.jidesoft.pivot.DefaultSummaryCalculator;
 import com.jidesoft.pivot.IPivotDataModel;
 import com.jidesoft.pivot.PivotConstants;
 import com.jidesoft.pivot.PivotDataModel;
@@ -177,6 +185,30 @@ public class XdevAggregateTable extends AggregateTable implements
 	 */
 	private boolean					sortAutomatically	= false;
 	
+	/**
+	 * Computes the aggregates in the background, may be <code>null</code>.
+	 */
+	private AggregationEngine		aggregationEngine;
+	
+	/**
+	 * Answers the pivot summaries from the engine's result.
+	 */
+	private final AggregationSummaryCalculator	summaryCalculator	= new AggregationSummaryCalculator();
+	
+	/**
+	 * Recalculates the summaries when the engine publishes a new result.
+	 */
+	private final AggregationListener			aggregationListener	= new AggregationListener()
+																	{
+																		@Override
+																		public void aggregationChanged(
+																				AggregationEvent event)
+																		{
+																			applyAggregationResult(event
+																					.getResult());
+																		}
+																	};
+	
 	
 	/**
 	 * @see JTable#JTable()
@@ -333,6 +365,8 @@ public class XdevAggregateTable extends AggregateTable implements
 		{
 			support.adjustColumnWidths();
 		}
+		
+		updateAggregationEngine();
 	}
 	
 	
@@ -1007,6 +1041,30 @@ public class XdevAggregateTable extends AggregateTable implements
 	}
 	
 	
+	/**
+	 * Sets the model of this table like
+	 * {@link #setModel(VirtualTable, String, SELECT, Object...)}, but executes
+	 * the query in a background thread. A loading indicator is shown over the
+	 * table until the data is available.
+	 * 
+	 * @param vt
+	 *            the {@link VirtualTable} to display
+	 * @param columns
+	 *            the columns to display
+	 * @param select
+	 *            the query to execute
+	 * @param params
+	 *            the parameters of the query
+	 * @see ExtendedTableSupport#setModelAsync(VirtualTable, String, SELECT,
+	 *      Object...)
+	 * @since 4.0
+	 */
+	public void setModelAsync(VirtualTable vt, String columns, SELECT select, Object... params)
+	{
+		support.setModelAsync(vt,columns,select,params);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1139,6 +1197,7 @@ public class XdevAggregateTable extends AggregateTable implements
 	public void clear()
 	{
 		super.setModel(new DefaultTableModel());
+		updateAggregationEngine();
 	}
 	
 	
@@ -1555,6 +1614,245 @@ public class XdevAggregateTable extends AggregateTable implements
 	}
 	
 	
+	/**
+	 * Sets the engine which computes the sums, counts, minimums, maximums and
+	 * averages of the numeric columns of this table's {@link VirtualTable},
+	 * grouped by the aggregated columns.
+	 * <p>
+	 * The engine computes off the event dispatch thread and keeps its result
+	 * up to date while the {@link VirtualTable} changes, see
+	 * {@link xdev.ui.table.ForkJoinAggregationEngine}. The sums, counts,
+	 * minimums, maximums and averages of the summary and grand total rows are
+	 * read from the engine's result, see {@link AggregationSummaryCalculator},
+	 * so a new result only repaints the table; the result is also available
+	 * via {@link #getAggregationResult()}.
+	 * </p>
+	 * 
+	 * @param aggregationEngine
+	 *            the engine, or <code>null</code> to compute no aggregates
+	 */
+	public void setAggregationEngine(AggregationEngine aggregationEngine)
+	{
+		if(this.aggregationEngine != null)
+		{
+			this.aggregationEngine.removeAggregationListener(this.aggregationListener);
+			this.aggregationEngine.stop();
+		}
+		
+		this.aggregationEngine = aggregationEngine;
+		
+		if(aggregationEngine != null)
+		{
+			aggregationEngine.addAggregationListener(this.aggregationListener);
+		}
+		updateAggregationEngine();
+	}
+	
+	
+	/**
+	 * Returns the engine which computes the aggregates of this table.
+	 * 
+	 * @return the engine, or <code>null</code>
+	 */
+	public AggregationEngine getAggregationEngine()
+	{
+		return this.aggregationEngine;
+	}
+	
+	
+	/**
+	 * Returns the last aggregates published by the aggregation engine.
+	 * 
+	 * @return the aggregates, or <code>null</code> if no engine is set or it
+	 *         hasn't finished yet
+	 * @see #setAggregationEngine(AggregationEngine)
+	 */
+	public AggregationResult getAggregationResult()
+	{
+		return this.aggregationEngine != null ? this.aggregationEngine.getResult() : null;
+	}
+	
+	
+	/**
+	 * Restarts the aggregation engine with the current {@link VirtualTable}
+	 * and aggregated columns.
+	 * <p>
+	 * The pivot model is only calculated again if its summaries have to
+	 * change between the engine's live values and computed ones.
+	 * </p>
+	 */
+	private void updateAggregationEngine()
+	{
+		boolean calculatorChanged = installSummaryCalculator();
+		
+		if(this.aggregationEngine == null)
+		{
+			this.summaryCalculator.setResult(null,null);
+			if(calculatorChanged)
+			{
+				super.aggregate();
+			}
+			return;
+		}
+		
+		VirtualTableWrapper wrapper = support != null ? support.getVirtualTableWrapper() : null;
+		if(wrapper == null)
+		{
+			this.aggregationEngine.stop();
+			
+			boolean wasActive = this.summaryCalculator.isActive();
+			this.summaryCalculator.setResult(null,null);
+			if(wasActive)
+			{
+				// the live values would stay empty
+				super.aggregate();
+			}
+			return;
+		}
+		
+		VirtualTable vt = wrapper.getVirtualTable();
+		int[] modelColumns = wrapper.getModelColumnIndices();
+		int[] aggregatedColumns = getAggregateTableModel().getAggregatedColumns();
+		
+		IntList groupColumns = new IntList();
+		for(int column : aggregatedColumns)
+		{
+			groupColumns.add(modelColumns[column]);
+		}
+		
+		IntList valueColumns = new IntList();
+		for(int column = 0; column < modelColumns.length; column++)
+		{
+			if(!ArrayUtils.contains(aggregatedColumns,column)
+					&& vt.getColumnAt(modelColumns[column]).getType().isNumeric())
+			{
+				valueColumns.add(modelColumns[column]);
+			}
+		}
+		
+		// the live values stay empty until the engine has published
+		this.summaryCalculator.setResult(null,modelColumns);
+		if(calculatorChanged)
+		{
+			super.aggregate();
+		}
+		this.aggregationEngine.start(vt,groupColumns.toArray(),valueColumns.toArray());
+	}
+	
+	
+	/**
+	 * Installs {@link #summaryCalculator} into the pivot model if an engine is
+	 * set, otherwise removes it.
+	 * 
+	 * @return <code>true</code> if the calculator of the pivot model has been
+	 *         changed
+	 */
+	private boolean installSummaryCalculator()
+	{
+		AggregateTableModel aggregateTableModel = getAggregateTableModel();
+		IPivotDataModel pivotModel = aggregateTableModel != null ? aggregateTableModel
+				.getPivotDataModel() : null;
+		if(!(pivotModel instanceof PivotDataModel))
+		{
+			return false;
+		}
+		
+		PivotDataModel pivotDataModel = (PivotDataModel)pivotModel;
+		if(this.aggregationEngine != null)
+		{
+			if(pivotDataModel.getSummaryCalculator() != this.summaryCalculator)
+			{
+				pivotDataModel.setSummaryCalculator(this.summaryCalculator);
+				return true;
+			}
+		}
+		else if(pivotDataModel.getSummaryCalculator() == this.summaryCalculator)
+		{
+			pivotDataModel.setSummaryCalculator(new DefaultSummaryCalculator());
+			return true;
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Prepares {@link #summaryCalculator} before the pivot model is
+	 * calculated, so the pass creates live values instead of computing the
+	 * summaries.
+	 */
+	private void prepareSummaryCalculator()
+	{
+		VirtualTableWrapper wrapper = support != null ? support.getVirtualTableWrapper() : null;
+		if(this.aggregationEngine != null && wrapper != null)
+		{
+			installSummaryCalculator();
+			this.summaryCalculator.setResult(null,wrapper.getModelColumnIndices());
+		}
+	}
+	
+	
+	/**
+	 * Shows a newly published result. The summaries read the result
+	 * themselves, so the pivot model isn't calculated again.
+	 */
+	private void applyAggregationResult(AggregationResult result)
+	{
+		VirtualTableWrapper wrapper = support.getVirtualTableWrapper();
+		if(wrapper == null)
+		{
+			return;
+		}
+		
+		this.summaryCalculator.setResult(result,wrapper.getModelColumnIndices());
+		repaint();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Restarts the aggregation engine, if any.
+	 * </p>
+	 */
+	@Override
+	public void aggregate()
+	{
+		prepareSummaryCalculator();
+		super.aggregate();
+		updateAggregationEngine();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Restarts the aggregation engine, if any.
+	 * </p>
+	 */
+	@Override
+	public void aggregate(int... columns)
+	{
+		prepareSummaryCalculator();
+		super.aggregate(columns);
+		updateAggregationEngine();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Restarts the aggregation engine, if any.
+	 * </p>
+	 */
+	@Override
+	public void aggregate(String... columnNames)
+	{
+		prepareSummaryCalculator();
+		super.aggregate(columnNames);
+		updateAggregationEngine();
+	}
+	
+	
 	/**
 	 * Adds the specified listener to receive SortEvents from this
 	 * AggregateTable.
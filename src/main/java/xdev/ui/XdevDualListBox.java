@@ -39,6 +39,7 @@ import java.util.Map;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
+import javax.swing.DefaultListModel;
 import javax.swing.Icon;
 import javax.swing.JButton;
 import javax.swing.JComponent;
@@ -59,7 +60,6 @@ import xdev.ui.dnd.DropEvent;
 import xdev.ui.duallistbox.XdevDualListBoxDefaultHandler;
 import xdev.ui.duallistbox.XdevDualListBoxHandler;
 import xdev.util.IntList;
-import xdev.vt.VirtualTable;
 
 import com.jidesoft.icons.IconsFactory;
 import com.jidesoft.list.ListModelWrapperUtils;
@@ -429,18 +429,58 @@ public class XdevDualListBox extends XComponent implements XdevFocusCycleCompone
 	 */
 	protected void update()
 	{
-		availableList.setItemList(availableItems);
-		availableFilterField.setModel(availableList.getModel());
-		availableList.setModel(availableFilterField.getDisplayListModel());
-		
-		selectedList.setItemList(selectedItems);
-		selectedFilterField.setModel(selectedList.getModel());
-		selectedList.setModel(selectedFilterField.getDisplayListModel());
+		installItemList(availableList,availableFilterField,availableItems);
+		installItemList(selectedList,selectedFilterField,selectedItems);
 		
 		synchronizeLists();
 	}
 	
 	
+	/**
+	 * Connects a listbox and its filter field with an {@link ItemList}.
+	 * 
+	 * @param listbox
+	 *            the {@link XdevListBox} to display the entries
+	 * @param filterField
+	 *            the filter field of <code>listbox</code>
+	 * @param itemList
+	 *            the entries to display
+	 */
+	private void installItemList(XdevListBox listbox, XdevQuickListFilterField filterField,
+			ItemList itemList)
+	{
+		listbox.setItemList(itemList);
+		filterField.setModel(listbox.getModel());
+		listbox.setModel(filterField.getDisplayListModel());
+	}
+	
+	
+	/**
+	 * Disconnects the filter fields from the item lists, so that changes of
+	 * the lists are not propagated entry by entry to the filters and the
+	 * listboxes.
+	 * <p>
+	 * Must be followed by {@link #endBulkUpdate()}, which reconnects the lists
+	 * and results in a single refresh of each listbox.
+	 * </p>
+	 */
+	private void beginBulkUpdate()
+	{
+		availableFilterField.setModel(new DefaultListModel<Object>());
+		selectedFilterField.setModel(new DefaultListModel<Object>());
+	}
+	
+	
+	/**
+	 * Reconnects the item lists after {@link #beginBulkUpdate()}.
+	 */
+	private void endBulkUpdate()
+	{
+		installItemList(availableList,availableFilterField,availableList.getItemList());
+		installItemList(selectedList,selectedFilterField,selectedList.getItemList());
+	}
+	
+	
 	/**
 	 * Initializes the contained components, does layout and registers actions.
 	 */
@@ -1123,29 +1163,45 @@ public class XdevDualListBox extends XComponent implements XdevFocusCycleCompone
 	 */
 	private void synchronizeLists()
 	{
+		final int availableCount = availableItems.size();
+		if(selectedItems.size() == 0 || availableCount == 0)
+		{
+			return;
+		}
+		
+		ItemListIndex availableIndex = new ItemListIndex(availableItems);
+		boolean[] matches = new boolean[availableCount];
 		for(int i = 0; i < selectedItems.size(); i++)
 		{
 			Entry selectedEntry = selectedItems.get(i);
 			Entry availableEntryFromSelected = this.handler.onRemoveFromSelected(selectedEntry);
-			for(int j = 0; j < availableItems.size(); j++)
-			{
-				Entry availableEntry = availableItems.get(j);
-				if(availableEntry.equals(availableEntryFromSelected))
+			availableIndex.markIndicesOf(availableEntryFromSelected,matches);
+		}
+		
+		switch(selectionMode)
+		{
+			case DISABLE_SELECTED:
+				for(int j = 0; j < availableCount; j++)
 				{
-					switch(selectionMode)
+					if(matches[j])
 					{
-						case DISABLE_SELECTED:
-							availableEntry.setEnabled(false);
-						break;
-						case REMOVE_SELECTED:
-							availableItems.remove(j);
-						break;
-						case KEEP_SELECTED:
-						// nothing to do
-						break;
+						availableItems.get(j).setEnabled(false);
 					}
 				}
-			}
+			break;
+			case REMOVE_SELECTED:
+				// backwards, so the remaining positions stay valid
+				for(int j = availableCount - 1; j >= 0; j--)
+				{
+					if(matches[j])
+					{
+						availableItems.remove(j);
+					}
+				}
+			break;
+			case KEEP_SELECTED:
+			// nothing to do
+			break;
 		}
 	}
 	
@@ -1405,7 +1461,6 @@ public class XdevDualListBox extends XComponent implements XdevFocusCycleCompone
 			int size = availableList.getModel().getSize();
 			availableList.setSelectionInterval(0,size - 1);
 			
-			availableList.setSelectionInterval(0,availableList.getModel().getSize() - 1);
 			super.actionPerformed(e);
 		}
 		
@@ -1941,56 +1996,68 @@ public class XdevDualListBox extends XComponent implements XdevFocusCycleCompone
 		
 		Arrays.sort(selectedIndices);
 		
-		selectedList.getItemList();
 		final int length = selectedIndices.length;
+		final ItemList selectedItemList = selectedList.getItemList();
+		final ItemList availableItemList = availableList.getItemList();
+		final ItemListIndex availableEntryIndex = selectionMode != SelectionMode.KEEP_SELECTED ? new ItemListIndex(
+				availableItemList) : null;
+		
+		// the returned entries are inserted behind the selection of the
+		// available list, or appended
+		int availableInsertIndex = availableItemList.size();
+		int availableIndex = availableList.getMaxSelectionIndex();
+		if(availableIndex > -1)
+		{
+			availableInsertIndex = mapIndexOfInnerModel(availableList,availableIndex) + 1;
+		}
 		
-		int availableItemListSizeStart = availableList.getItemList().size();
-		
-		for(int i = length - 1; i >= 0; i--)
+		// every move is one update of each listbox, whatever its size
+		beginBulkUpdate();
+		try
 		{
-			Entry selectedEntry = null;
-			final ItemList availableItemList = availableList.getItemList();
-			switch(selectionMode)
+			for(int i = length - 1; i >= 0; i--)
 			{
-				case DISABLE_SELECTED:
-					// enable corresponding entry in available list
-					selectedEntry = selectedList.getItemList().get(selectedIndices[i]);
-					Entry tempEntry = handler.onRemoveFromSelected(selectedEntry);
-					List<?> list = availableItemList.getDataAsList();
-					int index = list.indexOf(tempEntry.getData());
-					if(index > -1)
-					{
-						Entry availableEntry = availableItemList.get(index);
-						availableEntry.setEnabled(true);
-					}
-					availableList.repaint();
-				break;
-				case KEEP_SELECTED:
-				break;
-				case REMOVE_SELECTED:
-					selectedEntry = selectedList.getItemList().get(selectedIndices[i]);
-					
-					Entry availableEntry = handler.onRemoveFromSelected(selectedEntry);
-					
-					if(!availableList.getItemList().contains(availableEntry))
-					{
-						int availableIndex = availableList.getMaxSelectionIndex();
-						if(availableIndex > -1)
+				Entry selectedEntry = null;
+				switch(selectionMode)
+				{
+					case DISABLE_SELECTED:
+						// enable corresponding entry in available list
+						selectedEntry = selectedItemList.get(selectedIndices[i]);
+						Entry tempEntry = handler.onRemoveFromSelected(selectedEntry);
+						int index = availableEntryIndex.indexOfData(tempEntry.getData());
+						if(index > -1)
 						{
-							int availableInnerIndex = mapIndexOfInnerModel(availableList,
-									availableIndex);
-							availableItemList.add(availableInnerIndex + 1,availableEntry);
+							Entry availableEntry = availableItemList.get(index);
+							availableEntry.setEnabled(true);
 						}
-						else
+					break;
+					case KEEP_SELECTED:
+					break;
+					case REMOVE_SELECTED:
+						selectedEntry = selectedItemList.get(selectedIndices[i]);
+						
+						Entry availableEntry = handler.onRemoveFromSelected(selectedEntry);
+						
+						if(!availableEntryIndex.contains(availableEntry))
 						{
-							availableItemList.add(availableItemListSizeStart,availableEntry);
+							availableEntryIndex.add(availableEntry);
+							availableItemList.add(availableInsertIndex,availableEntry);
 						}
-					}
+					
+					break;
+				}
 				
-				break;
+				selectedItemList.remove(selectedIndices[i]);
 			}
-			
-			selectedList.getItemList().remove(selectedIndices[i]);
+		}
+		finally
+		{
+			endBulkUpdate();
+		}
+		
+		if(selectionMode == SelectionMode.DISABLE_SELECTED)
+		{
+			availableList.repaint();
 		}
 		
 		selectedList.setSelectedIndex(lowestSelectedIndex);
@@ -2023,95 +2090,104 @@ public class XdevDualListBox extends XComponent implements XdevFocusCycleCompone
 		
 		Arrays.sort(availableIndices);
 		
-		int length = availableIndices.length;
+		final int length = availableIndices.length;
+		final ItemList availableItemList = availableList.getItemList();
+		final ItemList selectedItemList = selectedList.getItemList();
+		final ItemListIndex selectedEntryIndex = isMultipleSelectionsEnabled() ? null
+				: new ItemListIndex(selectedItemList);
+		
+		// the new entries are inserted behind the selection of the selected
+		// list, or appended
+		int selectedInsertIndex = selectedItemList.size();
+		int selectedIndex = selectedList.getMaxSelectionIndex();
+		if(selectedIndex > -1)
+		{
+			selectedInsertIndex = mapIndexOfInnerModel(selectedList,selectedIndex) + 1;
+		}
 		
-		int selectedItemListSizeStart = selectedList.getItemList().size();
+		// canceled entries and duplicates are not inserted
+		int insertedCount = 0;
 		
-		for(int i = length - 1; i >= 0; i--)
+		// every move is one update of each listbox, whatever its size
+		beginBulkUpdate();
+		try
 		{
-			Entry availableEntry = availableList.getItemList().get(availableIndices[i]);
-			
-			if(selectionMode != SelectionMode.DISABLE_SELECTED || availableEntry.isEnabled())
+			for(int i = length - 1; i >= 0; i--)
 			{
-				Entry selectedEntry = null;
+				Entry availableEntry = availableItemList.get(availableIndices[i]);
 				
-				if(useHandler)
+				if(selectionMode != SelectionMode.DISABLE_SELECTED || availableEntry.isEnabled())
 				{
-					// handler behavior can be overwritten
-					try
-					{
-						selectedEntry = this.handler.onAddToSelected(availableEntry);
-					}
-					catch(OperationCanceledException e)
+					Entry selectedEntry = null;
+					
+					if(useHandler)
 					{
-						if(e.isCancelMultipleOperations())
+						// handler behavior can be overwritten
+						try
 						{
-							break;
+							selectedEntry = this.handler.onAddToSelected(availableEntry);
 						}
-						else
+						catch(OperationCanceledException e)
 						{
-							/*
-							 * if user canceled add for this entry, proceed with
-							 * next one
-							 */
-							continue;
+							if(e.isCancelMultipleOperations())
+							{
+								break;
+							}
+							else
+							{
+								/*
+								 * if user canceled add for this entry, proceed
+								 * with next one
+								 */
+								continue;
+							}
 						}
 					}
-				}
-				else
-				{
-					selectedEntry = availableEntry.clone();
-				}
-				
-				final ItemList selectedItemList = selectedList.getItemList();
-				if(isMultipleSelectionsEnabled() || !selectedItemList.contains(selectedEntry))
-				{
-					int selectedIndex = selectedList.getMaxSelectionIndex();
-					if(selectedIndex > -1)
-					{
-						int selectedInnerIndex = mapIndexOfInnerModel(selectedList,selectedIndex);
-						selectedItemList.add(selectedInnerIndex + 1,selectedEntry);
-					}
 					else
 					{
-						selectedItemList.add(selectedItemListSizeStart,selectedEntry);
+						selectedEntry = availableEntry.clone();
 					}
-				}
-			}
-			
-			switch(selectionMode)
-			{
-				case DISABLE_SELECTED:
-					for(int j = length - 1; j >= 0; j--)
+					
+					if(selectedEntryIndex == null || !selectedEntryIndex.contains(selectedEntry))
 					{
-						availableEntry = availableList.getItemList().get(availableIndices[i]);
-						availableEntry.setEnabled(false);
+						if(selectedEntryIndex != null)
+						{
+							selectedEntryIndex.add(selectedEntry);
+						}
+						selectedItemList.add(selectedInsertIndex,selectedEntry);
+						insertedCount++;
 					}
-				break;
-				case KEEP_SELECTED:
-				break;
-				case REMOVE_SELECTED:
-					availableList.getItemList().remove(availableIndices[i]);
-				break;
-			}
-			availableList.setSelectedIndex(lowestAvailableIndex);
-			
-			int[] indicesForNotification = new int[length];
-			int selectedIndex = selectedList.getMaxSelectionIndex();
-			for(int j = 0; j < length; j++)
-			{
-				if(selectedIndex > -1)
-				{
-					indicesForNotification[j] = selectedIndex + 1 + j;
 				}
-				else
+				
+				switch(selectionMode)
 				{
-					indicesForNotification[j] = selectedItemListSizeStart + j;
+					case DISABLE_SELECTED:
+						availableEntry.setEnabled(false);
+					break;
+					case KEEP_SELECTED:
+					break;
+					case REMOVE_SELECTED:
+						availableItemList.remove(availableIndices[i]);
+					break;
 				}
 			}
-			notifyListSelectionListeners(indicesForNotification);
+		}
+		finally
+		{
+			endBulkUpdate();
 		}
 		
+		availableList.setSelectedIndex(lowestAvailableIndex);
+		
+		if(insertedCount > 0)
+		{
+			int[] indicesForNotification = new int[insertedCount];
+			for(int j = 0; j < insertedCount; j++)
+			{
+				indicesForNotification[j] = selectedInsertIndex + j;
+			}
+			notifyListSelectionListeners(indicesForNotification);
+		}
 	}
 	
 	
@@ -2395,10 +2471,18 @@ public class XdevDualListBox extends XComponent implements XdevFocusCycleCompone
 	private int[] getIndicesOfEntries(Collection<Entry> entries)
 	{
 		ItemList availableItems = this.getAvailableAsItemList();
+		int ac = availableItems.size();
+		ItemListIndex availableIndex = new ItemListIndex(availableItems);
+		boolean[] matches = new boolean[ac];
+		for(Entry entry : entries)
+		{
+			availableIndex.markIndicesOf(entry,matches);
+		}
+		
 		IntList indices = new IntList();
-		for(int i = 0; i < availableItems.size(); i++)
+		for(int i = 0; i < ac; i++)
 		{
-			if(entries.contains(availableItems.get(i)))
+			if(matches[i])
 			{
 				indices.add(i);
 			}
@@ -2409,19 +2493,14 @@ public class XdevDualListBox extends XComponent implements XdevFocusCycleCompone
 	
 	int[] getIndicesOfData(Collection data)
 	{
-		ItemList availableItems = this.getAvailableAsItemList();
-		List availableData = availableItems.getDataAsList();
-		int ac = availableData.size();
+		ItemListIndex availableIndex = new ItemListIndex(this.getAvailableAsItemList());
 		IntList indices = new IntList();
 		for(Object value : data)
 		{
-			for(int i = 0; i < ac; i++)
+			int index = availableIndex.indexOfData(value);
+			if(index >= 0)
 			{
-				if(VirtualTable.equals(availableData.get(i),value))
-				{
-					indices.add(i);
-					break;
-				}
+				indices.add(index);
 			}
 		}
 		indices.sort();
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -82,9 +83,10 @@ public class XdevNmDualListBox extends XdevDualListBox implements ManyToManyComp
 	private VirtualTable			savedState;
 	
 	/**
-	 * The state of the available lists virtual table at the time of refreshing.
+	 * The primary keys of the persisted links, indexed by
+	 * <code>[detail id, master id]</code>.
 	 */
-	private VirtualTable			availableSavedState;
+	private Map<List<Object>, Object>	linkPks				= new HashMap<List<Object>, Object>();
 	
 	/**
 	 * the column name used as item representation.
@@ -293,7 +295,7 @@ public class XdevNmDualListBox extends XdevDualListBox implements ManyToManyComp
 			// after
 			// updateModel
 			savedState = vt.clone(true);
-			availableSavedState = vt.clone(true);
+			indexLinkPks(savedState);
 			int[] indices = state.fillUpNMTable(vt,savedState);
 			availableList.getItemList().syncWithVT();
 			this.addToSelected(indices);
@@ -324,6 +326,18 @@ public class XdevNmDualListBox extends XdevDualListBox implements ManyToManyComp
 		VirtualTable vt = selectedList.getVirtualTable();
 		KeyValues foreignKeyValues = state.getForeignKeyValues();
 		MasterDetail.updateForeignKeys(vt,foreignKeyValues);
+		String masterName = foreignKeyValues.getColumnNames()[0];
+		Object masterId = foreignKeyValues.getValue(masterName);
+		
+		// the persisted links by detail id, the ones which are still selected
+		// are removed while building the vt, the remaining are deleted
+		Map<Object, VirtualTableRow> removedLinks = new LinkedHashMap<Object, VirtualTableRow>();
+		for(int i = 0; i < savedState.getRowCount(); i++)
+		{
+			removedLinks.put(savedState.getValueAt(i,dataColumn),savedState.getRow(i));
+		}
+		
+		List<VirtualTableRow> added = new ArrayList<VirtualTableRow>();
 		
 		// build vt from itemlist entries of the selected list
 		vt.clear();
@@ -331,33 +345,30 @@ public class XdevNmDualListBox extends XdevDualListBox implements ManyToManyComp
 		VirtualTableColumn<?> pkColumn = vt.getPrimaryColumn();
 		for(int i = 0; i < selectedItemlist.size(); i++)
 		{
-			Map<String, Object> map = new HashMap<String, Object>();
+			Object detailId = selectedItemlist.getData(i);
 			
-			map.put(dataColumn,selectedItemlist.getData(i));
-			String masterName = foreignKeyValues.getColumnNames()[0];
-			map.put(masterName,foreignKeyValues.getValue(masterName));
-			// look up id from saved available vt by comparing master + detail
-			// id
-			Object pk = getPk(selectedItemlist.getData(i),foreignKeyValues.getValue(masterName),
-					foreignKeyValues);
+			Map<String, Object> map = new HashMap<String, Object>();
+			map.put(dataColumn,detailId);
+			map.put(masterName,masterId);
+			// look up id of the persisted link by master + detail id
+			Object pk = getPk(detailId,masterId);
 			if(pk != null)
 			{
 				map.put(pkColumn.getName(),pk);
 			}
 			
 			vt.addRow(map,false);
+			
+			if(removedLinks.remove(detailId) == null)
+			{
+				added.add(vt.getRow(vt.getRowCount() - 1));
+			}
 		}
 		
-		List<VirtualTableRow> added = new ArrayList<VirtualTableRow>();
+		// links have no other columns than the keys, so they are either added
+		// or deleted
 		List<VirtualTableRow> changed = new ArrayList<VirtualTableRow>();
-		List<VirtualTableRow> deleted = new ArrayList<VirtualTableRow>();
-		
-		for(int i = 0; i < vt.getRowCount(); i++)
-		{
-			added.add(vt.getRow(i));
-		}
-		
-		ManyToMany.getChanges(savedState,added,changed,deleted);
+		List<VirtualTableRow> deleted = new ArrayList<VirtualTableRow>(removedLinks.values());
 		
 		if(synchronizeDB)
 		{
@@ -370,6 +381,7 @@ public class XdevNmDualListBox extends XdevDualListBox implements ManyToManyComp
 			// re-get rows with generated keys
 			savedState.addRow(vt.getRow(i),false);
 		}
+		indexLinkPks(savedState);
 		state = new State(state.masterRecord,vt);
 		
 		// refresh(masterRecord);
@@ -378,31 +390,44 @@ public class XdevNmDualListBox extends XdevDualListBox implements ManyToManyComp
 	
 	
 	/**
-	 * Gets the primary key value from the availableSavedState with same detail
-	 * and master id.
+	 * Rebuilds the primary key index of the persisted links from
+	 * <code>links</code>.
+	 * 
+	 * @param links
+	 *            the persisted links
+	 */
+	private void indexLinkPks(VirtualTable links)
+	{
+		linkPks.clear();
+		
+		VirtualTableColumn<?> pkColumn = links.getPrimaryColumn();
+		String masterName = state.getForeignKeyValues().getColumnNames()[0];
+		int rowCount = links.getRowCount();
+		for(int i = 0; i < rowCount; i++)
+		{
+			Object pk = links.getValueAt(i,pkColumn.getName());
+			if(pk != null)
+			{
+				linkPks.put(Arrays.asList(links.getValueAt(i,dataColumn),
+						links.getValueAt(i,masterName)),pk);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Gets the primary key value of the persisted link with same detail and
+	 * master id.
 	 * 
 	 * @param detailId
 	 *            the referenced id from the detail
 	 * @param masterId
 	 *            the references id from the master
-	 * @param foreignKeyValues
-	 *            the foreign key used to get the current master id
 	 * @return the primary key value, or {@code null} if none found
 	 */
-	private Object getPk(Object detailId, Object masterId, KeyValues foreignKeyValues)
+	private Object getPk(Object detailId, Object masterId)
 	{
-		VirtualTableColumn<?> pkColumn = availableSavedState.getPrimaryColumn();
-		for(int i = 0; i < availableSavedState.getRowCount(); i++)
-		{
-			Object currentDetailId = availableSavedState.getValueAt(i,dataColumn);
-			Object currentMasterId = availableSavedState.getValueAt(i,
-					foreignKeyValues.getColumnNames()[0]);
-			if(detailId.equals(currentDetailId) && masterId.equals(currentMasterId))
-			{
-				return availableSavedState.getValueAt(i,pkColumn.getName());
-			}
-		}
-		return null;
+		return linkPks.get(Arrays.asList(detailId,masterId));
 	}
 	
 	
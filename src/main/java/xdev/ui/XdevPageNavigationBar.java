@@ -40,8 +40,6 @@ import javax.swing.event.ChangeListener;
 
 import xdev.ui.table.ExtendedTable;
 
-import com.jidesoft.grid.TableModelWrapperUtils;
-import com.jidesoft.list.ListModelWrapperUtils;
 import com.jidesoft.paging.PageNavigationBar;
 import com.jidesoft.paging.PageNavigationSupport;
 
@@ -592,6 +590,12 @@ public class XdevPageNavigationBar extends JPanel implements XdevFocusCycleCompo
 				
 				this.table.addPropertyChangeListener(MODEL_CHANGED_IDENTIFIER,
 						tableModelChangeListener);
+				
+				// the cached wrapper lookups of the table's models
+				this.table.removePropertyChangeListener(MODEL_CHANGED_IDENTIFIER,
+						ModelWrapperResolutionCache.getModelChangeListener());
+				this.table.addPropertyChangeListener(MODEL_CHANGED_IDENTIFIER,
+						ModelWrapperResolutionCache.getModelChangeListener());
 			}
 		}
 		
@@ -621,7 +625,7 @@ public class XdevPageNavigationBar extends JPanel implements XdevFocusCycleCompo
 		@Override
 		public PageNavigationSupport getPageNavigationSupport()
 		{
-			return (PageNavigationSupport)TableModelWrapperUtils.getActualTableModel(
+			return (PageNavigationSupport)ModelWrapperResolutionCache.getActualTableModel(
 					table.getModel(),PageNavigationSupport.class);
 		}
 		
@@ -727,6 +731,12 @@ public class XdevPageNavigationBar extends JPanel implements XdevFocusCycleCompo
 		{
 			this.list = list;
 			
+			// the cached wrapper lookups of the list's models
+			this.list.removePropertyChangeListener(MODEL_CHANGED_IDENTIFIER,
+					ModelWrapperResolutionCache.getModelChangeListener());
+			this.list.addPropertyChangeListener(MODEL_CHANGED_IDENTIFIER,
+					ModelWrapperResolutionCache.getModelChangeListener());
+			
 			// flag handling to avoid infinite prop change loop
 			this.list.addPropertyChangeListener(MODEL_CHANGED_IDENTIFIER,
 					new PropertyChangeListener()
@@ -775,8 +785,8 @@ public class XdevPageNavigationBar extends JPanel implements XdevFocusCycleCompo
 		@Override
 		public PageNavigationSupport getPageNavigationSupport()
 		{
-			return (PageNavigationSupport)ListModelWrapperUtils.getActualListModel(list.getModel(),
-					PageNavigationSupport.class);
+			return (PageNavigationSupport)ModelWrapperResolutionCache.getActualListModel(
+					list.getModel(),PageNavigationSupport.class);
 		}
 		
 		
@@ -27,11 +27,13 @@ import javax.swing.ComboBoxModel;
 import javax.swing.Icon;
 import javax.swing.JComboBox;
 import javax.swing.JTextField;
+import javax.swing.ListModel;
 import javax.swing.event.CaretListener;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.JTextComponent;
 
 import xdev.ui.persistence.Persistable;
+import xdev.ui.quickfilter.QuickFilterScheduler;
 import xdev.ui.quickfilter.QuickFilterSearchMode;
 import xdev.ui.quickfilter.QuickFilterSearchOption;
 
@@ -73,6 +75,11 @@ public class XdevQuickComboBoxFilterField extends QuickComboBoxFilterField imple
 	 */
 	private boolean				contextMenuDisabled			= false;
 	
+	/**
+	 * Debounces the filter passes.
+	 */
+	private QuickFilterScheduler	filterScheduler;
+	
 	
 	/**
 	 * @see QuickComboBoxFilterField#QuickComboBoxFilterField()
@@ -173,11 +180,18 @@ public class XdevQuickComboBoxFilterField extends QuickComboBoxFilterField imple
 			if(oldComboBox != null)
 			{
 				oldComboBox.removePropertyChangeListener("model",comboBoxModelChangeListener);
+				oldComboBox.removePropertyChangeListener("model",
+						ModelWrapperResolutionCache.getModelChangeListener());
 			}
 			
 			super.setComboBox(newComboBox);
 			
 			newComboBox.addPropertyChangeListener("model",comboBoxModelChangeListener);
+			// the cached wrapper lookups of the combobox's models
+			newComboBox.removePropertyChangeListener("model",
+					ModelWrapperResolutionCache.getModelChangeListener());
+			newComboBox.addPropertyChangeListener("model",
+					ModelWrapperResolutionCache.getModelChangeListener());
 		}
 	}
 	
@@ -225,6 +239,9 @@ public class XdevQuickComboBoxFilterField extends QuickComboBoxFilterField imple
 	public void setModel(ComboBoxModel comboBoxModel)
 	{
 		this.setComboBoxModel(comboBoxModel);
+		
+		// the display model wraps another model now
+		ModelWrapperResolutionCache.invalidate(getDisplayComboBoxModel());
 	}
 	
 	//
@@ -445,6 +462,110 @@ public class XdevQuickComboBoxFilterField extends QuickComboBoxFilterField imple
 	}
 	
 	
+	/**
+	 * Sets the delay after the last keystroke before the filter is applied.
+	 * Keystrokes within the delay replace the pending filter pass, so only
+	 * the final text is filtered.
+	 * 
+	 * @param filterDelay
+	 *            the delay in milliseconds, <code>0</code> (default) to filter
+	 *            on every keystroke
+	 */
+	public void setFilterDelay(int filterDelay)
+	{
+		getFilterScheduler().setDelay(filterDelay);
+	}
+	
+	
+	/**
+	 * Returns the delay after the last keystroke before the filter is applied.
+	 * 
+	 * @return the filter delay in milliseconds
+	 * @see #setFilterDelay(int)
+	 */
+	public int getFilterDelay()
+	{
+		return getFilterScheduler().getDelay();
+	}
+	
+	
+	private QuickFilterScheduler getFilterScheduler()
+	{
+		if(filterScheduler == null)
+		{
+			filterScheduler = new QuickFilterScheduler(this,new QuickFilterScheduler.ListFilterPass()
+			{
+				private static final long	serialVersionUID	= 1L;
+				
+				
+				@Override
+				public void applyFilter(String text)
+				{
+					XdevQuickComboBoxFilterField.super.applyFilter(text);
+				}
+				
+				
+				@Override
+				public String convertElementToString(Object element)
+				{
+					return XdevQuickComboBoxFilterField.this.convertElementToString(element);
+				}
+				
+				
+				@Override
+				protected ListModel getListModel()
+				{
+					return XdevQuickComboBoxFilterField.this.getComboBoxModel();
+				}
+				
+				
+				@Override
+				protected ListModel getDisplayListModel()
+				{
+					return XdevQuickComboBoxFilterField.this.getDisplayComboBoxModel();
+				}
+			});
+		}
+		return filterScheduler;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Applied after the filter delay. With a delay, the elements are matched in
+	 * the background; without, the filter is applied before returning.
+	 * </p>
+	 * 
+	 * @see #setFilterDelay(int)
+	 */
+	@Override
+	public void applyFilter(String text)
+	{
+		getFilterScheduler().schedule(text);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Applied right away, a pending delayed filter pass is dropped.
+	 * </p>
+	 */
+	@Override
+	public void applyFilter()
+	{
+		getFilterScheduler().runImmediately(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				XdevQuickComboBoxFilterField.super.applyFilter();
+			}
+		});
+	}
+	
+	
 	/**
 	 * Overriding this method here to make the display of the context menu
 	 * configurable.
@@ -32,6 +32,7 @@ import javax.swing.event.DocumentListener;
 import javax.swing.text.JTextComponent;
 
 import xdev.ui.persistence.Persistable;
+import xdev.ui.quickfilter.QuickFilterScheduler;
 import xdev.ui.quickfilter.QuickFilterSearchMode;
 import xdev.ui.quickfilter.QuickFilterSearchOption;
 
@@ -80,6 +81,11 @@ public class XdevQuickListFilterField extends QuickListFilterField implements
 	 */
 	private boolean				contextMenuDisabled			= false;
 	
+	/**
+	 * Debounces the filter passes.
+	 */
+	private QuickFilterScheduler	filterScheduler;
+	
 	
 	/**
 	 * @see QuickListFilterField#QuickListFilterField()
@@ -182,11 +188,18 @@ public class XdevQuickListFilterField extends QuickListFilterField implements
 			if(oldListBox != null)
 			{
 				oldListBox.removePropertyChangeListener("model",listBoxModelChangeListener);
+				oldListBox.removePropertyChangeListener("model",
+						ModelWrapperResolutionCache.getModelChangeListener());
 			}
 			
 			super.setList(newList);
 			
 			newList.addPropertyChangeListener("model",listBoxModelChangeListener);
+			// the cached wrapper lookups of the list's models
+			newList.removePropertyChangeListener("model",
+					ModelWrapperResolutionCache.getModelChangeListener());
+			newList.addPropertyChangeListener("model",
+					ModelWrapperResolutionCache.getModelChangeListener());
 		}
 	}
 	
@@ -204,6 +217,9 @@ public class XdevQuickListFilterField extends QuickListFilterField implements
 	public void setModel(ListModel listModel)
 	{
 		this.setListModel(listModel);
+		
+		// the display model wraps another model now
+		ModelWrapperResolutionCache.invalidate(getDisplayListModel());
 	}
 	
 	//
@@ -401,6 +417,110 @@ public class XdevQuickListFilterField extends QuickListFilterField implements
 	}
 	
 	
+	/**
+	 * Sets the delay after the last keystroke before the filter is applied.
+	 * Keystrokes within the delay replace the pending filter pass, so only
+	 * the final text is filtered.
+	 * 
+	 * @param filterDelay
+	 *            the delay in milliseconds, <code>0</code> (default) to filter
+	 *            on every keystroke
+	 */
+	public void setFilterDelay(int filterDelay)
+	{
+		getFilterScheduler().setDelay(filterDelay);
+	}
+	
+	
+	/**
+	 * Returns the delay after the last keystroke before the filter is applied.
+	 * 
+	 * @return the filter delay in milliseconds
+	 * @see #setFilterDelay(int)
+	 */
+	public int getFilterDelay()
+	{
+		return getFilterScheduler().getDelay();
+	}
+	
+	
+	private QuickFilterScheduler getFilterScheduler()
+	{
+		if(filterScheduler == null)
+		{
+			filterScheduler = new QuickFilterScheduler(this,new QuickFilterScheduler.ListFilterPass()
+			{
+				private static final long	serialVersionUID	= 1L;
+				
+				
+				@Override
+				public void applyFilter(String text)
+				{
+					XdevQuickListFilterField.super.applyFilter(text);
+				}
+				
+				
+				@Override
+				public String convertElementToString(Object element)
+				{
+					return XdevQuickListFilterField.this.convertElementToString(element);
+				}
+				
+				
+				@Override
+				protected ListModel getListModel()
+				{
+					return XdevQuickListFilterField.this.getListModel();
+				}
+				
+				
+				@Override
+				protected ListModel getDisplayListModel()
+				{
+					return XdevQuickListFilterField.this.getDisplayListModel();
+				}
+			});
+		}
+		return filterScheduler;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Applied after the filter delay. With a delay, the elements are matched in
+	 * the background; without, the filter is applied before returning.
+	 * </p>
+	 * 
+	 * @see #setFilterDelay(int)
+	 */
+	@Override
+	public void applyFilter(String text)
+	{
+		getFilterScheduler().schedule(text);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Applied right away, a pending delayed filter pass is dropped.
+	 * </p>
+	 */
+	@Override
+	public void applyFilter()
+	{
+		getFilterScheduler().runImmediately(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				XdevQuickListFilterField.super.applyFilter();
+			}
+		});
+	}
+	
+	
 	/**
 	 * Overriding this method here to make the display of the context menu
 	 * configurable.
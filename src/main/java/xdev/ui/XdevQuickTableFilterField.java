@@ -22,24 +22,45 @@ import java.awt.Color;
 import java.awt.Font;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.Icon;
 import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.SwingWorker;
 import javax.swing.event.CaretListener;
 import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 import javax.swing.table.TableModel;
 import javax.swing.text.JTextComponent;
 
 import xdev.ui.persistence.Persistable;
+import xdev.ui.quickfilter.QuickFilterScheduler;
+import xdev.ui.quickfilter.QuickFilterSearchIndex;
 import xdev.ui.quickfilter.QuickFilterSearchMode;
 import xdev.ui.quickfilter.QuickFilterSearchOption;
 import xdev.ui.quickfilter.XdevNumberConverter;
 import xdev.ui.table.ExtendedTableSupport;
+import xdev.util.logging.LoggerFactory;
+import xdev.util.logging.XdevLogger;
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableColumn;
+import xdev.vt.VirtualTableWrapper;
 
 import com.jidesoft.converter.ObjectConverter;
 import com.jidesoft.converter.ObjectConverterManager;
+import com.jidesoft.grid.AbstractTableFilter;
+import com.jidesoft.grid.FilterableTableModel;
 import com.jidesoft.grid.QuickTableFilterField;
+import com.jidesoft.grid.TableModelWrapperUtils;
 import com.jidesoft.swing.JidePopupMenu;
 
 
@@ -76,6 +97,9 @@ public class XdevQuickTableFilterField extends QuickTableFilterField implements
 	 */
 	private static final long	serialVersionUID			= 1L;
 	
+	private static final XdevLogger	log							= LoggerFactory
+																	.getLogger(XdevQuickTableFilterField.class);
+	
 	/**
 	 * tabIndex is used to store the index for {@link XdevFocusCycleComponent}
 	 * functionality.
@@ -92,6 +116,33 @@ public class XdevQuickTableFilterField extends QuickTableFilterField implements
 	 */
 	private boolean				contextMenuDisabled			= false;
 	
+	/**
+	 * Flag for the indexed search.
+	 */
+	private boolean				indexedSearchEnabled		= false;
+	
+	private transient QuickFilterSearchIndex	searchIndex;
+	
+	private transient IndexedSearchFilter		indexedSearchFilter;
+	
+	private transient SwingWorker<Void, Void>	searchWorker;
+	
+	/**
+	 * The rows of the filtered model, valid until the model changes.
+	 */
+	private transient VirtualTableRow[]			rowSnapshot;
+	
+	private transient TableModel				rowSnapshotModel;
+	
+	private transient TableModelListener		rowSnapshotInvalidator;
+	
+	private int									filterGeneration			= 0;
+	
+	/**
+	 * Debounces the filter passes.
+	 */
+	private QuickFilterScheduler				filterScheduler;
+	
 	
 	/**
 	 * @see QuickTableFilterField#QuickTableFilterField()
@@ -356,6 +407,613 @@ public class XdevQuickTableFilterField extends QuickTableFilterField implements
 	}
 	
 	
+	/**
+	 * Enables or disables the indexed search.
+	 * <p>
+	 * Without the indexed search, every keystroke evaluates the filter
+	 * condition against every cell of the searched columns. If enabled and the
+	 * filtered model wraps a {@link VirtualTable}, plain text and wildcard
+	 * searches without wildcard characters are answered by a
+	 * {@link QuickFilterSearchIndex} over the formatted values instead: a
+	 * prefix index for {@link QuickFilterSearchOption#MATCH_EXACTLY} and
+	 * {@link QuickFilterSearchOption#MATCH_FROM_START} and a trigram index for
+	 * {@link QuickFilterSearchOption#MATCH_ANYWHERE}. Only the candidate rows
+	 * of the index are verified. The index follows the changes of the
+	 * {@link VirtualTable}.
+	 * </p>
+	 * <p>
+	 * Regex searches and all other models are always filtered the regular way.
+	 * </p>
+	 * 
+	 * @param indexedSearchEnabled
+	 *            <code>true</code> to enable the indexed search
+	 */
+	public void setIndexedSearchEnabled(boolean indexedSearchEnabled)
+	{
+		if(this.indexedSearchEnabled != indexedSearchEnabled)
+		{
+			this.indexedSearchEnabled = indexedSearchEnabled;
+			
+			if(!indexedSearchEnabled)
+			{
+				cancelSearch();
+				removeIndexedSearchFilter();
+				disposeSearchIndex();
+				disposeRowSnapshot();
+			}
+			
+			String text = getTextField().getText();
+			if(text != null && text.length() > 0)
+			{
+				applyFilter(text);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Returns if the indexed search is enabled.
+	 * 
+	 * @return <code>true</code> if the indexed search is enabled
+	 * @see #setIndexedSearchEnabled(boolean)
+	 */
+	public boolean isIndexedSearchEnabled()
+	{
+		return indexedSearchEnabled;
+	}
+	
+	
+	/**
+	 * Sets the delay after the last keystroke before the filter is applied.
+	 * Keystrokes within the delay replace the pending filter pass, so only
+	 * the final text is filtered.
+	 * 
+	 * @param filterDelay
+	 *            the delay in milliseconds, <code>0</code> (default) to filter
+	 *            on every keystroke
+	 */
+	public void setFilterDelay(int filterDelay)
+	{
+		getFilterScheduler().setDelay(filterDelay);
+	}
+	
+	
+	/**
+	 * Returns the delay after the last keystroke before the filter is applied.
+	 * 
+	 * @return the filter delay in milliseconds
+	 * @see #setFilterDelay(int)
+	 */
+	public int getFilterDelay()
+	{
+		return getFilterScheduler().getDelay();
+	}
+	
+	
+	private QuickFilterScheduler getFilterScheduler()
+	{
+		if(filterScheduler == null)
+		{
+			filterScheduler = new QuickFilterScheduler(new QuickFilterScheduler.FilterPass()
+			{
+				private static final long	serialVersionUID	= 1L;
+				
+				
+				@Override
+				public void applyFilter(String text)
+				{
+					applyFilterNow(text);
+				}
+			});
+		}
+		return filterScheduler;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Applied after the filter delay. With a delay, the indexed search runs
+	 * in the background; without, the filter is applied before returning.
+	 * </p>
+	 * 
+	 * @see #setFilterDelay(int)
+	 * @see #setIndexedSearchEnabled(boolean)
+	 */
+	@Override
+	public void applyFilter(String text)
+	{
+		getFilterScheduler().schedule(text);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Applied right away, a pending delayed filter pass is dropped.
+	 * </p>
+	 */
+	@Override
+	public void applyFilter()
+	{
+		getFilterScheduler().runImmediately(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				XdevQuickTableFilterField.super.applyFilter();
+			}
+		});
+	}
+	
+	
+	private void applyFilterNow(String text)
+	{
+		filterGeneration++;
+		cancelSearch();
+		
+		TableModel tableModel = getTableModel();
+		TableModel displayModel = getDisplayTableModel();
+		VirtualTableWrapper wrapper = (VirtualTableWrapper)ModelWrapperResolutionCache
+				.getActualTableModel(tableModel,VirtualTableWrapper.class);
+		
+		QuickFilterSearchOption option = isFromStart() ? (isFromEnd() ? QuickFilterSearchOption.MATCH_EXACTLY
+				: QuickFilterSearchOption.MATCH_FROM_START)
+				: (isFromEnd() ? null : QuickFilterSearchOption.MATCH_ANYWHERE);
+		
+		if(!indexedSearchEnabled || text == null || text.length() == 0 || option == null
+				|| isRegexEnabled()
+				|| (isWildcardEnabled() && (text.indexOf('*') >= 0 || text.indexOf('?') >= 0))
+				|| wrapper == null || !(displayModel instanceof FilterableTableModel)
+				|| tableModel.getColumnCount() == 0)
+		{
+			removeIndexedSearchFilter();
+			super.applyFilter(text);
+			return;
+		}
+		
+		QuickFilterSearchIndex index = getSearchIndex(tableModel,wrapper);
+		int[] searchingColumnIndices = getSearchingColumnIndices();
+		VirtualTableColumn<?>[] searchedColumns = searchingColumnIndices != null ? getVirtualTableColumns(
+				tableModel,wrapper,searchingColumnIndices) : null;
+		
+		final IndexedSearchFilter filter = new IndexedSearchFilter(index,text,searchedColumns,
+				option,isCaseSensitive(),tableModel,wrapper);
+		final int modificationCount = index.getModificationCount();
+		final VirtualTableRow[] rows = getRowSnapshot(tableModel,wrapper);
+		
+		final Callable<Set<VirtualTableRow>> search;
+		if(indexedSearchFilter != null && filter.refines(indexedSearchFilter))
+		{
+			/*
+			 * Narrow the previous result, with a filter delay the previous
+			 * filter stays active until the narrowed result is available.
+			 */
+			search = index.narrow(indexedSearchFilter.getMatches(),text,searchedColumns,option,
+					isCaseSensitive());
+		}
+		else
+		{
+			// the candidates are collected here, they are verified by the task
+			search = index.prepareSearch(text,searchedColumns,option,isCaseSensitive());
+		}
+		
+		/*
+		 * The visible rows are collected by the task too, installing the
+		 * filter only has to apply them.
+		 */
+		final Callable<Void> searchPass = new Callable<Void>()
+		{
+			@Override
+			public Void call() throws Exception
+			{
+				Set<VirtualTableRow> matches = search.call();
+				filter.setMatches(matches,modificationCount);
+				
+				BitSet visibleRows = new BitSet(rows.length);
+				for(int row = 0; row < rows.length; row++)
+				{
+					if(Thread.interrupted())
+					{
+						throw new InterruptedException();
+					}
+					if(rows[row] != null && matches.contains(rows[row]))
+					{
+						visibleRows.set(row);
+					}
+				}
+				filter.setVisibleRows(visibleRows,rows);
+				return null;
+			}
+		};
+		
+		if(!getFilterScheduler().isBackgroundPass())
+		{
+			// without filter delay the filter is applied before returning
+			try
+			{
+				searchPass.call();
+			}
+			catch(Exception e)
+			{
+				log.error(e);
+			}
+			installIndexedSearchFilter(filter);
+			return;
+		}
+		
+		final int generation = filterGeneration;
+		searchWorker = new SwingWorker<Void, Void>()
+		{
+			@Override
+			protected Void doInBackground() throws Exception
+			{
+				return searchPass.call();
+			}
+			
+			
+			@Override
+			protected void done()
+			{
+				if(isCancelled() || generation != filterGeneration)
+				{
+					return;
+				}
+				
+				searchWorker = null;
+				
+				try
+				{
+					get();
+				}
+				catch(InterruptedException e)
+				{
+					log.error(e);
+				}
+				catch(ExecutionException e)
+				{
+					log.error(e.getCause());
+				}
+				
+				// without matches the filter searches the index itself
+				installIndexedSearchFilter(filter);
+			}
+		};
+		searchWorker.execute();
+	}
+	
+	
+	private void installIndexedSearchFilter(IndexedSearchFilter filter)
+	{
+		if(indexedSearchFilter == null)
+		{
+			// removes the regular filter
+			super.applyFilter("");
+		}
+		else
+		{
+			removeIndexedSearchFilter();
+		}
+		
+		indexedSearchFilter = filter;
+		
+		FilterableTableModel filterableModel = (FilterableTableModel)getDisplayTableModel();
+		boolean otherFilters = filterableModel.hasFilter();
+		filterableModel.addFilter(0,filter);
+		filterableModel.setFiltersApplied(true);
+		
+		int[] visibleRows = filter.getVisibleRowIndices(rowSnapshot);
+		if(visibleRows != null && !otherFilters)
+		{
+			// the precomputed rows are the result, no need to filter again
+			filterableModel.setIndexes(visibleRows);
+			filterableModel.fireTableDataChanged();
+		}
+		else
+		{
+			filterableModel.refresh();
+		}
+	}
+	
+	
+	private void cancelSearch()
+	{
+		if(searchWorker != null)
+		{
+			searchWorker.cancel(true);
+			searchWorker = null;
+		}
+	}
+	
+	
+	private void removeIndexedSearchFilter()
+	{
+		if(indexedSearchFilter != null)
+		{
+			TableModel displayModel = getDisplayTableModel();
+			if(displayModel instanceof FilterableTableModel)
+			{
+				((FilterableTableModel)displayModel).removeFilter(0,indexedSearchFilter);
+			}
+			indexedSearchFilter = null;
+		}
+	}
+	
+	
+	/**
+	 * Returns the {@link VirtualTableRow}s of the rows of
+	 * <code>tableModel</code>. The snapshot is kept until
+	 * <code>tableModel</code> changes.
+	 */
+	private VirtualTableRow[] getRowSnapshot(TableModel tableModel, VirtualTableWrapper wrapper)
+	{
+		if(rowSnapshotModel != tableModel)
+		{
+			disposeRowSnapshot();
+			
+			if(rowSnapshotInvalidator == null)
+			{
+				rowSnapshotInvalidator = new TableModelListener()
+				{
+					@Override
+					public void tableChanged(TableModelEvent e)
+					{
+						rowSnapshot = null;
+						if(indexedSearchFilter != null)
+						{
+							indexedSearchFilter.setVisibleRows(null,null);
+						}
+					}
+				};
+			}
+			
+			/*
+			 * Added after the filtered model's listener, so the snapshot and
+			 * the visible rows are invalidated before the filtered model
+			 * refreshes.
+			 */
+			tableModel.addTableModelListener(rowSnapshotInvalidator);
+			rowSnapshotModel = tableModel;
+		}
+		
+		if(rowSnapshot == null)
+		{
+			VirtualTableRow[] rows = new VirtualTableRow[tableModel.getRowCount()];
+			for(int row = 0; row < rows.length; row++)
+			{
+				int wrapperRow = tableModel == wrapper ? row : TableModelWrapperUtils
+						.getActualRowAt(tableModel,row,VirtualTableWrapper.class);
+				if(wrapperRow >= 0)
+				{
+					rows[row] = wrapper.getVirtualTableRow(wrapperRow);
+				}
+			}
+			rowSnapshot = rows;
+		}
+		
+		return rowSnapshot;
+	}
+	
+	
+	private void disposeRowSnapshot()
+	{
+		if(rowSnapshotModel != null)
+		{
+			rowSnapshotModel.removeTableModelListener(rowSnapshotInvalidator);
+			rowSnapshotModel = null;
+		}
+		rowSnapshot = null;
+	}
+	
+	
+	private QuickFilterSearchIndex getSearchIndex(TableModel tableModel,
+			VirtualTableWrapper wrapper)
+	{
+		int[] columnIndices = getColumnIndices();
+		if(columnIndices == null)
+		{
+			columnIndices = new int[tableModel.getColumnCount()];
+			for(int i = 0; i < columnIndices.length; i++)
+			{
+				columnIndices[i] = i;
+			}
+		}
+		VirtualTableColumn<?>[] columns = getVirtualTableColumns(tableModel,wrapper,columnIndices);
+		
+		if(searchIndex != null
+				&& (searchIndex.getVirtualTable() != wrapper.getVirtualTable() || !Arrays.equals(
+						searchIndex.getColumns(),columns)))
+		{
+			disposeSearchIndex();
+		}
+		
+		if(searchIndex == null)
+		{
+			searchIndex = new QuickFilterSearchIndex(wrapper.getVirtualTable(),columns)
+			{
+				@Override
+				protected String toString(Object value)
+				{
+					String string = convertElementToString(value);
+					return string != null ? string : "";
+				}
+			};
+		}
+		
+		return searchIndex;
+	}
+	
+	
+	private void disposeSearchIndex()
+	{
+		if(searchIndex != null)
+		{
+			searchIndex.dispose();
+			searchIndex = null;
+		}
+	}
+	
+	
+	private static VirtualTableColumn<?>[] getVirtualTableColumns(TableModel tableModel,
+			VirtualTableWrapper wrapper, int[] columnIndices)
+	{
+		int[] wrapperColumnIndices = wrapper.getModelColumnIndices();
+		List<VirtualTableColumn<?>> columns = new ArrayList<VirtualTableColumn<?>>(
+				columnIndices.length);
+		for(int columnIndex : columnIndices)
+		{
+			int wrapperColumnIndex = tableModel == wrapper ? columnIndex : TableModelWrapperUtils
+					.getActualColumnAt(tableModel,columnIndex,VirtualTableWrapper.class);
+			if(wrapperColumnIndex >= 0 && wrapperColumnIndex < wrapperColumnIndices.length)
+			{
+				columns.add(wrapper.getVirtualTable().getColumnAt(
+						wrapperColumnIndices[wrapperColumnIndex]));
+			}
+		}
+		return columns.toArray(new VirtualTableColumn<?>[columns.size()]);
+	}
+	
+	
+	
+	/**
+	 * Hides all rows which are not found by the indexed search.
+	 */
+	private static class IndexedSearchFilter extends AbstractTableFilter<Object>
+	{
+		private static final long				serialVersionUID	= 2139286317845370624L;
+		
+		private final QuickFilterSearchIndex	index;
+		private final String					text;
+		private final VirtualTableColumn<?>[]	columns;
+		private final QuickFilterSearchOption	option;
+		private final boolean					caseSensitive;
+		private final TableModel				tableModel;
+		private final VirtualTableWrapper		wrapper;
+		private Set<VirtualTableRow>			matches;
+		private int								matchesModificationCount;
+		private BitSet							visibleRows;
+		private VirtualTableRow[]				visibleRowsSnapshot;
+		
+		
+		IndexedSearchFilter(QuickFilterSearchIndex index, String text,
+				VirtualTableColumn<?>[] columns, QuickFilterSearchOption option,
+				boolean caseSensitive, TableModel tableModel, VirtualTableWrapper wrapper)
+		{
+			this.index = index;
+			this.text = text;
+			this.columns = columns;
+			this.option = option;
+			this.caseSensitive = caseSensitive;
+			this.tableModel = tableModel;
+			this.wrapper = wrapper;
+		}
+		
+		
+		/**
+		 * Checks if this filter's search only narrows the search of
+		 * <code>previous</code>, i.e. all rows matching this filter also match
+		 * <code>previous</code>.
+		 */
+		boolean refines(IndexedSearchFilter previous)
+		{
+			if(previous.matches == null || previous.index != index
+					|| previous.matchesModificationCount != index.getModificationCount()
+					|| previous.option != option || previous.caseSensitive != caseSensitive
+					|| !Arrays.equals(previous.columns,columns)
+					|| option == QuickFilterSearchOption.MATCH_EXACTLY
+					|| text.length() <= previous.text.length())
+			{
+				return false;
+			}
+			
+			String text = caseSensitive ? this.text : this.text.toLowerCase();
+			String previousText = caseSensitive ? previous.text : previous.text.toLowerCase();
+			return option == QuickFilterSearchOption.MATCH_FROM_START ? text
+					.startsWith(previousText) : text.contains(previousText);
+		}
+		
+		
+		Set<VirtualTableRow> getMatches()
+		{
+			ensureMatches();
+			return matches;
+		}
+		
+		
+		void setMatches(Set<VirtualTableRow> matches, int modificationCount)
+		{
+			this.matches = matches;
+			this.matchesModificationCount = modificationCount;
+		}
+		
+		
+		void setVisibleRows(BitSet visibleRows, VirtualTableRow[] rowSnapshot)
+		{
+			this.visibleRows = visibleRows;
+			this.visibleRowsSnapshot = rowSnapshot;
+		}
+		
+		
+		/**
+		 * Returns the visible rows, if they were computed for
+		 * <code>rowSnapshot</code>, drops them otherwise.
+		 */
+		int[] getVisibleRowIndices(VirtualTableRow[] rowSnapshot)
+		{
+			if(visibleRows == null || visibleRowsSnapshot != rowSnapshot
+					|| matchesModificationCount != index.getModificationCount())
+			{
+				setVisibleRows(null,null);
+				return null;
+			}
+			
+			int[] indices = new int[visibleRows.cardinality()];
+			for(int i = 0, row = visibleRows.nextSetBit(0); row >= 0; row = visibleRows
+					.nextSetBit(row + 1))
+			{
+				indices[i++] = row;
+			}
+			return indices;
+		}
+		
+		
+		private void ensureMatches()
+		{
+			// the index has changed since the last search
+			if(matches == null || matchesModificationCount != index.getModificationCount())
+			{
+				matches = index.search(text,columns,option,caseSensitive);
+				matchesModificationCount = index.getModificationCount();
+			}
+		}
+		
+		
+		@Override
+		public boolean isValueFiltered(Object value)
+		{
+			ensureMatches();
+			
+			int row = getRowIndex();
+			if(visibleRows != null && matchesModificationCount == index.getModificationCount())
+			{
+				return !visibleRows.get(row);
+			}
+			
+			if(tableModel != wrapper)
+			{
+				row = TableModelWrapperUtils.getActualRowAt(tableModel,row,
+						VirtualTableWrapper.class);
+			}
+			if(row < 0)
+			{
+				return false;
+			}
+			
+			return !matches.contains(wrapper.getVirtualTableRow(row));
+		}
+	}
+	
+	
 	/**
 	 * Overridden to do appropriate ObjectConversion when dealing with localized
 	 * types.
@@ -36,10 +36,12 @@ import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
 import com.jidesoft.combobox.QuickComboBoxFilterField;
+import com.jidesoft.filter.Filter;
 import com.jidesoft.swing.JidePopupMenu;
 import com.jidesoft.tree.QuickTreeFilterField;
 
 import xdev.ui.persistence.Persistable;
+import xdev.ui.quickfilter.QuickFilterScheduler;
 import xdev.ui.quickfilter.QuickFilterSearchMode;
 import xdev.ui.quickfilter.QuickFilterSearchOption;
 import xdev.ui.tree.XdevTreeNode;
@@ -74,6 +76,11 @@ public class XdevQuickTreeFilterField extends QuickTreeFilterField implements
 	 */
 	private boolean				contextMenuDisabled		= false;
 	
+	/**
+	 * Debounces the filter passes.
+	 */
+	private QuickFilterScheduler	filterScheduler;
+	
 	/**
 	 * Flag for dynamic tree expansion for filtered leaf nodes.
 	 */
@@ -507,14 +514,120 @@ public class XdevQuickTreeFilterField extends QuickTreeFilterField implements
 	}
 	
 	
+	/**
+	 * Sets the delay after the last keystroke before the filter is applied.
+	 * Keystrokes within the delay replace the pending filter pass, so only
+	 * the final text is filtered.
+	 * 
+	 * @param filterDelay
+	 *            the delay in milliseconds, <code>0</code> (default) to filter
+	 *            on every keystroke
+	 */
+	public void setFilterDelay(int filterDelay)
+	{
+		getFilterScheduler().setDelay(filterDelay);
+	}
+	
+	
+	/**
+	 * Returns the delay after the last keystroke before the filter is applied.
+	 * 
+	 * @return the filter delay in milliseconds
+	 * @see #setFilterDelay(int)
+	 */
+	public int getFilterDelay()
+	{
+		return getFilterScheduler().getDelay();
+	}
+	
+	
+	private QuickFilterScheduler getFilterScheduler()
+	{
+		if(filterScheduler == null)
+		{
+			filterScheduler = new QuickFilterScheduler(this,new QuickFilterScheduler.TreeFilterPass()
+			{
+				private static final long	serialVersionUID	= 1L;
+				
+				
+				@Override
+				public void applyFilter(String text)
+				{
+					XdevQuickTreeFilterField.super.applyFilter(text);
+				}
+				
+				
+				@Override
+				public String convertElementToString(Object element)
+				{
+					return XdevQuickTreeFilterField.this.convertElementToString(element);
+				}
+				
+				
+				@Override
+				protected TreeModel getTreeModel()
+				{
+					return XdevQuickTreeFilterField.this.getTreeModel();
+				}
+				
+				
+				@Override
+				protected TreeModel getDisplayTreeModel()
+				{
+					return XdevQuickTreeFilterField.this.getDisplayTreeModel();
+				}
+				
+				
+				@Override
+				public void filterApplied(String text, Filter<?> filter)
+				{
+					expandFilteredLeafNodes(text,filter != null ? filter : getFilter());
+				}
+			});
+		}
+		return filterScheduler;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * Applied after the filter delay. With a delay, the nodes are matched in
+	 * the background; without, the filter is applied before returning.
+	 * </p>
+	 * 
+	 * @see #setFilterDelay(int)
 	 */
 	@Override
-	public void applyFilter(String filterText)
+	public void applyFilter(String text)
+	{
+		getFilterScheduler().schedule(text);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Applied right away, a pending delayed filter pass is dropped.
+	 * </p>
+	 */
+	@Override
+	public void applyFilter()
+	{
+		getFilterScheduler().runImmediately(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				XdevQuickTreeFilterField.super.applyFilter();
+			}
+		});
+	}
+	
+	
+	@SuppressWarnings("rawtypes")
+	private void expandFilteredLeafNodes(String filterText, Filter filter)
 	{
-		super.applyFilter(filterText);
-		
 		/*
 		 * #12407 - if expandFilteredLeafNodes is true, the tree will
 		 * automatically be expanded on to the leaf node(s), matching the
@@ -527,7 +640,7 @@ public class XdevQuickTreeFilterField extends QuickTreeFilterField implements
 				XdevTree xdevTree = (XdevTree)this.getTree();
 				xdevTree.collapseAll();
 				
-				List<XdevTreeNode> searchNodes = searchNodesMatchingFilter(filterText);
+				List<XdevTreeNode> searchNodes = searchNodesMatchingFilter(filterText,filter);
 				if(searchNodes != null)
 				{
 					for(XdevTreeNode xdevTreeNode : searchNodes)
@@ -551,10 +664,12 @@ public class XdevQuickTreeFilterField extends QuickTreeFilterField implements
 	 * 
 	 * @param filterText
 	 *            String containing the current filter text
+	 * @param filter
+	 *            the applied filter
 	 * @return a list of XdevTreeNode instances
 	 */
-	@SuppressWarnings("unchecked")
-	private List<XdevTreeNode> searchNodesMatchingFilter(String filterText)
+	@SuppressWarnings({"unchecked","rawtypes"})
+	private List<XdevTreeNode> searchNodesMatchingFilter(String filterText, Filter filter)
 	{
 		// (19.10.2020 TB)FIXME: cast to xdevtreenode?
 		List<XdevTreeNode> list = null;
@@ -564,7 +679,7 @@ public class XdevQuickTreeFilterField extends QuickTreeFilterField implements
 		while(e.hasMoreElements())
 		{
 			final TreeNode node = e.nextElement();
-			if(filterText == null || filterText.isEmpty() ? false : !this.getFilter()
+			if(filterText == null || filterText.isEmpty() ? false : !filter
 					.isValueFiltered(filterText))
 			{
 				if(list == null)
@@ -892,6 +892,30 @@ public class XdevSortableTable extends SortableTable implements ExtendedTable<Xd
 	}
 	
 	
+	/**
+	 * Sets the model of this table like
+	 * {@link #setModel(VirtualTable, String, SELECT, Object...)}, but executes
+	 * the query in a background thread. A loading indicator is shown over the
+	 * table until the data is available.
+	 * 
+	 * @param vt
+	 *            the {@link VirtualTable} to display
+	 * @param columns
+	 *            the columns to display
+	 * @param select
+	 *            the query to execute
+	 * @param params
+	 *            the parameters of the query
+	 * @see ExtendedTableSupport#setModelAsync(VirtualTable, String, SELECT,
+	 *      Object...)
+	 * @since 4.0
+	 */
+	public void setModelAsync(VirtualTable vt, String columns, SELECT select, Object... params)
+	{
+		support.setModelAsync(vt,columns,select,params);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -54,7 +54,6 @@ import xdev.vt.VirtualTableWrapper;
 
 import com.jidesoft.grid.SortListener;
 import com.jidesoft.grid.SortableTreeTableModel;
-import com.jidesoft.grid.TableModelWrapperUtils;
 import com.jidesoft.grid.TreeTable;
 
 
@@ -217,8 +216,16 @@ public class XdevTreeTable extends TreeTable implements ExtendedTable<XdevTreeTa
 				}
 			}
 			
+			// the previous model listens to its virtual table
+			TableModel previousModel = ModelWrapperResolutionCache.getActualTableModel(
+					table.getModel(),XdevTreeTableModel.class);
+			if(previousModel instanceof XdevTreeTableModel)
+			{
+				((XdevTreeTableModel)previousModel).dispose();
+			}
+			
 			table.setModel(new XdevTableModelWrapper(new XdevTreeTableModel(vt,columnIndexId,
-					columnIndexParent,columnIndices,rootIdentifier)));
+					columnIndexParent,columnIndices,rootIdentifier,table.isLazyChildLoading())));
 			
 			table.clearSelection();
 		}
@@ -264,6 +271,11 @@ public class XdevTreeTable extends TreeTable implements ExtendedTable<XdevTreeTa
 	 */
 	private boolean					persistenceEnabled	= true;
 	
+	/**
+	 * Are child rows created on demand? Defaults to {@code false}.
+	 */
+	private boolean					lazyChildLoading	= false;
+	
 	
 	/**
 	 * @see JTable#JTable()
@@ -510,7 +522,7 @@ public class XdevTreeTable extends TreeTable implements ExtendedTable<XdevTreeTa
 		
 		this.sortLevel = sortLevel;
 		
-		TableModel model = TableModelWrapperUtils.getActualTableModel(this.getModel(),
+		TableModel model = ModelWrapperResolutionCache.getActualTableModel(this.getModel(),
 				SortableTreeTableModel.class);
 		if(model instanceof SortableTreeTableModel)
 		{
@@ -1068,6 +1080,30 @@ public class XdevTreeTable extends TreeTable implements ExtendedTable<XdevTreeTa
 	}
 	
 	
+	/**
+	 * Sets the model of this table like
+	 * {@link #setModel(VirtualTable, String, SELECT, Object...)}, but executes
+	 * the query in a background thread. A loading indicator is shown over the
+	 * table until the data is available.
+	 * 
+	 * @param vt
+	 *            the {@link VirtualTable} to display
+	 * @param columns
+	 *            the columns to display
+	 * @param select
+	 *            the query to execute
+	 * @param params
+	 *            the parameters of the query
+	 * @see ExtendedTableSupport#setModelAsync(VirtualTable, String, SELECT,
+	 *      Object...)
+	 * @since 4.0
+	 */
+	public void setModelAsync(VirtualTable vt, String columns, SELECT select, Object... params)
+	{
+		support.setModelAsync(vt,columns,select,params);
+	}
+	
+	
 	/**
 	 * Sets the model for the supported table based on a {@link VirtualTable}
 	 * and additional configuration.
@@ -1479,6 +1515,42 @@ public class XdevTreeTable extends TreeTable implements ExtendedTable<XdevTreeTa
 	}
 	
 	
+	/**
+	 * Sets whether the child rows of the tree are created on demand.
+	 * <p>
+	 * If enabled, the model only creates the root rows initially, the child
+	 * rows of a node are created when it is expanded for the first time. This
+	 * is recommended for large hierarchies, whose nodes are mostly collapsed.
+	 * </p>
+	 * <p>
+	 * The setting takes effect with the next call of a <code>setModel</code>
+	 * method.
+	 * </p>
+	 * 
+	 * @param lazyChildLoading
+	 *            <code>true</code> to create child rows on demand
+	 * @see XdevTreeTableModel#isLazyChildLoading()
+	 * @since 4.0
+	 */
+	public void setLazyChildLoading(boolean lazyChildLoading)
+	{
+		this.lazyChildLoading = lazyChildLoading;
+	}
+	
+	
+	/**
+	 * Returns whether the child rows of the tree are created on demand.
+	 * 
+	 * @return <code>true</code> if child rows are created on demand
+	 * @see #setLazyChildLoading(boolean)
+	 * @since 4.0
+	 */
+	public boolean isLazyChildLoading()
+	{
+		return lazyChildLoading;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
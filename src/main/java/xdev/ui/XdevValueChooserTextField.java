@@ -21,13 +21,19 @@ package xdev.ui;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JTable;
+import javax.swing.SwingWorker;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
+import xdev.db.DBException;
 import xdev.db.Operator;
 import xdev.db.QueryInfo;
 import xdev.db.sql.Condition;
@@ -36,10 +42,13 @@ import xdev.db.sql.WHERE;
 import xdev.lang.NotNull;
 import xdev.lang.Nullable;
 import xdev.ui.valuechooser.DefaultVirtualTableValueChooser;
+import xdev.ui.valuechooser.LookupVirtualTableCache;
 import xdev.ui.valuechooser.PopupVirtualTableValueChooser;
+import xdev.ui.valuechooser.RemoteVirtualTableSearch;
 import xdev.ui.valuechooser.ValueChooser;
 import xdev.ui.valuechooser.ValueChooserField;
 import xdev.ui.valuechooser.ValueChooserTextField;
+import xdev.ui.valuechooser.VirtualTablePrimaryKeyIndex;
 import xdev.ui.valuechooser.XdevValueChooser;
 import xdev.util.ArrayUtils;
 import xdev.util.ObjectUtils;
@@ -49,6 +58,7 @@ import xdev.vt.KeyValues;
 import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTable.VirtualTableRow;
 import xdev.vt.VirtualTableColumn;
+import xdev.vt.VirtualTableException;
 
 import com.jidesoft.grid.JideTable;
 
@@ -148,6 +158,35 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 	 */
 	protected DetailHandler												detailHandler;
 	
+	/**
+	 * the server side search, <code>null</code> if the whole
+	 * {@link VirtualTable} is loaded into the chooser.
+	 */
+	private RemoteVirtualTableSearch									remoteSearch					= null;
+	
+	/**
+	 * if the {@link VirtualTable} is shared with other choosers.
+	 */
+	private boolean														lookupCacheEnabled				= false;
+	
+	/**
+	 * the shared snapshot, <code>null</code> if {@link #virtualTable} is a
+	 * private copy.
+	 */
+	private transient LookupVirtualTableCache.Lookup						lookup							= null;
+	
+	/**
+	 * primary key index of {@link #virtualTable}, resolves the formular
+	 * values.
+	 */
+	private transient VirtualTablePrimaryKeyIndex						primaryKeyIndex					= null;
+	
+	/**
+	 * loads the formular value's row which is not loaded by
+	 * {@link #remoteSearch} yet.
+	 */
+	private transient SwingWorker<Object[], Void>						rowLoader						= null;
+	
 	
 	/**
 	 * Creates a new {@link XdevValueChooserTextField}.
@@ -206,9 +245,30 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 			throw new IllegalArgumentException("virtualTable must not be null");
 		}
 		
+		LookupVirtualTableCache.release(this,this.lookup);
+		this.lookup = null;
+		
 		// use clone to avoid unwanted dependencies
-		this.virtualTable = virtualTable.clone(true);
-		if(queryData)
+		if(this.remoteSearch != null)
+		{
+			this.remoteSearch.uninstall();
+			
+			// the rows are loaded by the remote search
+			this.virtualTable = virtualTable.clone(false);
+			this.remoteSearch = createRemoteSearch(this.virtualTable,this.remoteSearch);
+		}
+		else if(this.lookupCacheEnabled
+				&& (this.lookup = LookupVirtualTableCache.acquire(this,virtualTable,queryData)) != null)
+		{
+			// shared snapshot, already queried if requested
+			this.virtualTable = this.lookup.getVirtualTable();
+		}
+		else
+		{
+			this.virtualTable = virtualTable.clone(true);
+		}
+		
+		if(queryData && this.remoteSearch == null && this.lookup == null)
 		{
 			try
 			{
@@ -234,6 +294,239 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 				chooser.getTable().setAutoResizeMode(clientProperty_AutoResizeMode);
 			}
 		}
+		
+		installRemoteSearch();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setChooser(final ValueChooser<VirtualTableRow> chooser)
+	{
+		super.setChooser(chooser);
+		
+		if(this.remoteSearch != null)
+		{
+			installRemoteSearch();
+		}
+	}
+	
+	
+	/**
+	 * Enables or disables the server side search.
+	 * <p>
+	 * If enabled, the chooser doesn't hold the whole {@link VirtualTable}.
+	 * Instead the text typed into the chooser's search field is turned into a
+	 * debounced, paged query against the data source of the
+	 * {@link VirtualTable}, and only the first rows of the result are loaded,
+	 * see {@link RemoteVirtualTableSearch}. This is meant for large lookup
+	 * tables.
+	 * </p>
+	 * <p>
+	 * Enabling the server side search discards the loaded rows. After
+	 * disabling it the {@link VirtualTable} has to be set or queried again.
+	 * </p>
+	 * 
+	 * @param remoteSearchEnabled
+	 *            <code>true</code> to search on the server
+	 * @since 4.0
+	 */
+	public void setRemoteSearchEnabled(final boolean remoteSearchEnabled)
+	{
+		if(remoteSearchEnabled == isRemoteSearchEnabled())
+		{
+			return;
+		}
+		
+		if(remoteSearchEnabled)
+		{
+			if(this.virtualTable == null)
+			{
+				throw new IllegalStateException("no virtualTable set");
+			}
+			
+			if(this.lookup != null)
+			{
+				detachLookup(false);
+			}
+			else
+			{
+				this.virtualTable.clear();
+			}
+			this.remoteSearch = createRemoteSearch(this.virtualTable,null);
+			installRemoteSearch();
+		}
+		else
+		{
+			this.remoteSearch.uninstall();
+			this.remoteSearch = null;
+		}
+	}
+	
+	
+	/**
+	 * Returns if the server side search is enabled.
+	 * 
+	 * @return <code>true</code> if the server side search is enabled
+	 * @see #setRemoteSearchEnabled(boolean)
+	 * @since 4.0
+	 */
+	public boolean isRemoteSearchEnabled()
+	{
+		return this.remoteSearch != null;
+	}
+	
+	
+	/**
+	 * Returns the server side search, e.g. to configure the search columns or
+	 * the page size.
+	 * 
+	 * @return the server side search, or <code>null</code> if it is disabled
+	 * @see #setRemoteSearchEnabled(boolean)
+	 * @since 4.0
+	 */
+	public RemoteVirtualTableSearch getRemoteSearch()
+	{
+		return this.remoteSearch;
+	}
+	
+	
+	/**
+	 * Enables or disables sharing of the lookup table.
+	 * <p>
+	 * If enabled, choosers over the same {@link VirtualTable} and query share
+	 * one snapshot of the data and one table model, see
+	 * {@link LookupVirtualTableCache}, instead of holding a copy each. The
+	 * snapshot is replaced by a private copy as soon as this component
+	 * modifies its {@link VirtualTable}, e.g. by
+	 * {@link #updateModel(Condition, Object...)}.
+	 * </p>
+	 * <p>
+	 * Enabling takes effect with the next call of
+	 * {@link #setVirtualTable(VirtualTable, boolean)}. The server side search
+	 * never uses a shared snapshot.
+	 * </p>
+	 * 
+	 * @param lookupCacheEnabled
+	 *            <code>true</code> to share the lookup table
+	 * @since 4.0
+	 */
+	public void setLookupCacheEnabled(final boolean lookupCacheEnabled)
+	{
+		this.lookupCacheEnabled = lookupCacheEnabled;
+		
+		if(!lookupCacheEnabled && this.lookup != null)
+		{
+			detachLookup(true);
+		}
+	}
+	
+	
+	/**
+	 * Returns if the lookup table is shared with other choosers.
+	 * 
+	 * @return <code>true</code> if the lookup table is shared
+	 * @see #setLookupCacheEnabled(boolean)
+	 * @since 4.0
+	 */
+	public boolean isLookupCacheEnabled()
+	{
+		return this.lookupCacheEnabled;
+	}
+	
+	
+	/**
+	 * Replaces the shared snapshot by a private copy, which may be modified.
+	 */
+	private void detachLookup(final boolean withData)
+	{
+		this.virtualTable = this.virtualTable.clone(withData);
+		LookupVirtualTableCache.release(this,this.lookup);
+		this.lookup = null;
+		
+		updateChooserVirtualTable();
+	}
+	
+	
+	/**
+	 * Hands {@link #virtualTable} over to the chooser.
+	 */
+	private void updateChooserVirtualTable()
+	{
+		ValueChooser<VirtualTableRow> chooser = getChooser();
+		if(chooser instanceof XdevValueChooser && ((XdevValueChooser<?>)chooser).getInitState())
+		{
+			((XdevValueChooser<?>)chooser).setVirtualTable(this.virtualTable);
+		}
+	}
+	
+	
+	/**
+	 * Creates the server side search for <code>virtualTable</code>, taking
+	 * over the settings of <code>previous</code> if not <code>null</code>.
+	 */
+	private RemoteVirtualTableSearch createRemoteSearch(final VirtualTable virtualTable,
+			final RemoteVirtualTableSearch previous)
+	{
+		RemoteVirtualTableSearch search = new RemoteVirtualTableSearch(virtualTable);
+		if(previous != null)
+		{
+			search.setPageSize(previous.getPageSize());
+			search.setMaxRowCount(previous.getMaxRowCount());
+			search.setDelay(previous.getDelay());
+			search.setCondition(previous.getCondition(),previous.getConditionParams());
+			
+			// the columns of the new table with the same names
+			List<VirtualTableColumn<?>> searchColumns = new ArrayList<VirtualTableColumn<?>>();
+			for(VirtualTableColumn<?> column : previous.getSearchColumns())
+			{
+				VirtualTableColumn<?> newColumn = virtualTable.getColumn(column.getName());
+				if(newColumn != null)
+				{
+					searchColumns.add(newColumn);
+				}
+			}
+			if(!searchColumns.isEmpty())
+			{
+				search.setSearchColumns(searchColumns
+						.toArray(new VirtualTableColumn<?>[searchColumns.size()]));
+			}
+		}
+		return search;
+	}
+	
+	
+	/**
+	 * Attaches the server side search to the search field of the chooser.
+	 */
+	private void installRemoteSearch()
+	{
+		if(this.remoteSearch == null)
+		{
+			return;
+		}
+		
+		XdevQuickTableFilterField filterField = null;
+		ValueChooser<VirtualTableRow> chooser = getChooser();
+		if(chooser instanceof PopupVirtualTableValueChooser)
+		{
+			filterField = ((PopupVirtualTableValueChooser)chooser).getFilterField();
+		}
+		else if(chooser instanceof DefaultVirtualTableValueChooser)
+		{
+			filterField = ((DefaultVirtualTableValueChooser)chooser).getFilterField();
+		}
+		
+		if(filterField != null)
+		{
+			this.remoteSearch.install(filterField.getTextField());
+		}
+		else
+		{
+			this.remoteSearch.uninstall();
+		}
 	}
 	
 	
@@ -255,6 +548,9 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 	 */
 	public void setVirtualTableRow(final VirtualTableRow virtualTableRow)
 	{
+		// an explicitly selected row replaces the one being loaded
+		cancelRowLoading();
+		
 		this.virtualTableRow = virtualTableRow;
 		String text = this.getTextField().getText();
 		
@@ -514,6 +810,16 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 					+ pkColumnCount + " key column count");
 		}
 		
+		// the index follows the data changes of the virtual table
+		this.primaryKeyIndex = LookupVirtualTableCache.getPrimaryKeyIndex(virtualTable,
+				this.primaryKeyIndex);
+		VirtualTableRow row = this.primaryKeyIndex.getRow(valueMap.values());
+		if(row != null)
+		{
+			setVirtualTableRow(row);
+			return;
+		}
+		
 		Object[] values = valueMap.values().toArray();
 		Map<String, Object> foreignMap = new HashMap<String, Object>();
 		for(int i = 0; i < values.length; i++)
@@ -521,8 +827,19 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 			foreignMap.put(pkColumns[i].getName(),values[i]);
 		}
 		
-		KeyValues key = new KeyValues(virtualTable,foreignMap);
-		VirtualTableRow row = virtualTable.getRow(key);
+		/*
+		 * The index compares the values as they are, KeyValues converts them
+		 * to the column types first, e.g. a String to a number.
+		 */
+		row = virtualTable.getRow(new KeyValues(virtualTable,foreignMap));
+		
+		if(row == null && this.remoteSearch != null)
+		{
+			// the row may not be loaded
+			loadRow(foreignMap);
+			return;
+		}
+		
 		if(row != null)
 		{
 			setVirtualTableRow(row);
@@ -530,6 +847,86 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 	}
 	
 	
+	/**
+	 * Queries the row with the primary key <code>keyValues</code> in the
+	 * background and selects it afterwards, unless another row has been
+	 * selected meanwhile.
+	 */
+	private void loadRow(final Map<String, Object> keyValues)
+	{
+		cancelRowLoading();
+		
+		final Callable<Object[]> query = this.remoteSearch.prepareRowQuery(keyValues);
+		if(query == null)
+		{
+			return;
+		}
+		
+		final RemoteVirtualTableSearch remoteSearch = this.remoteSearch;
+		this.rowLoader = new SwingWorker<Object[], Void>()
+		{
+			@Override
+			protected Object[] doInBackground() throws Exception
+			{
+				return query.call();
+			}
+			
+			
+			@Override
+			protected void done()
+			{
+				if(isCancelled() || rowLoader != this)
+				{
+					return;
+				}
+				
+				rowLoader = null;
+				
+				try
+				{
+					Object[] values = get();
+					// the chooser may have got another virtual table meanwhile
+					if(values != null
+							&& remoteSearch == XdevValueChooserTextField.this.remoteSearch)
+					{
+						setVirtualTableRow(remoteSearch.addLoadedRow(values));
+					}
+				}
+				catch(InterruptedException e)
+				{
+					log.error(e);
+				}
+				catch(ExecutionException e)
+				{
+					log.error(e.getCause());
+				}
+				catch(VirtualTableException e)
+				{
+					log.error(e);
+				}
+				catch(DBException e)
+				{
+					log.error(e);
+				}
+			}
+		};
+		this.rowLoader.execute();
+	}
+	
+	
+	/**
+	 * Cancels the loading of a formular value's row, if any.
+	 */
+	private void cancelRowLoading()
+	{
+		if(this.rowLoader != null)
+		{
+			this.rowLoader.cancel(true);
+			this.rowLoader = null;
+		}
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -738,6 +1135,27 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 	@Override
 	public void refresh()
 	{
+		if(this.remoteSearch != null)
+		{
+			this.remoteSearch.refresh();
+			return;
+		}
+		
+		if(this.lookup != null)
+		{
+			try
+			{
+				this.lookup = LookupVirtualTableCache.refresh(this,this.lookup);
+				this.virtualTable = this.lookup.getVirtualTable();
+				updateChooserVirtualTable();
+			}
+			catch(IllegalStateException e)
+			{
+				log.error(e);
+			}
+			return;
+		}
+		
 		try
 		{
 			this.virtualTable.reload();
@@ -759,8 +1177,20 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 		 * SuppressWarnings is OK because the super class does not specify a
 		 * type
 		 */
-		if(this.virtualTable != null)
+		if(this.remoteSearch != null)
 		{
+			this.remoteSearch.setCondition(condition,params);
+			this.remoteSearch.refresh();
+			this.reset();
+		}
+		else if(this.virtualTable != null)
+		{
+			if(this.lookup != null)
+			{
+				// keeps the last query
+				detachLookup(true);
+			}
+			
 			Object[] newParams = null;
 			
 			QueryInfo query = this.virtualTable.getLastQuery();
@@ -822,7 +1252,20 @@ public class XdevValueChooserTextField extends ValueChooserTextField<VirtualTabl
 	@Override
 	public void clearModel()
 	{
-		this.virtualTable.clear();
+		if(this.remoteSearch != null)
+		{
+			this.remoteSearch.cancel();
+		}
+		cancelRowLoading();
+		
+		if(this.lookup != null)
+		{
+			detachLookup(false);
+		}
+		else
+		{
+			this.virtualTable.clear();
+		}
 	}
 	
 	
@@ -21,7 +21,9 @@ package xdev.ui.charts;
 import java.awt.Color;
 
 import xdev.ui.charts.model.Chart3DOrientationStrategy;
+import xdev.ui.charts.model.ChartDecimationMode;
 import xdev.ui.charts.model.ChartOrientation;
+import xdev.ui.charts.model.DecimatedChartModel;
 import xdev.ui.charts.utils.VirtualTableChartUtils;
 
 import com.jidesoft.chart.Chart;
@@ -49,7 +51,13 @@ public abstract class AbstractRelationalStructureChart<ContainerType, ValueType>
 	/**
 	 * the serialization id.
 	 */
-	private static final long			serialVersionUID	= -8240177212656219144L;
+	private static final long			serialVersionUID			= -8240177212656219144L;
+	
+	/**
+	 * The name of the decimation mode property, see
+	 * {@link #getDecimationMode()}.
+	 */
+	public static final String			DECIMATION_MODE_PROPERTY	= "decimationMode";
 	
 	/**
 	 * Default {@link ChartStyle} instance.
@@ -139,4 +147,22 @@ public abstract class AbstractRelationalStructureChart<ContainerType, ValueType>
 	 */
 	public abstract ChartStyle createStyle();
 	
+	
+	/**
+	 * Returns the decimation mode of this chart. Decimated charts plot only
+	 * about as many points per series as they have pixels along their category
+	 * axis, see {@link DecimatedChartModel}.
+	 * <p>
+	 * The default implementation returns {@link ChartDecimationMode#NONE},
+	 * charts which support decimation fire a
+	 * {@link #DECIMATION_MODE_PROPERTY} change if the mode is changed.
+	 * </p>
+	 * 
+	 * @return the decimation mode.
+	 */
+	public ChartDecimationMode getDecimationMode()
+	{
+		return ChartDecimationMode.NONE;
+	}
+	
 }
@@ -24,6 +24,7 @@ import static com.jidesoft.swing.ShadowFactory.VALUE_BLUR_QUALITY_HIGH;
 import java.awt.Color;
 
 import xdev.ui.charts.model.ChartColorScheme;
+import xdev.ui.charts.model.ChartDecimationMode;
 
 import com.jidesoft.chart.style.ChartStyle;
 
@@ -47,6 +48,8 @@ public class XdevLineChart extends VirtualTableAbstractCategoryChart
 	private static final int						DEFAULT_POINT_SIZE	= 12;
 	private static final int						DEFAULT_LINE_WIDTH	= 7;
 	
+	private ChartDecimationMode						decimationMode		= ChartDecimationMode.NONE;
+	
 	
 	/**
 	 * Initializes an empty valued numeric XY-chart.
@@ -130,4 +133,45 @@ public class XdevLineChart extends VirtualTableAbstractCategoryChart
 		}
 		return style;
 	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ChartDecimationMode getDecimationMode()
+	{
+		return this.decimationMode;
+	}
+	
+	
+	/**
+	 * Sets the decimation mode of this chart. If enabled, every series is
+	 * reduced to about as many points as the chart has pixels along its
+	 * category axis, selected from the rows of the chart's
+	 * {@link xdev.vt.VirtualTable}, and reduced again after resizing, zooming
+	 * or changes of the rows.
+	 * <p>
+	 * <b>Note:</b> The decimation expects the rows of the
+	 * {@link xdev.vt.VirtualTable} to be sorted by the category column. Points
+	 * of unsorted rows are selected from the wrong buckets, without any
+	 * warning, so sort the rows, e.g. by an <code>ORDER BY</code> of the
+	 * query, before enabling the decimation.
+	 * </p>
+	 * <p>
+	 * Default is {@link ChartDecimationMode#NONE}.
+	 * </p>
+	 * 
+	 * @param decimationMode
+	 *            the decimation mode.
+	 */
+	public void setDecimationMode(ChartDecimationMode decimationMode)
+	{
+		if(this.decimationMode != decimationMode)
+		{
+			ChartDecimationMode oldValue = this.decimationMode;
+			this.decimationMode = decimationMode;
+			firePropertyChange(DECIMATION_MODE_PROPERTY,oldValue,decimationMode);
+		}
+	}
 }
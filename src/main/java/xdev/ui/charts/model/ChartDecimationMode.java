@@ -0,0 +1,49 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.charts.model;
+
+
+/**
+ * Decimation modes of line and area charts. A decimated chart plots only about
+ * as many points per series as it has pixels along its category axis.
+ * 
+ * @see DecimatedChartModel
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public enum ChartDecimationMode
+{
+	/**
+	 * Every point is plotted.
+	 */
+	NONE,
+	
+	/**
+	 * Largest-Triangle-Three-Buckets: the points are divided into one bucket
+	 * per pixel, of each bucket the point spanning the largest triangle with
+	 * its neighbors is plotted. Preserves the shape of the series.
+	 */
+	LARGEST_TRIANGLE_THREE_BUCKETS,
+	
+	/**
+	 * The first, the minimum, the maximum and the last point of every pixel
+	 * column are plotted, so no peak gets lost.
+	 */
+	MIN_MAX
+}
@@ -0,0 +1,346 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.charts.model;
+
+
+import java.util.Arrays;
+
+import xdev.util.IntList;
+
+
+/**
+ * Selects the rows of one series which are plotted by a
+ * {@link DecimatedChartModel}.
+ * <p>
+ * The rows are streamed through in two passes, {@link #count(int, double, double)}
+ * and {@link #select(int, double, double)}, so only state per pixel column is
+ * kept, not per row. The rows of a series are expected to be ordered by their
+ * category.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+class ChartSeriesDecimator
+{
+	private final ChartDecimationMode	mode;
+	private final int					pixelCount;
+	private final double				lower;
+	private final double				upper;
+	private final double				pixelsPerUnit;
+	
+	private int							visibleCount;
+	private boolean						decimated;
+	
+	// nearest rows outside of the visible range, they keep the lines running
+	// to the edges of the chart
+	private int							before			= -1;
+	private double						beforeCategory;
+	private int							after			= -1;
+	private double						afterCategory;
+	
+	// MIN_MAX: rows per pixel column
+	private int[]						firstRows;
+	private int[]						lastRows;
+	private int[]						minRows;
+	private int[]						maxRows;
+	private double[]					minValues;
+	private double[]					maxValues;
+	
+	// LARGEST_TRIANGLE_THREE_BUCKETS: averages of the next bucket per pixel
+	// column, sums while counting
+	private int[]						bucketCounts;
+	private double[]					nextCategories;
+	private double[]					nextValues;
+	private int							firstVisible	= -1;
+	private double						firstCategory;
+	private double						firstValue;
+	private int							lastVisible		= -1;
+	private double						lastCategory;
+	private double						lastValue;
+	
+	// LARGEST_TRIANGLE_THREE_BUCKETS: state of the selection pass
+	private int							currentPixel	= -1;
+	private double						selectedCategory;
+	private double						selectedValue;
+	private int							bestRow			= -1;
+	private double						bestCategory;
+	private double						bestValue;
+	private double						bestArea		= -1;
+	
+	private final IntList				rows			= new IntList();
+	
+	
+	/**
+	 * @param mode
+	 *            the decimation algorithm
+	 * @param pixelCount
+	 *            the pixels along the category axis
+	 * @param lower
+	 *            the lower bound of the visible category range
+	 * @param upper
+	 *            the upper bound of the visible category range
+	 */
+	ChartSeriesDecimator(ChartDecimationMode mode, int pixelCount, double lower, double upper)
+	{
+		this.mode = mode;
+		this.pixelCount = pixelCount;
+		this.lower = lower;
+		this.upper = upper;
+		this.pixelsPerUnit = upper > lower ? pixelCount / (upper - lower) : 0;
+		
+		if(mode == ChartDecimationMode.MIN_MAX)
+		{
+			this.firstRows = newRows(pixelCount);
+			this.lastRows = newRows(pixelCount);
+			this.minRows = newRows(pixelCount);
+			this.maxRows = newRows(pixelCount);
+			this.minValues = new double[pixelCount];
+			this.maxValues = new double[pixelCount];
+		}
+		else
+		{
+			this.bucketCounts = new int[pixelCount];
+			this.nextCategories = new double[pixelCount];
+			this.nextValues = new double[pixelCount];
+		}
+	}
+	
+	
+	private static int[] newRows(int pixelCount)
+	{
+		int[] rows = new int[pixelCount];
+		Arrays.fill(rows,-1);
+		return rows;
+	}
+	
+	
+	/**
+	 * First pass, called for every row of the series.
+	 */
+	void count(int row, double category, double value)
+	{
+		if(category < this.lower)
+		{
+			if(this.before == -1 || category >= this.beforeCategory)
+			{
+				this.before = row;
+				this.beforeCategory = category;
+			}
+			return;
+		}
+		if(category > this.upper)
+		{
+			if(this.after == -1 || category < this.afterCategory)
+			{
+				this.after = row;
+				this.afterCategory = category;
+			}
+			return;
+		}
+		
+		this.visibleCount++;
+		int pixel = pixel(category);
+		
+		if(this.mode == ChartDecimationMode.MIN_MAX)
+		{
+			if(this.firstRows[pixel] == -1)
+			{
+				this.firstRows[pixel] = this.minRows[pixel] = this.maxRows[pixel] = row;
+				this.minValues[pixel] = this.maxValues[pixel] = value;
+			}
+			else if(value < this.minValues[pixel])
+			{
+				this.minRows[pixel] = row;
+				this.minValues[pixel] = value;
+			}
+			else if(value > this.maxValues[pixel])
+			{
+				this.maxRows[pixel] = row;
+				this.maxValues[pixel] = value;
+			}
+			this.lastRows[pixel] = row;
+		}
+		else
+		{
+			this.bucketCounts[pixel]++;
+			this.nextCategories[pixel] += category;
+			this.nextValues[pixel] += value;
+			
+			if(this.firstVisible == -1)
+			{
+				this.firstVisible = row;
+				this.firstCategory = category;
+				this.firstValue = value;
+			}
+			this.lastVisible = row;
+			this.lastCategory = category;
+			this.lastValue = value;
+		}
+	}
+	
+	
+	/**
+	 * Called between the two passes.
+	 */
+	void prepare()
+	{
+		if(this.mode == ChartDecimationMode.MIN_MAX)
+		{
+			this.decimated = this.visibleCount > this.pixelCount * 4;
+		}
+		else
+		{
+			this.decimated = this.visibleCount > this.pixelCount && this.pixelCount > 2;
+			if(this.decimated)
+			{
+				prepareNextBuckets();
+				this.selectedCategory = this.firstCategory;
+				this.selectedValue = this.firstValue;
+			}
+		}
+		
+		if(this.before != -1)
+		{
+			this.rows.add(this.before);
+		}
+		if(this.decimated && this.firstVisible != -1)
+		{
+			this.rows.add(this.firstVisible);
+		}
+	}
+	
+	
+	/**
+	 * Replaces the sums of every pixel column with the average of the next
+	 * non-empty column, the last visible point for the last column.
+	 */
+	private void prepareNextBuckets()
+	{
+		double nextCategory = this.lastCategory;
+		double nextValue = this.lastValue;
+		for(int pixel = this.pixelCount - 1; pixel >= 0; pixel--)
+		{
+			int count = this.bucketCounts[pixel];
+			double category = count > 0 ? this.nextCategories[pixel] / count : 0;
+			double value = count > 0 ? this.nextValues[pixel] / count : 0;
+			
+			this.nextCategories[pixel] = nextCategory;
+			this.nextValues[pixel] = nextValue;
+			
+			if(count > 0)
+			{
+				nextCategory = category;
+				nextValue = value;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Second pass, called for every row of the series in the same order as
+	 * {@link #count(int, double, double)}.
+	 */
+	void select(int row, double category, double value)
+	{
+		if(category < this.lower || category > this.upper)
+		{
+			return;
+		}
+		
+		if(!this.decimated)
+		{
+			this.rows.add(row);
+		}
+		else if(this.mode == ChartDecimationMode.MIN_MAX)
+		{
+			int pixel = pixel(category);
+			if(row == this.firstRows[pixel] || row == this.minRows[pixel]
+					|| row == this.maxRows[pixel] || row == this.lastRows[pixel])
+			{
+				this.rows.add(row);
+			}
+		}
+		else if(row != this.firstVisible && row != this.lastVisible)
+		{
+			int pixel = pixel(category);
+			if(pixel != this.currentPixel)
+			{
+				selectBest();
+				this.currentPixel = pixel;
+			}
+			
+			// triangle of the last selected point, this point and the
+			// average of the next bucket
+			double area = Math.abs((this.selectedCategory - this.nextCategories[pixel])
+					* (value - this.selectedValue) - (this.selectedCategory - category)
+					* (this.nextValues[pixel] - this.selectedValue));
+			if(area > this.bestArea)
+			{
+				this.bestRow = row;
+				this.bestCategory = category;
+				this.bestValue = value;
+				this.bestArea = area;
+			}
+		}
+	}
+	
+	
+	private void selectBest()
+	{
+		if(this.bestRow != -1)
+		{
+			this.rows.add(this.bestRow);
+			this.selectedCategory = this.bestCategory;
+			this.selectedValue = this.bestValue;
+		}
+		this.bestRow = -1;
+		this.bestArea = -1;
+	}
+	
+	
+	/**
+	 * Returns the rows to plot, called after the second pass.
+	 * 
+	 * @return the row indices in the order of their categories
+	 */
+	int[] getRows()
+	{
+		if(this.decimated && this.mode != ChartDecimationMode.MIN_MAX)
+		{
+			selectBest();
+			if(this.lastVisible != this.firstVisible)
+			{
+				this.rows.add(this.lastVisible);
+			}
+		}
+		if(this.after != -1)
+		{
+			this.rows.add(this.after);
+		}
+		
+		return this.rows.toArray();
+	}
+	
+	
+	private int pixel(double category)
+	{
+		int pixel = (int)((category - this.lower) * this.pixelsPerUnit);
+		return Math.max(0,Math.min(this.pixelCount - 1,pixel));
+	}
+}
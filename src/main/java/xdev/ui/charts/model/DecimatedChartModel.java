@@ -0,0 +1,138 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.charts.model;
+
+
+import java.util.List;
+
+import xdev.ui.charts.utils.ChartDecimationUtils;
+import xdev.vt.VirtualTable;
+
+import com.jidesoft.chart.model.ChartPoint;
+import com.jidesoft.chart.model.DefaultChartModel;
+
+
+/**
+ * A series model which contains only the points of a decimated
+ * {@link VirtualTable} series.
+ * <p>
+ * The points are selected from the rows of the {@link VirtualTable} directly,
+ * so the model holds about as many points as the chart has pixels along its
+ * category axis, regardless of the row count. The series is decimated again
+ * if the chart is resized or zoomed or the rows change.
+ * </p>
+ * 
+ * @see ChartDecimationMode
+ * @see ChartDecimationUtils#updateDecimatedModels(xdev.ui.charts.AbstractRelationalStructureChart)
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class DecimatedChartModel extends DefaultChartModel
+{
+	private static final long					serialVersionUID	= 1L;
+	
+	private final VirtualTableChartSeriesIndex	seriesIndex;
+	
+	/**
+	 * <code>true</code> while the points are replaced, to notify the
+	 * listeners once.
+	 */
+	private boolean								adjusting			= false;
+	
+	
+	/**
+	 * Creates an empty series model.
+	 * 
+	 * @param name
+	 *            the name of the series
+	 * @param seriesIndex
+	 *            the index which decimates the rows of the series
+	 */
+	DecimatedChartModel(String name, VirtualTableChartSeriesIndex seriesIndex)
+	{
+		super(name);
+		
+		this.seriesIndex = seriesIndex;
+	}
+	
+	
+	/**
+	 * @return the decimation algorithm
+	 */
+	public ChartDecimationMode getDecimationMode()
+	{
+		return this.seriesIndex.getDecimationMode();
+	}
+	
+	
+	/**
+	 * Recomputes the decimated points of all series of the chart if the rows,
+	 * the pixel count or the visible range have changed since the last call.
+	 * 
+	 * @param pixelCount
+	 *            the pixels along the category axis
+	 * @param lower
+	 *            the lower bound of the visible category range
+	 * @param upper
+	 *            the upper bound of the visible category range
+	 * @param horizontal
+	 *            <code>true</code> if the category is the y coordinate of the
+	 *            points
+	 */
+	public void decimate(int pixelCount, double lower, double upper, boolean horizontal)
+	{
+		this.seriesIndex.decimate(pixelCount,lower,upper,horizontal);
+	}
+	
+	
+	/**
+	 * Replaces the points of this model and notifies the listeners once.
+	 */
+	void setPoints(List<ChartPoint> points)
+	{
+		this.adjusting = true;
+		try
+		{
+			this.clearPoints();
+			for(ChartPoint point : points)
+			{
+				this.addPoint(point,false);
+			}
+		}
+		finally
+		{
+			this.adjusting = false;
+		}
+		
+		this.update();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void update()
+	{
+		if(!this.adjusting)
+		{
+			super.update();
+		}
+	}
+}
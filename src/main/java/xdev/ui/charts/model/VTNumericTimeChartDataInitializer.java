@@ -19,24 +19,25 @@ package xdev.ui.charts.model;
 
 
 import java.util.Date;
-import java.util.List;
-import java.util.Map;
 
 import xdev.ui.charts.AbstractRelationalStructureChart;
 import xdev.ui.charts.utils.ChartRangeComputationUtils;
 import xdev.ui.charts.utils.VirtualTableChartUtils;
 import xdev.ui.charts.utils.VirtualTableColumnTypeUtils;
 import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
 import xdev.vt.VirtualTableAdapter;
 import xdev.vt.VirtualTableColumn;
 import xdev.vt.VirtualTableEvent;
 
 import com.jidesoft.chart.axis.NumericAxis;
 import com.jidesoft.chart.axis.TimeAxis;
+import com.jidesoft.chart.model.ChartPoint;
 import com.jidesoft.chart.model.DefaultChartModel;
 import com.jidesoft.chart.model.RealPosition;
 import com.jidesoft.chart.model.TimePosition;
 import com.jidesoft.range.NumericRange;
+import com.jidesoft.range.Positionable;
 import com.jidesoft.range.Range;
 import com.jidesoft.range.TimeRange;
 
@@ -60,6 +61,12 @@ public class VTNumericTimeChartDataInitializer extends VirtualTableAdapter imple
 	 */
 	private Range<Double>															categoryRange;
 	
+	/**
+	 * the minimum category value, part of the upper bound of
+	 * {@link #categoryRange}.
+	 */
+	private double																	categoryMinimum;
+	
 	/**
 	 * the chart to initialze.
 	 */
@@ -75,6 +82,8 @@ public class VTNumericTimeChartDataInitializer extends VirtualTableAdapter imple
 	private VirtualTableColumn<? extends Number>									depthColumn;
 	private VirtualTableColumn<?>[]													seriesColumns;
 	
+	private VirtualTableChartSeriesIndex										seriesIndex;
+	
 	
 	/**
 	 * Creates an empty {@link OrientationalChartDataInitializer}.
@@ -132,6 +141,8 @@ public class VTNumericTimeChartDataInitializer extends VirtualTableAdapter imple
 		
 		this.categoryRange = ChartRangeComputationUtils.computeNumericCategoryRange(container,
 				container.getColumnIndex(categoryColumnIndex));
+		this.categoryMinimum = ChartRangeComputationUtils.computeNumericMinimum(container,
+				container.getColumnIndex(categoryColumnIndex));
 		
 		orientation.setCategoryAxis(this.getChart(),new NumericAxis(this.categoryRange,
 				categoryColumnIndex.getName()));
@@ -157,37 +168,14 @@ public class VTNumericTimeChartDataInitializer extends VirtualTableAdapter imple
 			VirtualTableColumn<?> categoryColumnIndex, VirtualTableColumn<?> valueColumnIndex,
 			Chart3DOrientationStrategy orientation, VirtualTableColumn<?>... seriesColumnIndices)
 	{
-		this.modelVT = container;
-		this.modelVT.addVirtualTableListener(this);
+		this.setModelVT(container);
 		this.categoryColumn = VirtualTableColumnTypeUtils.isNumericColumn(categoryColumnIndex);
 		this.valueColumn = VirtualTableColumnTypeUtils.isDateColumn(valueColumnIndex);
+		this.depthColumn = null;
 		this.seriesColumns = seriesColumnIndices;
 		this.orientation = orientation;
 		
-		if(VirtualTableChartUtils.checkVTData(this.modelVT))
-		{
-			this.initializeCategoryAxis(categoryColumnIndex,container,orientation);
-			this.initializeValueAxis(valueColumnIndex,container,orientation);
-			Map<List<Object>, DefaultChartModel> seriesContextMap = VirtualTableChartUtils
-					.createChartSeriesDataContext(container,seriesColumnIndices);
-			
-			DefaultChartModel singleSeriesModel = new DefaultChartModel(valueColumn.getName());
-			DefaultChartModel currentSeriesModel = null;
-			for(int row = 0; row < container.getRowCount(); row++)
-			{ // select model
-				currentSeriesModel = VirtualTableChartUtils.getChartModel(singleSeriesModel,
-						seriesContextMap,VirtualTableChartUtils.getRowGroupData(
-								container.getRow(row),seriesColumnIndices));
-				
-				Date value = container.getValueAt(row,valueColumn);
-				currentSeriesModel.addPoint(orientation.getOrientedPoint(
-						new RealPosition(ChartRangeComputationUtils.getRangeValue(
-								this.categoryRange,container.getValueAt(row,this.categoryColumn)
-										.doubleValue())),new TimePosition(value.getTime())));
-			}
-			VirtualTableChartUtils.addChartModels(this.getChart(),orientation,
-					seriesContextMap.values(),this.getChartColorScheme(),this.seriesColumns.length);
-		}
+		this.createChartModel();
 	}
 	
 	
@@ -200,40 +188,86 @@ public class VTNumericTimeChartDataInitializer extends VirtualTableAdapter imple
 			VirtualTableColumn<?> depthColumnIndex, Chart3DOrientationStrategy orientation,
 			VirtualTableColumn<?>... seriesColumnIndices)
 	{
-		this.modelVT = container;
-		this.modelVT.addVirtualTableListener(this);
+		this.setModelVT(container);
 		this.categoryColumn = VirtualTableColumnTypeUtils.isNumericColumn(categoryColumnIndex);
 		this.valueColumn = VirtualTableColumnTypeUtils.isDateColumn(valueColumnIndex);
 		this.depthColumn = VirtualTableColumnTypeUtils.isNumericColumn(depthColumnIndex);
 		this.seriesColumns = seriesColumnIndices;
 		this.orientation = orientation;
 		
-		if(VirtualTableChartUtils.checkVTData(this.modelVT))
+		this.createChartModel();
+	}
+	
+	
+	private void setModelVT(VirtualTable container)
+	{
+		if(this.modelVT != container)
 		{
-			this.initializeCategoryAxis(categoryColumnIndex,container,orientation);
-			this.initializeValueAxis(valueColumnIndex,container,orientation);
-			Map<List<Object>, DefaultChartModel> seriesContextMap = VirtualTableChartUtils
-					.createChartSeriesDataContext(container,seriesColumnIndices);
-			
-			DefaultChartModel singleSeriesModel = new DefaultChartModel(valueColumn.getName());
-			DefaultChartModel currentSeriesModel = null;
-			for(int row = 0; row < container.getRowCount(); row++)
+			if(this.modelVT != null)
 			{
-				currentSeriesModel = VirtualTableChartUtils.getChartModel(singleSeriesModel,
-						seriesContextMap,VirtualTableChartUtils.getRowGroupData(
-								container.getRow(row),seriesColumnIndices));
-				Date value = container.getValueAt(row,valueColumn);
-				Number depthValue = container.getValueAt(row,depthColumn);
-				
-				currentSeriesModel.addPoint(orientation.getOrientedPoint(
-						new RealPosition(ChartRangeComputationUtils.getRangeValue(
-								this.categoryRange,container.getValueAt(row,this.categoryColumn)
-										.doubleValue())),new TimePosition(value.getTime()),
-						new RealPosition(depthValue.doubleValue())));
+				this.modelVT.removeVirtualTableListener(this);
 			}
-			VirtualTableChartUtils.addChartModels(this.getChart(),orientation,
-					seriesContextMap.values(),this.getChartColorScheme(),this.seriesColumns.length);
+			this.modelVT = container;
+			this.modelVT.addVirtualTableListener(this);
+		}
+	}
+	
+	
+	/**
+	 * (Re)creates the axes and all series models from the current data.
+	 */
+	private void createChartModel()
+	{
+		this.seriesIndex = null;
+		
+		if(VirtualTableChartUtils.checkVTData(this.modelVT))
+		{
+			this.initializeCategoryAxis(this.categoryColumn,this.modelVT,this.orientation);
+			this.initializeValueAxis(this.valueColumn,this.modelVT,this.orientation);
+			
+			VirtualTableChartSeriesIndex seriesIndex = new VirtualTableChartSeriesIndex(
+					this.getChart(),this.getChartColorScheme(),this.modelVT,
+					this.valueColumn.getName(),new VirtualTableChartSeriesIndex.PointFactory()
+					{
+						@Override
+						public ChartPoint createPoint(VirtualTableRow row)
+						{
+							return VTNumericTimeChartDataInitializer.this.createPoint(row);
+						}
+					},this.seriesColumns);
+			seriesIndex.addRows();
+			seriesIndex.install(this.orientation);
+			this.seriesIndex = seriesIndex;
+		}
+	}
+	
+	
+	private ChartPoint createPoint(VirtualTableRow row)
+	{
+		Positionable category = new RealPosition(ChartRangeComputationUtils.getRangeValue(
+				this.categoryRange,row.get(this.categoryColumn).doubleValue()));
+		Positionable value = new TimePosition(row.get(this.valueColumn).getTime());
+		
+		if(this.depthColumn != null)
+		{
+			return this.orientation.getOrientedPoint(category,value,new RealPosition(row.get(
+					this.depthColumn).doubleValue()));
 		}
+		return this.orientation.getOrientedPoint(category,value);
+	}
+	
+	
+	/**
+	 * Widens the axis ranges if the values of <code>row</code> lie outside of
+	 * them.
+	 */
+	private void includeInRanges(VirtualTableRow row)
+	{
+		double category = row.get(this.categoryColumn).doubleValue();
+		ChartRangeComputationUtils.includeCategoryValue(this.categoryRange,category,
+				this.categoryMinimum);
+		this.categoryMinimum = Math.min(this.categoryMinimum,category);
+		ChartRangeComputationUtils.includeValue(this.valueRange,row.get(this.valueColumn));
 	}
 	
 	
@@ -271,16 +305,39 @@ public class VTNumericTimeChartDataInitializer extends VirtualTableAdapter imple
 	public void virtualTableDataChanged(VirtualTableEvent event)
 	{
 		// re/initialize model
-		if(this.depthColumn != null)
-		{
-			this.initializeChartModel(this.modelVT,this.categoryColumn,this.valueColumn,
-					this.depthColumn,this.orientation,this.seriesColumns);
-		}
-		else
+		this.createChartModel();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableStructureChanged(VirtualTableEvent event)
+	{
+		// re/initialize model
+		this.createChartModel();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowInserted(VirtualTableEvent event)
+	{
+		VirtualTableRow row = event.getRow();
+		DefaultChartModel model = this.seriesIndex != null ? this.seriesIndex.getModel(row)
+				: null;
+		if(model == null)
 		{
-			this.initializeChartModel(this.modelVT,this.categoryColumn,this.valueColumn,
-					this.orientation,this.seriesColumns);
+			// first row or new series
+			this.createChartModel();
+			return;
 		}
+		
+		this.includeInRanges(row);
+		this.seriesIndex.insertPoint(row,model);
 	}
 	
 	
@@ -288,18 +345,35 @@ public class VTNumericTimeChartDataInitializer extends VirtualTableAdapter imple
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void virtualTableRowInserted(VirtualTableEvent event)
+	public void virtualTableRowUpdated(VirtualTableEvent event)
 	{
-		// re/initialize model
-		if(this.depthColumn != null)
+		VirtualTableRow row = event.getRow();
+		DefaultChartModel model = null;
+		if(this.seriesIndex != null && this.seriesIndex.contains(row))
 		{
-			this.initializeChartModel(this.modelVT,this.categoryColumn,this.valueColumn,
-					this.depthColumn,this.orientation,this.seriesColumns);
+			model = this.seriesIndex.getModel(row);
 		}
-		else
+		if(model == null)
+		{
+			// unknown row or new series
+			this.createChartModel();
+			return;
+		}
+		
+		this.includeInRanges(row);
+		this.seriesIndex.updatePoint(row,model);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowDeleted(VirtualTableEvent event)
+	{
+		if(this.seriesIndex == null || !this.seriesIndex.removePoint(event.getRow()))
 		{
-			this.initializeChartModel(this.modelVT,this.categoryColumn,this.valueColumn,
-					this.orientation,this.seriesColumns);
+			this.createChartModel();
 		}
 	}
 }
@@ -0,0 +1,609 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.charts.model;
+
+
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.SwingUtilities;
+
+import xdev.ui.charts.AbstractRelationalStructureChart;
+import xdev.ui.charts.utils.ChartDecimationUtils;
+import xdev.ui.charts.utils.VirtualTableChartUtils;
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableColumn;
+
+import com.jidesoft.chart.axis.Axis;
+import com.jidesoft.chart.model.ChartPoint;
+import com.jidesoft.chart.model.ChartPoint3D;
+import com.jidesoft.chart.model.DefaultChartModel;
+import com.jidesoft.range.Range;
+
+
+/**
+ * The series models of a chart which has been built from a
+ * {@link VirtualTable}, together with the point each {@link VirtualTableRow}
+ * has been plotted as.
+ * <p>
+ * The VT chart data initializers use it to apply row inserts, updates and
+ * deletes to the existing models instead of rebuilding the whole chart.
+ * </p>
+ * <p>
+ * If the chart has a {@link AbstractRelationalStructureChart#getDecimationMode()
+ * decimation mode} the series are {@link DecimatedChartModel}s, which are
+ * filled from the rows of the {@link VirtualTable} directly; no point is kept
+ * per row then. They are decimated again if the chart is resized or zoomed or
+ * the rows change.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+class VirtualTableChartSeriesIndex
+{
+	/**
+	 * Creates the point a row is plotted as.
+	 */
+	static interface PointFactory
+	{
+		ChartPoint createPoint(VirtualTableRow row);
+	}
+	
+	private final AbstractRelationalStructureChart<?, ?>	chart;
+	private final ChartColorScheme							colorScheme;
+	private final VirtualTable								container;
+	private final String									singleSeriesName;
+	private final PointFactory								pointFactory;
+	private final VirtualTableColumn<?>[]					seriesColumns;
+	
+	private ChartDecimationMode								decimationMode;
+	private Map<List<Object>, DefaultChartModel>			seriesContextMap;
+	private DefaultChartModel								singleSeriesModel;
+	
+	/**
+	 * Reused key for series lookups.
+	 */
+	private final List<Object>								seriesProbe;
+	
+	private final Map<VirtualTableRow, ChartPoint>			rowPoints				= new IdentityHashMap<VirtualTableRow, ChartPoint>();
+	private final Map<VirtualTableRow, DefaultChartModel>	rowModels				= new IdentityHashMap<VirtualTableRow, DefaultChartModel>();
+	
+	/**
+	 * Whether the points are colored individually, see
+	 * {@link VirtualTableChartUtils#isPointHighlighted(AbstractRelationalStructureChart, int, int)}
+	 * .
+	 */
+	private boolean											pointHighlighted;
+	
+	private Chart3DOrientationStrategy						orientation;
+	private boolean											installed				= false;
+	private final ChartListener								chartListener			= new ChartListener();
+	private Axis											categoryAxis;
+	private Range<?>										categoryRange;
+	
+	// parameters of the last decimation
+	private boolean											decimationValid			= false;
+	private boolean											decimationScheduled		= false;
+	private int												decimatedPixelCount;
+	private double											decimatedLower;
+	private double											decimatedUpper;
+	private boolean											decimatedHorizontal;
+	
+	
+	/**
+	 * Creates the series models for all series of <code>container</code>.
+	 * 
+	 * @param chart
+	 *            the chart the models are displayed in
+	 * @param colorScheme
+	 *            the colorization basis
+	 * @param container
+	 *            the chart data
+	 * @param singleSeriesName
+	 *            the name of the model used if there are no series columns
+	 * @param pointFactory
+	 *            creates the points of the rows
+	 * @param seriesColumns
+	 *            the series columns
+	 */
+	VirtualTableChartSeriesIndex(AbstractRelationalStructureChart<?, ?> chart,
+			ChartColorScheme colorScheme, VirtualTable container, String singleSeriesName,
+			PointFactory pointFactory, VirtualTableColumn<?>... seriesColumns)
+	{
+		this.chart = chart;
+		this.colorScheme = colorScheme;
+		this.container = container;
+		this.singleSeriesName = singleSeriesName;
+		this.pointFactory = pointFactory;
+		this.seriesColumns = seriesColumns;
+		this.seriesProbe = new ArrayList<Object>(seriesColumns.length);
+		
+		this.createModels();
+	}
+	
+	
+	private void createModels()
+	{
+		this.decimationMode = this.chart.getDecimationMode();
+		this.rowPoints.clear();
+		this.rowModels.clear();
+		this.decimationValid = false;
+		
+		this.seriesContextMap = VirtualTableChartUtils.createChartSeriesDataContext(
+				this.container,this.seriesColumns);
+		if(isDecimated())
+		{
+			for(Map.Entry<List<Object>, DefaultChartModel> entry : this.seriesContextMap
+					.entrySet())
+			{
+				entry.setValue(new DecimatedChartModel(entry.getValue().getName(),this));
+			}
+			this.singleSeriesModel = new DecimatedChartModel(this.singleSeriesName,this);
+			
+			if(this.seriesColumns.length == 0)
+			{
+				// no rows are added to register it
+				this.seriesContextMap.put(null,this.singleSeriesModel);
+			}
+		}
+		else
+		{
+			this.singleSeriesModel = new DefaultChartModel(this.singleSeriesName);
+		}
+	}
+	
+	
+	/**
+	 * Returns <code>true</code> if the series are {@link DecimatedChartModel}s.
+	 */
+	boolean isDecimated()
+	{
+		return this.decimationMode != null && this.decimationMode != ChartDecimationMode.NONE;
+	}
+	
+	
+	/**
+	 * Returns the decimation mode the series models have been created for.
+	 */
+	ChartDecimationMode getDecimationMode()
+	{
+		return this.decimationMode;
+	}
+	
+	
+	/**
+	 * Returns the model of the series <code>row</code> belongs to.
+	 * 
+	 * @param row
+	 *            the row
+	 * @return the series model, or <code>null</code> if the row belongs to a
+	 *         series which didn't exist when the models were created
+	 */
+	DefaultChartModel getModel(VirtualTableRow row)
+	{
+		return VirtualTableChartUtils.getChartModel(this.singleSeriesModel,this.seriesContextMap,
+				VirtualTableChartUtils.getRowGroupData(row,this.seriesProbe,this.seriesColumns));
+	}
+	
+	
+	/**
+	 * Returns <code>true</code> if a point has been plotted for
+	 * <code>row</code>. Decimated series don't keep track of their rows, all
+	 * rows of known series are contained then.
+	 */
+	boolean contains(VirtualTableRow row)
+	{
+		return isDecimated() || this.rowPoints.containsKey(row);
+	}
+	
+	
+	/**
+	 * Adds the points of all rows while the models are being created, before
+	 * they are {@link #install(Chart3DOrientationStrategy) installed}.
+	 * Decimated series are filled when they are installed.
+	 */
+	void addRows()
+	{
+		if(isDecimated())
+		{
+			return;
+		}
+		
+		for(int i = 0, rowCount = this.container.getRowCount(); i < rowCount; i++)
+		{
+			VirtualTableRow row = this.container.getRow(i);
+			this.addPoint(row,this.getModel(row),this.pointFactory.createPoint(row));
+		}
+	}
+	
+	
+	private void addPoint(VirtualTableRow row, DefaultChartModel model, ChartPoint point)
+	{
+		model.addPoint(point);
+		this.rowPoints.put(row,point);
+		this.rowModels.put(row,model);
+	}
+	
+	
+	/**
+	 * Replaces the models of the chart with the models of this index.
+	 * 
+	 * @param orientation
+	 *            the plotting orientation
+	 */
+	void install(Chart3DOrientationStrategy orientation)
+	{
+		this.orientation = orientation;
+		this.attach();
+		
+		Collection<DefaultChartModel> models = this.seriesContextMap.values();
+		if(isDecimated())
+		{
+			// may be skipped if the chart has no size yet, the models are
+			// added anyway and filled on the next update
+			ChartDecimationUtils.decimate(this.chart,models);
+		}
+		
+		this.pointHighlighted = VirtualTableChartUtils.isPointHighlighted(this.chart,models.size(),
+				this.seriesColumns.length);
+		VirtualTableChartUtils.addChartModels(this.chart,orientation,models,this.colorScheme,
+				this.seriesColumns.length);
+	}
+	
+	
+	/**
+	 * Appends the point of a newly inserted row to <code>model</code>.
+	 */
+	void insertPoint(VirtualTableRow row, DefaultChartModel model)
+	{
+		if(isDecimated())
+		{
+			this.invalidateDecimation();
+			return;
+		}
+		
+		this.addPoint(row,model,this.pointFactory.createPoint(row));
+		this.updateHighlights(model);
+	}
+	
+	
+	/**
+	 * Replaces the point of <code>row</code>. If the row stays in the same
+	 * series the existing point is changed in place, so it keeps its position
+	 * within the model.
+	 */
+	void updatePoint(VirtualTableRow row, DefaultChartModel model)
+	{
+		if(isDecimated())
+		{
+			this.invalidateDecimation();
+			return;
+		}
+		
+		DefaultChartModel oldModel = this.rowModels.get(row);
+		if(oldModel == model)
+		{
+			ChartPoint oldPoint = this.rowPoints.get(row);
+			ChartPoint point = this.pointFactory.createPoint(row);
+			oldPoint.setX(point.getX());
+			oldPoint.setY(point.getY());
+			if(oldPoint instanceof ChartPoint3D && point instanceof ChartPoint3D)
+			{
+				((ChartPoint3D)oldPoint).setZ(((ChartPoint3D)point).getZ());
+			}
+			model.update();
+		}
+		else
+		{
+			this.removePoint(row);
+			this.insertPoint(row,model);
+		}
+	}
+	
+	
+	/**
+	 * Removes the point of <code>row</code>.
+	 * 
+	 * @return <code>false</code> if no point has been plotted for the row
+	 */
+	boolean removePoint(VirtualTableRow row)
+	{
+		if(isDecimated())
+		{
+			this.invalidateDecimation();
+			return true;
+		}
+		
+		ChartPoint point = this.rowPoints.remove(row);
+		if(point == null)
+		{
+			return false;
+		}
+		
+		DefaultChartModel model = this.rowModels.remove(row);
+		model.removePoint(point);
+		this.updateHighlights(model);
+		return true;
+	}
+	
+	
+	private void updateHighlights(DefaultChartModel model)
+	{
+		// the point colors depend on the point count and position
+		if(this.pointHighlighted && model.getPointCount() > 0)
+		{
+			this.colorScheme.getHightlightStrategy().addPointColorSchemeHighlights(this.chart,
+					model,this.colorScheme.getBaseColor());
+		}
+	}
+	
+	
+	/**
+	 * Fills the decimated series for the given pixel count and visible
+	 * category range, if the rows or the parameters have changed since the
+	 * last call.
+	 * <p>
+	 * All series are decimated together in two passes over the rows, only the
+	 * plotted points are created.
+	 * </p>
+	 * 
+	 * @see DecimatedChartModel#decimate(int, double, double, boolean)
+	 */
+	void decimate(int pixelCount, double lower, double upper, boolean horizontal)
+	{
+		if(!isDecimated()
+				|| (this.decimationValid && this.decimatedPixelCount == pixelCount
+						&& this.decimatedLower == lower && this.decimatedUpper == upper
+						&& this.decimatedHorizontal == horizontal))
+		{
+			return;
+		}
+		
+		this.decimationValid = true;
+		this.decimatedPixelCount = pixelCount;
+		this.decimatedLower = lower;
+		this.decimatedUpper = upper;
+		this.decimatedHorizontal = horizontal;
+		
+		Map<DefaultChartModel, ChartSeriesDecimator> decimators = new IdentityHashMap<DefaultChartModel, ChartSeriesDecimator>();
+		for(DefaultChartModel model : this.seriesContextMap.values())
+		{
+			decimators.put(model,new ChartSeriesDecimator(this.decimationMode,pixelCount,lower,
+					upper));
+		}
+		
+		int rowCount = this.container.getRowCount();
+		for(int i = 0; i < rowCount; i++)
+		{
+			VirtualTableRow row = this.container.getRow(i);
+			ChartSeriesDecimator decimator = decimators.get(this.getModel(row));
+			if(decimator != null)
+			{
+				ChartPoint point = this.pointFactory.createPoint(row);
+				decimator.count(i,category(point,horizontal),value(point,horizontal));
+			}
+		}
+		
+		for(ChartSeriesDecimator decimator : decimators.values())
+		{
+			decimator.prepare();
+		}
+		
+		for(int i = 0; i < rowCount; i++)
+		{
+			VirtualTableRow row = this.container.getRow(i);
+			ChartSeriesDecimator decimator = decimators.get(this.getModel(row));
+			if(decimator != null)
+			{
+				ChartPoint point = this.pointFactory.createPoint(row);
+				decimator.select(i,category(point,horizontal),value(point,horizontal));
+			}
+		}
+		
+		for(Map.Entry<DefaultChartModel, ChartSeriesDecimator> entry : decimators.entrySet())
+		{
+			int[] rows = entry.getValue().getRows();
+			List<ChartPoint> points = new ArrayList<ChartPoint>(rows.length);
+			for(int row : rows)
+			{
+				points.add(this.pointFactory.createPoint(this.container.getRow(row)));
+			}
+			
+			DefaultChartModel model = entry.getKey();
+			((DecimatedChartModel)model).setPoints(points);
+			this.updateHighlights(model);
+		}
+	}
+	
+	
+	private static double category(ChartPoint point, boolean horizontal)
+	{
+		return horizontal ? point.getY().position() : point.getX().position();
+	}
+	
+	
+	private static double value(ChartPoint point, boolean horizontal)
+	{
+		return horizontal ? point.getX().position() : point.getY().position();
+	}
+	
+	
+	/**
+	 * Decimates the series again after the rows have changed.
+	 */
+	private void invalidateDecimation()
+	{
+		this.decimationValid = false;
+		this.scheduleDecimation();
+	}
+	
+	
+	/**
+	 * Decimates the series later on the event dispatch thread, so a burst of
+	 * resize, zoom or row events is handled once.
+	 */
+	private void scheduleDecimation()
+	{
+		if(!isDecimated() || this.decimationScheduled)
+		{
+			return;
+		}
+		
+		this.decimationScheduled = true;
+		SwingUtilities.invokeLater(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				VirtualTableChartSeriesIndex.this.decimationScheduled = false;
+				if(VirtualTableChartSeriesIndex.this.installed)
+				{
+					ChartDecimationUtils
+							.updateDecimatedModels(VirtualTableChartSeriesIndex.this.chart);
+				}
+			}
+		});
+	}
+	
+	
+	/**
+	 * Recreates the models if the decimation mode of the chart has changed.
+	 */
+	private void decimationModeChanged()
+	{
+		if(this.chart.getDecimationMode() != this.decimationMode)
+		{
+			this.createModels();
+			this.addRows();
+			this.install(this.orientation);
+		}
+	}
+	
+	
+	/**
+	 * Starts listening to the chart, the index which has been installed before
+	 * stops listening.
+	 */
+	private void attach()
+	{
+		if(this.installed)
+		{
+			return;
+		}
+		
+		Object previous = this.chart.getClientProperty(VirtualTableChartSeriesIndex.class);
+		if(previous instanceof VirtualTableChartSeriesIndex)
+		{
+			((VirtualTableChartSeriesIndex)previous).detach();
+		}
+		this.chart.putClientProperty(VirtualTableChartSeriesIndex.class,this);
+		
+		this.installed = true;
+		this.chart.addComponentListener(this.chartListener);
+		this.chart.addPropertyChangeListener(this.chartListener);
+		this.attachCategoryAxis();
+	}
+	
+	
+	private void detach()
+	{
+		this.installed = false;
+		this.chart.removeComponentListener(this.chartListener);
+		this.chart.removePropertyChangeListener(this.chartListener);
+		this.setCategoryAxis(null);
+	}
+	
+	
+	/**
+	 * Follows the category axis and its range, they are replaced if the chart
+	 * data is reinitialized or zoomed.
+	 */
+	private void attachCategoryAxis()
+	{
+		this.setCategoryAxis(this.orientation != null ? this.orientation
+				.getCategoryAxis(this.chart) : null);
+	}
+	
+	
+	private void setCategoryAxis(Axis categoryAxis)
+	{
+		if(this.categoryAxis != categoryAxis)
+		{
+			if(this.categoryAxis != null)
+			{
+				this.categoryAxis.removePropertyChangeListener(this.chartListener);
+			}
+			this.categoryAxis = categoryAxis;
+			if(categoryAxis != null)
+			{
+				categoryAxis.addPropertyChangeListener(this.chartListener);
+			}
+		}
+		
+		Range<?> categoryRange = categoryAxis != null ? categoryAxis.getRange() : null;
+		if(this.categoryRange != categoryRange)
+		{
+			if(this.categoryRange != null)
+			{
+				this.categoryRange.removePropertyChangeListener(this.chartListener);
+			}
+			this.categoryRange = categoryRange;
+			if(categoryRange != null)
+			{
+				categoryRange.addPropertyChangeListener(this.chartListener);
+			}
+		}
+	}
+	
+	
+	private class ChartListener extends ComponentAdapter implements PropertyChangeListener
+	{
+		@Override
+		public void componentResized(ComponentEvent e)
+		{
+			scheduleDecimation();
+		}
+		
+		
+		@Override
+		public void propertyChange(PropertyChangeEvent evt)
+		{
+			if(evt.getSource() == chart
+					&& AbstractRelationalStructureChart.DECIMATION_MODE_PROPERTY.equals(evt
+							.getPropertyName()))
+			{
+				decimationModeChanged();
+			}
+			else
+			{
+				// the axis, its range or the range bounds may have changed
+				attachCategoryAxis();
+				scheduleDecimation();
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.charts.utils;
+
+
+import java.awt.Dimension;
+import java.util.Collection;
+
+import xdev.ui.charts.AbstractRelationalStructureChart;
+import xdev.ui.charts.model.Chart3DOrientationStrategy;
+import xdev.ui.charts.model.ChartDecimationMode;
+import xdev.ui.charts.model.DecimatedChartModel;
+import xdev.ui.charts.model.HorizontalChartOrientationStrategy;
+
+import com.jidesoft.chart.axis.Axis;
+import com.jidesoft.chart.model.ChartModel;
+import com.jidesoft.range.Range;
+
+
+/**
+ * Reduces the points of chart series to about the number of pixels they are
+ * plotted on.
+ * <p>
+ * The rows of a series are expected to be ordered by their category.
+ * </p>
+ * 
+ * @see ChartDecimationMode
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class ChartDecimationUtils
+{
+	/**
+	 * Decimates all {@link DecimatedChartModel}s of <code>chart</code> for its
+	 * current size and visible category range. Called if the chart has been
+	 * resized or zoomed or its data has changed.
+	 * 
+	 * @param chart
+	 *            the chart
+	 */
+	public static void updateDecimatedModels(AbstractRelationalStructureChart<?, ?> chart)
+	{
+		if(chart.getModels() != null)
+		{
+			decimate(chart,chart.getModels());
+		}
+	}
+	
+	
+	/**
+	 * Decimates the {@link DecimatedChartModel}s of <code>models</code> for the
+	 * current size and visible category range of <code>chart</code>. If the
+	 * chart hasn't been laid out yet its preferred size is used.
+	 * 
+	 * @param chart
+	 *            the chart which displays the models
+	 * @param models
+	 *            the models to decimate
+	 */
+	public static void decimate(AbstractRelationalStructureChart<?, ?> chart,
+			Collection<? extends ChartModel> models)
+	{
+		Chart3DOrientationStrategy orientation = chart.getChartOrientation();
+		boolean horizontal = orientation instanceof HorizontalChartOrientationStrategy;
+		int pixelCount = horizontal ? chart.getHeight() : chart.getWidth();
+		if(pixelCount <= 0)
+		{
+			Dimension size = chart.getPreferredSize();
+			pixelCount = horizontal ? size.height : size.width;
+		}
+		Axis categoryAxis = orientation.getCategoryAxis(chart);
+		if(pixelCount <= 0 || categoryAxis == null || categoryAxis.getRange() == null)
+		{
+			return;
+		}
+		
+		Range<?> range = categoryAxis.getRange();
+		for(ChartModel model : models)
+		{
+			if(model instanceof DecimatedChartModel)
+			{
+				((DecimatedChartModel)model).decimate(pixelCount,range.minimum(),
+						range.maximum(),horizontal);
+			}
+		}
+	}
+}
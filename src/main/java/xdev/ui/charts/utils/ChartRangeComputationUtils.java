@@ -18,10 +18,9 @@
 package xdev.ui.charts.utils;
 
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTableColumn;
@@ -54,19 +53,45 @@ public class ChartRangeComputationUtils
 	 */
 	public static CategoryRange<String> computeStringRange(VirtualTable container,
 			Integer categoryColumnIndex)
+	{
+		return computeStringRange(container,categoryColumnIndex,
+				new HashMap<String, Category<String>>());
+	}
+	
+	
+	/**
+	 * Computes a category range from given values and stores the created
+	 * categories by their value, to be used with
+	 * {@link #includeCategory(CategoryRange, Map, Object)} and
+	 * {@link #getCategory(Map, Object)}.
+	 * 
+	 * @param container
+	 *            the data container, for example a {@link VirtualTable}.
+	 * @param categoryColumnIndex
+	 *            the category column index.
+	 * @param categories
+	 *            the map to store the categories in.
+	 * 
+	 * @return returns the computed {@link CategoryRange}.
+	 */
+	public static CategoryRange<String> computeStringRange(VirtualTable container,
+			Integer categoryColumnIndex, Map<String, Category<String>> categories)
 	{
 		CategoryRange<String> categoryRange = new CategoryRange<String>();
 		
 		if(container.getRowCount() > 0)
 		{
-			for(int row = 0; row < container.getRowCount(); row++)
+			VirtualTableColumn<?> categoryColumn = container.getColumnAt(categoryColumnIndex);
+			
+			for(int row = 0, rowCount = container.getRowCount(); row < rowCount; row++)
 			{
-				String category = (String)container.getValueAt(row,
-						container.getColumnAt(categoryColumnIndex));
+				String category = (String)container.getValueAt(row,categoryColumn);
 				// ensure grouping
-				if(!categoryRange.contains(category))
+				if(!categories.containsKey(category))
 				{
-					categoryRange.add(new ChartCategory<String>(category));
+					ChartCategory<String> chartCategory = new ChartCategory<String>(category);
+					categories.put(category,chartCategory);
+					categoryRange.add(chartCategory);
 				}
 			}
 		}
@@ -93,12 +118,15 @@ public class ChartRangeComputationUtils
 	public static Range<Double> computeNumericValueRange(VirtualTable container,
 			int... valueColumnIndices)
 	{
-		Double minValue = null;
-		Double maxValue = null;
-		List<Double> possibleValues = new ArrayList<Double>();
-		
 		if(container.getRowCount() > 0)
 		{
+			double minValue = 0;
+			double maxValue = 0;
+			
+			// min/max of all values of the columns processed so far
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			
 			for(int i = 0; i < valueColumnIndices.length; i++)
 			{
 				int valueColumnIndex = valueColumnIndices[i];
@@ -106,26 +134,28 @@ public class ChartRangeComputationUtils
 				VirtualTableColumn<? extends Number> valueColumn = VirtualTableColumnTypeUtils
 						.isNumericColumn(container.getColumnAt(valueColumnIndex));
 				
-				for(int row = 0; row < container.getRowCount(); row++)
+				for(int row = 0, rowCount = container.getRowCount(); row < rowCount; row++)
 				{
-					Number value = container.getValueAt(row,valueColumn);
-					
-					// ensure grouping
-					if(!possibleValues.contains(value.doubleValue()))
+					double value = container.getValueAt(row,valueColumn).doubleValue();
+					if(value < min)
+					{
+						min = value;
+					}
+					if(value > max)
 					{
-						possibleValues.add(value.doubleValue());
+						max = value;
 					}
 				}
 				
 				// store values
-				if(minValue == null || Collections.min(possibleValues) < minValue)
+				if(i == 0 || min < minValue)
 				{
-					minValue = Collections.min(possibleValues);
+					minValue = min;
 				}
 				
-				if(maxValue == null || Collections.max(possibleValues) > maxValue)
+				if(i == 0 || max > maxValue)
 				{
-					maxValue = Collections.max(possibleValues);
+					maxValue = max;
 					// calculate trailing margin proportions
 					maxValue += (maxValue * 0.1);
 				}
@@ -157,12 +187,15 @@ public class ChartRangeComputationUtils
 	public static Range<Double> computeNumericCategoryRange(VirtualTable container,
 			int... valueColumnIndices)
 	{
-		Double minValue = null;
-		Double maxValue = null;
-		List<Double> possibleValues = new ArrayList<Double>();
-		
 		if(container.getRowCount() > 0)
 		{
+			double minValue = 0;
+			double maxValue = 0;
+			
+			// min/max of all values of the columns processed so far
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			
 			for(int i = 0; i < valueColumnIndices.length; i++)
 			{
 				int valueColumnIndex = valueColumnIndices[i];
@@ -170,26 +203,28 @@ public class ChartRangeComputationUtils
 				VirtualTableColumn<? extends Number> valueColumn = VirtualTableColumnTypeUtils
 						.isNumericColumn(container.getColumnAt(valueColumnIndex));
 				
-				for(int row = 0; row < container.getRowCount(); row++)
+				for(int row = 0, rowCount = container.getRowCount(); row < rowCount; row++)
 				{
-					Number value = container.getValueAt(row,valueColumn);
-					
-					// ensure grouping
-					if(!possibleValues.contains(value.doubleValue()))
+					double value = container.getValueAt(row,valueColumn).doubleValue();
+					if(value < min)
+					{
+						min = value;
+					}
+					if(value > max)
 					{
-						possibleValues.add(value.doubleValue());
+						max = value;
 					}
 				}
 				
 				// store values
-				if(minValue == null || Collections.min(possibleValues) < minValue)
+				if(i == 0 || min < minValue)
 				{
-					minValue = Collections.min(possibleValues);
+					minValue = min;
 				}
 				
-				if(maxValue == null || Collections.max(possibleValues) > maxValue)
+				if(i == 0 || max > maxValue)
 				{
-					maxValue = Collections.max(possibleValues) + minValue;
+					maxValue = max + minValue;
 				}
 			}
 			
@@ -218,12 +253,15 @@ public class ChartRangeComputationUtils
 	 */
 	public static TimeRange computeTimeValueRange(VirtualTable container, int... valueColumnIndices)
 	{
-		Long minValue = null;
-		Long maxValue = null;
-		List<Long> possibleValues = new ArrayList<Long>();
-		
 		if(container.getRowCount() > 0)
 		{
+			long minValue = 0;
+			long maxValue = 0;
+			
+			// min/max of all values of the columns processed so far
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			
 			for(int i = 0; i < valueColumnIndices.length; i++)
 			{
 				int valueColumnIndex = valueColumnIndices[i];
@@ -231,26 +269,28 @@ public class ChartRangeComputationUtils
 				VirtualTableColumn<? extends Date> valueColumn = VirtualTableColumnTypeUtils
 						.isDateColumn(container.getColumnAt(valueColumnIndex));
 				
-				for(int row = 0; row < container.getRowCount(); row++)
+				for(int row = 0, rowCount = container.getRowCount(); row < rowCount; row++)
 				{
-					Date value = container.getValueAt(row,valueColumn);
-					
-					// ensure grouping
-					if(!possibleValues.contains(value.getTime()))
+					long value = container.getValueAt(row,valueColumn).getTime();
+					if(value < min)
 					{
-						possibleValues.add(value.getTime());
+						min = value;
+					}
+					if(value > max)
+					{
+						max = value;
 					}
 				}
 				
 				// store values
-				if(minValue == null || Collections.min(possibleValues) < minValue)
+				if(i == 0 || min < minValue)
 				{
-					minValue = Collections.min(possibleValues);
+					minValue = min;
 				}
 				
-				if(maxValue == null || Collections.max(possibleValues) > maxValue)
+				if(i == 0 || max > maxValue)
 				{
-					maxValue = Collections.max(possibleValues);
+					maxValue = max;
 					// calculate trailing margin proportions
 					maxValue += (maxValue / 100 * 10);
 				}
@@ -281,12 +321,15 @@ public class ChartRangeComputationUtils
 	public static TimeRange computeTimeCategoryRange(VirtualTable container,
 			int... valueColumnIndices)
 	{
-		Long minValue = null;
-		Long maxValue = null;
-		List<Long> possibleValues = new ArrayList<Long>();
-		
 		if(container.getRowCount() > 0)
 		{
+			long minValue = 0;
+			long maxValue = 0;
+			
+			// min/max of all values of the columns processed so far
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			
 			for(int i = 0; i < valueColumnIndices.length; i++)
 			{
 				int valueColumnIndex = valueColumnIndices[i];
@@ -294,26 +337,28 @@ public class ChartRangeComputationUtils
 				VirtualTableColumn<? extends Date> valueColumn = VirtualTableColumnTypeUtils
 						.isDateColumn(container.getColumnAt(valueColumnIndex));
 				
-				for(int row = 0; row < container.getRowCount(); row++)
+				for(int row = 0, rowCount = container.getRowCount(); row < rowCount; row++)
 				{
-					Date value = container.getValueAt(row,valueColumn);
-					
-					// ensure grouping
-					if(!possibleValues.contains(value.getTime()))
+					long value = container.getValueAt(row,valueColumn).getTime();
+					if(value < min)
+					{
+						min = value;
+					}
+					if(value > max)
 					{
-						possibleValues.add(value.getTime());
+						max = value;
 					}
 				}
 				
 				// store values
-				if(minValue == null || Collections.min(possibleValues) < minValue)
+				if(i == 0 || min < minValue)
 				{
-					minValue = Collections.min(possibleValues);
+					minValue = min;
 				}
 				
-				if(maxValue == null || Collections.max(possibleValues) > maxValue)
+				if(i == 0 || max > maxValue)
 				{
-					maxValue = Collections.max(possibleValues) + minValue;
+					maxValue = max + minValue;
 				}
 				
 			}
@@ -330,7 +375,210 @@ public class ChartRangeComputationUtils
 	}
 	
 	
-
+	/**
+	 * Adds <code>value</code> to the given category range if it is not a
+	 * category of the range yet. <code>null</code> is a category like in
+	 * {@link #computeStringRange(VirtualTable, Integer, Map)}.
+	 * 
+	 * @param range
+	 *            the category range.
+	 * @param categories
+	 *            the categories of the range by their value.
+	 * @param value
+	 *            the category value.
+	 * @return <code>true</code> if the range has been changed.
+	 */
+	public static <T> boolean includeCategory(CategoryRange<T> range,
+			Map<T, Category<T>> categories, T value)
+	{
+		if(categories.containsKey(value))
+		{
+			return false;
+		}
+		ChartCategory<T> category = new ChartCategory<T>(value);
+		categories.put(value,category);
+		range.add(category);
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the category of <code>value</code>.
+	 * 
+	 * @param categories
+	 *            the categories by their value.
+	 * @param value
+	 *            the category value, may be <code>null</code>.
+	 * @return the category of <code>value</code>.
+	 */
+	public static <T> Category<T> getCategory(Map<T, Category<T>> categories, T value)
+	{
+		Category<T> category = categories.get(value);
+		if(category == null)
+		{
+			throw new RuntimeException("No category value found");
+		}
+		return category;
+	}
+	
+	
+	/**
+	 * Computes the minimum of the values of the given columns, which is part of
+	 * the upper bound of
+	 * {@link #computeNumericCategoryRange(VirtualTable, int...)}.
+	 * 
+	 * @param container
+	 *            the data container, for example a {@link VirtualTable}.
+	 * @param valueColumnIndices
+	 *            the value column indices.
+	 * @return the minimum value.
+	 */
+	public static double computeNumericMinimum(VirtualTable container, int... valueColumnIndices)
+	{
+		double min = Double.POSITIVE_INFINITY;
+		for(int valueColumnIndex : valueColumnIndices)
+		{
+			VirtualTableColumn<? extends Number> valueColumn = VirtualTableColumnTypeUtils
+					.isNumericColumn(container.getColumnAt(valueColumnIndex));
+			for(int row = 0, rowCount = container.getRowCount(); row < rowCount; row++)
+			{
+				min = Math.min(min,container.getValueAt(row,valueColumn).doubleValue());
+			}
+		}
+		return min;
+	}
+	
+	
+	/**
+	 * Computes the minimum of the values of the given columns, which is part of
+	 * the upper bound of {@link #computeTimeCategoryRange(VirtualTable, int...)}.
+	 * 
+	 * @param container
+	 *            the data container, for example a {@link VirtualTable}.
+	 * @param valueColumnIndices
+	 *            the value column indices.
+	 * @return the minimum value.
+	 */
+	public static long computeTimeMinimum(VirtualTable container, int... valueColumnIndices)
+	{
+		long min = Long.MAX_VALUE;
+		for(int valueColumnIndex : valueColumnIndices)
+		{
+			VirtualTableColumn<? extends Date> valueColumn = VirtualTableColumnTypeUtils
+					.isDateColumn(container.getColumnAt(valueColumnIndex));
+			for(int row = 0, rowCount = container.getRowCount(); row < rowCount; row++)
+			{
+				min = Math.min(min,container.getValueAt(row,valueColumn).getTime());
+			}
+		}
+		return min;
+	}
+	
+	
+	/**
+	 * Widens the given value range for <code>value</code> like
+	 * {@link #computeNumericValueRange(VirtualTable, int...)} would: the range
+	 * starts at 0 and ends at the maximum plus its trailing margin.
+	 * 
+	 * @param range
+	 *            the range to widen.
+	 * @param value
+	 *            the value to include.
+	 * @return <code>true</code> if the range has been changed.
+	 */
+	public static boolean includeValue(Range<Double> range, double value)
+	{
+		double upper = value + (value * 0.1);
+		if(upper <= range.upper())
+		{
+			return false;
+		}
+		
+		range.adjust(range.lower(),upper);
+		return true;
+	}
+	
+	
+	/**
+	 * Widens the given time range for <code>value</code> like
+	 * {@link #computeTimeValueRange(VirtualTable, int...)} would: the range
+	 * starts at 0 and ends at the maximum plus its trailing margin.
+	 * 
+	 * @param range
+	 *            the range to widen.
+	 * @param value
+	 *            the value to include.
+	 * @return <code>true</code> if the range has been changed.
+	 */
+	public static boolean includeValue(Range<Date> range, Date value)
+	{
+		long time = value.getTime();
+		long upper = time + (time / 100 * 10);
+		if(upper <= range.upper().getTime())
+		{
+			return false;
+		}
+		
+		range.adjust(range.lower(),new Date(upper));
+		return true;
+	}
+	
+	
+	/**
+	 * Widens the given category range for <code>value</code> like
+	 * {@link #computeNumericCategoryRange(VirtualTable, int...)} would: the
+	 * range starts at 0 and ends at the maximum plus the minimum of the values.
+	 * 
+	 * @param range
+	 *            the range to widen.
+	 * @param value
+	 *            the value to include.
+	 * @param minimum
+	 *            the minimum of the values before <code>value</code>, see
+	 *            {@link #computeNumericMinimum(VirtualTable, int...)}.
+	 * @return <code>true</code> if the range has been changed.
+	 */
+	public static boolean includeCategoryValue(Range<Double> range, double value, double minimum)
+	{
+		double max = range.upper() - minimum;
+		if(value <= max && value >= minimum)
+		{
+			return false;
+		}
+		
+		range.adjust(range.lower(),Math.max(max,value) + Math.min(minimum,value));
+		return true;
+	}
+	
+	
+	/**
+	 * Widens the given time range for <code>value</code> like
+	 * {@link #computeTimeCategoryRange(VirtualTable, int...)} would: the range
+	 * starts at 0 and ends at the maximum plus the minimum of the values.
+	 * 
+	 * @param range
+	 *            the range to widen.
+	 * @param value
+	 *            the value to include.
+	 * @param minimum
+	 *            the minimum of the values before <code>value</code>, see
+	 *            {@link #computeTimeMinimum(VirtualTable, int...)}.
+	 * @return <code>true</code> if the range has been changed.
+	 */
+	public static boolean includeCategoryValue(Range<Date> range, Date value, long minimum)
+	{
+		long time = value.getTime();
+		long max = range.upper().getTime() - minimum;
+		if(time <= max && time >= minimum)
+		{
+			return false;
+		}
+		
+		range.adjust(range.lower(),new Date(Math.max(max,time) + Math.min(minimum,time)));
+		return true;
+	}
+	
+	
 	public static <T> Category<T> getCategory(CategoryRange<T> range, T value)
 	{
 		for(Category<T> category : range.getCategoryValues())
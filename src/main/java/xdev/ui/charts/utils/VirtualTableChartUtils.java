@@ -21,13 +21,17 @@ package xdev.ui.charts.utils;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import xdev.ui.charts.AbstractRelationalStructureChart;
 import xdev.ui.charts.model.Chart3DOrientationStrategy;
+import xdev.ui.charts.model.ChartColorSchemeHighlightStrategy;
 import xdev.ui.charts.model.ChartColorScheme;
+import xdev.ui.charts.model.DecimatedChartModel;
 import xdev.ui.charts.model.VerticalChartOrientationStrategy;
 import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTable.VirtualTableRow;
@@ -56,8 +60,11 @@ public class VirtualTableChartUtils
 	private static <T extends DefaultChartModel> void addSingleSeriesModel(
 			AbstractRelationalStructureChart<?, ?> chart, ChartModel model, ChartColorScheme scheme)
 	{
-		scheme.getHightlightStrategy().addPointColorSchemeHighlights(chart,model,
-				scheme.getBaseColor());
+		if(model.getPointCount() > 0)
+		{
+			scheme.getHightlightStrategy().addPointColorSchemeHighlights(chart,model,
+					scheme.getBaseColor());
+		}
 		
 		// use "empty" style
 		chart.addModel(model,chart.createStyle());
@@ -82,6 +89,10 @@ public class VirtualTableChartUtils
 	
 	/**
 	 * Adds the given chart models to a certain {@link Chart}.
+	 * <p>
+	 * Empty models are skipped, except {@link DecimatedChartModel}s, which are
+	 * filled after they have been added, as soon as the chart has a size.
+	 * </p>
 	 * 
 	 * @param chart
 	 *            the chart to add the models to.
@@ -106,10 +117,9 @@ public class VirtualTableChartUtils
 		int modelCount = 0;
 		for(final T model : models)
 		{
-			if(model.getPointCount() > 0)
+			if(model.getPointCount() > 0 || model instanceof DecimatedChartModel)
 			{
-				if(chart.getChartType().equals(ChartType.PIE)
-						|| (groupCount == 0 && models.size() == SINGLE_SERIES_MODEL))
+				if(isPointHighlighted(chart,models.size(),groupCount))
 				{
 					addSingleSeriesModel(chart,model,colorScheme);
 				}
@@ -125,6 +135,28 @@ public class VirtualTableChartUtils
 	}
 	
 	
+	/**
+	 * Returns whether the points of the chart's models are colored one by one
+	 * instead of using one style per model, see
+	 * {@link ChartColorSchemeHighlightStrategy#addPointColorSchemeHighlights(AbstractRelationalStructureChart, ChartModel, Color)}
+	 * .
+	 * 
+	 * @param chart
+	 *            the chart.
+	 * @param modelCount
+	 *            the count of models added to the chart.
+	 * @param groupCount
+	 *            the group indicator.
+	 * @return <code>true</code> if the points are colored individually.
+	 */
+	public static boolean isPointHighlighted(AbstractRelationalStructureChart<?, ?> chart,
+			int modelCount, int groupCount)
+	{
+		return chart.getChartType().equals(ChartType.PIE)
+				|| (groupCount == 0 && modelCount == SINGLE_SERIES_MODEL);
+	}
+	
+	
 	/**
 	 * Creates the seriesDataContext-{@link Map} which is the mapping between a
 	 * concrete {@link ChartModel} and its seriesData.
@@ -136,17 +168,15 @@ public class VirtualTableChartUtils
 	public static Map<List<Object>, DefaultChartModel> createChartSeriesDataContext(
 			VirtualTable container, VirtualTableColumn<?>... seriesColumnIndices)
 	{
-		Map<List<Object>, DefaultChartModel> seriesContextMap = new HashMap<List<Object>, DefaultChartModel>();
+		// keep the first-seen order of the series, it determines their colors
+		Map<List<Object>, DefaultChartModel> seriesContextMap = new LinkedHashMap<List<Object>, DefaultChartModel>();
 		if(seriesColumnIndices.length > 0)
 		{
-			List<List<Object>> seriesRowDataList = createChartSeriesData(container,
-					seriesColumnIndices);
-			
-			for(int i = 0; i < seriesRowDataList.size(); i++)
+			for(List<Object> seriesRowData : createChartSeriesData(container,seriesColumnIndices))
 			{
 				DefaultChartModel model = new DefaultChartModel(
-						createUniqueSeriesName(seriesRowDataList.get(i)));
-				seriesContextMap.put(seriesRowDataList.get(i),model);
+						createUniqueSeriesName(seriesRowData));
+				seriesContextMap.put(seriesRowData,model);
 			}
 		}
 		return seriesContextMap;
@@ -155,7 +185,7 @@ public class VirtualTableChartUtils
 	
 	/**
 	 * Returns all unique (grouped) chart series data sets from the given
-	 * {@link VirtualTable}
+	 * {@link VirtualTable} in the order of their first occurrence.
 	 * 
 	 * @param container
 	 *            the data container.
@@ -166,20 +196,21 @@ public class VirtualTableChartUtils
 	public static List<List<Object>> createChartSeriesData(VirtualTable container,
 			VirtualTableColumn<?>... seriesColumnIndices)
 	{
-		List<List<Object>> seriesDataList = new ArrayList<List<Object>>();
+		Set<List<Object>> seriesDataSet = new LinkedHashSet<List<Object>>();
+		List<Object> probe = new ArrayList<Object>(seriesColumnIndices.length);
 		
-		for(int row = 0; row < container.getRowCount(); row++)
+		for(int row = 0, rowCount = container.getRowCount(); row < rowCount; row++)
 		{
-			List<Object> currentSeriesData = getRowGroupData(container.getRow(row),
-					seriesColumnIndices);
+			getRowGroupData(container.getRow(row),probe,seriesColumnIndices);
 			
-			// only add unique group combinations
-			if(!seriesDataList.contains(currentSeriesData))
+			// only add unique group combinations, the probe is reused for the
+			// next row
+			if(!seriesDataSet.contains(probe))
 			{
-				seriesDataList.add(currentSeriesData);
+				seriesDataSet.add(new ArrayList<Object>(probe));
 			}
 		}
-		return seriesDataList;
+		return new ArrayList<List<Object>>(seriesDataSet);
 	}
 	
 	
@@ -195,13 +226,36 @@ public class VirtualTableChartUtils
 	public static List<Object> getRowGroupData(VirtualTableRow row,
 			VirtualTableColumn<?>... groupColumns)
 	{
-		List<Object> currentSeriesData = new ArrayList<Object>();
+		return getRowGroupData(row,new ArrayList<Object>(groupColumns.length),groupColumns);
+	}
+	
+	
+	/**
+	 * Fills <code>groupData</code> with the group data of the given row.
+	 * <p>
+	 * Use this variant to look up series with one reusable key instead of
+	 * allocating a new list per row. The list must not be used as key of a
+	 * map, store a copy instead.
+	 * </p>
+	 * 
+	 * @param row
+	 *            the {@link VirtualTableRow} containing the groups.
+	 * @param groupData
+	 *            the list to fill, previous content is removed.
+	 * @param groupColumns
+	 *            the group columns.
+	 * @return <code>groupData</code>
+	 */
+	public static List<Object> getRowGroupData(VirtualTableRow row, List<Object> groupData,
+			VirtualTableColumn<?>... groupColumns)
+	{
+		groupData.clear();
 		for(int seriesColumnIndex = 0; seriesColumnIndex < groupColumns.length; seriesColumnIndex++)
 		{
-			currentSeriesData.add(row.get(groupColumns[seriesColumnIndex]));
+			groupData.add(row.get(groupColumns[seriesColumnIndex]));
 		}
 		
-		return currentSeriesData;
+		return groupData;
 	}
 	
 	
@@ -237,14 +291,14 @@ public class VirtualTableChartUtils
 	
 	private static String createUniqueSeriesName(List<Object> seriesData)
 	{
-		String seriesName = "";
+		StringBuilder seriesName = new StringBuilder();
 		
 		for(Object object : seriesData)
 		{
-			seriesName += object.toString();
+			seriesName.append(object);
 		}
 		
-		return seriesName;
+		return seriesName.toString();
 	}
 	
 	
@@ -20,7 +20,7 @@ package xdev.ui.combobox;
 
 import javax.swing.ComboBoxModel;
 
-import com.jidesoft.combobox.ComboBoxModelWrapperUtils;
+import xdev.ui.ModelWrapperResolutionCache;
 
 
 public class CSComboBoxModelWrapperLookup extends DefaultComboBoxModelWrapperLookup
@@ -28,6 +28,6 @@ public class CSComboBoxModelWrapperLookup extends DefaultComboBoxModelWrapperLoo
 	@Override
 	public ComboBoxModel lookupComboBoxModel(ComboBoxModel outerModel, Class innerModelClass)
 	{
-		return ComboBoxModelWrapperUtils.getActualComboBoxModel(outerModel,innerModelClass);
+		return ModelWrapperResolutionCache.getActualComboBoxModel(outerModel,innerModelClass);
 	}
 }
@@ -22,6 +22,7 @@ import javax.swing.ComboBoxModel;
 import javax.swing.JComboBox;
 
 import xdev.ui.ItemListOwner;
+import xdev.ui.ModelWrapperResolutionCache;
 import xdev.vt.VirtualTable;
 
 import com.jidesoft.combobox.ComboBoxModelWrapperUtils;
@@ -123,7 +124,7 @@ public class CSComboBoxRowConverter extends DefaultComboBoxRowConverter
 		if(row != -1)
 		{
 			ComboBoxModel outerModel = combobox.getModel();
-			ComboBoxModel innerModel = ComboBoxModelWrapperUtils.getActualComboBoxModel(outerModel,
+			ComboBoxModel innerModel = ModelWrapperResolutionCache.getActualComboBoxModel(outerModel,
 					ItemListOwner.class);
 			
 			if(innerModel != null && innerModel != outerModel)
@@ -19,18 +19,9 @@ package xdev.ui.componenttable;
 
 
 import java.awt.Component;
-import java.awt.Container;
 
-import javax.swing.JCheckBox;
-import javax.swing.JLabel;
-import javax.swing.JRadioButton;
-import javax.swing.UIManager;
 import javax.swing.table.TableModel;
 
-import xdev.lang.OperationCanceledException;
-import xdev.ui.ComponentTreeVisitor;
-import xdev.ui.UIUtils;
-
 import com.jidesoft.grid.SortableTable;
 
 
@@ -48,6 +39,7 @@ public class ComponentTable extends SortableTable
 	 */
 	private static final long	serialVersionUID	= 8586220934573329052L;
 	Class<? extends ComponentTableTemplate<?>>	templateClass;
+	private ComponentTableDecorator				decorator			= new ComponentTableDecorator();
 	
 	{
 		/*
@@ -108,41 +100,30 @@ public class ComponentTable extends SortableTable
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Invalidates the cached decoration plans of the templates.
+	 * </p>
+	 */
+	@Override
+	public void updateUI()
+	{
+		super.updateUI();
+		
+		// null while the super constructor is running
+		if(this.decorator != null)
+		{
+			this.decorator.invalidate();
+		}
+	}
+	
+	
 	public void decorateTemplate(final Component template, int row, int column,
 			final boolean isSelected)
 	{
 		template.setBackground(isSelected ? getSelectionBackground() : getBackground());
 		
-		if(template instanceof Container)
-		{
-			UIUtils.lookupComponentTree((Container)template,
-					new ComponentTreeVisitor<Object, Component>()
-					{
-						@Override
-						public Object visit(Component c) throws OperationCanceledException
-						{
-							if(c instanceof JLabel)
-							{
-								c.setForeground(UIManager
-										.getColor(isSelected ? "Table.selectionForeground"
-												: "Label.foreground"));
-							}
-							else if(c instanceof JCheckBox)
-							{
-								c.setForeground(UIManager
-										.getColor(isSelected ? "Table.selectionForeground"
-												: "CheckBox.foreground"));
-							}
-							else if(c instanceof JRadioButton)
-							{
-								c.setForeground(UIManager
-										.getColor(isSelected ? "List.selectionForeground"
-												: "RadioButton.foreground"));
-							}
-							
-							return null;
-						}
-					});
-		}
+		this.decorator.decorate(template,isSelected);
 	}
 }
@@ -0,0 +1,255 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.componenttable;
+
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.event.ContainerEvent;
+import java.awt.event.ContainerListener;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JRadioButton;
+import javax.swing.UIManager;
+
+
+/**
+ * Recolors the components of a {@link ComponentTableTemplate} according to
+ * the selection state of the rendered row.
+ * <p>
+ * Walking the template's component tree and looking up the colors in the
+ * {@link UIManager} for every rendered cell is expensive. Therefore the
+ * decorator computes a decoration plan once per template: a flat array of the
+ * components to recolor together with their resolved selected and unselected
+ * foregrounds. The plan is stored as a client property of the template and
+ * discarded if the template's component hierarchy changes or
+ * {@link #invalidate()} is called, e.g. after a look and feel change.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class ComponentTableDecorator implements Serializable
+{
+	private static final long	serialVersionUID	= 3380150231271637915L;
+	
+	private int					generation			= 0;
+	
+	
+	/**
+	 * Applies the foregrounds for <code>isSelected</code> to the components of
+	 * <code>template</code>.
+	 * 
+	 * @param template
+	 *            the template to decorate
+	 * @param isSelected
+	 *            <code>true</code> if the template renders a selected row
+	 */
+	public void decorate(final Component template, final boolean isSelected)
+	{
+		if(template instanceof Container)
+		{
+			final Plan plan = getPlan((Container)template);
+			plan.apply(isSelected);
+			
+			if(!(template instanceof JComponent))
+			{
+				// not cached, see getPlan
+				plan.dispose();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Discards all decoration plans created by this decorator. The plans are
+	 * recomputed lazily the next time a template is decorated.
+	 */
+	public void invalidate()
+	{
+		this.generation++;
+	}
+	
+	
+	/**
+	 * Returns the foreground of <code>c</code> if it renders a selected or
+	 * unselected row.
+	 * <p>
+	 * Called once per component when a decoration plan is computed.
+	 * </p>
+	 * 
+	 * @param c
+	 *            a component of a template
+	 * @param isSelected
+	 *            the selection state
+	 * @return the foreground for <code>c</code> or <code>null</code> if
+	 *         <code>c</code> should not be recolored
+	 */
+	protected Color getForeground(final Component c, final boolean isSelected)
+	{
+		if(c instanceof JLabel)
+		{
+			return UIManager.getColor(isSelected ? "Table.selectionForeground"
+					: "Label.foreground");
+		}
+		else if(c instanceof JCheckBox)
+		{
+			return UIManager.getColor(isSelected ? "Table.selectionForeground"
+					: "CheckBox.foreground");
+		}
+		else if(c instanceof JRadioButton)
+		{
+			return UIManager.getColor(isSelected ? "List.selectionForeground"
+					: "RadioButton.foreground");
+		}
+		
+		return null;
+	}
+	
+	
+	private Plan getPlan(final Container template)
+	{
+		final JComponent clientPropertyHolder = template instanceof JComponent ? (JComponent)template
+				: null;
+		
+		Plan plan = null;
+		if(clientPropertyHolder != null)
+		{
+			final Object property = clientPropertyHolder.getClientProperty(this);
+			if(property instanceof Plan)
+			{
+				plan = (Plan)property;
+				if(plan.isValid(this.generation))
+				{
+					return plan;
+				}
+				plan.dispose();
+			}
+		}
+		
+		plan = new Plan(template,this.generation);
+		
+		if(clientPropertyHolder != null)
+		{
+			clientPropertyHolder.putClientProperty(this,plan);
+		}
+		
+		return plan;
+	}
+	
+	
+	
+	private class Plan implements ContainerListener
+	{
+		private final int				planGeneration;
+		private final List<Container>	containers;
+		private final Component[]		components;
+		private final Color[]			selectedForegrounds;
+		private final Color[]			unselectedForegrounds;
+		private boolean					structureChanged	= false;
+		
+		
+		Plan(final Container template, final int planGeneration)
+		{
+			this.planGeneration = planGeneration;
+			this.containers = new ArrayList<Container>();
+			
+			final List<Component> components = new ArrayList<Component>();
+			final List<Color> selectedForegrounds = new ArrayList<Color>();
+			final List<Color> unselectedForegrounds = new ArrayList<Color>();
+			collect(template,components,selectedForegrounds,unselectedForegrounds);
+			
+			this.components = components.toArray(new Component[components.size()]);
+			this.selectedForegrounds = selectedForegrounds.toArray(new Color[components.size()]);
+			this.unselectedForegrounds = unselectedForegrounds.toArray(new Color[components
+					.size()]);
+		}
+		
+		
+		private void collect(final Container container, final List<Component> components,
+				final List<Color> selectedForegrounds, final List<Color> unselectedForegrounds)
+		{
+			container.addContainerListener(this);
+			this.containers.add(container);
+			
+			for(final Component c : container.getComponents())
+			{
+				final Color selectedForeground = getForeground(c,true);
+				final Color unselectedForeground = getForeground(c,false);
+				if(selectedForeground != null || unselectedForeground != null)
+				{
+					components.add(c);
+					selectedForegrounds.add(selectedForeground);
+					unselectedForegrounds.add(unselectedForeground);
+				}
+				
+				if(c instanceof Container)
+				{
+					collect((Container)c,components,selectedForegrounds,unselectedForegrounds);
+				}
+			}
+		}
+		
+		
+		boolean isValid(final int generation)
+		{
+			return !this.structureChanged && this.planGeneration == generation;
+		}
+		
+		
+		void apply(final boolean isSelected)
+		{
+			final Color[] foregrounds = isSelected ? this.selectedForegrounds
+					: this.unselectedForegrounds;
+			for(int i = 0; i < this.components.length; i++)
+			{
+				this.components[i].setForeground(foregrounds[i]);
+			}
+		}
+		
+		
+		void dispose()
+		{
+			for(final Container container : this.containers)
+			{
+				container.removeContainerListener(this);
+			}
+			this.containers.clear();
+		}
+		
+		
+		@Override
+		public void componentAdded(final ContainerEvent e)
+		{
+			this.structureChanged = true;
+		}
+		
+		
+		@Override
+		public void componentRemoved(final ContainerEvent e)
+		{
+			this.structureChanged = true;
+		}
+	}
+}
@@ -34,6 +34,13 @@ import com.jidesoft.grid.TableModelWrapperUtils;
 
 
 /**
+ * The editor of a {@link ComponentTable}.
+ * <p>
+ * The templates are provided by a {@link ComponentTableTemplateFactory} and
+ * recycled by a {@link ComponentTableTemplatePool}: every edit acquires a
+ * template from the pool, which is returned after its values have been saved
+ * or the edit has been canceled.
+ * </p>
  * 
  * @author XDEV Software (RHHF)
  * @author XDEV Software (FHAE)
@@ -47,6 +54,7 @@ public abstract class ComponentTableEditor<T> extends AbstractCellEditor impleme
 	 */
 	private static final long	serialVersionUID	= -748861326694980986L;
 	private final Class<? extends ComponentTableTemplate<T>>	templateClass;
+	private final ComponentTableTemplatePool<T>					templatePool;
 	private ComponentTableTemplate<T>							template;
 	private MouseEvent											lastMouseEvent;
 	
@@ -54,20 +62,40 @@ public abstract class ComponentTableEditor<T> extends AbstractCellEditor impleme
 	public ComponentTableEditor(
 			@NotNull final Class<? extends ComponentTableTemplate<T>> templateClass)
 	{
+		this(new ComponentTableTemplateClassFactory<T>(templateClass));
+	}
+	
+	
+	/**
+	 * Creates a new editor which pools up to
+	 * {@link ComponentTableTemplatePool#DEFAULT_MAX_SIZE} templates.
+	 * 
+	 * @param templateFactory
+	 *            the factory to create the templates with
+	 */
+	public ComponentTableEditor(@NotNull final ComponentTableTemplateFactory<T> templateFactory)
+	{
+		this(templateFactory,ComponentTableTemplatePool.DEFAULT_MAX_SIZE);
+	}
+	
+	
+	/**
+	 * Creates a new editor.
+	 * 
+	 * @param templateFactory
+	 *            the factory to create the templates with
+	 * @param maxPoolSize
+	 *            the maximum count of idle templates kept for reuse
+	 */
+	public ComponentTableEditor(@NotNull final ComponentTableTemplateFactory<T> templateFactory,
+			final int maxPoolSize)
+	{
+		this.templatePool = new ComponentTableTemplatePool<T>(templateFactory,maxPoolSize);
+		this.templateClass = templateFactory instanceof ComponentTableTemplateClassFactory ? ((ComponentTableTemplateClassFactory<T>)templateFactory)
+				.getTemplateClass() : null;
 		
-		if(templateClass == null)
-		{
-			throw new IllegalArgumentException("templateClass must not be null");
-		}
-		else if(templateClass.getClass().isAssignableFrom(Component.class))
-		{
-			throw new IllegalArgumentException(
-					"templateClass must be a subclass of java.awt.component");
-		}
-		
-		this.templateClass = templateClass;
-		
-		this.createTemplateInstance();
+		// fail fast if the factory is broken and warm up the pool
+		this.templatePool.release(this.templatePool.acquire());
 	}
 	
 	
@@ -82,24 +110,50 @@ public abstract class ComponentTableEditor<T> extends AbstractCellEditor impleme
 		 * cause (gui)lags. Keeping the template in memory and saving the values
 		 * later on the dispatching theard avoids those lags.
 		 * 
-		 * For that to work "getTableCellEditorComponent" must always return a
-		 * new instance!
+		 * For that to work "getTableCellEditorComponent" must always return
+		 * another instance, the template is returned to the pool after it has
+		 * been saved.
 		 */
-		final ComponentTableTemplate<?> templateReference = this.template;
+		final ComponentTableTemplate<T> templateReference = this.template;
+		this.template = null;
 		
-		SwingUtilities.invokeLater(new Runnable()
+		if(templateReference != null)
 		{
-			@Override
-			public void run()
+			SwingUtilities.invokeLater(new Runnable()
 			{
-				templateReference.onEditorClose();
-			}
-		});
+				@Override
+				public void run()
+				{
+					try
+					{
+						templateReference.onEditorClose();
+					}
+					finally
+					{
+						ComponentTableEditor.this.templatePool.release(templateReference);
+					}
+				}
+			});
+		}
 		
 		return null;
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void cancelCellEditing()
+	{
+		super.cancelCellEditing();
+		
+		final ComponentTableTemplate<T> templateReference = this.template;
+		this.template = null;
+		this.templatePool.release(templateReference);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -107,6 +161,11 @@ public abstract class ComponentTableEditor<T> extends AbstractCellEditor impleme
 	public Component getTableCellEditorComponent(JTable table, Object value, boolean isSelected,
 			int row, int column)
 	{
+		if(this.template != null)
+		{
+			// previous edit neither stopped nor canceled
+			this.templatePool.release(this.template);
+		}
 		this.createTemplateInstance();
 		
 		int actualRowIndex = TableModelWrapperUtils.getActualRowAt(table.getModel(),row);
@@ -173,18 +232,7 @@ public abstract class ComponentTableEditor<T> extends AbstractCellEditor impleme
 	
 	protected void createTemplateInstance()
 	{
-		try
-		{
-			this.template = this.templateClass.newInstance();
-		}
-		catch(InstantiationException e)
-		{
-			throw new IllegalArgumentException("provided templateClass could not be instantiated",e);
-		}
-		catch(IllegalAccessException e)
-		{
-			throw new IllegalArgumentException("provided templateClass could not be instantiated",e);
-		}
+		this.template = this.templatePool.acquire();
 	}
 	
 	
@@ -194,12 +242,24 @@ public abstract class ComponentTableEditor<T> extends AbstractCellEditor impleme
 	}
 	
 	
+	/**
+	 * Returns the template class, or <code>null</code> if this editor has been
+	 * created with a custom {@link ComponentTableTemplateFactory}.
+	 * 
+	 * @return the template class
+	 */
 	protected Class<? extends ComponentTableTemplate<T>> getTemplateClass()
 	{
 		return this.templateClass;
 	}
 	
 	
+	protected ComponentTableTemplatePool<T> getTemplatePool()
+	{
+		return this.templatePool;
+	}
+	
+	
 	protected abstract T getRowValues(JTable table, Object value, boolean isSelected, int rowIndex,
 			int columnIndex, int actualRowIndex);
 	
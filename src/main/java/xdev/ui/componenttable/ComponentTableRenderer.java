@@ -58,36 +58,32 @@ public abstract class ComponentTableRenderer<T> implements TableCellRenderer
 	public ComponentTableRenderer(
 			@NotNull final Class<? extends ComponentTableTemplate<T>> templateClass)
 	{
-		if(templateClass == null)
-		{
-			throw new IllegalArgumentException("templateClass must not be null");
-		}
-		else if(templateClass.getClass().isAssignableFrom(Component.class))
+		this(new ComponentTableTemplateClassFactory<T>(templateClass));
+	}
+	
+	
+	/**
+	 * Creates a new TableFormRenderer which renders with a template created by
+	 * <code>templateFactory</code>.
+	 * 
+	 * @param templateFactory
+	 *            the factory to create the rendering template with
+	 */
+	public ComponentTableRenderer(@NotNull final ComponentTableTemplateFactory<T> templateFactory)
+	{
+		if(templateFactory == null)
 		{
-			throw new IllegalArgumentException(
-					"templateClass must be a subclass of java.awt.component");
+			throw new IllegalArgumentException("templateFactory must not be null");
 		}
 		
-		try
-		{
-			this.template = templateClass.newInstance();
-			
-			/*
-			 * Should only be assigned if an instance of
-			 * the class could be created.
-			 */
-			this.templateClass = templateClass;
-			
-		}
-		catch(InstantiationException e)
-		{
-			throw new IllegalArgumentException("provided templateClass could not be instantiated",e);
-		}
-		catch(IllegalAccessException e)
-		{
-			throw new IllegalArgumentException("provided templateClass could not be instantiated",e);
-		}
+		this.template = templateFactory.createTemplate();
 		
+		/*
+		 * Should only be assigned if an instance of
+		 * the class could be created.
+		 */
+		this.templateClass = templateFactory instanceof ComponentTableTemplateClassFactory ? ((ComponentTableTemplateClassFactory<T>)templateFactory)
+				.getTemplateClass() : null;
 	}
 	
 	
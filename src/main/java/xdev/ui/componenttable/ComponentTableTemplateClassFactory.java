@@ -0,0 +1,103 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.componenttable;
+
+
+import java.awt.Component;
+
+
+/**
+ * A {@link ComponentTableTemplateFactory} which instantiates a template class
+ * via its public no-argument constructor.
+ * <p>
+ * Used for the class based API of {@link ComponentTable} and
+ * {@link xdev.ui.formtable.XdevFormTable}. Prefer an implementation of
+ * {@link ComponentTableTemplateFactory} which creates the templates directly.
+ * </p>
+ * 
+ * @param <T>
+ *            the value type of the templates
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class ComponentTableTemplateClassFactory<T> implements ComponentTableTemplateFactory<T>
+{
+	private final Class<? extends ComponentTableTemplate<T>>	templateClass;
+	
+	
+	/**
+	 * Creates a new factory for <code>templateClass</code>.
+	 * 
+	 * @param templateClass
+	 *            the template class, must be a subclass of {@link Component}
+	 * @throws IllegalArgumentException
+	 *             if <code>templateClass</code> is <code>null</code> or not a
+	 *             {@link Component}
+	 */
+	public ComponentTableTemplateClassFactory(
+			final Class<? extends ComponentTableTemplate<T>> templateClass)
+			throws IllegalArgumentException
+	{
+		if(templateClass == null)
+		{
+			throw new IllegalArgumentException("templateClass must not be null");
+		}
+		else if(templateClass.getClass().isAssignableFrom(Component.class))
+		{
+			throw new IllegalArgumentException(
+					"templateClass must be a subclass of java.awt.component");
+		}
+		
+		this.templateClass = templateClass;
+	}
+	
+	
+	/**
+	 * Returns the template class of this factory.
+	 * 
+	 * @return the template class
+	 */
+	public Class<? extends ComponentTableTemplate<T>> getTemplateClass()
+	{
+		return this.templateClass;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the template class could not be instantiated
+	 */
+	@Override
+	public ComponentTableTemplate<T> createTemplate() throws IllegalArgumentException
+	{
+		try
+		{
+			return this.templateClass.newInstance();
+		}
+		catch(InstantiationException e)
+		{
+			throw new IllegalArgumentException("provided templateClass could not be instantiated",e);
+		}
+		catch(IllegalAccessException e)
+		{
+			throw new IllegalArgumentException("provided templateClass could not be instantiated",e);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.componenttable;
+
+
+/**
+ * Creates the {@link ComponentTableTemplate} instances used by
+ * {@link ComponentTableRenderer} and {@link ComponentTableEditor}.
+ * <p>
+ * Implementations should create the templates directly, e.g.
+ * 
+ * <pre>
+ * new ComponentTableTemplateFactory&lt;VirtualTableRow&gt;()
+ * {
+ * 	public ComponentTableTemplate&lt;VirtualTableRow&gt; createTemplate()
+ * 	{
+ * 		return new CustomerTemplate();
+ * 	}
+ * }
+ * </pre>
+ * 
+ * </p>
+ * 
+ * @param <T>
+ *            the value type of the templates
+ * @author XDEV Software
+ * @see ComponentTableTemplatePool
+ * @since 4.0
+ */
+public interface ComponentTableTemplateFactory<T>
+{
+	/**
+	 * Creates a new template instance. The returned template must be a
+	 * {@link java.awt.Component}.
+	 * 
+	 * @return a new template
+	 */
+	public ComponentTableTemplate<T> createTemplate();
+}
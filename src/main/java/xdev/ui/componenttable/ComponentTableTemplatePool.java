@@ -0,0 +1,167 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.componenttable;
+
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+
+/**
+ * A bounded pool of {@link ComponentTableTemplate} instances.
+ * <p>
+ * Templates are expensive to create, as they usually consist of a whole form.
+ * {@link ComponentTableEditor} acquires a template when an edit starts and
+ * releases it after the edited values have been saved. Released templates are
+ * reset with {@link ComponentTableTemplate#setValue(Object) setValue(null)}
+ * and kept for the next edit, as long as the pool has not reached its maximum
+ * size; otherwise they are left to the garbage collector.
+ * </p>
+ * 
+ * @param <T>
+ *            the value type of the templates
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class ComponentTableTemplatePool<T>
+{
+	/**
+	 * The default maximum count of idle templates.
+	 */
+	public final static int								DEFAULT_MAX_SIZE	= 4;
+	
+	private final ComponentTableTemplateFactory<T>		factory;
+	private final int									maxSize;
+	private final Deque<ComponentTableTemplate<T>>		idleTemplates		= new ArrayDeque<ComponentTableTemplate<T>>();
+	
+	
+	/**
+	 * Creates a new pool with a maximum size of {@link #DEFAULT_MAX_SIZE}.
+	 * 
+	 * @param factory
+	 *            the factory to create new templates with
+	 */
+	public ComponentTableTemplatePool(final ComponentTableTemplateFactory<T> factory)
+	{
+		this(factory,DEFAULT_MAX_SIZE);
+	}
+	
+	
+	/**
+	 * Creates a new pool.
+	 * 
+	 * @param factory
+	 *            the factory to create new templates with
+	 * @param maxSize
+	 *            the maximum count of idle templates kept by this pool
+	 * @throws IllegalArgumentException
+	 *             if <code>factory</code> is <code>null</code> or
+	 *             <code>maxSize</code> is negative
+	 */
+	public ComponentTableTemplatePool(final ComponentTableTemplateFactory<T> factory,
+			final int maxSize) throws IllegalArgumentException
+	{
+		if(factory == null)
+		{
+			throw new IllegalArgumentException("factory must not be null");
+		}
+		if(maxSize < 0)
+		{
+			throw new IllegalArgumentException("maxSize must not be negative");
+		}
+		
+		this.factory = factory;
+		this.maxSize = maxSize;
+	}
+	
+	
+	/**
+	 * Returns the factory of this pool.
+	 * 
+	 * @return the template factory
+	 */
+	public ComponentTableTemplateFactory<T> getFactory()
+	{
+		return this.factory;
+	}
+	
+	
+	/**
+	 * Returns the maximum count of idle templates kept by this pool.
+	 * 
+	 * @return the maximum size
+	 */
+	public int getMaxSize()
+	{
+		return this.maxSize;
+	}
+	
+	
+	/**
+	 * Returns an idle template, or creates a new one if none is available.
+	 * 
+	 * @return a template
+	 */
+	public ComponentTableTemplate<T> acquire()
+	{
+		ComponentTableTemplate<T> template = this.idleTemplates.pollFirst();
+		if(template == null)
+		{
+			template = this.factory.createTemplate();
+		}
+		return template;
+	}
+	
+	
+	/**
+	 * Resets <code>template</code> and returns it to the pool.
+	 * <p>
+	 * Releasing a template which is already idle has no effect.
+	 * </p>
+	 * 
+	 * @param template
+	 *            a template acquired from this pool
+	 */
+	public void release(final ComponentTableTemplate<T> template)
+	{
+		if(template == null || this.idleTemplates.size() >= this.maxSize)
+		{
+			return;
+		}
+		
+		for(ComponentTableTemplate<T> idle : this.idleTemplates)
+		{
+			if(idle == template)
+			{
+				return;
+			}
+		}
+		
+		template.setValue(null);
+		this.idleTemplates.addFirst(template);
+	}
+	
+	
+	/**
+	 * Discards all idle templates.
+	 */
+	public void clear()
+	{
+		this.idleTemplates.clear();
+	}
+}
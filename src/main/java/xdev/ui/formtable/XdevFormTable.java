@@ -18,9 +18,15 @@
 package xdev.ui.formtable;
 
 
+import java.awt.Color;
 import java.awt.Component;
 import java.awt.Container;
 import java.beans.Beans;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import javax.swing.JCheckBox;
 import javax.swing.JLabel;
@@ -38,8 +44,13 @@ import xdev.ui.UIUtils;
 import xdev.ui.XdevComponent;
 import xdev.ui.XdevSortableTable;
 import xdev.ui.XdevStyle;
+import xdev.ui.XdevTable;
+import xdev.ui.componenttable.ComponentTableDecorator;
 import xdev.ui.componenttable.ComponentTableModel;
 import xdev.ui.componenttable.ComponentTableTemplate;
+import xdev.ui.componenttable.ComponentTableTemplateClassFactory;
+import xdev.ui.componenttable.ComponentTableTemplateFactory;
+import xdev.ui.componenttable.ComponentTableTemplatePool;
 import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTable.VirtualTableRow;
 
@@ -69,10 +80,43 @@ public class XdevFormTable extends XdevSortableTable
 	
 	private Class<? extends ComponentTableTemplate<VirtualTableRow>>	templateClass;
 	
+	private ComponentTableTemplateFactory<VirtualTableRow>				templateFactory;
+	
+	private int															templatePoolSize	= ComponentTableTemplatePool.DEFAULT_MAX_SIZE;
+	
+	/**
+	 * Default memory budget of the row image cache: 16 MB.
+	 */
+	public final static long											DEFAULT_ROW_IMAGE_CACHE_SIZE	= 16L * 1024 * 1024;
+	
+	private long														rowImageCacheSize	= DEFAULT_ROW_IMAGE_CACHE_SIZE;
+	
+	private transient XdevFormTableRowImageCache							rowImageCache;
+	
+	private final static Set<String>									ROW_IMAGE_CACHE_PROPERTIES	= new HashSet<String>(
+			Arrays.asList("background","foreground","selectionBackground","selectionForeground",
+					"font","enabled",XdevTable.EVEN_BACKGROUND_PROPERTY,
+					XdevTable.ODD_BACKGROUND_PROPERTY));
+	
 	private XdevFormTableRenderer										renderer;
 	
 	private XdevFormTableEditor											editor;
 	
+	private ComponentTableDecorator										decorator			= new ComponentTableDecorator()
+	{
+		@Override
+		protected Color getForeground(final Component c, final boolean isSelected)
+		{
+			return getTemplateForeground(c,isSelected);
+		}
+	};
+	
+	/**
+	 * If a subclass overrides {@link #decorateComponent(Component, int, int, boolean)},
+	 * <code>null</code> until checked.
+	 */
+	private transient Boolean											decorateComponentOverridden;
+	
 	
 	/**
 	 * Create a new {@link XdevFormTable} with no table header. The
@@ -90,6 +134,20 @@ public class XdevFormTable extends XdevSortableTable
 		
 		// persistence by default
 		setPersistenceEnabled(false);
+		
+		// cached row images depend on the table's appearance
+		addPropertyChangeListener(new PropertyChangeListener()
+		{
+			@Override
+			public void propertyChange(final PropertyChangeEvent evt)
+			{
+				if(rowImageCache != null
+						&& ROW_IMAGE_CACHE_PROPERTIES.contains(evt.getPropertyName()))
+				{
+					rowImageCache.clear();
+				}
+			}
+		});
 	}
 	
 	
@@ -131,6 +189,74 @@ public class XdevFormTable extends XdevSortableTable
 		}
 		
 		this.templateClass = templateClass;
+		this.templateFactory = new ComponentTableTemplateClassFactory<VirtualTableRow>(
+				templateClass);
+	}
+	
+	
+	/**
+	 * Returns the factory which creates the templates of this table.
+	 * 
+	 * @return the current template factory, or <code>null</code>
+	 * @see #setTemplateFactory(ComponentTableTemplateFactory)
+	 */
+	public ComponentTableTemplateFactory<VirtualTableRow> getTemplateFactory()
+	{
+		return this.templateFactory;
+	}
+	
+	
+	/**
+	 * Sets the factory which creates the templates of this table. This is the
+	 * reflection free alternative to {@link #setTemplateClass(Class)}.
+	 * <p>
+	 * Must be called before {@link #setModel(TableModel)}.
+	 * </p>
+	 * 
+	 * @param templateFactory
+	 *            the new template factory
+	 * @throws IllegalArgumentException
+	 *             if <code>templateFactory</code> is <code>null</code>
+	 */
+	public void setTemplateFactory(
+			final ComponentTableTemplateFactory<VirtualTableRow> templateFactory)
+			throws IllegalArgumentException
+	{
+		if(templateFactory == null)
+		{
+			throw new IllegalArgumentException("templateFactory must not be null");
+		}
+		
+		this.templateFactory = templateFactory;
+		this.templateClass = templateFactory instanceof ComponentTableTemplateClassFactory ? ((ComponentTableTemplateClassFactory<VirtualTableRow>)templateFactory)
+				.getTemplateClass() : null;
+	}
+	
+	
+	/**
+	 * Returns the maximum count of editor templates which are kept for reuse.
+	 * 
+	 * @return the template pool size
+	 */
+	public int getTemplatePoolSize()
+	{
+		return this.templatePoolSize;
+	}
+	
+	
+	/**
+	 * Sets the maximum count of editor templates which are kept for reuse.
+	 * <code>0</code> creates a new template for every edit.
+	 * <p>
+	 * Must be called before {@link #setModel(TableModel)}.
+	 * </p>
+	 * 
+	 * @param templatePoolSize
+	 *            the new template pool size
+	 */
+	public void setTemplatePoolSize(final int templatePoolSize)
+	{
+		this.templatePoolSize = templatePoolSize;
 	}
 	
 	
@@ -154,15 +280,16 @@ public class XdevFormTable extends XdevSortableTable
 	@Override
 	public void setModel(final TableModel model)
 	{
-		if(Beans.isDesignTime() || model == null || this.templateClass == null)
+		if(Beans.isDesignTime() || model == null || this.templateFactory == null)
 		{
 			super.setModel(model);
 		}
 		else
 		{
-			renderer = new XdevFormTableRenderer(templateClass);
+			renderer = new XdevFormTableRenderer(templateFactory);
+			renderer.setRowImageCache(rowImageCache);
 			
-			editor = new XdevFormTableEditor(templateClass);
+			editor = new XdevFormTableEditor(templateFactory,templatePoolSize);
 			
 			super.setModel(new ComponentTableModel(model));
 			
@@ -187,6 +314,105 @@ public class XdevFormTable extends XdevSortableTable
 				this.setRowHeight(height);
 			}
 		}
+		
+		if(rowImageCache != null)
+		{
+			rowImageCache.setVirtualTable(getVirtualTable());
+		}
+	}
+	
+	
+	/**
+	 * Enables or disables the cache of rendered rows.
+	 * <p>
+	 * If enabled, every row is rendered with the template only once and then
+	 * painted as a cached image, until the row's {@link VirtualTableRow}
+	 * changes or the row's selection state or size differs. This speeds up
+	 * scrolling of tables with complex templates, but the templates must only
+	 * display the values of the row.
+	 * </p>
+	 * 
+	 * @param rowImageCacheEnabled
+	 *            <code>true</code> to cache the rendered rows
+	 * @see #setRowImageCacheSize(long)
+	 */
+	public void setRowImageCacheEnabled(final boolean rowImageCacheEnabled)
+	{
+		if(rowImageCacheEnabled == isRowImageCacheEnabled())
+		{
+			return;
+		}
+		
+		if(rowImageCacheEnabled)
+		{
+			rowImageCache = new XdevFormTableRowImageCache(rowImageCacheSize);
+			rowImageCache.setVirtualTable(getVirtualTable());
+		}
+		else
+		{
+			rowImageCache.setVirtualTable(null);
+			rowImageCache = null;
+		}
+		
+		if(renderer != null)
+		{
+			renderer.setRowImageCache(rowImageCache);
+		}
+		repaint();
+	}
+	
+	
+	/**
+	 * Returns if the cache of rendered rows is enabled.
+	 * 
+	 * @return <code>true</code> if the rendered rows are cached
+	 */
+	public boolean isRowImageCacheEnabled()
+	{
+		return rowImageCache != null;
+	}
+	
+	
+	/**
+	 * Sets the memory budget of the row image cache. If the cached images
+	 * exceed this size, the least recently painted rows are discarded.
+	 * 
+	 * @param rowImageCacheSize
+	 *            the maximum size of all cached row images in bytes
+	 */
+	public void setRowImageCacheSize(final long rowImageCacheSize)
+	{
+		this.rowImageCacheSize = rowImageCacheSize;
+		
+		if(rowImageCache != null)
+		{
+			rowImageCache.setMemoryBudget(rowImageCacheSize);
+		}
+	}
+	
+	
+	/**
+	 * Returns the memory budget of the row image cache in bytes.
+	 * 
+	 * @return the maximum size of all cached row images
+	 */
+	public long getRowImageCacheSize()
+	{
+		return rowImageCacheSize;
+	}
+	
+	
+	/**
+	 * Discards all cached row images, e.g. if the templates display values
+	 * which are not part of the rows.
+	 */
+	public void clearRowImageCache()
+	{
+		if(rowImageCache != null)
+		{
+			rowImageCache.clear();
+			repaint();
+		}
 	}
 	
 	
@@ -217,8 +443,13 @@ public class XdevFormTable extends XdevSortableTable
 		template.setBackground(isSelected ? getSelectionBackground()
 				: (row % 2 == 0 ? getEvenBackground() : getOddBackground()));
 		
-		if(template instanceof Container)
+		if(!isDecorateComponentOverridden())
+		{
+			this.decorator.decorate(template,isSelected);
+		}
+		else if(template instanceof Container)
 		{
+			// the cached plans don't know the overridden decoration
 			UIUtils.lookupComponentTree((Container)template,
 					new ComponentTreeVisitor<Object, Component>()
 					{
@@ -234,23 +465,119 @@ public class XdevFormTable extends XdevSortableTable
 	}
 	
 	
-	protected void decorateComponent(final Component c, final int row, final int column,
-			final boolean isSelected)
+	private boolean isDecorateComponentOverridden()
+	{
+		if(decorateComponentOverridden == null)
+		{
+			boolean overridden = false;
+			for(Class<?> clazz = getClass(); clazz != XdevFormTable.class && !overridden; clazz = clazz
+					.getSuperclass())
+			{
+				try
+				{
+					clazz.getDeclaredMethod("decorateComponent",Component.class,int.class,
+							int.class,boolean.class);
+					overridden = true;
+				}
+				catch(NoSuchMethodException e)
+				{
+					// not declared by this class
+				}
+			}
+			decorateComponentOverridden = overridden;
+		}
+		return decorateComponentOverridden;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Invalidates the cached decoration plans of the templates.
+	 * </p>
+	 */
+	@Override
+	public void updateUI()
+	{
+		super.updateUI();
+		
+		// null while the super constructor is running
+		if(this.decorator != null)
+		{
+			this.decorator.invalidate();
+		}
+		if(this.rowImageCache != null)
+		{
+			this.rowImageCache.clear();
+		}
+	}
+	
+	
+	/**
+	 * Returns the foreground of a template's component <code>c</code>.
+	 * <p>
+	 * The foregrounds are resolved once per template and cached until the look
+	 * and feel changes or the template's component hierarchy is modified.
+	 * </p>
+	 * 
+	 * @param c
+	 *            a component of a template
+	 * @param isSelected
+	 *            <code>true</code> if the cell is to be rendered with the
+	 *            selection highlighted; otherwise <code>false</code>
+	 * @return the foreground for <code>c</code> or <code>null</code> if
+	 *         <code>c</code> keeps its foreground
+	 */
+	protected Color getTemplateForeground(final Component c, final boolean isSelected)
 	{
 		if(c instanceof JLabel)
 		{
-			c.setForeground(UIManager.getColor(isSelected ? "Table.selectionForeground"
-					: "Label.foreground"));
+			return UIManager.getColor(isSelected ? "Table.selectionForeground"
+					: "Label.foreground");
 		}
 		else if(c instanceof JCheckBox)
 		{
-			c.setForeground(UIManager.getColor(isSelected ? "Table.selectionForeground"
-					: "CheckBox.foreground"));
+			return UIManager.getColor(isSelected ? "Table.selectionForeground"
+					: "CheckBox.foreground");
 		}
 		else if(c instanceof JRadioButton)
 		{
-			c.setForeground(UIManager.getColor(isSelected ? "List.selectionForeground"
-					: "RadioButton.foreground"));
+			return UIManager.getColor(isSelected ? "List.selectionForeground"
+					: "RadioButton.foreground");
+		}
+		
+		return null;
+	}
+	
+	
+	/**
+	 * Decorates a component of a template.
+	 * <p>
+	 * Only called if a subclass overrides this method, every component of the
+	 * template is decorated on every render then. Otherwise the decoration is
+	 * planned once per template.
+	 * </p>
+	 * 
+	 * @param c
+	 *            a component of a template
+	 * @param row
+	 *            the row index of the cell being drawn.
+	 * @param column
+	 *            the column index of the cell being drawn
+	 * @param isSelected
+	 *            <code>true</code> if the cell is to be rendered with the
+	 *            selection highlighted; otherwise <code>false</code>
+	 * @deprecated override {@link #getTemplateForeground(Component, boolean)}
+	 *             instead, which is cached
+	 */
+	@Deprecated
+	protected void decorateComponent(final Component c, final int row, final int column,
+			final boolean isSelected)
+	{
+		final Color foreground = getTemplateForeground(c,isSelected);
+		if(foreground != null)
+		{
+			c.setForeground(foreground);
 		}
 	}
 }
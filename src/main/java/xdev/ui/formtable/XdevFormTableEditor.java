@@ -25,6 +25,7 @@ import javax.swing.JTable;
 import xdev.ui.TableSupport;
 import xdev.ui.componenttable.ComponentTableEditor;
 import xdev.ui.componenttable.ComponentTableTemplate;
+import xdev.ui.componenttable.ComponentTableTemplateFactory;
 import xdev.vt.VirtualTable.VirtualTableRow;
 import xdev.vt.VirtualTableWrapper;
 
@@ -53,6 +54,19 @@ public class XdevFormTableEditor extends ComponentTableEditor<VirtualTableRow>
 	}
 	
 	
+	public XdevFormTableEditor(ComponentTableTemplateFactory<VirtualTableRow> templateFactory)
+	{
+		super(templateFactory);
+	}
+	
+	
+	public XdevFormTableEditor(ComponentTableTemplateFactory<VirtualTableRow> templateFactory,
+			int maxPoolSize)
+	{
+		super(templateFactory,maxPoolSize);
+	}
+	
+	
 	@Override
 	protected VirtualTableRow getRowValues(JTable table, Object value, boolean isSelected,
 			int rowIndex, int columnIndex, int actualRowIndex)
@@ -70,26 +84,6 @@ public class XdevFormTableEditor extends ComponentTableEditor<VirtualTableRow>
 	}
 	
 	
-	@Override
-	protected void createTemplateInstance()
-	{
-		try
-		{
-			// Create new instance
-			this.setTemplate(this.getTemplateClass().newInstance());
-		}
-		catch(InstantiationException e)
-		{
-			throw new IllegalArgumentException("provided templateClass could not be instantiated",e);
-		}
-		catch(IllegalAccessException e)
-		{
-			throw new IllegalArgumentException("provided templateClass could not be instantiated",e);
-		}
-	}
-	
-	
-	
 	@Override
 	protected void decorateTemplate(Component template, JTable table, int row, int column)
 	{
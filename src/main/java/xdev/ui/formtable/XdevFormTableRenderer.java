@@ -19,15 +19,27 @@ package xdev.ui.formtable;
 
 
 import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 
+import javax.swing.CellRendererPane;
+import javax.swing.JComponent;
 import javax.swing.JTable;
 
 import xdev.ui.TableSupport;
 import xdev.ui.componenttable.ComponentTableRenderer;
 import xdev.ui.componenttable.ComponentTableTemplate;
+import xdev.ui.componenttable.ComponentTableTemplateFactory;
 import xdev.vt.VirtualTable.VirtualTableRow;
 import xdev.vt.VirtualTableWrapper;
 
+import com.jidesoft.grid.TableModelWrapperUtils;
+
 
 /**
  * 
@@ -37,6 +49,11 @@ import xdev.vt.VirtualTableWrapper;
  */
 public class XdevFormTableRenderer extends ComponentTableRenderer<VirtualTableRow>
 {
+	private XdevFormTableRowImageCache	rowImageCache;
+	private CellRendererPane			imageRendererPane;
+	private RowImageComponent			rowImageComponent;
+	
+	
 	/**
 	 * @param templateClass
 	 */
@@ -47,6 +64,105 @@ public class XdevFormTableRenderer extends ComponentTableRenderer<VirtualTableRo
 	}
 	
 	
+	/**
+	 * @param templateFactory
+	 */
+	public XdevFormTableRenderer(ComponentTableTemplateFactory<VirtualTableRow> templateFactory)
+	{
+		super(templateFactory);
+	}
+	
+	
+	/**
+	 * Sets the cache of rendered rows, <code>null</code> to render every row
+	 * with the template.
+	 * 
+	 * @param rowImageCache
+	 *            the row image cache
+	 */
+	void setRowImageCache(XdevFormTableRowImageCache rowImageCache)
+	{
+		this.rowImageCache = rowImageCache;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If a row image cache is set, the template's rendering of the row is
+	 * returned as a cached image.
+	 * </p>
+	 */
+	@Override
+	public Component getTableCellRendererComponent(JTable table, Object value,
+			boolean isSelected, boolean hasFocus, int row, int column)
+	{
+		if(this.rowImageCache == null)
+		{
+			return super.getTableCellRendererComponent(table,value,isSelected,hasFocus,row,column);
+		}
+		
+		Rectangle cellRect = table.getCellRect(row,column,false);
+		VirtualTableRow virtualTableRow = cellRect.width > 0 && cellRect.height > 0 ? getRowValues(
+				table,value,isSelected,row,column,
+				TableModelWrapperUtils.getActualRowAt(table.getModel(),row)) : null;
+		if(virtualTableRow == null)
+		{
+			return super.getTableCellRendererComponent(table,value,isSelected,hasFocus,row,column);
+		}
+		
+		boolean even = row % 2 == 0;
+		BufferedImage image = this.rowImageCache.get(virtualTableRow,isSelected,even,
+				cellRect.width,cellRect.height);
+		if(image == null)
+		{
+			Component component = super.getTableCellRendererComponent(table,value,isSelected,
+					hasFocus,row,column);
+			image = paintRowImage(table,component,cellRect.width,cellRect.height);
+			this.rowImageCache.put(virtualTableRow,isSelected,even,image);
+		}
+		
+		if(this.rowImageComponent == null)
+		{
+			this.rowImageComponent = new RowImageComponent();
+		}
+		this.rowImageComponent.image = image;
+		return this.rowImageComponent;
+	}
+	
+	
+	private BufferedImage paintRowImage(JTable table, Component component, int width, int height)
+	{
+		if(this.imageRendererPane == null)
+		{
+			this.imageRendererPane = new CellRendererPane();
+		}
+		if(this.imageRendererPane.getParent() != table)
+		{
+			// the template can only be laid out in a displayable hierarchy
+			table.add(this.imageRendererPane);
+		}
+		
+		GraphicsConfiguration gc = table.getGraphicsConfiguration();
+		BufferedImage image = gc != null ? gc.createCompatibleImage(width,height,
+				Transparency.TRANSLUCENT) : new BufferedImage(width,height,
+				BufferedImage.TYPE_INT_ARGB);
+		
+		Graphics2D g = image.createGraphics();
+		try
+		{
+			this.imageRendererPane.paintComponent(g,component,table,0,0,width,height,true);
+		}
+		finally
+		{
+			g.dispose();
+			this.imageRendererPane.removeAll();
+		}
+		
+		return image;
+	}
+	
+	
 	@Override
 	protected VirtualTableRow getRowValues(JTable table, Object value, boolean isSelected,
 			int rowIndex, int columnIndex, int actualRowIndex)
@@ -81,4 +197,31 @@ public class XdevFormTableRenderer extends ComponentTableRenderer<VirtualTableRo
 			((XdevFormTable)table).decorateTemplate(template,row,column,isSelected);
 		}
 	}
+	
+	
+	
+	private static class RowImageComponent extends JComponent
+	{
+		private static final long	serialVersionUID	= -2374613085519917246L;
+		
+		BufferedImage				image;
+		
+		
+		@Override
+		protected void paintComponent(Graphics g)
+		{
+			if(image != null)
+			{
+				g.drawImage(image,0,0,null);
+			}
+		}
+		
+		
+		@Override
+		public Dimension getPreferredSize()
+		{
+			return image != null ? new Dimension(image.getWidth(),image.getHeight())
+					: new Dimension();
+		}
+	}
 }
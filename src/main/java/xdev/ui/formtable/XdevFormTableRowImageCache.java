@@ -0,0 +1,337 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.formtable;
+
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableAdapter;
+import xdev.vt.VirtualTableEvent;
+
+
+/**
+ * Least recently used cache of rendered {@link XdevFormTable} rows.
+ * <p>
+ * The images are keyed by the identity of the {@link VirtualTableRow}, the
+ * row's value version, the selection state, the even / odd background and the
+ * size of the cell. A row's version is incremented and its images are dropped
+ * whenever its {@link VirtualTable} reports a change of the row, so outdated
+ * images are never hit. Deleted rows are forgotten altogether. The cache is
+ * cleared completely if the whole data or the structure of the
+ * {@link VirtualTable} changes.
+ * </p>
+ * <p>
+ * The total size of the cached images is bounded by a memory budget in bytes.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ * 
+ * @see XdevFormTable#setRowImageCacheEnabled(boolean)
+ */
+class XdevFormTableRowImageCache extends VirtualTableAdapter
+{
+	private final Map<Key, BufferedImage>		images;
+	private final Map<VirtualTableRow, Integer>	versions;
+	private final Map<VirtualTableRow, List<Key>>	keys;
+	private long								memoryBudget;
+	private long								memoryUsage	= 0;
+	private VirtualTable						vt;
+	
+	
+	/**
+	 * 
+	 * @param memoryBudget
+	 *            the maximum size of all cached images in bytes
+	 */
+	XdevFormTableRowImageCache(long memoryBudget)
+	{
+		this.memoryBudget = memoryBudget;
+		this.images = new LinkedHashMap<Key, BufferedImage>(64,0.75f,true);
+		this.versions = new IdentityHashMap<VirtualTableRow, Integer>();
+		this.keys = new IdentityHashMap<VirtualTableRow, List<Key>>();
+	}
+	
+	
+	/**
+	 * Follows the changes of <code>vt</code> from now on and clears the cache.
+	 * 
+	 * @param vt
+	 *            the rendered {@link VirtualTable}, may be <code>null</code>
+	 */
+	void setVirtualTable(VirtualTable vt)
+	{
+		if(this.vt != vt)
+		{
+			if(this.vt != null)
+			{
+				this.vt.removeVirtualTableListener(this);
+			}
+			
+			this.vt = vt;
+			
+			if(vt != null)
+			{
+				vt.addVirtualTableListener(this);
+			}
+		}
+		
+		clear();
+	}
+	
+	
+	void setMemoryBudget(long memoryBudget)
+	{
+		this.memoryBudget = memoryBudget;
+		evict();
+	}
+	
+	
+	long getMemoryBudget()
+	{
+		return this.memoryBudget;
+	}
+	
+	
+	BufferedImage get(VirtualTableRow row, boolean selected, boolean even, int width, int height)
+	{
+		return this.images.get(new Key(row,getVersion(row),selected,even,width,height));
+	}
+	
+	
+	void put(VirtualTableRow row, boolean selected, boolean even, BufferedImage image)
+	{
+		long size = sizeOf(image);
+		if(size > this.memoryBudget)
+		{
+			return;
+		}
+		
+		Key key = new Key(row,getVersion(row),selected,even,image.getWidth(),image.getHeight());
+		BufferedImage old = this.images.put(key,image);
+		if(old != null)
+		{
+			this.memoryUsage -= sizeOf(old);
+		}
+		else
+		{
+			List<Key> rowKeys = this.keys.get(row);
+			if(rowKeys == null)
+			{
+				rowKeys = new ArrayList<Key>(4);
+				this.keys.put(row,rowKeys);
+			}
+			rowKeys.add(key);
+		}
+		this.memoryUsage += size;
+		
+		evict();
+	}
+	
+	
+	/**
+	 * Outdates all cached images of <code>row</code>.
+	 * 
+	 * @param row
+	 *            the changed row
+	 */
+	void invalidate(VirtualTableRow row)
+	{
+		this.versions.put(row,getVersion(row) + 1);
+		removeImages(row);
+	}
+	
+	
+	/**
+	 * Forgets the deleted <code>row</code> and drops its images.
+	 * 
+	 * @param row
+	 *            the deleted row
+	 */
+	void remove(VirtualTableRow row)
+	{
+		this.versions.remove(row);
+		removeImages(row);
+	}
+	
+	
+	void clear()
+	{
+		this.images.clear();
+		this.versions.clear();
+		this.keys.clear();
+		this.memoryUsage = 0;
+	}
+	
+	
+	private void removeImages(VirtualTableRow row)
+	{
+		List<Key> rowKeys = this.keys.remove(row);
+		if(rowKeys != null)
+		{
+			for(Key key : rowKeys)
+			{
+				BufferedImage image = this.images.remove(key);
+				if(image != null)
+				{
+					this.memoryUsage -= sizeOf(image);
+				}
+			}
+		}
+	}
+	
+	
+	private int getVersion(VirtualTableRow row)
+	{
+		Integer version = this.versions.get(row);
+		return version != null ? version : 0;
+	}
+	
+	
+	private void evict()
+	{
+		Iterator<Map.Entry<Key, BufferedImage>> it = this.images.entrySet().iterator();
+		while(this.memoryUsage > this.memoryBudget && it.hasNext())
+		{
+			Map.Entry<Key, BufferedImage> entry = it.next();
+			this.memoryUsage -= sizeOf(entry.getValue());
+			it.remove();
+			
+			Key key = entry.getKey();
+			List<Key> rowKeys = this.keys.get(key.row);
+			if(rowKeys != null)
+			{
+				rowKeys.remove(key);
+				if(rowKeys.isEmpty())
+				{
+					this.keys.remove(key.row);
+				}
+			}
+		}
+	}
+	
+	
+	private static long sizeOf(BufferedImage image)
+	{
+		int bytesPerPixel = Math.max(1,image.getColorModel().getPixelSize() / 8);
+		return (long)image.getWidth() * image.getHeight() * bytesPerPixel;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowUpdated(VirtualTableEvent event)
+	{
+		invalidate(event.getRow());
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowDeleted(VirtualTableEvent event)
+	{
+		remove(event.getRow());
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableDataChanged(VirtualTableEvent event)
+	{
+		clear();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableStructureChanged(VirtualTableEvent event)
+	{
+		clear();
+	}
+	
+	
+	
+	private static class Key
+	{
+		final VirtualTableRow	row;
+		final int				version;
+		final boolean			selected;
+		final boolean			even;
+		final int				width;
+		final int				height;
+		
+		
+		Key(VirtualTableRow row, int version, boolean selected, boolean even, int width,
+				int height)
+		{
+			this.row = row;
+			this.version = version;
+			this.selected = selected;
+			this.even = even;
+			this.width = width;
+			this.height = height;
+		}
+		
+		
+		@Override
+		public int hashCode()
+		{
+			int hash = System.identityHashCode(row);
+			hash = 31 * hash + version;
+			hash = 31 * hash + (selected ? 1 : 0);
+			hash = 31 * hash + (even ? 1 : 0);
+			hash = 31 * hash + width;
+			hash = 31 * hash + height;
+			return hash;
+		}
+		
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(obj == this)
+			{
+				return true;
+			}
+			if(!(obj instanceof Key))
+			{
+				return false;
+			}
+			
+			Key other = (Key)obj;
+			return row == other.row && version == other.version && selected == other.selected
+					&& even == other.even && width == other.width && height == other.height;
+		}
+	}
+}
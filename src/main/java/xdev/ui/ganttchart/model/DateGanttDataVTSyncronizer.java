@@ -20,34 +20,61 @@ package xdev.ui.ganttchart.model;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import xdev.db.DataType;
 import xdev.ui.ganttchart.UpdateableGanttEntry;
 import xdev.ui.ganttchart.template.XdevGanttTemplate;
 import xdev.ui.ganttchart.utils.VirtualTableGanttPersistenceUtils;
+import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTable.VirtualTableRow;
 import xdev.vt.VirtualTableAdapter;
 import xdev.vt.VirtualTableColumn;
 import xdev.vt.VirtualTableEvent;
 
 import com.jidesoft.gantt.DefaultGanttModel;
+import com.jidesoft.gantt.GanttModelEvent;
+import com.jidesoft.gantt.GanttModelListener;
+import com.jidesoft.grid.Expandable;
 import com.jidesoft.range.TimeRange;
 
 
 /**
+ * Synchronizes {@link VirtualTable} row events with the entries of a
+ * {@link DefaultGanttModel}.
+ * <p>
+ * The entries are resolved by their id through an index which includes nested
+ * children and is kept in step with the model via {@link GanttModelEvent}s.
+ * </p>
  * 
  * @author XDEV Software jwill
  * @since 4.0
  * @param <EntryType>
  */
 public final class DateGanttDataVTSyncronizer<EntryType extends UpdateableGanttEntry<Date>> extends
-		VirtualTableAdapter implements PropertyChangeListener
+		VirtualTableAdapter implements PropertyChangeListener, GanttModelListener
 {
 	private final EntryVTMapper<EntryType, Date>		mapper;
 	private final DefaultGanttModel<Date, EntryType>	model;
 	private final Object								rootIdentifier;
-	private boolean										dbSync	= false;
+	private boolean										dbSync				= false;
+	
+	/**
+	 * id to entry index of all entries of the model, including nested
+	 * children.
+	 */
+	private final Map<Object, EntryType>				entriesById			= new HashMap<Object, EntryType>();
+	
+	/**
+	 * entries which had no id yet when they were indexed, see
+	 * {@link #resolveUnidentifiedEntries()}.
+	 */
+	private final List<EntryType>						unidentifiedEntries	= new ArrayList<EntryType>();
 	
 	
 	/**
@@ -62,6 +89,9 @@ public final class DateGanttDataVTSyncronizer<EntryType extends UpdateableGanttE
 		this.mapper = mapper;
 		this.model = model;
 		this.rootIdentifier = rootIdentifier;
+		
+		this.indexEntries(0,model.getEntryCount() - 1);
+		model.addGanttModelListener(this);
 	}
 	
 	
@@ -82,27 +112,24 @@ public final class DateGanttDataVTSyncronizer<EntryType extends UpdateableGanttE
 			this.generateSetIDFor(entry,row);
 		}
 		
-		for(int i = 0; i < model.getEntryCount(); i++)
+		if(this.getEntry(entry.getId()) != null)
 		{
-			if(model.getEntryAt(i).getId().equals(entry.getId()))
-			{
-				return; // avoid endless chaining and keep parent integrity
-			}
+			return; // avoid endless chaining and keep parent integrity
 		}
 		
 		if(entry.getRoot() != this.rootIdentifier)
 		{
-			for(int i = 0; i < model.getEntryCount(); i++)
+			EntryType parent = this.getEntry(entry.getRoot());
+			if(parent != null)
 			{
-				if(model.getEntryAt(i).getId().equals(entry.getRoot()))
-				{
-					model.getEntryAt(i).addChild(entry);
-				}
+				parent.addChild(entry);
+				this.indexEntry(entry);
 			}
 		}
 		else
 		{
 			model.addGanttEntry(entry);
+			this.indexEntry(entry);
 		}
 	}
 	
@@ -115,16 +142,8 @@ public final class DateGanttDataVTSyncronizer<EntryType extends UpdateableGanttE
 	{
 		VirtualTableRow row = event.getRow();
 		EntryType entry = mapper.dataToGanttEntry(row);
-		EntryType existingEntry = null;
+		EntryType existingEntry = this.getEntry(entry.getId());
 		
-		for(int i = 0; i < model.getEntryCount(); i++)
-		{
-			if(model.getEntryAt(i).getId().equals(entry.getId()))
-			{
-				existingEntry = model.getEntryAt(i);
-				break;
-			}
-		}
 		if(existingEntry != null)
 		{
 			if(!existingEntry.isAdjusting())
@@ -146,20 +165,154 @@ public final class DateGanttDataVTSyncronizer<EntryType extends UpdateableGanttE
 	{
 		VirtualTableRow row = event.getRow();
 		EntryType entry = mapper.dataToGanttEntry(row);
-		EntryType existingEntry = null;
+		EntryType existingEntry = this.getEntry(entry.getId());
+		
+		if(existingEntry != null)
+		{
+			model.removeGanttEntry(existingEntry);
+			this.entriesById.remove(entry.getId());
+		}
+	}
+	
+	
+	/**
+	 * Keeps the id index in step with entries which are inserted or updated
+	 * within the model, for example through the ui. Removed entries are
+	 * detected lazily by {@link #getEntry(Object)}.
+	 */
+	@Override
+	public void ganttChartChanged(GanttModelEvent event)
+	{
+		if(event.getType() != GanttModelEvent.DELETE)
+		{
+			this.indexEntries(event.getFirstRow(),event.getLastRow());
+		}
+	}
+	
+	
+	/**
+	 * Returns the entry of the model with the given id.
+	 * 
+	 * @param id
+	 *            the entry id
+	 * @return the entry or <code>null</code> if the model contains no entry
+	 *         with this id.
+	 */
+	private EntryType getEntry(Object id)
+	{
+		if(id == null)
+		{
+			return null;
+		}
+		
+		EntryType entry = this.entriesById.get(id);
+		if(entry == null && !this.unidentifiedEntries.isEmpty())
+		{
+			this.resolveUnidentifiedEntries();
+			entry = this.entriesById.get(id);
+		}
 		
-		for(int i = 0; i < model.getEntryCount(); i++)
+		if(entry != null && !(id.equals(entry.getId()) && isAttached(entry)))
 		{
-			if(model.getEntryAt(i).getId().equals(entry.getId()))
+			// stale index entry, the id has changed or the entry was removed
+			this.entriesById.remove(id);
+			if(entry.getId() != null && isAttached(entry))
 			{
-				existingEntry = model.getEntryAt(i);
-				break;
+				this.entriesById.put(entry.getId(),entry);
 			}
+			entry = null;
 		}
-		if(existingEntry != null)
+		
+		return entry;
+	}
+	
+	
+	/**
+	 * Indexes the entries of the model's rows <code>first</code> to
+	 * <code>last</code> including their children.
+	 */
+	private void indexEntries(int first, int last)
+	{
+		int count = this.model.getEntryCount();
+		for(int i = Math.max(first,0), c = Math.min(last,count - 1); i <= c; i++)
 		{
-			model.removeGanttEntry(existingEntry);
+			this.indexEntry(this.model.getEntryAt(i));
+		}
+	}
+	
+	
+	/**
+	 * Indexes the given entry and all of its children.
+	 */
+	@SuppressWarnings("unchecked")
+	private void indexEntry(EntryType entry)
+	{
+		if(entry == null)
+		{
+			return;
+		}
+		
+		if(entry.getId() != null)
+		{
+			this.entriesById.put(entry.getId(),entry);
+		}
+		else
+		{
+			this.unidentifiedEntries.add(entry);
+		}
+		
+		List<?> children = entry.getChildren();
+		if(children != null)
+		{
+			for(Object child : children)
+			{
+				this.indexEntry((EntryType)child);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Moves entries, which received their id after they were indexed (e.g. db
+	 * generated ids), into the id index.
+	 */
+	private void resolveUnidentifiedEntries()
+	{
+		for(Iterator<EntryType> it = this.unidentifiedEntries.iterator(); it.hasNext();)
+		{
+			EntryType entry = it.next();
+			if(!isAttached(entry))
+			{
+				it.remove();
+			}
+			else if(entry.getId() != null)
+			{
+				this.entriesById.put(entry.getId(),entry);
+				it.remove();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Checks if the entry is still part of the model's tree.
+	 * <p>
+	 * Jide wraps its treetable nodes in an invisible expandable tree node which
+	 * has level -1.
+	 * </p>
+	 */
+	private static boolean isAttached(Expandable entry)
+	{
+		Expandable parent = entry.getParent();
+		while(parent != null)
+		{
+			if(parent.getLevel() == -1)
+			{
+				return true;
+			}
+			parent = parent.getParent();
 		}
+		return false;
 	}
 	
 	
@@ -0,0 +1,84 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.ganttchart.model;
+
+
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.List;
+
+import xdev.ui.ganttchart.UpdateableGanttEntry;
+
+import com.jidesoft.gantt.GanttEntry;
+
+
+/**
+ * Event which describes the outcome of the write-back of {@link GanttEntry}s
+ * by a {@link GanttPersistence}.
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ * 
+ * @see GanttPersistenceListener
+ */
+public class GanttPersistenceEvent extends EventObject
+{
+	private static final long								serialVersionUID	= 4052262312436734386L;
+	
+	private final List<? extends UpdateableGanttEntry<?>>	entries;
+	private final Exception									exception;
+	
+	
+	/**
+	 * 
+	 * @param source
+	 *            the persistence which has written the entries
+	 * @param entries
+	 *            the written entries
+	 * @param exception
+	 *            the cause of the failure or <code>null</code> if the entries
+	 *            have been written successfully
+	 */
+	public GanttPersistenceEvent(GanttPersistence<?, ?> source,
+			List<? extends UpdateableGanttEntry<?>> entries, Exception exception)
+	{
+		super(source);
+		
+		this.entries = Collections.unmodifiableList(entries);
+		this.exception = exception;
+	}
+	
+	
+	/**
+	 * @return the written entries
+	 */
+	public List<? extends UpdateableGanttEntry<?>> getEntries()
+	{
+		return entries;
+	}
+	
+	
+	/**
+	 * @return the cause of the failure or <code>null</code> if the entries
+	 *         have been written successfully
+	 */
+	public Exception getException()
+	{
+		return exception;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.ganttchart.model;
+
+
+import java.util.EventListener;
+
+
+/**
+ * The listener interface for receiving the outcome of the write-back of a
+ * {@link GanttPersistence}.
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ * 
+ * @see VirtualTableGanttPersistence#addGanttPersistenceListener(GanttPersistenceListener)
+ */
+public interface GanttPersistenceListener extends EventListener
+{
+	/**
+	 * Invoked when entries have been written back successfully.
+	 * 
+	 * @param event
+	 *            the event containing the written entries
+	 */
+	public void entriesPersisted(GanttPersistenceEvent event);
+	
+	
+	/**
+	 * Invoked when the write-back of entries failed.
+	 * 
+	 * @param event
+	 *            the event containing the affected entries and the cause
+	 */
+	public void persistenceFailed(GanttPersistenceEvent event);
+}
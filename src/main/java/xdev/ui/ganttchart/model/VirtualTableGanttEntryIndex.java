@@ -0,0 +1,221 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.ganttchart.model;
+
+
+import java.util.HashMap;
+import java.util.Map;
+
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableAdapter;
+import xdev.vt.VirtualTableColumn;
+import xdev.vt.VirtualTableEvent;
+
+import com.jidesoft.gantt.GanttEntry;
+
+
+/**
+ * Maintained index from {@link GanttEntry} id to the {@link VirtualTableRow}
+ * which stores the entry.
+ * <p>
+ * The index follows the row events of its {@link VirtualTable}. It is rebuilt
+ * lazily if the whole data or the structure of the {@link VirtualTable}
+ * changes.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ * 
+ * @see XdevGanttEntryVTMappings#getRowIndex()
+ */
+public class VirtualTableGanttEntryIndex extends VirtualTableAdapter
+{
+	private final VirtualTable					vt;
+	private final VirtualTableColumn<?>			idColumn;
+	private final Map<Object, VirtualTableRow>	rowsById	= new HashMap<Object, VirtualTableRow>();
+	private boolean								valid		= false;
+	
+	
+	/**
+	 * 
+	 * @param vt
+	 *            the {@link VirtualTable} to index
+	 * @param idColumn
+	 *            the entry id column
+	 */
+	public VirtualTableGanttEntryIndex(VirtualTable vt, VirtualTableColumn<?> idColumn)
+	{
+		this.vt = vt;
+		this.idColumn = idColumn;
+		
+		vt.addVirtualTableListener(this);
+	}
+	
+	
+	/**
+	 * Returns the {@link VirtualTableRow} with the given entry id.
+	 * 
+	 * @param id
+	 *            the entry id
+	 * @return the row or <code>null</code> if no row with this id exists.
+	 */
+	public VirtualTableRow getRow(Object id)
+	{
+		if(id == null)
+		{
+			return null;
+		}
+		
+		ensureValid();
+		
+		VirtualTableRow row = rowsById.get(id);
+		if(row != null && !id.equals(row.get(idColumn)))
+		{
+			// id has been changed without notification
+			valid = false;
+			ensureValid();
+			row = rowsById.get(id);
+		}
+		
+		return row;
+	}
+	
+	
+	/**
+	 * Returns the index of the row with the given entry id.
+	 * 
+	 * @param id
+	 *            the entry id
+	 * @return the row index or <code>-1</code> if no row with this id exists.
+	 */
+	public int getRowIndex(Object id)
+	{
+		VirtualTableRow row = getRow(id);
+		return row != null ? row.getIndex() : -1;
+	}
+	
+	
+	/**
+	 * Checks if a row with the given entry id exists.
+	 * 
+	 * @param id
+	 *            the entry id
+	 * @return <code>true</code> if a row with this id exists
+	 */
+	public boolean contains(Object id)
+	{
+		return getRow(id) != null;
+	}
+	
+	
+	private void ensureValid()
+	{
+		if(!valid)
+		{
+			rowsById.clear();
+			
+			// reverse order, the first row wins for duplicate ids
+			for(int i = vt.getRowCount() - 1; i >= 0; i--)
+			{
+				VirtualTableRow row = vt.getRow(i);
+				Object id = row.get(idColumn);
+				if(id != null)
+				{
+					rowsById.put(id,row);
+				}
+			}
+			
+			valid = true;
+		}
+	}
+	
+	
+	private void put(VirtualTableRow row)
+	{
+		Object id = row.get(idColumn);
+		if(id != null && !rowsById.containsKey(id))
+		{
+			rowsById.put(id,row);
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowInserted(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			put(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowUpdated(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			// stale keys of a changed id are detected in getRow
+			put(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowDeleted(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			Object id = event.getRow().get(idColumn);
+			if(id != null)
+			{
+				rowsById.remove(id);
+			}
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableDataChanged(VirtualTableEvent event)
+	{
+		valid = false;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableStructureChanged(VirtualTableEvent event)
+	{
+		valid = false;
+	}
+}
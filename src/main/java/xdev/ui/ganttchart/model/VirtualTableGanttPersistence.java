@@ -18,9 +18,19 @@
 package xdev.ui.ganttchart.model;
 
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import javax.swing.Timer;
+import javax.swing.event.EventListenerList;
+
+import xdev.Application;
 import xdev.db.DBException;
 import xdev.db.DBUtils;
 import xdev.ui.ganttchart.UpdateableGanttEntry;
@@ -42,6 +52,12 @@ import com.jidesoft.range.Range;
  * {@link GanttChart} or implicitly its {@link GanttEntry}s to the data
  * provider, which is in this case a {@link VirtualTable}
  * </p>
+ * <p>
+ * By default every entry update is written immediately. In write-behind mode
+ * (see {@link #setWriteBehindDelay(int)}) updated entries are collected,
+ * repeated updates of the same entry are coalesced and all of them are written
+ * as one batch after the delay or on {@link #flush()}.
+ * </p>
  * 
  * @param <T>
  *            the gantt data type, for example <code>Date</code> or
@@ -61,6 +77,21 @@ public class VirtualTableGanttPersistence<T, S extends UpdateableGanttEntry<T>>
 	private boolean						dbSync;
 	private Object						rootIdentifier;
 	
+	/**
+	 * the write-behind delay in milliseconds, <code>-1</code> if write-behind
+	 * is disabled.
+	 */
+	private int							writeBehindDelay	= -1;
+	
+	/**
+	 * entries waiting for write-back, keyed by entry id.
+	 */
+	private final Map<Object, S>		dirtyEntries		= new LinkedHashMap<Object, S>();
+	
+	private Timer						flushTimer;
+	
+	private final EventListenerList		listenerList		= new EventListenerList();
+	
 	
 	/**
 	 * 
@@ -88,22 +119,186 @@ public class VirtualTableGanttPersistence<T, S extends UpdateableGanttEntry<T>>
 	 * Triggers the synchronization of the VirtualTable with the database, if
 	 * {@code synchronizeWithDB} is {@code true}.
 	 */
-	private void syncWithDB()
+	private void syncWithDB() throws Exception
 	{
 		if(this.dbSync)
 		{
-			try
+			dataContainer.getVirtualTable().synchronizeChangedRows();
+		}
+	}
+	
+	
+	/**
+	 * Enables the write-behind mode if <code>delay</code> is
+	 * <code>&gt;= 0</code>.
+	 * <p>
+	 * In write-behind mode updated entries are collected and written as one
+	 * batch at most <code>delay</code> milliseconds after the first pending
+	 * update. A delay of <code>0</code> writes the batch as soon as the current
+	 * event, e.g. a relation cascade, has been processed.
+	 * </p>
+	 * 
+	 * @param delay
+	 *            the delay in milliseconds, or <code>-1</code> to write every
+	 *            update immediately
+	 */
+	public void setWriteBehindDelay(int delay)
+	{
+		this.writeBehindDelay = delay < 0 ? -1 : delay;
+		
+		if(this.flushTimer != null)
+		{
+			this.flushTimer.stop();
+			this.flushTimer = null;
+		}
+		
+		if(!isWriteBehind())
+		{
+			flush();
+		}
+		else if(!this.dirtyEntries.isEmpty())
+		{
+			scheduleFlush();
+		}
+	}
+	
+	
+	/**
+	 * @return the write-behind delay in milliseconds, or <code>-1</code> if
+	 *         every update is written immediately
+	 */
+	public int getWriteBehindDelay()
+	{
+		return this.writeBehindDelay;
+	}
+	
+	
+	/**
+	 * @return <code>true</code> if the write-behind mode is enabled
+	 */
+	public boolean isWriteBehind()
+	{
+		return this.writeBehindDelay >= 0;
+	}
+	
+	
+	/**
+	 * Writes all pending entry updates as one batch.
+	 */
+	public void flush()
+	{
+		if(this.flushTimer != null)
+		{
+			this.flushTimer.stop();
+		}
+		
+		if(this.dirtyEntries.isEmpty())
+		{
+			return;
+		}
+		
+		List<S> entries = new ArrayList<S>(this.dirtyEntries.values());
+		this.dirtyEntries.clear();
+		
+		try
+		{
+			for(S entry : entries)
 			{
-				dataContainer.getVirtualTable().synchronizeChangedRows();
+				this.writeEntry(entry,false);
 			}
-			catch(Exception e)
+			this.syncWithDB();
+		}
+		catch(Exception e)
+		{
+			this.firePersistenceFailed(entries,e);
+			return;
+		}
+		this.fireEntriesPersisted(entries);
+	}
+	
+	
+	private void scheduleFlush()
+	{
+		if(this.flushTimer == null)
+		{
+			this.flushTimer = new Timer(this.writeBehindDelay,new ActionListener()
 			{
-				e.printStackTrace();
+				@Override
+				public void actionPerformed(ActionEvent e)
+				{
+					flush();
+				}
+			});
+			this.flushTimer.setRepeats(false);
+		}
+		
+		if(!this.flushTimer.isRunning())
+		{
+			this.flushTimer.start();
+		}
+	}
+	
+	
+	/**
+	 * Registers a listener which is notified about the outcome of each
+	 * write-back.
+	 * 
+	 * @param listener
+	 *            the listener to add
+	 */
+	public void addGanttPersistenceListener(GanttPersistenceListener listener)
+	{
+		this.listenerList.add(GanttPersistenceListener.class,listener);
+	}
+	
+	
+	/**
+	 * Removes a listener which has been registered with
+	 * {@link #addGanttPersistenceListener(GanttPersistenceListener)}.
+	 * 
+	 * @param listener
+	 *            the listener to remove
+	 */
+	public void removeGanttPersistenceListener(GanttPersistenceListener listener)
+	{
+		this.listenerList.remove(GanttPersistenceListener.class,listener);
+	}
+	
+	
+	private void fireEntriesPersisted(List<S> entries)
+	{
+		GanttPersistenceListener[] listeners = this.listenerList
+				.getListeners(GanttPersistenceListener.class);
+		if(listeners.length > 0)
+		{
+			GanttPersistenceEvent event = new GanttPersistenceEvent(this,entries,null);
+			for(GanttPersistenceListener listener : listeners)
+			{
+				listener.entriesPersisted(event);
 			}
 		}
 	}
 	
 	
+	private void firePersistenceFailed(List<S> entries, Exception exception)
+	{
+		GanttPersistenceListener[] listeners = this.listenerList
+				.getListeners(GanttPersistenceListener.class);
+		if(listeners.length > 0)
+		{
+			GanttPersistenceEvent event = new GanttPersistenceEvent(this,entries,exception);
+			for(GanttPersistenceListener listener : listeners)
+			{
+				listener.persistenceFailed(event);
+			}
+		}
+		else
+		{
+			Application.getLogger().error(exception);
+		}
+	}
+	
+	
 	/**
 	 * 
 	 * {@inheritDoc}
@@ -124,50 +319,70 @@ public class VirtualTableGanttPersistence<T, S extends UpdateableGanttEntry<T>>
 	@Override
 	public void updateEntry(S entry)
 	{
-		for(int rowIndex = 0; rowIndex < this.dataContainer.getVirtualTable().getRowCount(); rowIndex++)
+		if(entry.getId() == null)
+		{
+			return;
+		}
+		
+		if(isWriteBehind())
+		{
+			// coalesces repeated updates of the same entry
+			this.dirtyEntries.put(entry.getId(),entry);
+			this.scheduleFlush();
+			return;
+		}
+		
+		List<S> entries = Collections.singletonList(entry);
+		try
+		{
+			this.writeEntry(entry,this.dbSync);
+			this.syncWithDB();
+		}
+		catch(Exception e)
+		{
+			this.firePersistenceFailed(entries,e);
+			return;
+		}
+		this.fireEntriesPersisted(entries);
+	}
+	
+	
+	/**
+	 * Writes the entry values into its {@link VirtualTable} row.
+	 * 
+	 * @param entry
+	 *            the entry to write
+	 * @param synchronizeDB
+	 *            if the row should be written to the database immediately
+	 */
+	private void writeEntry(S entry, boolean synchronizeDB) throws VirtualTableException,
+			DBException
+	{
+		int rowIndex = this.dataContainer.getRowIndex().getRowIndex(entry.getId());
+		if(rowIndex != -1)
 		{
-			Object currentId = this.dataContainer.getVirtualTable().getValueAt(rowIndex,
-					this.dataContainer.getId());
-			if(currentId.equals(entry.getId()))
+			Map<String, Object> rowUpdateData = new HashMap<String, Object>();
+			rowUpdateData.put(this.dataContainer.getStart().getName(),entry.getRange().lower());
+			rowUpdateData.put(this.dataContainer.getEnd().getName(),entry.getRange().upper());
+			
+			if(this.dataContainer.getDescription() != null)
 			{
-				Map<String, Object> rowUpdateData = new HashMap<String, Object>();
-				rowUpdateData.put(this.dataContainer.getStart().getName(),entry.getRange().lower());
-				rowUpdateData.put(this.dataContainer.getEnd().getName(),entry.getRange().upper());
-				
-				if(this.dataContainer.getDescription() != null)
-				{
-					rowUpdateData
-							.put(this.dataContainer.getDescription().getName(),entry.getName());
-				}
-				if(this.dataContainer.getRoot() != null)
-				{
-					rowUpdateData.put(this.dataContainer.getRoot().getName(),entry.getRoot());
-				}
-				if(this.dataContainer.getCompletion() != null)
-				{
-					this.modifyParentCompletionValue(entry);
-					rowUpdateData.put(this.dataContainer.getCompletion().getName(),
-							entry.getCompletion());
-				}
-				
-				try
-				{
-					this.dataContainer.getVirtualTable().updateRow(rowUpdateData,rowIndex,
-							this.dbSync);
-				}
-				catch(VirtualTableException e)
-				{
-					e.printStackTrace();
-				}
-				catch(DBException e)
-				{
-					e.printStackTrace();
-				}
-				// unique id filter
-				break;
+				rowUpdateData
+						.put(this.dataContainer.getDescription().getName(),entry.getName());
 			}
+			if(this.dataContainer.getRoot() != null)
+			{
+				rowUpdateData.put(this.dataContainer.getRoot().getName(),entry.getRoot());
+			}
+			if(this.dataContainer.getCompletion() != null)
+			{
+				this.modifyParentCompletionValue(entry);
+				rowUpdateData.put(this.dataContainer.getCompletion().getName(),
+						entry.getCompletion());
+			}
+			
+			this.dataContainer.getVirtualTable().updateRow(rowUpdateData,rowIndex,synchronizeDB);
 		}
-		this.syncWithDB();
 	}
 	
 	
@@ -201,7 +416,10 @@ public class VirtualTableGanttPersistence<T, S extends UpdateableGanttEntry<T>>
 	@Override
 	public void addEntry(S entry)
 	{
-		if(!this.idExists(this.dataContainer.getVirtualTable(),entry.getId()))
+		// keep the order of pending updates and the new row
+		this.flush();
+		
+		if(!this.dataContainer.getRowIndex().contains(entry.getId()))
 		{
 			VirtualTableRow newVTRow = this.dataContainer.getVirtualTable().createRow();
 			this.transmitEntryValues(entry,newVTRow);
@@ -328,21 +546,4 @@ public class VirtualTableGanttPersistence<T, S extends UpdateableGanttEntry<T>>
 			entry.setId(row.get(this.dataContainer.getId()));
 		}
 	}
-	
-	
-	private boolean idExists(VirtualTable vt, Object id)
-	{
-		boolean idExists = false;
-		
-		for(int i = 0; i < vt.getRowCount(); i++)
-		{
-			if(vt.getRow(i).get(dataContainer.getId()).equals(id))
-			{
-				idExists = true;
-				break;
-			}
-		}
-		
-		return idExists;
-	}
 }
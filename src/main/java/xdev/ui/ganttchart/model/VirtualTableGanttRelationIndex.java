@@ -0,0 +1,342 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.ganttchart.model;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableAdapter;
+import xdev.vt.VirtualTableEvent;
+
+import com.jidesoft.gantt.GanttEntry;
+import com.jidesoft.gantt.GanttEntryRelation;
+
+
+/**
+ * Maintained index over a {@link GanttEntryRelation} {@link VirtualTable}.
+ * <p>
+ * Relation rows are indexed by predecessor, successor and relation type as
+ * well as by the ids of the {@link GanttEntry}s which participate in a
+ * relation. The index follows the row events of its {@link VirtualTable}. It
+ * is rebuilt lazily if the whole data or the structure of the
+ * {@link VirtualTable} changes.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ * 
+ * @see XdevGanttRelationVTWrapper#getRowIndex()
+ */
+public class VirtualTableGanttRelationIndex extends VirtualTableAdapter
+{
+	private final XdevGanttRelationVTWrapper			container;
+	private final Map<RelationKey, VirtualTableRow>		rowsByRelation	= new HashMap<RelationKey, VirtualTableRow>();
+	private final Map<Object, List<VirtualTableRow>>	rowsByEntry		= new HashMap<Object, List<VirtualTableRow>>();
+	private boolean										valid			= false;
+	
+	
+	/**
+	 * 
+	 * @param container
+	 *            the relation mappings of the {@link VirtualTable} to index
+	 */
+	public VirtualTableGanttRelationIndex(XdevGanttRelationVTWrapper container)
+	{
+		this.container = container;
+		
+		container.getVirtualTable().addVirtualTableListener(this);
+	}
+	
+	
+	/**
+	 * Returns the relation row with the given predecessor, successor and
+	 * relation type.
+	 * 
+	 * @param predecessorId
+	 *            the id of the predecessor entry
+	 * @param successorId
+	 *            the id of the successor entry
+	 * @param relationType
+	 *            the relation type
+	 * @return the row or <code>null</code> if no such relation row exists.
+	 */
+	public VirtualTableRow getRelationRow(Object predecessorId, Object successorId,
+			int relationType)
+	{
+		ensureValid();
+		
+		RelationKey key = new RelationKey(predecessorId,successorId,relationType);
+		VirtualTableRow row = rowsByRelation.get(key);
+		if(row != null && !key.equals(createKey(row)))
+		{
+			// relation has been changed without notification
+			valid = false;
+			ensureValid();
+			row = rowsByRelation.get(key);
+		}
+		
+		return row;
+	}
+	
+	
+	/**
+	 * Returns all relation rows in which the entry with the given id is the
+	 * predecessor or the successor.
+	 * 
+	 * @param entryId
+	 *            the entry id
+	 * @return the relation rows, never <code>null</code>
+	 */
+	public List<VirtualTableRow> getRelationRows(Object entryId)
+	{
+		ensureValid();
+		
+		List<VirtualTableRow> relationRows = new ArrayList<VirtualTableRow>();
+		
+		List<VirtualTableRow> rows = rowsByEntry.get(entryId);
+		if(rows != null)
+		{
+			for(Iterator<VirtualTableRow> it = rows.iterator(); it.hasNext();)
+			{
+				VirtualTableRow row = it.next();
+				if(isRelatedTo(row,entryId))
+				{
+					relationRows.add(row);
+				}
+				else
+				{
+					// stale entry of an updated row
+					it.remove();
+				}
+			}
+		}
+		
+		return relationRows;
+	}
+	
+	
+	private void ensureValid()
+	{
+		if(!valid)
+		{
+			rowsByRelation.clear();
+			rowsByEntry.clear();
+			
+			VirtualTable vt = container.getVirtualTable();
+			for(int i = 0, c = vt.getRowCount(); i < c; i++)
+			{
+				put(vt.getRow(i));
+			}
+			
+			valid = true;
+		}
+	}
+	
+	
+	private void put(VirtualTableRow row)
+	{
+		RelationKey key = createKey(row);
+		if(!rowsByRelation.containsKey(key))
+		{
+			rowsByRelation.put(key,row);
+		}
+		
+		addEntryRow(key.predecessorId,row);
+		if(!equals(key.predecessorId,key.successorId))
+		{
+			addEntryRow(key.successorId,row);
+		}
+	}
+	
+	
+	private void addEntryRow(Object entryId, VirtualTableRow row)
+	{
+		if(entryId == null)
+		{
+			return;
+		}
+		
+		List<VirtualTableRow> rows = rowsByEntry.get(entryId);
+		if(rows == null)
+		{
+			rows = new ArrayList<VirtualTableRow>(2);
+			rowsByEntry.put(entryId,rows);
+		}
+		if(!rows.contains(row))
+		{
+			rows.add(row);
+		}
+	}
+	
+	
+	private void remove(VirtualTableRow row)
+	{
+		RelationKey key = createKey(row);
+		rowsByRelation.remove(key);
+		
+		removeEntryRow(key.predecessorId,row);
+		removeEntryRow(key.successorId,row);
+	}
+	
+	
+	private void removeEntryRow(Object entryId, VirtualTableRow row)
+	{
+		List<VirtualTableRow> rows = rowsByEntry.get(entryId);
+		if(rows != null)
+		{
+			rows.remove(row);
+			if(rows.isEmpty())
+			{
+				rowsByEntry.remove(entryId);
+			}
+		}
+	}
+	
+	
+	private boolean isRelatedTo(VirtualTableRow row, Object entryId)
+	{
+		return entryId.equals(row.get(container.getEntryId()))
+				|| entryId.equals(row.get(container.getRelationRoot()));
+	}
+	
+	
+	private RelationKey createKey(VirtualTableRow row)
+	{
+		return new RelationKey(row.get(container.getRelationRoot()),
+				row.get(container.getEntryId()),row.get(container.getRelationType()));
+	}
+	
+	
+	private static boolean equals(Object o1, Object o2)
+	{
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowInserted(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			put(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowUpdated(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			// stale keys of a changed relation are detected on lookup
+			put(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowDeleted(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			remove(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableDataChanged(VirtualTableEvent event)
+	{
+		valid = false;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableStructureChanged(VirtualTableEvent event)
+	{
+		valid = false;
+	}
+	
+	/**
+	 * Predecessor, successor and relation type of a relation row.
+	 */
+	private static class RelationKey
+	{
+		final Object	predecessorId;
+		final Object	successorId;
+		final Object	relationType;
+		
+		
+		RelationKey(Object predecessorId, Object successorId, Object relationType)
+		{
+			this.predecessorId = predecessorId;
+			this.successorId = successorId;
+			this.relationType = relationType;
+		}
+		
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj)
+			{
+				return true;
+			}
+			if(!(obj instanceof RelationKey))
+			{
+				return false;
+			}
+			
+			RelationKey other = (RelationKey)obj;
+			return VirtualTableGanttRelationIndex.equals(predecessorId,other.predecessorId)
+					&& VirtualTableGanttRelationIndex.equals(successorId,other.successorId)
+					&& VirtualTableGanttRelationIndex.equals(relationType,other.relationType);
+		}
+		
+		
+		@Override
+		public int hashCode()
+		{
+			int hash = predecessorId != null ? predecessorId.hashCode() : 0;
+			hash = 31 * hash + (successorId != null ? successorId.hashCode() : 0);
+			hash = 31 * hash + (relationType != null ? relationType.hashCode() : 0);
+			return hash;
+		}
+	}
+}
@@ -94,6 +94,11 @@ public class XdevGanttEntryVTMappings<T>
 	 */
 	private VirtualTableColumn<?>		root;
 	
+	/**
+	 * the lazily created id to row index.
+	 */
+	private VirtualTableGanttEntryIndex	rowIndex;
+	
 	
 	/**
 	 * @return the id
@@ -207,4 +212,21 @@ public class XdevGanttEntryVTMappings<T>
 	{
 		this.root = root;
 	}
+	
+	
+	/**
+	 * Returns the maintained entry id to {@link VirtualTable} row index of
+	 * these mappings. The index is created on first access, the id column must
+	 * be set before.
+	 * 
+	 * @return the row index
+	 */
+	public VirtualTableGanttEntryIndex getRowIndex()
+	{
+		if(rowIndex == null)
+		{
+			rowIndex = new VirtualTableGanttEntryIndex(relatedVT,id);
+		}
+		return rowIndex;
+	}
 }
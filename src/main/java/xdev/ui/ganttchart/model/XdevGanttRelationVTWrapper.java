@@ -85,6 +85,11 @@ public class XdevGanttRelationVTWrapper
 	 */
 	VirtualTableColumn<?>		relationRoot;
 	
+	/**
+	 * the lazily created relation row index.
+	 */
+	private VirtualTableGanttRelationIndex	rowIndex;
+	
 	
 	/**
 	 * @return the id
@@ -160,4 +165,20 @@ public class XdevGanttRelationVTWrapper
 	{
 		this.relationRoot = relationRoot;
 	}
+	
+	
+	/**
+	 * Returns the maintained relation row index of these mappings. The index
+	 * is created on first access, the column mappings must be set before.
+	 * 
+	 * @return the relation row index
+	 */
+	public VirtualTableGanttRelationIndex getRowIndex()
+	{
+		if(rowIndex == null)
+		{
+			rowIndex = new VirtualTableGanttRelationIndex(this);
+		}
+		return rowIndex;
+	}
 }
@@ -18,8 +18,15 @@
 package xdev.ui.ganttchart.model;
 
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import xdev.ui.ganttchart.GanttModelUIInformation;
 import xdev.ui.ganttchart.UpdateableGanttEntry;
@@ -84,7 +91,8 @@ public class XdevVirtualTableGanttModel<T, S extends UpdateableGanttEntry<T>> ex
 	/**
 	 * All relationable stored {@link GanttEntry list} for relation purpose.
 	 */
-	private List<S>									relationEntries		= new ArrayList<S>();
+	private Set<S>									relationEntries		= Collections
+																				.newSetFromMap(new IdentityHashMap<S, Boolean>());
 	
 	
 	public XdevVirtualTableGanttModel(XdevGanttEntryVTMappings<T> dataContainer,
@@ -129,28 +137,31 @@ public class XdevVirtualTableGanttModel<T, S extends UpdateableGanttEntry<T>> ex
 	 * Creates a {@link List} containing tree structure like
 	 * {@link XdevVirtualTableGanttEntry}s - created from the given
 	 * {@link VirtualTable}.
+	 * <p>
+	 * The rows are grouped by their parent id in a single pass, the entry tree
+	 * is built from this index afterwards, so the construction time is linear
+	 * to the row count.
+	 * </p>
 	 * 
 	 * @return a {@link List} containing the {@link XdevVirtualTableGanttEntry}
 	 *         s.
 	 */
 	private List<S> createGanttEntryTree(XdevGanttEntryVTMappings<T> dataContainer)
 	{
-		IntList rootRows = new IntList();
 		List<S> entries = new ArrayList<S>();
 		
-		Object o;
-		
 		// sort asc by default
 		this.virtualTable.sortByCol(dataContainer.getId().getName(),true);
 		
-		for(int i = 0; i < virtualTable.getRowCount(); i++)
+		int idCol = this.virtualTable.getColumnIndex(dataContainer.getId());
+		int rootCol = this.virtualTable.getColumnIndex(dataContainer.getRoot());
+		
+		Map<Object, IntList> childRows = createChildRowIndex(rootCol);
+		
+		IntList rootRows = childRows.get(indexKey(this.getRootIdentifier()));
+		if(rootRows == null)
 		{
-			o = virtualTable.getValueAt(i,
-					this.virtualTable.getColumnIndex(this.dataContainer.getRoot()));
-			if(VirtualTable.equals(o,this.getRootIdentifier()))
-			{
-				rootRows.add(i);
-			}
+			return entries;
 		}
 		
 		for(int i = 0, c = rootRows.size(); i < c; i++)
@@ -164,10 +175,7 @@ public class XdevVirtualTableGanttModel<T, S extends UpdateableGanttEntry<T>> ex
 			// prepare relation data
 			relationEntries.add(mRoot);
 			
-			createTree(
-					mRoot,
-					virtualTable.getValueAt(rootRow,
-							this.virtualTable.getColumnIndex(this.dataContainer.getId())));
+			createTree(mRoot,virtualTable.getValueAt(rootRow,idCol),childRows,idCol);
 			
 			entries.add(mRoot);
 		}
@@ -175,6 +183,55 @@ public class XdevVirtualTableGanttModel<T, S extends UpdateableGanttEntry<T>> ex
 	}
 	
 	
+	/**
+	 * Groups all row indices of the {@link VirtualTable} by the value of their
+	 * root (parent id) column, keeping the row order within each group.
+	 * 
+	 * @param rootCol
+	 *            the index of the root column
+	 * @return the parent id to child rows index
+	 */
+	private Map<Object, IntList> createChildRowIndex(int rootCol)
+	{
+		int rowCount = this.virtualTable.getRowCount();
+		Map<Object, IntList> childRows = new HashMap<Object, IntList>();
+		
+		for(int row = 0; row < rowCount; row++)
+		{
+			Object parentId = indexKey(this.virtualTable.getValueAt(row,rootCol));
+			IntList rows = childRows.get(parentId);
+			if(rows == null)
+			{
+				rows = new IntList();
+				childRows.put(parentId,rows);
+			}
+			rows.add(row);
+		}
+		
+		return childRows;
+	}
+	
+	
+	/**
+	 * Returns the key used to store an id in the child row index. Integral
+	 * numbers are widened to {@link Long}, so differently typed id and root
+	 * columns still match each other.
+	 * 
+	 * @param id
+	 *            the id value
+	 * @return the index key
+	 */
+	private static Object indexKey(Object id)
+	{
+		if(id instanceof Integer || id instanceof Long || id instanceof Short
+				|| id instanceof Byte)
+		{
+			return ((Number)id).longValue();
+		}
+		return id;
+	}
+	
+	
 	/**
 	 * 
 	 * @param uiInformation
@@ -204,7 +261,7 @@ public class XdevVirtualTableGanttModel<T, S extends UpdateableGanttEntry<T>> ex
 	
 	
 	/**
-	 * Creates the tree hierarchy recursively. Used by
+	 * Creates the tree hierarchy below <code>owner</code>. Used by
 	 * {@link #createGanttEntryTree()}
 	 * 
 	 * @param owner
@@ -212,35 +269,50 @@ public class XdevVirtualTableGanttModel<T, S extends UpdateableGanttEntry<T>> ex
 	 * 
 	 * @param id
 	 *            the next child id.
+	 * 
+	 * @param childRows
+	 *            the parent id to child rows index
+	 * 
+	 * @param idCol
+	 *            the index of the id column
 	 */
-	private void createTree(S owner, Object id)
+	private void createTree(S owner, Object id, Map<Object, IntList> childRows, int idCol)
 	{
-		Object o;
+		// iterative traversal, deep hierarchies must not exhaust the stack
+		Deque<S> owners = new ArrayDeque<S>();
+		Deque<Integer> ownerRows = new ArrayDeque<Integer>();
 		
-		for(int row = 0; row < virtualTable.getRowCount(); row++)
+		IntList rows = childRows.get(indexKey(id));
+		while(true)
 		{
-			o = virtualTable.getValueAt(row,this.dataContainer.getRoot());
-			if(VirtualTable.equals(o,id))
+			if(rows != null)
 			{
-				
-				S node = mapper.dataToGanttEntry(virtualTable.getRow(row));
-				node.setExpandable(true);
-				node.setExpanded(true);
-				
-				// prepare relation data
-				if(!relationEntries.contains(node))
+				for(int i = 0, c = rows.size(); i < c; i++)
 				{
+					int row = rows.get(i);
+					
+					S node = mapper.dataToGanttEntry(virtualTable.getRow(row));
+					node.setExpandable(true);
+					node.setExpanded(true);
+					
+					// prepare relation data
 					relationEntries.add(node);
+					
+					owner.addChild(node);
+					
+					// continue traversing
+					owners.push(node);
+					ownerRows.push(row);
 				}
-				
-				owner.addChild(node);
-				
-				// continue traversing
-				createTree(
-						node,
-						virtualTable.getValueAt(row,
-								this.virtualTable.getColumnIndex(this.dataContainer.getId())));
 			}
+			
+			if(owners.isEmpty())
+			{
+				break;
+			}
+			
+			owner = owners.pop();
+			rows = childRows.get(indexKey(virtualTable.getValueAt(ownerRows.pop(),idCol)));
 		}
 	}
 	
@@ -18,7 +18,6 @@
 package xdev.ui.ganttchart.utils;
 
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -78,13 +77,10 @@ public class VirtualTableGanttPersistenceUtils
 	public static <S extends UpdateableGanttEntry<?>> VirtualTableRow getEntryRowAt(S entry,
 			XdevGanttEntryVTMappings<?> dataContainer) throws NullPointerException
 	{
-		for(int i = 0; i < dataContainer.getVirtualTable().getRowCount(); i++)
+		VirtualTableRow row = dataContainer.getRowIndex().getRow(entry.getId());
+		if(row != null)
 		{
-			if(dataContainer.getVirtualTable().getRow(i).get(dataContainer.getId())
-					.equals(entry.getId()))
-			{
-				return dataContainer.getVirtualTable().getRow(i);
-			}
+			return row;
 		}
 		
 		return dataContainer.getVirtualTable().createRow();
@@ -116,19 +112,7 @@ public class VirtualTableGanttPersistenceUtils
 	public static <S extends UpdateableGanttEntry<?>> List<VirtualTableRow> getEntryRelationRowsAt(
 			S entry, XdevGanttRelationVTWrapper relatCnt)
 	{
-		List<VirtualTableRow> relationRows = new ArrayList<VirtualTableRow>();
-		
-		for(int i = 0; i < relatCnt.getVirtualTable().getRowCount(); i++)
-		{
-			if(relatCnt.getVirtualTable().getRow(i).get(relatCnt.getEntryId())
-					.equals(entry.getId())
-					|| relatCnt.getVirtualTable().getRow(i).get(relatCnt.getRelationRoot())
-							.equals(entry.getId()))
-			{
-				relationRows.add(relatCnt.getVirtualTable().getRow(i));
-			}
-		}
-		return relationRows;
+		return relatCnt.getRowIndex().getRelationRows(entry.getId());
 	}
 	
 	
@@ -163,23 +147,16 @@ public class VirtualTableGanttPersistenceUtils
 			GanttEntryRelation<S> relation, XdevGanttRelationVTWrapper container)
 			throws NullPointerException
 	{
-		VirtualTable relationVt = container.getVirtualTable();
-		
 		S pre = relation.getPredecessorEntry();
 		S suc = relation.getSuccessorEntry();
 		int type = relation.getRelationType();
 		
-		for(int i = 0; i < relationVt.getRowCount(); i++)
+		// find nm-row
+		VirtualTableRow row = container.getRowIndex().getRelationRow(pre.getId(),suc.getId(),
+				type);
+		if(row != null)
 		{
-			VirtualTableRow currentRow = relationVt.getRow(i);
-			
-			// find nm-row
-			if(currentRow.get(container.getRelationRoot()).equals(pre.getId())
-					&& currentRow.get(container.getEntryId()).equals(suc.getId())
-					&& currentRow.get(container.getRelationType()).equals(type))
-			{
-				return currentRow;
-			}
+			return row;
 		}
 		throw new NullPointerException("No VirtualTableRow found for the given relation");
 	}
@@ -22,6 +22,7 @@ import javax.swing.JList;
 import javax.swing.ListModel;
 
 import xdev.ui.ItemListOwner;
+import xdev.ui.ModelWrapperResolutionCache;
 import xdev.vt.VirtualTable;
 
 import com.jidesoft.grid.QuickFilterField;
@@ -122,7 +123,7 @@ public class CSListBoxRowConverter extends DefaultListBoxRowConverter
 		if(row != -1)
 		{
 			ListModel outerModel = listbox.getModel();
-			ListModel innerModel = ListModelWrapperUtils.getActualListModel(outerModel,
+			ListModel innerModel = ModelWrapperResolutionCache.getActualListModel(outerModel,
 					ItemListOwner.class);
 			
 			if(innerModel != null && innerModel != outerModel)
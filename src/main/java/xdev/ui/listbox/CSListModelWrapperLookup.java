@@ -20,7 +20,7 @@ package xdev.ui.listbox;
 
 import javax.swing.ListModel;
 
-import com.jidesoft.list.ListModelWrapperUtils;
+import xdev.ui.ModelWrapperResolutionCache;
 
 
 public class CSListModelWrapperLookup extends DefaultListModelWrapperLookup
@@ -28,6 +28,6 @@ public class CSListModelWrapperLookup extends DefaultListModelWrapperLookup
 	@Override
 	public ListModel lookupListModel(ListModel outerModel, Class innerModelClass)
 	{
-		return ListModelWrapperUtils.getActualListModel(outerModel,innerModelClass);
+		return ModelWrapperResolutionCache.getActualListModel(outerModel,innerModelClass);
 	}
 }
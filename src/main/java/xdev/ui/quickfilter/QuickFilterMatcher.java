@@ -0,0 +1,199 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.quickfilter;
+
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.jidesoft.grid.QuickFilterField;
+
+
+/**
+ * Matches strings against the filter text of a {@link QuickFilterField}, with
+ * the field's {@link QuickFilterSearchMode}, {@link QuickFilterSearchOption}
+ * and case sensitivity at the time the matcher was created.
+ * <p>
+ * A matcher is immutable and may be used on any thread.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class QuickFilterMatcher
+{
+	private final Pattern	pattern;
+	private final String	text;
+	private final boolean	literal;
+	private final boolean	fromStart;
+	private final boolean	fromEnd;
+	private final boolean	caseSensitive;
+	
+	
+	private QuickFilterMatcher(Pattern pattern, String text, boolean literal, boolean fromStart,
+			boolean fromEnd, boolean caseSensitive)
+	{
+		this.pattern = pattern;
+		this.text = text;
+		this.literal = literal;
+		this.fromStart = fromStart;
+		this.fromEnd = fromEnd;
+		this.caseSensitive = caseSensitive;
+	}
+	
+	
+	/**
+	 * Creates a matcher for the current settings of <code>field</code>. Must
+	 * be called on the event dispatch thread.
+	 * 
+	 * @param field
+	 *            the filter field
+	 * @param text
+	 *            the filter text
+	 * @return the matcher
+	 * @throws PatternSyntaxException
+	 *             if the field's regex search is enabled and <code>text</code>
+	 *             is no valid regular expression
+	 */
+	public static QuickFilterMatcher create(QuickFilterField field, String text)
+			throws PatternSyntaxException
+	{
+		String regex;
+		boolean literal = false;
+		if(field.isRegexEnabled())
+		{
+			regex = text;
+		}
+		else if(field.isWildcardEnabled())
+		{
+			regex = wildcardToRegex(text);
+			literal = text.indexOf('*') < 0 && text.indexOf('?') < 0;
+		}
+		else
+		{
+			regex = Pattern.quote(text);
+			literal = true;
+		}
+		
+		boolean fromStart = field.isFromStart();
+		boolean fromEnd = field.isFromEnd();
+		if(fromStart)
+		{
+			regex = "^(?:" + regex + ")";
+		}
+		if(fromEnd)
+		{
+			regex = "(?:" + regex + ")$";
+		}
+		
+		boolean caseSensitive = field.isCaseSensitive();
+		int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+		return new QuickFilterMatcher(Pattern.compile(regex,flags),text,literal,fromStart,
+				fromEnd,caseSensitive);
+	}
+	
+	
+	private static String wildcardToRegex(String text)
+	{
+		StringBuilder regex = new StringBuilder(text.length() + 16);
+		int start = 0;
+		for(int i = 0; i < text.length(); i++)
+		{
+			char ch = text.charAt(i);
+			if(ch == '*' || ch == '?')
+			{
+				if(i > start)
+				{
+					regex.append(Pattern.quote(text.substring(start,i)));
+				}
+				regex.append(ch == '*' ? ".*" : ".");
+				start = i + 1;
+			}
+		}
+		if(start < text.length())
+		{
+			regex.append(Pattern.quote(text.substring(start)));
+		}
+		return regex.toString();
+	}
+	
+	
+	/**
+	 * Checks if <code>value</code> matches the filter text.
+	 * 
+	 * @param value
+	 *            the string representation of an element
+	 * @return <code>true</code> if the element is kept by the filter
+	 */
+	public boolean matches(String value)
+	{
+		return this.pattern.matcher(value != null ? value : "").find();
+	}
+	
+	
+	/**
+	 * Checks if every string matched by this matcher is matched by
+	 * <code>previous</code> as well, e.g. if the user has typed further. Only
+	 * literal texts with the same settings are compared, regular expressions
+	 * and wildcards never refine.
+	 * 
+	 * @param previous
+	 *            the matcher of the previous filter pass, may be
+	 *            <code>null</code>
+	 * @return <code>true</code> if the matches of <code>previous</code> can be
+	 *         narrowed instead of matching all elements again
+	 */
+	public boolean refines(QuickFilterMatcher previous)
+	{
+		if(previous == null || !this.literal || !previous.literal
+				|| this.fromStart != previous.fromStart || this.fromEnd != previous.fromEnd
+				|| this.caseSensitive != previous.caseSensitive)
+		{
+			return false;
+		}
+		
+		String text = this.text;
+		String previousText = previous.text;
+		if(!this.caseSensitive)
+		{
+			text = text.toLowerCase();
+			previousText = previousText.toLowerCase();
+			
+			// the regex matching folds char by char
+			if(text.length() != this.text.length()
+					|| previousText.length() != previous.text.length())
+			{
+				return false;
+			}
+		}
+		
+		if(this.fromStart && this.fromEnd)
+		{
+			return text.equals(previousText);
+		}
+		if(this.fromStart)
+		{
+			return text.startsWith(previousText);
+		}
+		if(this.fromEnd)
+		{
+			return text.endsWith(previousText);
+		}
+		return text.contains(previousText);
+	}
+}
@@ -0,0 +1,723 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.quickfilter;
+
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.PatternSyntaxException;
+
+import javax.swing.ListModel;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.tree.TreeModel;
+
+import xdev.util.logging.LoggerFactory;
+import xdev.util.logging.XdevLogger;
+
+import com.jidesoft.filter.AbstractFilter;
+import com.jidesoft.filter.Filter;
+import com.jidesoft.grid.QuickFilterField;
+import com.jidesoft.list.FilterableListModel;
+import com.jidesoft.tree.FilterableTreeModel;
+
+
+/**
+ * Debounces the filter passes of a quick filter field.
+ * <p>
+ * Every {@link #schedule(String)} restarts the delay, so only the text the
+ * user has stopped typing at is filtered; the passes of the texts in between
+ * are dropped. A delay of <code>0</code> and {@link #runImmediately(Runnable)}
+ * filter right away on the calling thread, as the fields did without a
+ * scheduler.
+ * </p>
+ * <p>
+ * With a {@link BackgroundFilterPass} the elements of a delayed pass are
+ * matched against the filter text by a background worker. Only the
+ * precomputed result is installed into the display model on the event
+ * dispatch thread. If the filter text refines the text of the previous pass,
+ * e.g. because the user has typed further, only the elements which matched
+ * before are matched again.
+ * </p>
+ * <p>
+ * The quick filter fields create their scheduler lazily, because the
+ * constructors of the JIDE fields already filter.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class QuickFilterScheduler implements Serializable
+{
+	private static final long	serialVersionUID	= -4190726409167528012L;
+	
+	private static final XdevLogger	log					= LoggerFactory
+															.getLogger(QuickFilterScheduler.class);
+	
+	
+	
+	/**
+	 * Performs the actual filter pass.
+	 */
+	public static interface FilterPass extends Serializable
+	{
+		/**
+		 * Filters with <code>text</code>.
+		 * 
+		 * @param text
+		 *            the filter text
+		 */
+		public void applyFilter(String text);
+	}
+	
+	
+	
+	/**
+	 * A filter pass whose matching can be computed in the background.
+	 * <p>
+	 * {@link #applyFilter(String)} is the regular pass of the field, it is used
+	 * for an empty filter text, an invalid regular expression or if
+	 * {@link #getElements()} returns <code>null</code>.
+	 * </p>
+	 */
+	public static interface BackgroundFilterPass extends FilterPass
+	{
+		/**
+		 * Returns a snapshot of the elements to filter, called on the event
+		 * dispatch thread.
+		 * 
+		 * @return the elements, or <code>null</code> to use the regular pass
+		 */
+		public Object[] getElements();
+		
+		
+		/**
+		 * Converts an element to the string which is matched, called on a
+		 * background thread.
+		 * 
+		 * @param element
+		 *            the element
+		 * @return the string representation of <code>element</code>
+		 */
+		public String convertElementToString(Object element);
+		
+		
+		/**
+		 * Adds <code>filter</code> to the display model, without refreshing
+		 * it.
+		 * 
+		 * @param filter
+		 *            the filter to add
+		 */
+		public void addFilter(Filter<?> filter);
+		
+		
+		/**
+		 * Removes <code>filter</code> from the display model, without
+		 * refreshing it.
+		 * 
+		 * @param filter
+		 *            the filter to remove
+		 */
+		public void removeFilter(Filter<?> filter);
+		
+		
+		/**
+		 * Refreshes the display model.
+		 */
+		public void refresh();
+		
+		
+		/**
+		 * Called after a filter pass has been applied.
+		 * 
+		 * @param text
+		 *            the filter text
+		 * @param filter
+		 *            the precomputed filter, <code>null</code> after a regular
+		 *            pass
+		 */
+		public void filterApplied(String text, Filter<?> filter);
+	}
+	
+	
+	
+	/**
+	 * {@link BackgroundFilterPass} of a list model.
+	 */
+	public static abstract class ListFilterPass implements BackgroundFilterPass
+	{
+		private static final long	serialVersionUID	= 6390582735125730178L;
+		
+		
+		/**
+		 * Returns the list model which is filtered.
+		 * 
+		 * @return the list model
+		 */
+		protected abstract ListModel getListModel();
+		
+		
+		/**
+		 * Returns the filtered display model.
+		 * 
+		 * @return the display model
+		 */
+		protected abstract ListModel getDisplayListModel();
+		
+		
+		@Override
+		public Object[] getElements()
+		{
+			ListModel listModel = getListModel();
+			if(listModel == null || !(getDisplayListModel() instanceof FilterableListModel))
+			{
+				return null;
+			}
+			
+			Object[] elements = new Object[listModel.getSize()];
+			for(int i = 0; i < elements.length; i++)
+			{
+				elements[i] = listModel.getElementAt(i);
+			}
+			return elements;
+		}
+		
+		
+		@Override
+		public void addFilter(Filter<?> filter)
+		{
+			((FilterableListModel)getDisplayListModel()).addFilter(filter);
+		}
+		
+		
+		@Override
+		public void removeFilter(Filter<?> filter)
+		{
+			ListModel displayModel = getDisplayListModel();
+			if(displayModel instanceof FilterableListModel)
+			{
+				((FilterableListModel)displayModel).removeFilter(filter);
+			}
+		}
+		
+		
+		@Override
+		public void refresh()
+		{
+			FilterableListModel displayModel = (FilterableListModel)getDisplayListModel();
+			displayModel.setFiltersApplied(true);
+			displayModel.refresh();
+		}
+		
+		
+		@Override
+		public void filterApplied(String text, Filter<?> filter)
+		{
+		}
+	}
+	
+	
+	
+	/**
+	 * {@link BackgroundFilterPass} of a tree model, the elements are the nodes
+	 * of the tree.
+	 */
+	public static abstract class TreeFilterPass implements BackgroundFilterPass
+	{
+		private static final long	serialVersionUID	= -2264785468893601735L;
+		
+		
+		/**
+		 * Returns the tree model which is filtered.
+		 * 
+		 * @return the tree model
+		 */
+		protected abstract TreeModel getTreeModel();
+		
+		
+		/**
+		 * Returns the filtered display model.
+		 * 
+		 * @return the display model
+		 */
+		protected abstract TreeModel getDisplayTreeModel();
+		
+		
+		@Override
+		public Object[] getElements()
+		{
+			TreeModel treeModel = getTreeModel();
+			if(treeModel == null || treeModel.getRoot() == null
+					|| !(getDisplayTreeModel() instanceof FilterableTreeModel))
+			{
+				return null;
+			}
+			
+			List<Object> nodes = new ArrayList<Object>();
+			List<Object> parents = new ArrayList<Object>();
+			parents.add(treeModel.getRoot());
+			while(!parents.isEmpty())
+			{
+				Object parent = parents.remove(parents.size() - 1);
+				nodes.add(parent);
+				
+				int childCount = treeModel.getChildCount(parent);
+				for(int i = childCount - 1; i >= 0; i--)
+				{
+					parents.add(treeModel.getChild(parent,i));
+				}
+			}
+			return nodes.toArray();
+		}
+		
+		
+		@Override
+		public void addFilter(Filter<?> filter)
+		{
+			((FilterableTreeModel)getDisplayTreeModel()).addFilter(filter);
+		}
+		
+		
+		@Override
+		public void removeFilter(Filter<?> filter)
+		{
+			TreeModel displayModel = getDisplayTreeModel();
+			if(displayModel instanceof FilterableTreeModel)
+			{
+				((FilterableTreeModel)displayModel).removeFilter(filter);
+			}
+		}
+		
+		
+		@Override
+		public void refresh()
+		{
+			FilterableTreeModel displayModel = (FilterableTreeModel)getDisplayTreeModel();
+			displayModel.setFiltersApplied(true);
+			displayModel.refresh();
+		}
+		
+		
+		@Override
+		public void filterApplied(String text, Filter<?> filter)
+		{
+		}
+	}
+	
+	
+	
+	/**
+	 * Hides all elements which did not match in the background pass. Elements
+	 * which were added since the snapshot are matched when they are filtered.
+	 */
+	private static class PrecomputedFilter extends AbstractFilter<Object>
+	{
+		private static final long				serialVersionUID	= 5316045717785632461L;
+		
+		private final Map<Object, Boolean>		matches;
+		private final QuickFilterMatcher		matcher;
+		private final BackgroundFilterPass		filterPass;
+		
+		
+		PrecomputedFilter(Map<Object, Boolean> matches, QuickFilterMatcher matcher,
+				BackgroundFilterPass filterPass)
+		{
+			this.matches = matches;
+			this.matcher = matcher;
+			this.filterPass = filterPass;
+		}
+		
+		
+		@Override
+		public boolean isValueFiltered(Object value)
+		{
+			Boolean matched = this.matches.get(value);
+			if(matched == null)
+			{
+				matched = this.matcher.matches(this.filterPass.convertElementToString(value));
+			}
+			return !matched;
+		}
+	}
+	
+	private final QuickFilterField								field;
+	private final FilterPass									filterPass;
+	private int													delay		= 0;
+	private transient Timer										timer;
+	private String												pendingText;
+	private boolean												immediate	= false;
+	private transient SwingWorker<Map<Object, Boolean>, Void>	worker;
+	private int													generation	= 0;
+	private transient PrecomputedFilter							precomputedFilter;
+	private transient QuickFilterMatcher						previousMatcher;
+	private transient Map<Object, Boolean>						previousMatches;
+	private boolean												background	= false;
+	
+	
+	/**
+	 * 
+	 * @param filterPass
+	 *            the actual filter pass
+	 */
+	public QuickFilterScheduler(FilterPass filterPass)
+	{
+		this(null,filterPass);
+	}
+	
+	
+	/**
+	 * 
+	 * @param field
+	 *            the field whose settings are used to match in the background
+	 * @param filterPass
+	 *            the actual filter pass, a {@link BackgroundFilterPass} to
+	 *            match in the background
+	 */
+	public QuickFilterScheduler(QuickFilterField field, FilterPass filterPass)
+	{
+		this.field = field;
+		this.filterPass = filterPass;
+	}
+	
+	
+	/**
+	 * Sets the debounce delay.
+	 * 
+	 * @param delay
+	 *            the delay in milliseconds, <code>0</code> to filter right
+	 *            away
+	 */
+	public void setDelay(int delay)
+	{
+		this.delay = Math.max(0,delay);
+		
+		if(this.delay == 0)
+		{
+			flush();
+		}
+	}
+	
+	
+	/**
+	 * Returns the debounce delay in milliseconds.
+	 * 
+	 * @return the delay
+	 */
+	public int getDelay()
+	{
+		return delay;
+	}
+	
+	
+	/**
+	 * Schedules a filter pass with <code>text</code>, which replaces a pending
+	 * one.
+	 * 
+	 * @param text
+	 *            the filter text
+	 */
+	public void schedule(String text)
+	{
+		if(delay == 0 || immediate)
+		{
+			cancel();
+			runFilterPass(text,false);
+			return;
+		}
+		
+		// the result of a running pass would be replaced anyway
+		cancelWorker();
+		pendingText = text;
+		
+		if(timer == null)
+		{
+			timer = new Timer(delay,new ActionListener()
+			{
+				@Override
+				public void actionPerformed(ActionEvent e)
+				{
+					runPendingFilterPass(true);
+				}
+			});
+			timer.setRepeats(false);
+		}
+		timer.setInitialDelay(delay);
+		timer.restart();
+	}
+	
+	
+	/**
+	 * Runs <code>runnable</code>, which filters right away on the calling
+	 * thread, without delay. A pending pass is dropped.
+	 * 
+	 * @param runnable
+	 *            the immediate filter call
+	 */
+	public void runImmediately(Runnable runnable)
+	{
+		cancel();
+		
+		boolean wasImmediate = immediate;
+		immediate = true;
+		try
+		{
+			runnable.run();
+		}
+		finally
+		{
+			immediate = wasImmediate;
+		}
+	}
+	
+	
+	/**
+	 * Performs the pending filter pass now on the calling thread, if any.
+	 */
+	public void flush()
+	{
+		runPendingFilterPass(false);
+	}
+	
+	
+	/**
+	 * Returns if the running filter pass is a delayed one, whose result may be
+	 * computed in the background. Passes with a delay of <code>0</code>,
+	 * {@link #flush()} and {@link #runImmediately(Runnable)} have to complete
+	 * before they return.
+	 * 
+	 * @return <code>true</code> while a delayed filter pass is running
+	 */
+	public boolean isBackgroundPass()
+	{
+		return background;
+	}
+	
+	
+	private void runPendingFilterPass(boolean background)
+	{
+		if(timer != null)
+		{
+			timer.stop();
+		}
+		
+		String text = pendingText;
+		if(text != null)
+		{
+			pendingText = null;
+			runFilterPass(text,background);
+		}
+	}
+	
+	
+	/**
+	 * Drops the pending filter pass and a running background pass, if any.
+	 */
+	public void cancel()
+	{
+		if(timer != null)
+		{
+			timer.stop();
+		}
+		pendingText = null;
+		
+		cancelWorker();
+	}
+	
+	
+	/**
+	 * Returns if a filter pass is pending.
+	 * 
+	 * @return <code>true</code> if a filter pass is pending
+	 */
+	public boolean isPending()
+	{
+		return pendingText != null || worker != null;
+	}
+	
+	
+	private void cancelWorker()
+	{
+		generation++;
+		
+		if(worker != null)
+		{
+			worker.cancel(true);
+			worker = null;
+		}
+	}
+	
+	
+	private void runFilterPass(final String text, boolean background)
+	{
+		cancelWorker();
+		
+		if(!(filterPass instanceof BackgroundFilterPass) || field == null)
+		{
+			boolean wasBackground = this.background;
+			this.background = background;
+			try
+			{
+				filterPass.applyFilter(text);
+			}
+			finally
+			{
+				this.background = wasBackground;
+			}
+			return;
+		}
+		
+		final BackgroundFilterPass backgroundPass = (BackgroundFilterPass)filterPass;
+		
+		Object[] snapshot = null;
+		QuickFilterMatcher textMatcher = null;
+		if(background && text != null && text.length() > 0)
+		{
+			try
+			{
+				textMatcher = QuickFilterMatcher.create(field,text);
+				snapshot = backgroundPass.getElements();
+			}
+			catch(PatternSyntaxException e)
+			{
+				// invalid regular expressions are handled by the regular pass
+			}
+		}
+		
+		if(snapshot == null)
+		{
+			removePrecomputedFilter();
+			backgroundPass.applyFilter(text);
+			backgroundPass.filterApplied(text,null);
+			return;
+		}
+		
+		final Object[] elements = snapshot;
+		final QuickFilterMatcher matcher = textMatcher;
+		final Map<Object, Boolean> previous = matcher.refines(previousMatcher) ? previousMatches
+				: null;
+		final int generation = this.generation;
+		
+		worker = new SwingWorker<Map<Object, Boolean>, Void>()
+		{
+			@Override
+			protected Map<Object, Boolean> doInBackground() throws Exception
+			{
+				Map<Object, Boolean> matches = new IdentityHashMap<Object, Boolean>(
+						elements.length);
+				for(Object element : elements)
+				{
+					if(isCancelled())
+					{
+						return null;
+					}
+					
+					// elements which did not match the previous text can't
+					// match the refined one
+					if(previous != null && Boolean.FALSE.equals(previous.get(element)))
+					{
+						matches.put(element,Boolean.FALSE);
+					}
+					else
+					{
+						matches.put(element,
+								matcher.matches(backgroundPass.convertElementToString(element)));
+					}
+				}
+				return matches;
+			}
+			
+			
+			@Override
+			protected void done()
+			{
+				if(isCancelled() || generation != QuickFilterScheduler.this.generation)
+				{
+					return;
+				}
+				
+				worker = null;
+				
+				try
+				{
+					Map<Object, Boolean> matches = get();
+					installPrecomputedFilter(text,new PrecomputedFilter(matches,matcher,
+							backgroundPass));
+					previousMatcher = matcher;
+					previousMatches = matches;
+				}
+				catch(InterruptedException e)
+				{
+					log.error(e);
+				}
+				catch(ExecutionException e)
+				{
+					log.error(e.getCause());
+					
+					removePrecomputedFilter();
+					backgroundPass.applyFilter(text);
+					backgroundPass.filterApplied(text,null);
+				}
+			}
+		};
+		worker.execute();
+	}
+	
+	
+	private void installPrecomputedFilter(String text, PrecomputedFilter filter)
+	{
+		BackgroundFilterPass backgroundPass = (BackgroundFilterPass)filterPass;
+		
+		if(precomputedFilter == null)
+		{
+			precomputedFilter = filter;
+			backgroundPass.addFilter(filter);
+			
+			// clears the regular filter, which refreshes the display model
+			backgroundPass.applyFilter("");
+		}
+		else
+		{
+			backgroundPass.removeFilter(precomputedFilter);
+			precomputedFilter = filter;
+			backgroundPass.addFilter(filter);
+			backgroundPass.refresh();
+		}
+		
+		backgroundPass.filterApplied(text,filter);
+	}
+	
+	
+	private void removePrecomputedFilter()
+	{
+		previousMatcher = null;
+		previousMatches = null;
+		
+		if(precomputedFilter != null)
+		{
+			((BackgroundFilterPass)filterPass).removeFilter(precomputedFilter);
+			precomputedFilter = null;
+		}
+	}
+}
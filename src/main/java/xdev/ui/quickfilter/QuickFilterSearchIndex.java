@@ -0,0 +1,603 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.quickfilter;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableAdapter;
+import xdev.vt.VirtualTableColumn;
+import xdev.vt.VirtualTableEvent;
+
+
+/**
+ * Search index over the formatted values of some columns of a
+ * {@link VirtualTable}, used by the indexed search of
+ * {@link xdev.ui.XdevQuickTableFilterField}.
+ * <p>
+ * For every column the index keeps a sorted map from the lower case values to
+ * their rows, which answers {@link QuickFilterSearchOption#MATCH_EXACTLY} and
+ * {@link QuickFilterSearchOption#MATCH_FROM_START} searches, and a trigram
+ * map for {@link QuickFilterSearchOption#MATCH_ANYWHERE} searches. The index
+ * only provides candidate rows, which are verified against the actual values
+ * afterwards.
+ * </p>
+ * <p>
+ * The index follows the row events of its {@link VirtualTable}. It is rebuilt
+ * lazily if the whole data or the structure of the {@link VirtualTable}
+ * changes.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class QuickFilterSearchIndex extends VirtualTableAdapter
+{
+	private final static int										GRAM_LENGTH		= 3;
+	
+	private final VirtualTable										vt;
+	private final VirtualTableColumn<?>[]							columns;
+	private final List<NavigableMap<String, Set<VirtualTableRow>>>	valueIndices;
+	private final List<Map<String, Set<VirtualTableRow>>>			gramIndices;
+	private final Map<VirtualTableRow, String[]>					indexedValues	= new IdentityHashMap<VirtualTableRow, String[]>();
+	private boolean													valid			= false;
+	private int														modificationCount	= 0;
+	
+	
+	/**
+	 * 
+	 * @param vt
+	 *            the {@link VirtualTable} to index
+	 * @param columns
+	 *            the columns to index
+	 */
+	public QuickFilterSearchIndex(VirtualTable vt, VirtualTableColumn<?>[] columns)
+	{
+		this.vt = vt;
+		this.columns = columns.clone();
+		this.valueIndices = new ArrayList<NavigableMap<String, Set<VirtualTableRow>>>(
+				columns.length);
+		this.gramIndices = new ArrayList<Map<String, Set<VirtualTableRow>>>(columns.length);
+		for(int i = 0; i < columns.length; i++)
+		{
+			valueIndices.add(new TreeMap<String, Set<VirtualTableRow>>());
+			gramIndices.add(new HashMap<String, Set<VirtualTableRow>>());
+		}
+		
+		vt.addVirtualTableListener(this);
+	}
+	
+	
+	/**
+	 * Returns the indexed {@link VirtualTable}.
+	 * 
+	 * @return the {@link VirtualTable}
+	 */
+	public VirtualTable getVirtualTable()
+	{
+		return vt;
+	}
+	
+	
+	/**
+	 * Returns the indexed columns.
+	 * 
+	 * @return the indexed columns
+	 */
+	public VirtualTableColumn<?>[] getColumns()
+	{
+		return columns.clone();
+	}
+	
+	
+	/**
+	 * Returns a counter which is incremented on every change of the index.
+	 * Results of {@link #search(String, VirtualTableColumn[], QuickFilterSearchOption, boolean)}
+	 * are up to date as long as this counter doesn't change.
+	 * 
+	 * @return the modification count
+	 */
+	public int getModificationCount()
+	{
+		return modificationCount;
+	}
+	
+	
+	/**
+	 * Stops following the changes of the {@link VirtualTable} and discards the
+	 * index.
+	 */
+	public void dispose()
+	{
+		vt.removeVirtualTableListener(this);
+		clear();
+	}
+	
+	
+	/**
+	 * Converts a value of the {@link VirtualTable} into the string the user
+	 * searches for.
+	 * 
+	 * @param value
+	 *            a value of an indexed column
+	 * @return the string representation of <code>value</code>
+	 */
+	protected String toString(Object value)
+	{
+		return value != null ? String.valueOf(value) : "";
+	}
+	
+	
+	/**
+	 * Returns the rows whose value in at least one of <code>columns</code>
+	 * matches <code>text</code>.
+	 * 
+	 * @param text
+	 *            the searched text
+	 * @param columns
+	 *            the searched columns, <code>null</code> for all indexed
+	 *            columns; columns which are not indexed are ignored
+	 * @param option
+	 *            how <code>text</code> has to match
+	 * @param caseSensitive
+	 *            <code>true</code> for a case sensitive search
+	 * @return the matching rows, compared by identity
+	 */
+	public Set<VirtualTableRow> search(String text, VirtualTableColumn<?>[] columns,
+			QuickFilterSearchOption option, boolean caseSensitive)
+	{
+		ensureValid();
+		
+		Set<VirtualTableRow> result = newRowSet();
+		String key = text.toLowerCase();
+		
+		for(int position = 0; position < this.columns.length; position++)
+		{
+			if(columns != null && !Arrays.asList(columns).contains(this.columns[position]))
+			{
+				continue;
+			}
+			
+			for(VirtualTableRow row : candidates(position,key,option))
+			{
+				if(!result.contains(row)
+						&& matches(indexedValues.get(row)[position],text,option,caseSensitive))
+				{
+					result.add(row);
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	
+	/**
+	 * Returns a task which narrows the result of a previous search: it
+	 * returns the rows of <code>rows</code> whose value in at least one of
+	 * <code>columns</code> matches <code>text</code>.
+	 * <p>
+	 * The values of <code>rows</code> are copied on the calling thread, the
+	 * returned task may run on any thread.
+	 * </p>
+	 * 
+	 * @param rows
+	 *            the result of a previous search
+	 * @param text
+	 *            the searched text, a refinement of the previous one
+	 * @param columns
+	 *            the searched columns, <code>null</code> for all indexed
+	 *            columns
+	 * @param option
+	 *            how <code>text</code> has to match
+	 * @param caseSensitive
+	 *            <code>true</code> for a case sensitive search
+	 * @return the narrowing task
+	 */
+	public Callable<Set<VirtualTableRow>> narrow(Set<VirtualTableRow> rows, String text,
+			VirtualTableColumn<?>[] columns, QuickFilterSearchOption option, boolean caseSensitive)
+	{
+		ensureValid();
+		
+		return createVerification(rows,text,columns,option,caseSensitive);
+	}
+	
+	
+	/**
+	 * Returns a task which performs {@link #search(String, VirtualTableColumn[],
+	 * QuickFilterSearchOption, boolean)}.
+	 * <p>
+	 * Only the candidate rows of the index and their values are collected on
+	 * the calling thread, the returned task verifies them and may run on any
+	 * thread.
+	 * </p>
+	 * 
+	 * @param text
+	 *            the searched text
+	 * @param columns
+	 *            the searched columns, <code>null</code> for all indexed
+	 *            columns; columns which are not indexed are ignored
+	 * @param option
+	 *            how <code>text</code> has to match
+	 * @param caseSensitive
+	 *            <code>true</code> for a case sensitive search
+	 * @return the search task
+	 */
+	public Callable<Set<VirtualTableRow>> prepareSearch(String text,
+			VirtualTableColumn<?>[] columns, QuickFilterSearchOption option, boolean caseSensitive)
+	{
+		ensureValid();
+		
+		String key = text.toLowerCase();
+		Set<VirtualTableRow> candidates;
+		if(option == QuickFilterSearchOption.MATCH_ANYWHERE && key.length() < GRAM_LENGTH)
+		{
+			// short keys would have to scan all values, which is left to the task
+			candidates = indexedValues.keySet();
+		}
+		else
+		{
+			candidates = newRowSet();
+			for(int position = 0; position < this.columns.length; position++)
+			{
+				if(columns == null || Arrays.asList(columns).contains(this.columns[position]))
+				{
+					for(VirtualTableRow row : candidates(position,key,option))
+					{
+						candidates.add(row);
+					}
+				}
+			}
+		}
+		
+		return createVerification(candidates,text,columns,option,caseSensitive);
+	}
+	
+	
+	/**
+	 * Copies the values of <code>rows</code> and returns a task which matches
+	 * them against <code>text</code>.
+	 */
+	private Callable<Set<VirtualTableRow>> createVerification(Set<VirtualTableRow> rows,
+			final String text, VirtualTableColumn<?>[] columns,
+			final QuickFilterSearchOption option, final boolean caseSensitive)
+	{
+		int positionCount = 0;
+		final int[] positions = new int[this.columns.length];
+		for(int position = 0; position < this.columns.length; position++)
+		{
+			if(columns == null || Arrays.asList(columns).contains(this.columns[position]))
+			{
+				positions[positionCount++] = position;
+			}
+		}
+		final int searchedPositionCount = positionCount;
+		
+		final List<VirtualTableRow> candidates = new ArrayList<VirtualTableRow>(rows.size());
+		final List<String[]> candidateValues = new ArrayList<String[]>(rows.size());
+		for(VirtualTableRow row : rows)
+		{
+			String[] values = indexedValues.get(row);
+			if(values != null)
+			{
+				candidates.add(row);
+				candidateValues.add(values);
+			}
+		}
+		
+		return new Callable<Set<VirtualTableRow>>()
+		{
+			@Override
+			public Set<VirtualTableRow> call() throws Exception
+			{
+				Set<VirtualTableRow> result = newRowSet();
+				for(int i = 0, c = candidates.size(); i < c; i++)
+				{
+					if(Thread.interrupted())
+					{
+						throw new InterruptedException();
+					}
+					
+					String[] values = candidateValues.get(i);
+					for(int p = 0; p < searchedPositionCount; p++)
+					{
+						if(matches(values[positions[p]],text,option,caseSensitive))
+						{
+							result.add(candidates.get(i));
+							break;
+						}
+					}
+				}
+				return result;
+			}
+		};
+	}
+	
+	
+	private Iterable<VirtualTableRow> candidates(int position, String key,
+			QuickFilterSearchOption option)
+	{
+		NavigableMap<String, Set<VirtualTableRow>> valueIndex = valueIndices.get(position);
+		
+		switch(option)
+		{
+			case MATCH_EXACTLY:
+			{
+				Set<VirtualTableRow> rows = valueIndex.get(key);
+				return rows != null ? rows : Collections.<VirtualTableRow> emptySet();
+			}
+			
+			case MATCH_FROM_START:
+			{
+				return union(valueIndex.subMap(key,true,key + Character.MAX_VALUE,true).values());
+			}
+			
+			case MATCH_ANYWHERE:
+			{
+				if(key.length() < GRAM_LENGTH)
+				{
+					List<Set<VirtualTableRow>> matching = new ArrayList<Set<VirtualTableRow>>();
+					for(Map.Entry<String, Set<VirtualTableRow>> entry : valueIndex.entrySet())
+					{
+						if(entry.getKey().contains(key))
+						{
+							matching.add(entry.getValue());
+						}
+					}
+					return union(matching);
+				}
+				
+				// the rarest trigram of the key limits the candidates
+				Map<String, Set<VirtualTableRow>> gramIndex = gramIndices.get(position);
+				Set<VirtualTableRow> rarest = null;
+				for(int i = 0; i + GRAM_LENGTH <= key.length(); i++)
+				{
+					Set<VirtualTableRow> rows = gramIndex.get(key.substring(i,i + GRAM_LENGTH));
+					if(rows == null)
+					{
+						return Collections.emptySet();
+					}
+					if(rarest == null || rows.size() < rarest.size())
+					{
+						rarest = rows;
+					}
+				}
+				return rarest;
+			}
+			
+			default:
+				throw new EnumConstantNotPresentException(QuickFilterSearchOption.class,
+						String.valueOf(option));
+		}
+	}
+	
+	
+	private static Set<VirtualTableRow> union(Iterable<Set<VirtualTableRow>> sets)
+	{
+		Set<VirtualTableRow> union = newRowSet();
+		for(Set<VirtualTableRow> set : sets)
+		{
+			union.addAll(set);
+		}
+		return union;
+	}
+	
+	
+	private static boolean matches(String value, String text, QuickFilterSearchOption option,
+			boolean caseSensitive)
+	{
+		if(!caseSensitive)
+		{
+			value = value.toLowerCase();
+			text = text.toLowerCase();
+		}
+		
+		switch(option)
+		{
+			case MATCH_EXACTLY:
+				return value.equals(text);
+				
+			case MATCH_FROM_START:
+				return value.startsWith(text);
+				
+			default:
+				return value.contains(text);
+		}
+	}
+	
+	
+	private static Set<VirtualTableRow> newRowSet()
+	{
+		return Collections.newSetFromMap(new IdentityHashMap<VirtualTableRow, Boolean>());
+	}
+	
+	
+	private void ensureValid()
+	{
+		if(!valid)
+		{
+			clear();
+			
+			for(int i = 0, c = vt.getRowCount(); i < c; i++)
+			{
+				add(vt.getRow(i));
+			}
+			
+			valid = true;
+		}
+	}
+	
+	
+	private void clear()
+	{
+		indexedValues.clear();
+		for(int i = 0; i < columns.length; i++)
+		{
+			valueIndices.get(i).clear();
+			gramIndices.get(i).clear();
+		}
+		
+		valid = false;
+		modificationCount++;
+	}
+	
+	
+	private void add(VirtualTableRow row)
+	{
+		String[] values = new String[columns.length];
+		for(int position = 0; position < columns.length; position++)
+		{
+			String value = toString(row.get(columns[position]));
+			values[position] = value;
+			
+			String key = value.toLowerCase();
+			addRow(valueIndices.get(position),key,row);
+			
+			Map<String, Set<VirtualTableRow>> gramIndex = gramIndices.get(position);
+			for(int i = 0; i + GRAM_LENGTH <= key.length(); i++)
+			{
+				addRow(gramIndex,key.substring(i,i + GRAM_LENGTH),row);
+			}
+		}
+		indexedValues.put(row,values);
+		
+		modificationCount++;
+	}
+	
+	
+	private void remove(VirtualTableRow row)
+	{
+		String[] values = indexedValues.remove(row);
+		if(values == null)
+		{
+			return;
+		}
+		
+		for(int position = 0; position < columns.length; position++)
+		{
+			String key = values[position].toLowerCase();
+			removeRow(valueIndices.get(position),key,row);
+			
+			Map<String, Set<VirtualTableRow>> gramIndex = gramIndices.get(position);
+			for(int i = 0; i + GRAM_LENGTH <= key.length(); i++)
+			{
+				removeRow(gramIndex,key.substring(i,i + GRAM_LENGTH),row);
+			}
+		}
+		
+		modificationCount++;
+	}
+	
+	
+	private static void addRow(Map<String, Set<VirtualTableRow>> index, String key,
+			VirtualTableRow row)
+	{
+		Set<VirtualTableRow> rows = index.get(key);
+		if(rows == null)
+		{
+			rows = newRowSet();
+			index.put(key,rows);
+		}
+		rows.add(row);
+	}
+	
+	
+	private static void removeRow(Map<String, Set<VirtualTableRow>> index, String key,
+			VirtualTableRow row)
+	{
+		Set<VirtualTableRow> rows = index.get(key);
+		if(rows != null && rows.remove(row) && rows.isEmpty())
+		{
+			index.remove(key);
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowInserted(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			add(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowUpdated(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			remove(event.getRow());
+			add(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowDeleted(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			remove(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableDataChanged(VirtualTableEvent event)
+	{
+		valid = false;
+		modificationCount++;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableStructureChanged(VirtualTableEvent event)
+	{
+		valid = false;
+		modificationCount++;
+	}
+}
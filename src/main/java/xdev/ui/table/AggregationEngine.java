@@ -0,0 +1,72 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import xdev.vt.VirtualTable;
+
+
+/**
+ * Computes grouped aggregates of a {@link VirtualTable}, for example the
+ * summaries of an {@link xdev.ui.XdevAggregateTable}.
+ * <p>
+ * Engines compute in the background and publish each
+ * {@link AggregationResult} as a whole, listeners are notified on the event
+ * dispatch thread.
+ * </p>
+ * 
+ * @see ForkJoinAggregationEngine
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public interface AggregationEngine
+{
+	/**
+	 * Starts aggregating <code>vt</code> and keeps the result up to date until
+	 * {@link #stop()} is called.
+	 * 
+	 * @param vt
+	 *            the data to aggregate
+	 * @param groupColumns
+	 *            the indices of the columns to group by, may be empty
+	 * @param valueColumns
+	 *            the indices of the columns to aggregate
+	 */
+	public void start(VirtualTable vt, int[] groupColumns, int[] valueColumns);
+	
+	
+	/**
+	 * Stops aggregating, running computations are discarded.
+	 */
+	public void stop();
+	
+	
+	/**
+	 * Returns the last published result.
+	 * 
+	 * @return the result, or <code>null</code> if nothing has been computed yet
+	 */
+	public AggregationResult getResult();
+	
+	
+	public void addAggregationListener(AggregationListener listener);
+	
+	
+	public void removeAggregationListener(AggregationListener listener);
+}
@@ -0,0 +1,53 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import java.util.EventObject;
+
+
+/**
+ * Event fired by an {@link AggregationEngine} when it has published a new
+ * result.
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class AggregationEvent extends EventObject
+{
+	private static final long			serialVersionUID	= 1L;
+	
+	private final AggregationResult	result;
+	
+	
+	public AggregationEvent(AggregationEngine source, AggregationResult result)
+	{
+		super(source);
+		
+		this.result = result;
+	}
+	
+	
+	/**
+	 * @return the published result
+	 */
+	public AggregationResult getResult()
+	{
+		return this.result;
+	}
+}
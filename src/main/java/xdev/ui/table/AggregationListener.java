@@ -0,0 +1,41 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import java.util.EventListener;
+
+
+/**
+ * Listener which is notified when an {@link AggregationEngine} publishes a new
+ * result.
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public interface AggregationListener extends EventListener
+{
+	/**
+	 * Invoked on the event dispatch thread after a new result has been
+	 * published.
+	 * 
+	 * @param event
+	 *            the event containing the new result
+	 */
+	public void aggregationChanged(AggregationEvent event);
+}
@@ -0,0 +1,283 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * An immutable snapshot of the aggregates computed by an
+ * {@link AggregationEngine}.
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class AggregationResult
+{
+	/**
+	 * The aggregates of one value column within one group.
+	 */
+	public static class Aggregate
+	{
+		private final long		count;
+		private final double	sum;
+		private final double	min;
+		private final double	max;
+		
+		
+		public Aggregate(long count, double sum, double min, double max)
+		{
+			this.count = count;
+			this.sum = sum;
+			this.min = min;
+			this.max = max;
+		}
+		
+		
+		/**
+		 * @return the count of non-null values
+		 */
+		public long getCount()
+		{
+			return this.count;
+		}
+		
+		
+		/**
+		 * @return the sum of all values
+		 */
+		public double getSum()
+		{
+			return this.sum;
+		}
+		
+		
+		/**
+		 * @return the smallest value, or {@link Double#NaN} if there is no
+		 *         value
+		 */
+		public double getMin()
+		{
+			return this.count > 0 ? this.min : Double.NaN;
+		}
+		
+		
+		/**
+		 * @return the largest value, or {@link Double#NaN} if there is no
+		 *         value
+		 */
+		public double getMax()
+		{
+			return this.count > 0 ? this.max : Double.NaN;
+		}
+		
+		
+		/**
+		 * @return the average of all values, or {@link Double#NaN} if there is
+		 *         no value
+		 */
+		public double getAverage()
+		{
+			return this.count > 0 ? this.sum / this.count : Double.NaN;
+		}
+		
+		
+		/**
+		 * Combines the aggregates of two disjoint sets of values.
+		 * 
+		 * @param other
+		 *            the aggregates of the other values
+		 * @return the aggregates of both sets of values
+		 */
+		public Aggregate merge(Aggregate other)
+		{
+			return new Aggregate(this.count + other.count,this.sum + other.sum,Math.min(
+					this.min,other.min),Math.max(this.max,other.max));
+		}
+		
+		
+		@Override
+		public String toString()
+		{
+			return "count=" + this.count + ", sum=" + this.sum + ", min=" + getMin() + ", max="
+					+ getMax();
+		}
+	}
+	
+	private final int[]							groupColumns;
+	private final int[]							valueColumns;
+	private final Map<List<Object>, Aggregate[]>	groups;
+	private final Aggregate[]					grandTotal;
+	
+	/**
+	 * The merged aggregates of the group prefixes by prefix length, built
+	 * lazily.
+	 */
+	private final Map<Integer, Map<List<Object>, Aggregate[]>>	prefixGroups	= new HashMap<Integer, Map<List<Object>, Aggregate[]>>();
+	
+	
+	/**
+	 * Creates a new result.
+	 * 
+	 * @param groupColumns
+	 *            the indices of the grouped columns
+	 * @param valueColumns
+	 *            the indices of the aggregated columns
+	 * @param groups
+	 *            the aggregates of every group, in the order of the
+	 *            <code>valueColumns</code>; the map is not copied
+	 * @param grandTotal
+	 *            the aggregates of all rows
+	 */
+	public AggregationResult(int[] groupColumns, int[] valueColumns,
+			Map<List<Object>, Aggregate[]> groups, Aggregate[] grandTotal)
+	{
+		this.groupColumns = groupColumns.clone();
+		this.valueColumns = valueColumns.clone();
+		this.groups = Collections.unmodifiableMap(groups);
+		this.grandTotal = grandTotal;
+	}
+	
+	
+	/**
+	 * @return the indices of the grouped columns
+	 */
+	public int[] getGroupColumns()
+	{
+		return this.groupColumns.clone();
+	}
+	
+	
+	/**
+	 * @return the indices of the aggregated columns
+	 */
+	public int[] getValueColumns()
+	{
+		return this.valueColumns.clone();
+	}
+	
+	
+	/**
+	 * Returns the values of the grouped columns of all groups, in the order
+	 * of their first occurrence.
+	 * 
+	 * @return all groups
+	 */
+	public List<List<Object>> getGroups()
+	{
+		return new ArrayList<List<Object>>(this.groups.keySet());
+	}
+	
+	
+	/**
+	 * Returns the aggregates of a value column within a group.
+	 * <p>
+	 * If <code>group</code> holds less values than there are grouped columns,
+	 * it denotes a super group, e.g. the subtotal of the first grouped column,
+	 * and the aggregates of all its groups are combined.
+	 * </p>
+	 * 
+	 * @param group
+	 *            the values of the grouped columns
+	 * @param valueColumn
+	 *            the index of the aggregated column
+	 * @return the aggregates, or <code>null</code> if the group or the column
+	 *         is unknown
+	 */
+	public Aggregate getAggregate(List<Object> group, int valueColumn)
+	{
+		Aggregate[] aggregates = group.size() < this.groupColumns.length ? getPrefixAggregates(group)
+				: this.groups.get(group);
+		int index = indexOf(valueColumn);
+		if(aggregates == null || index == -1)
+		{
+			return null;
+		}
+		return aggregates[index];
+	}
+	
+	
+	/**
+	 * Returns the aggregates of a value column over all rows.
+	 * 
+	 * @param valueColumn
+	 *            the index of the aggregated column
+	 * @return the aggregates, or <code>null</code> if the column is unknown
+	 */
+	public Aggregate getGrandTotal(int valueColumn)
+	{
+		int index = indexOf(valueColumn);
+		return index != -1 ? this.grandTotal[index] : null;
+	}
+	
+	
+	private Aggregate[] getPrefixAggregates(List<Object> prefix)
+	{
+		int length = prefix.size();
+		if(length == 0)
+		{
+			return this.grandTotal;
+		}
+		
+		synchronized(this.prefixGroups)
+		{
+			Map<List<Object>, Aggregate[]> merged = this.prefixGroups.get(length);
+			if(merged == null)
+			{
+				merged = new HashMap<List<Object>, Aggregate[]>();
+				for(Map.Entry<List<Object>, Aggregate[]> entry : this.groups.entrySet())
+				{
+					List<Object> key = entry.getKey().subList(0,length);
+					Aggregate[] aggregates = merged.get(key);
+					if(aggregates == null)
+					{
+						merged.put(key,entry.getValue().clone());
+					}
+					else
+					{
+						Aggregate[] groupAggregates = entry.getValue();
+						for(int i = 0; i < aggregates.length; i++)
+						{
+							aggregates[i] = aggregates[i].merge(groupAggregates[i]);
+						}
+					}
+				}
+				this.prefixGroups.put(length,merged);
+			}
+			return merged.get(prefix);
+		}
+	}
+	
+	
+	private int indexOf(int valueColumn)
+	{
+		for(int i = 0; i < this.valueColumns.length; i++)
+		{
+			if(this.valueColumns[i] == valueColumn)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+}
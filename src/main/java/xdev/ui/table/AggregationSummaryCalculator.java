@@ -0,0 +1,389 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import xdev.ui.table.AggregationResult.Aggregate;
+
+import com.jidesoft.pivot.DefaultSummaryCalculator;
+import com.jidesoft.pivot.PivotConstants;
+import com.jidesoft.pivot.PivotField;
+import com.jidesoft.pivot.PivotValueProvider;
+import com.jidesoft.pivot.Values;
+
+
+/**
+ * {@link com.jidesoft.pivot.SummaryCalculator} which answers the summaries of
+ * a pivot model from the published {@link AggregationResult} of an
+ * {@link AggregationEngine}, instead of collecting and computing the values of
+ * every cell on the event dispatch thread.
+ * <p>
+ * Sums, counts, minimums, maximums and averages of the engine's value columns
+ * are answered by live values, which read the current result whenever they
+ * are displayed. A newly published result therefore only needs a repaint, the
+ * pivot model doesn't have to be calculated again. Until the first result is
+ * available the live values are empty.
+ * </p>
+ * <p>
+ * For every other summary type, for fields which the result doesn't cover and
+ * while no engine is active, the values are computed by the
+ * {@link DefaultSummaryCalculator}.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class AggregationSummaryCalculator extends DefaultSummaryCalculator
+{
+	private static final int	UNDECIDED	= 0;
+	private static final int	LIVE		= 1;
+	private static final int	COMPUTED	= 2;
+	
+	private AggregationResult	result;
+	private int[]				modelColumns;
+	
+	// state of the current cell
+	private int					mode		= UNDECIDED;
+	private List<Object>		group;
+	private int					modelIndex;
+	private boolean				integral;
+	private int					count;
+	
+	
+	/**
+	 * Sets the result to answer the summaries from.
+	 * 
+	 * @param result
+	 *            the published result, or <code>null</code> if the engine
+	 *            hasn't published yet
+	 * @param modelColumns
+	 *            the {@link xdev.vt.VirtualTable} column index of every column
+	 *            of the pivot's source model, or <code>null</code> if no
+	 *            engine is active and all summaries are computed
+	 */
+	public void setResult(AggregationResult result, int[] modelColumns)
+	{
+		this.result = result;
+		this.modelColumns = modelColumns;
+	}
+	
+	
+	/**
+	 * Returns the result the summaries are answered from.
+	 * 
+	 * @return the result, or <code>null</code>
+	 */
+	public AggregationResult getResult()
+	{
+		return this.result;
+	}
+	
+	
+	/**
+	 * Checks if the summaries of the supported fields are answered from the
+	 * engine's result.
+	 * 
+	 * @return <code>true</code> if an engine is active
+	 */
+	public boolean isActive()
+	{
+		return this.modelColumns != null;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear()
+	{
+		super.clear();
+		
+		this.mode = UNDECIDED;
+		this.group = null;
+		this.count = 0;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addValue(PivotValueProvider dataModel, PivotField field, Values rowValues,
+			Values columnValues, Object object)
+	{
+		if(this.mode == UNDECIDED)
+		{
+			// the first value of a cell decides where its summaries come from
+			this.mode = decide(field,rowValues) ? LIVE : COMPUTED;
+		}
+		
+		if(this.mode == COMPUTED)
+		{
+			super.addValue(dataModel,field,rowValues,columnValues,object);
+		}
+		else if(object != null)
+		{
+			// the values themselves are aggregated by the engine
+			this.count++;
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getCount()
+	{
+		if(this.mode == LIVE)
+		{
+			return this.count;
+		}
+		
+		return super.getCount();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getSummaryResult(int type)
+	{
+		if(this.mode != LIVE)
+		{
+			return super.getSummaryResult(type);
+		}
+		
+		return new SummaryValue(this,this.group,this.modelIndex,type,this.integral);
+	}
+	
+	
+	private boolean decide(PivotField field, Values rowValues)
+	{
+		if(this.modelColumns == null || !isSupported(field))
+		{
+			return false;
+		}
+		
+		int modelIndex = field.getModelIndex();
+		if(modelIndex < 0 || modelIndex >= this.modelColumns.length)
+		{
+			return false;
+		}
+		
+		int count = rowValues != null ? rowValues.getCount() : 0;
+		List<Object> group = new ArrayList<Object>(count);
+		for(int i = 0; i < count; i++)
+		{
+			group.add(rowValues.getValueAt(i).getValue());
+		}
+		
+		Class<?> type = field.getType();
+		
+		this.group = group;
+		this.modelIndex = modelIndex;
+		this.integral = type == Integer.class || type == Long.class || type == Short.class
+				|| type == Byte.class;
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the aggregate of the current result, or <code>null</code>.
+	 */
+	private Aggregate getAggregate(List<Object> group, int modelIndex)
+	{
+		if(this.result == null || this.modelColumns == null
+				|| modelIndex >= this.modelColumns.length)
+		{
+			return null;
+		}
+		
+		return this.result.getAggregate(group,this.modelColumns[modelIndex]);
+	}
+	
+	
+	/**
+	 * Checks if all summaries of <code>field</code> can be answered from the
+	 * result.
+	 */
+	private static boolean isSupported(PivotField field)
+	{
+		if(!isSupported(field.getSummaryType()) || !isSupported(field.getGrandTotalSummaryType()))
+		{
+			return false;
+		}
+		
+		int[] customSubtotals = field.getCustomSubtotals();
+		if(customSubtotals != null)
+		{
+			for(int type : customSubtotals)
+			{
+				if(!isSupported(type))
+				{
+					return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	
+	private static boolean isSupported(int type)
+	{
+		switch(type)
+		{
+			case PivotConstants.SUMMARY_COUNT:
+			case PivotConstants.SUMMARY_SUM:
+			case PivotConstants.SUMMARY_MIN:
+			case PivotConstants.SUMMARY_MAX:
+			case PivotConstants.SUMMARY_MEAN:
+				return true;
+			
+			default:
+				return false;
+		}
+	}
+	
+	
+	
+	/**
+	 * A summary of one cell, which is read from the calculator's current
+	 * result.
+	 */
+	private static class SummaryValue extends Number
+	{
+		private static final long					serialVersionUID	= 4480262617412034786L;
+		
+		private final AggregationSummaryCalculator	calculator;
+		private final List<Object>					group;
+		private final int							modelIndex;
+		private final int							type;
+		private final boolean						integral;
+		
+		
+		SummaryValue(AggregationSummaryCalculator calculator, List<Object> group,
+				int modelIndex, int type, boolean integral)
+		{
+			this.calculator = calculator;
+			this.group = group;
+			this.modelIndex = modelIndex;
+			this.type = type;
+			this.integral = integral;
+		}
+		
+		
+		/**
+		 * Returns integral columns' values as {@link Long}, like the default
+		 * calculator, other values as {@link Double}.
+		 * 
+		 * @return the current value, or <code>null</code>
+		 */
+		Number get()
+		{
+			Aggregate aggregate = this.calculator.getAggregate(this.group,this.modelIndex);
+			if(aggregate == null)
+			{
+				return null;
+			}
+			
+			double value;
+			switch(this.type)
+			{
+				case PivotConstants.SUMMARY_COUNT:
+					return (int)aggregate.getCount();
+				
+				case PivotConstants.SUMMARY_SUM:
+					value = aggregate.getSum();
+				break;
+				
+				case PivotConstants.SUMMARY_MIN:
+					value = aggregate.getMin();
+				break;
+				
+				case PivotConstants.SUMMARY_MAX:
+					value = aggregate.getMax();
+				break;
+				
+				case PivotConstants.SUMMARY_MEAN:
+					double average = aggregate.getAverage();
+					return Double.isNaN(average) ? null : average;
+				
+				default:
+					// excluded by isSupported
+					return null;
+			}
+			
+			if(Double.isNaN(value))
+			{
+				return null;
+			}
+			if(this.integral)
+			{
+				return (long)value;
+			}
+			return value;
+		}
+		
+		
+		@Override
+		public int intValue()
+		{
+			Number value = get();
+			return value != null ? value.intValue() : 0;
+		}
+		
+		
+		@Override
+		public long longValue()
+		{
+			Number value = get();
+			return value != null ? value.longValue() : 0;
+		}
+		
+		
+		@Override
+		public float floatValue()
+		{
+			Number value = get();
+			return value != null ? value.floatValue() : Float.NaN;
+		}
+		
+		
+		@Override
+		public double doubleValue()
+		{
+			Number value = get();
+			return value != null ? value.doubleValue() : Double.NaN;
+		}
+		
+		
+		@Override
+		public String toString()
+		{
+			Number value = get();
+			return value != null ? value.toString() : "";
+		}
+	}
+}
@@ -19,7 +19,9 @@ package xdev.ui.table;
 
 
 import javax.swing.JTable;
+import javax.swing.table.TableModel;
 
+import xdev.ui.ModelWrapperResolutionCache;
 import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTableWrapper;
 
@@ -54,7 +56,7 @@ public class CSTableColumnConverter extends DefaultTableColumnConverter
 	{
 		column = super.viewToModel(table,column);
 		
-		if(TableModelWrapperUtils.getActualTableModel(table.getModel(),
+		if(ModelWrapperResolutionCache.getActualTableModel(table.getModel(),
 				VirtualTableWrapper.class) != null)
 		{
 			column = TableModelWrapperUtils.getActualColumnAt(table.getModel(),column,
@@ -73,11 +75,11 @@ public class CSTableColumnConverter extends DefaultTableColumnConverter
 	{
 		column = super.modelToView(table,column);
 		
-		if(TableModelWrapperUtils.getActualTableModel(table.getModel(),
-				VirtualTableWrapper.class) != null)
+		TableModel wrapper = ModelWrapperResolutionCache.getActualTableModel(table.getModel(),
+				VirtualTableWrapper.class);
+		if(wrapper != null)
 		{
-			column = TableModelWrapperUtils.getColumnAt(table.getModel(),TableModelWrapperUtils
-					.getActualTableModel(table.getModel(),VirtualTableWrapper.class),column);
+			column = TableModelWrapperUtils.getColumnAt(table.getModel(),wrapper,column);
 		}
 		
 		return column;
@@ -20,7 +20,7 @@ package xdev.ui.table;
 
 import javax.swing.table.TableModel;
 
-import com.jidesoft.grid.TableModelWrapperUtils;
+import xdev.ui.ModelWrapperResolutionCache;
 
 
 public class CSTableModelWrapperLookup extends DefaultTableModelWrapperLookup
@@ -34,6 +34,6 @@ public class CSTableModelWrapperLookup extends DefaultTableModelWrapperLookup
 			return model;
 		}
 		
-		return TableModelWrapperUtils.getActualTableModel(outerModel,innerModelClass);
+		return ModelWrapperResolutionCache.getActualTableModel(outerModel,innerModelClass);
 	}
 }
@@ -21,6 +21,7 @@ package xdev.ui.table;
 import javax.swing.JTable;
 import javax.swing.table.TableModel;
 
+import xdev.ui.ModelWrapperResolutionCache;
 import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTableModel;
 import xdev.vt.VirtualTableWrapper;
@@ -43,6 +44,10 @@ import com.jidesoft.grid.TableModelWrapperUtils;
  * level.
  * </p>
  * </p>
+ * <p>
+ * Conversions of {@link JideTable}s are answered by a cached row mapping per
+ * table, which is invalidated by the model events of the wrapper chain.
+ * </p>
  * 
  * @author XDEV Software
  * 
@@ -90,8 +95,9 @@ public class CSTableRowConverter extends DefaultTableRowConverter
 			// use Jide functionality to convert from a virtual table model to
 			// view index
 			
-			int subModelRow = TableModelWrapperUtils.getActualRowAt(table.getModel(),row,
-					VirtualTableWrapper.class);
+			int subModelRow = table instanceof JideTable ? CSTableRowMapping.get(table)
+					.viewToModel(row) : TableModelWrapperUtils.getActualRowAt(table.getModel(),
+					row,VirtualTableWrapper.class);
 			
 			if(subModelRow != -1)
 			{
@@ -138,7 +144,18 @@ public class CSTableRowConverter extends DefaultTableRowConverter
 		if(row != -1)
 		{
 			TableModel outerModel = table.getModel();
-			TableModel wrapper = TableModelWrapperUtils.getActualTableModel(outerModel,
+			
+			if(table instanceof JideTable)
+			{
+				CSTableRowMapping mapping = CSTableRowMapping.get(table);
+				TableModel wrapper = mapping.getWrapper();
+				if(wrapper != null && wrapper != outerModel)
+				{
+					return mapping.modelToView(row);
+				}
+			}
+			
+			TableModel wrapper = ModelWrapperResolutionCache.getActualTableModel(outerModel,
 					VirtualTableWrapper.class);
 			if(wrapper != null && wrapper != outerModel)
 			{
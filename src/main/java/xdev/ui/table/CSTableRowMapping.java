@@ -0,0 +1,477 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.JTable;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+
+import xdev.vt.VirtualTableWrapper;
+
+import com.jidesoft.grid.FilterableTableModel;
+import com.jidesoft.grid.ISortableTableModel;
+import com.jidesoft.grid.TableModelWrapper;
+import com.jidesoft.grid.TableModelWrapperUtils;
+
+
+/**
+ * Cached row mapping between the outer model of a {@link JTable} and its
+ * wrapped {@link VirtualTableWrapper}.
+ * <p>
+ * Resolving a row through {@link TableModelWrapperUtils} walks the whole
+ * wrapper chain and may scan sorted or filtered wrappers. This mapping
+ * resolves all rows once and keeps a forward and an inverse permutation
+ * array, so a conversion is a single array read.
+ * </p>
+ * <p>
+ * Inserted and deleted rows of the outer model and of the
+ * {@link VirtualTableWrapper} are patched into the arrays, the inserted rows
+ * of the outer model are resolved on the next conversion. Bounded updates of
+ * other models leave the mapping as it is. The arrays are rebuilt lazily
+ * after updates of sorting or filtering models, which may reorder or hide
+ * rows, after inserted or deleted rows of the models in between, after any
+ * other {@link TableModelEvent} and after the table's model has been
+ * replaced.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ * @see CSTableRowConverter
+ */
+class CSTableRowMapping implements TableModelListener, PropertyChangeListener
+{
+	private final static Object	CLIENT_PROPERTY_KEY	= CSTableRowMapping.class;
+	
+	/**
+	 * Outer row which has been inserted but not resolved yet.
+	 */
+	private final static int	PENDING				= -2;
+	
+	/**
+	 * Outer row whose wrapper row has been deleted.
+	 */
+	private final static int	STALE				= -3;
+	
+	
+	/**
+	 * Returns the mapping of <code>table</code>, which is created on demand.
+	 * 
+	 * @param table
+	 *            the table
+	 * @return the row mapping of the table
+	 */
+	static CSTableRowMapping get(JTable table)
+	{
+		Object property = table.getClientProperty(CLIENT_PROPERTY_KEY);
+		if(property instanceof CSTableRowMapping)
+		{
+			return (CSTableRowMapping)property;
+		}
+		
+		CSTableRowMapping mapping = new CSTableRowMapping(table);
+		table.putClientProperty(CLIENT_PROPERTY_KEY,mapping);
+		return mapping;
+	}
+	
+	private final JTable			table;
+	private final List<TableModel>	observedModels	= new ArrayList<TableModel>();
+	private TableModel				outerModel;
+	private TableModel				wrapper;
+	private int[]					viewToModel;
+	private int[]					modelToView;
+	private boolean					valid			= false;
+	private boolean					unresolved		= false;
+	
+	
+	private CSTableRowMapping(JTable table)
+	{
+		this.table = table;
+		
+		table.addPropertyChangeListener("model",this);
+	}
+	
+	
+	/**
+	 * Returns the row of the {@link VirtualTableWrapper} which is displayed in
+	 * the outer model's row <code>row</code>.
+	 * 
+	 * @param row
+	 *            the row of the outer model
+	 * @return the wrapper's row or <code>-1</code>
+	 */
+	int viewToModel(int row)
+	{
+		ensureValid();
+		
+		if(row >= 0 && row < this.viewToModel.length)
+		{
+			return this.viewToModel[row];
+		}
+		
+		return TableModelWrapperUtils.getActualRowAt(this.table.getModel(),row,
+				VirtualTableWrapper.class);
+	}
+	
+	
+	/**
+	 * Returns the outer model's row which displays the
+	 * {@link VirtualTableWrapper}'s row <code>row</code>.
+	 * 
+	 * @param row
+	 *            the row of the wrapper
+	 * @return the outer model's row or <code>-1</code>
+	 */
+	int modelToView(int row)
+	{
+		ensureValid();
+		
+		if(row >= 0 && row < this.modelToView.length)
+		{
+			return this.modelToView[row];
+		}
+		
+		if(this.wrapper == null)
+		{
+			return -1;
+		}
+		
+		return TableModelWrapperUtils.getRowAt(this.outerModel,this.wrapper,row);
+	}
+	
+	
+	/**
+	 * Returns the {@link VirtualTableWrapper} of the table's wrapper chain.
+	 * 
+	 * @return the wrapper or <code>null</code>
+	 */
+	TableModel getWrapper()
+	{
+		ensureValid();
+		
+		return this.wrapper;
+	}
+	
+	
+	private void ensureValid()
+	{
+		TableModel model = this.table.getModel();
+		if(this.valid && model == this.outerModel
+				&& this.viewToModel.length == model.getRowCount() && resolve())
+		{
+			return;
+		}
+		
+		if(model != this.outerModel)
+		{
+			observe(model);
+		}
+		
+		this.wrapper = TableModelWrapperUtils.getActualTableModel(model,VirtualTableWrapper.class);
+		
+		if(this.wrapper == null || this.wrapper == model)
+		{
+			this.viewToModel = new int[0];
+			this.modelToView = new int[0];
+		}
+		else
+		{
+			int viewCount = model.getRowCount();
+			int[] viewToModel = new int[viewCount];
+			int[] modelToView = new int[this.wrapper.getRowCount()];
+			Arrays.fill(modelToView,-1);
+			
+			for(int viewRow = 0; viewRow < viewCount; viewRow++)
+			{
+				int modelRow = TableModelWrapperUtils.getActualRowAt(model,viewRow,
+						VirtualTableWrapper.class);
+				viewToModel[viewRow] = modelRow;
+				if(modelRow >= 0 && modelRow < modelToView.length)
+				{
+					modelToView[modelRow] = viewRow;
+				}
+			}
+			
+			this.viewToModel = viewToModel;
+			this.modelToView = modelToView;
+		}
+		
+		this.valid = true;
+		this.unresolved = false;
+	}
+	
+	
+	/**
+	 * Resolves the inserted outer rows.
+	 * 
+	 * @return <code>false</code> if the mapping has to be rebuilt
+	 */
+	private boolean resolve()
+	{
+		if(!this.unresolved)
+		{
+			return true;
+		}
+		
+		if(this.wrapper == null || this.modelToView.length != this.wrapper.getRowCount())
+		{
+			return false;
+		}
+		
+		for(int viewRow = 0; viewRow < this.viewToModel.length; viewRow++)
+		{
+			int modelRow = this.viewToModel[viewRow];
+			if(modelRow == STALE)
+			{
+				return false;
+			}
+			
+			if(modelRow == PENDING)
+			{
+				modelRow = TableModelWrapperUtils.getActualRowAt(this.outerModel,viewRow,
+						VirtualTableWrapper.class);
+				this.viewToModel[viewRow] = modelRow;
+				if(modelRow >= 0 && modelRow < this.modelToView.length)
+				{
+					this.modelToView[modelRow] = viewRow;
+				}
+			}
+		}
+		
+		this.unresolved = false;
+		return true;
+	}
+	
+	
+	private void observe(TableModel model)
+	{
+		for(TableModel observed : this.observedModels)
+		{
+			observed.removeTableModelListener(this);
+		}
+		this.observedModels.clear();
+		
+		this.outerModel = model;
+		
+		while(model != null && !this.observedModels.contains(model))
+		{
+			model.addTableModelListener(this);
+			this.observedModels.add(model);
+			
+			model = model instanceof TableModelWrapper ? ((TableModelWrapper)model)
+					.getActualModel() : null;
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void tableChanged(TableModelEvent e)
+	{
+		if(!this.valid)
+		{
+			return;
+		}
+		
+		int firstRow = e.getFirstRow();
+		int lastRow = e.getLastRow();
+		if(firstRow == TableModelEvent.HEADER_ROW || lastRow == Integer.MAX_VALUE
+				|| firstRow < 0 || lastRow < firstRow)
+		{
+			this.valid = false;
+			return;
+		}
+		
+		Object source = e.getSource();
+		if(e.getType() == TableModelEvent.UPDATE)
+		{
+			// a sorting or filtering model may move or hide the updated rows
+			if(source instanceof ISortableTableModel || source instanceof FilterableTableModel)
+			{
+				this.valid = false;
+			}
+			return;
+		}
+		
+		if(this.wrapper == null || this.wrapper == this.outerModel)
+		{
+			this.valid = false;
+			return;
+		}
+		
+		/*
+		 * Both sides are patched independently, so the order of the events
+		 * does not matter. The rows of the models in between may be mapped in
+		 * any way, so their changes can't be patched.
+		 */
+		int count = lastRow - firstRow + 1;
+		if(source == this.outerModel)
+		{
+			if(e.getType() == TableModelEvent.INSERT)
+			{
+				insertViewRows(firstRow,count);
+			}
+			else
+			{
+				deleteViewRows(firstRow,count);
+			}
+		}
+		else if(source == this.wrapper)
+		{
+			if(e.getType() == TableModelEvent.INSERT)
+			{
+				insertModelRows(firstRow,count);
+			}
+			else
+			{
+				deleteModelRows(firstRow,count);
+			}
+		}
+		else
+		{
+			this.valid = false;
+		}
+	}
+	
+	
+	private void insertViewRows(int firstRow, int count)
+	{
+		if(firstRow > this.viewToModel.length)
+		{
+			this.valid = false;
+			return;
+		}
+		
+		this.viewToModel = insert(this.viewToModel,firstRow,count,PENDING);
+		for(int i = 0; i < this.modelToView.length; i++)
+		{
+			if(this.modelToView[i] >= firstRow)
+			{
+				this.modelToView[i] += count;
+			}
+		}
+		this.unresolved = true;
+	}
+	
+	
+	private void deleteViewRows(int firstRow, int count)
+	{
+		if(firstRow + count > this.viewToModel.length)
+		{
+			this.valid = false;
+			return;
+		}
+		
+		for(int i = 0; i < this.modelToView.length; i++)
+		{
+			int viewRow = this.modelToView[i];
+			if(viewRow >= firstRow + count)
+			{
+				this.modelToView[i] = viewRow - count;
+			}
+			else if(viewRow >= firstRow)
+			{
+				this.modelToView[i] = -1;
+			}
+		}
+		this.viewToModel = remove(this.viewToModel,firstRow,count);
+	}
+	
+	
+	private void insertModelRows(int firstRow, int count)
+	{
+		if(firstRow > this.modelToView.length)
+		{
+			this.valid = false;
+			return;
+		}
+		
+		for(int i = 0; i < this.viewToModel.length; i++)
+		{
+			if(this.viewToModel[i] >= firstRow)
+			{
+				this.viewToModel[i] += count;
+			}
+		}
+		this.modelToView = insert(this.modelToView,firstRow,count,-1);
+	}
+	
+	
+	private void deleteModelRows(int firstRow, int count)
+	{
+		if(firstRow + count > this.modelToView.length)
+		{
+			this.valid = false;
+			return;
+		}
+		
+		for(int i = 0; i < this.viewToModel.length; i++)
+		{
+			int modelRow = this.viewToModel[i];
+			if(modelRow >= firstRow + count)
+			{
+				this.viewToModel[i] = modelRow - count;
+			}
+			else if(modelRow >= firstRow)
+			{
+				// removed by the outer model's event, otherwise rebuilt
+				this.viewToModel[i] = STALE;
+				this.unresolved = true;
+			}
+		}
+		this.modelToView = remove(this.modelToView,firstRow,count);
+	}
+	
+	
+	private static int[] insert(int[] array, int index, int count, int value)
+	{
+		int[] newArray = new int[array.length + count];
+		System.arraycopy(array,0,newArray,0,index);
+		Arrays.fill(newArray,index,index + count,value);
+		System.arraycopy(array,index,newArray,index + count,array.length - index);
+		return newArray;
+	}
+	
+	
+	private static int[] remove(int[] array, int index, int count)
+	{
+		int[] newArray = new int[array.length - count];
+		System.arraycopy(array,0,newArray,0,index);
+		System.arraycopy(array,index + count,newArray,index,array.length - index - count);
+		return newArray;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void propertyChange(PropertyChangeEvent evt)
+	{
+		this.valid = false;
+	}
+}
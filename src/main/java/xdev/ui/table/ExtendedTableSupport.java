@@ -20,23 +20,34 @@ package xdev.ui.table;
 
 import java.awt.Color;
 import java.beans.Beans;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.CellEditor;
 import javax.swing.JTable;
+import javax.swing.SwingWorker;
+import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumnModel;
 import javax.swing.table.TableModel;
 
+import xdev.db.DBException;
+import xdev.db.sql.Condition;
 import xdev.db.sql.SELECT;
 import xdev.ui.MasterDetailComponent;
+import xdev.ui.ModelWrapperResolutionCache;
 import xdev.ui.TableSupport;
 import xdev.ui.persistence.Persistable;
 import xdev.util.IntList;
 import xdev.util.XdevDate;
+import xdev.util.logging.LoggerFactory;
+import xdev.util.logging.XdevLogger;
 import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTableColumn;
+import xdev.vt.VirtualTableException;
 import xdev.vt.VirtualTableModel;
 import xdev.vt.VirtualTableWrapper;
 import xdev.vt.XdevBlob;
@@ -100,9 +111,24 @@ public class ExtendedTableSupport<T extends SortableTable & MasterDetailComponen
 			boolean.class,String.class,XdevClob.class,XdevBlob.class,byte[].class,Date.class,
 			XdevDate.class																	};
 	
+	private static final XdevLogger								log							= LoggerFactory
+																									.getLogger(ExtendedTableSupport.class);
+	
 	private SortableTablePageControl<T>							pageControl					= null;
 	private VirtualTableSortableTableLazyLoadingTableModel<T>	lazyLoadingTableModel		= null;
 	
+	/**
+	 * The currently running background load, or <code>null</code>.
+	 */
+	private SwingWorker<List<List<Object>>, Void>				modelLoader					= null;
+	
+	/**
+	 * Incremented by every load request, used to discard superseded results.
+	 */
+	private int													modelLoadGeneration			= 0;
+	
+	private TableLoadingOverlay									loadingOverlay				= null;
+	
 	static
 	{
 		if(!Beans.isDesignTime())
@@ -142,6 +168,19 @@ public class ExtendedTableSupport<T extends SortableTable & MasterDetailComponen
 		table.setTableHeader(tableHeader);
 		
 		setTableHeaderPopupMenuEnabled(true);
+		
+		table.addPropertyChangeListener("model",
+				ModelWrapperResolutionCache.getModelChangeListener());
+		
+		// a model set directly at the table supersedes a running load as well
+		table.addPropertyChangeListener("model",new PropertyChangeListener()
+		{
+			@Override
+			public void propertyChange(PropertyChangeEvent evt)
+			{
+				cancelModelLoading();
+			}
+		});
 	}
 	
 	
@@ -379,10 +418,10 @@ public class ExtendedTableSupport<T extends SortableTable & MasterDetailComponen
 	{
 		TableModel outerTableModel = this.table.getModel();
 		
-		VirtualTableWrapper wrapper = (VirtualTableWrapper)TableModelWrapperUtils
+		VirtualTableWrapper wrapper = (VirtualTableWrapper)ModelWrapperResolutionCache
 				.getActualTableModel(outerTableModel,VirtualTableWrapper.class);
 		
-		XdevTreeTableModel xdevTreeTableModel = (XdevTreeTableModel)TableModelWrapperUtils
+		XdevTreeTableModel xdevTreeTableModel = (XdevTreeTableModel)ModelWrapperResolutionCache
 				.getActualTableModel(outerTableModel,XdevTreeTableModel.class);
 		
 		if(wrapper == null && xdevTreeTableModel == null)
@@ -560,14 +599,64 @@ public class ExtendedTableSupport<T extends SortableTable & MasterDetailComponen
 	}
 	
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setModel(VirtualTable vt)
+	{
+		cancelModelLoading();
+		
+		super.setModel(vt);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setModel(VirtualTable vt, String columns, boolean queryData)
+	{
+		cancelModelLoading();
+		
+		super.setModel(vt,columns,queryData);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setModel(VirtualTable vt, String columns, boolean queryData,
+			boolean selectiveQuery)
+	{
+		cancelModelLoading();
+		
+		super.setModel(vt,columns,queryData,selectiveQuery);
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void setModel(VirtualTable vt, String columns, SELECT select, Object... params)
 	{
+		cancelModelLoading();
+		
 		super.setModel(vt,columns,select,params);
+		installModelWrapper();
+	}
+	
+	
+	private void installModelWrapper()
+	{
 		TableModel vtModel = table.getModel();
+		if(vtModel instanceof XdevTableModelWrapper)
+		{
+			return;
+		}
+		
 		XdevTableModelWrapper wrapper = new XdevTableModelWrapper(vtModel);
 		
 		// forced to use flags induced by lazy loading API - see XDEVAPI-189
@@ -582,13 +671,233 @@ public class ExtendedTableSupport<T extends SortableTable & MasterDetailComponen
 		// forced to use flags induced by lazy loading API - see XDEVAPI-189
 		if(lazyLoadingEnabled && !pagingEnabled)
 		{
-			ISortableTableModel sortableModel = (ISortableTableModel)TableModelWrapperUtils
+			ISortableTableModel sortableModel = (ISortableTableModel)ModelWrapperResolutionCache
 					.getActualTableModel(component.getModel(),ISortableTableModel.class);
 			this.getLazyLoadingTableModel().setConcreteModel(sortableModel);
 		}
 	}
 	
 	
+	/**
+	 * Like {@link #setModel(VirtualTable, String, SELECT, Object...)}, but
+	 * executes the query in a background thread, so the event dispatch thread
+	 * is not blocked while the database is working.
+	 * <p>
+	 * The result is fetched into a detached copy of <code>vt</code>. Only
+	 * after the query has finished the rows are transferred into
+	 * <code>vt</code> and the table model is installed on the event dispatch
+	 * thread. Meanwhile a loading indicator is shown over the table.
+	 * </p>
+	 * <p>
+	 * A load which is superseded by another call of this method, any
+	 * synchronous <code>setModel</code>, a model set directly at the table,
+	 * {@link #updateModel(Condition, Object...)} or {@link #clearModel()} is
+	 * cancelled and its result is discarded.
+	 * </p>
+	 * <p>
+	 * If paging or lazy loading is enabled the data is fetched on demand
+	 * anyway and the model is set synchronously.
+	 * </p>
+	 * 
+	 * @param vt
+	 *            the {@link VirtualTable} to display
+	 * @param columns
+	 *            the columns to display
+	 * @param select
+	 *            the query to execute
+	 * @param params
+	 *            the parameters of the query
+	 * @since 4.0
+	 */
+	public void setModelAsync(final VirtualTable vt, final String columns, final SELECT select,
+			final Object... params)
+	{
+		if(pagingEnabled || lazyLoadingEnabled)
+		{
+			setModel(vt,columns,select,params);
+			return;
+		}
+		
+		cancelModelLoading();
+		
+		final int generation = this.modelLoadGeneration;
+		final VirtualTable buffer = vt.clone(false);
+		
+		this.modelLoader = new SwingWorker<List<List<Object>>, Void>()
+		{
+			@Override
+			protected List<List<Object>> doInBackground() throws Exception
+			{
+				buffer.queryAndFill(select,params);
+				
+				// read the values here, the EDT only has to add the rows
+				int rowCount = buffer.getRowCount();
+				int columnCount = buffer.getColumnCount();
+				List<List<Object>> rows = new ArrayList<List<Object>>(rowCount);
+				for(int row = 0; row < rowCount && !isCancelled(); row++)
+				{
+					List<Object> values = new ArrayList<Object>(columnCount);
+					for(int col = 0; col < columnCount; col++)
+					{
+						values.add(buffer.getValueAt(row,col));
+					}
+					rows.add(values);
+				}
+				return rows;
+			}
+			
+			
+			@Override
+			protected void done()
+			{
+				if(isCancelled() || generation != modelLoadGeneration)
+				{
+					return;
+				}
+				
+				modelLoader = null;
+				hideLoadingOverlay();
+				
+				try
+				{
+					modelLoaded(vt,get(),buffer,columns);
+				}
+				catch(InterruptedException e)
+				{
+					log.error(e);
+				}
+				catch(ExecutionException e)
+				{
+					// the query failed, vt is unchanged
+					log.error(e.getCause());
+				}
+			}
+		};
+		
+		showLoadingOverlay();
+		this.modelLoader.execute();
+	}
+	
+	
+	/**
+	 * Transfers the loaded rows into <code>vt</code> and installs the model.
+	 * <p>
+	 * This has to happen on the EDT: <code>vt</code> may be shared with other
+	 * components, which are notified by its events, and the
+	 * {@link VirtualTableModel} is created by {@link TableSupport}.
+	 * </p>
+	 */
+	private void modelLoaded(VirtualTable vt, List<List<Object>> rows, VirtualTable buffer,
+			String columns)
+	{
+		// Detach the table from vt while the rows are transferred, otherwise
+		// the table would be updated for every single row.
+		table.setModel(new DefaultTableModel());
+		
+		vt.clear();
+		try
+		{
+			for(List<Object> values : rows)
+			{
+				vt.addRow(values,false);
+			}
+		}
+		catch(VirtualTableException e)
+		{
+			log.error(e);
+		}
+		catch(DBException e)
+		{
+			log.error(e);
+		}
+		finally
+		{
+			// the table shows what has been transferred in any case
+			vt.setLastQuery(buffer.getLastQuery());
+			
+			super.setModel(vt,columns,false);
+			installModelWrapper();
+		}
+	}
+	
+	
+	/**
+	 * Returns <code>true</code> if a model is currently loaded in the
+	 * background.
+	 * 
+	 * @return <code>true</code> if a background load is running
+	 * @see #setModelAsync(VirtualTable, String, SELECT, Object...)
+	 * @since 4.0
+	 */
+	public boolean isModelLoading()
+	{
+		return this.modelLoader != null;
+	}
+	
+	
+	/**
+	 * Cancels the currently running background load, if any. The result of a
+	 * cancelled load is discarded.
+	 * 
+	 * @see #setModelAsync(VirtualTable, String, SELECT, Object...)
+	 * @since 4.0
+	 */
+	public void cancelModelLoading()
+	{
+		this.modelLoadGeneration++;
+		
+		if(this.modelLoader != null)
+		{
+			this.modelLoader.cancel(true);
+			this.modelLoader = null;
+			hideLoadingOverlay();
+		}
+	}
+	
+	
+	private void showLoadingOverlay()
+	{
+		if(this.loadingOverlay == null)
+		{
+			this.loadingOverlay = new TableLoadingOverlay(table);
+		}
+		this.loadingOverlay.showOverlay();
+	}
+	
+	
+	private void hideLoadingOverlay()
+	{
+		if(this.loadingOverlay != null)
+		{
+			this.loadingOverlay.hideOverlay();
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void updateModel(Condition condition, Object... params)
+	{
+		cancelModelLoading();
+		
+		super.updateModel(condition,params);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clearModel()
+	{
+		cancelModelLoading();
+		
+		super.clearModel();
+	}
+	
+	
 	/**
 	 * Configures a {@link TableStyleProvider} for supporting alternating colors
 	 * for table rows.
@@ -754,7 +1063,7 @@ public class ExtendedTableSupport<T extends SortableTable & MasterDetailComponen
 	 */
 	private static int getColumnIndexNoException(TableModel model, String columnName)
 	{
-		model = TableModelWrapperUtils.getActualTableModel(model,VirtualTableWrapper.class);
+		model = ModelWrapperResolutionCache.getActualTableModel(model,VirtualTableWrapper.class);
 		if(model instanceof VirtualTableWrapper)
 		{
 			VirtualTableWrapper wrapper = (VirtualTableWrapper)model;
@@ -783,7 +1092,7 @@ public class ExtendedTableSupport<T extends SortableTable & MasterDetailComponen
 	 */
 	private static int getModelColumnIndex(JTable table, String columnName)
 	{
-		TableModel model = TableModelWrapperUtils.getActualTableModel(table.getModel(),
+		TableModel model = ModelWrapperResolutionCache.getActualTableModel(table.getModel(),
 				VirtualTableWrapper.class);
 		
 		if(model instanceof VirtualTableWrapper)
@@ -0,0 +1,714 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.EventListenerList;
+
+import xdev.ui.table.AggregationResult.Aggregate;
+import xdev.util.logging.LoggerFactory;
+import xdev.util.logging.XdevLogger;
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableAdapter;
+import xdev.vt.VirtualTableColumn;
+import xdev.vt.VirtualTableEvent;
+
+
+/**
+ * {@link AggregationEngine} which computes the aggregates on a
+ * {@link ForkJoinPool}.
+ * <p>
+ * The rows are aggregated in chunks in parallel, the chunks are merged
+ * afterwards. If the {@link VirtualTable} changes while computing, the
+ * computation is discarded and restarted. Once computed, inserted, updated
+ * and deleted rows are applied to the aggregates incrementally; only removing
+ * the minimum or maximum of a group requires a new computation.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class ForkJoinAggregationEngine extends VirtualTableAdapter implements AggregationEngine
+{
+	/**
+	 * Logger instance for this class.
+	 */
+	private static final XdevLogger			log				= LoggerFactory
+			.getLogger(ForkJoinAggregationEngine.class);
+	
+	/**
+	 * Count of rows aggregated by one task.
+	 */
+	private static final int				CHUNK_SIZE		= 10000;
+	
+	private final ForkJoinPool				pool;
+	private final EventListenerList			listenerList	= new EventListenerList();
+	
+	// confined to the event dispatch thread
+	private VirtualTable					vt;
+	private int[]							groupColumnIndices;
+	private int[]							valueColumnIndices;
+	private VirtualTableColumn<?>[]			groupColumns;
+	private VirtualTableColumn<?>[]			valueColumns;
+	
+	/**
+	 * The current aggregates, <code>null</code> while computing.
+	 */
+	private Aggregation						aggregation;
+	private int								generation;
+	private boolean							changedWhileComputing;
+	private boolean							publishPending;
+	
+	private volatile AggregationResult		result;
+	
+	
+	/**
+	 * Creates an engine which computes on the common pool.
+	 */
+	public ForkJoinAggregationEngine()
+	{
+		this(ForkJoinPool.commonPool());
+	}
+	
+	
+	/**
+	 * Creates an engine which computes on <code>pool</code>.
+	 * 
+	 * @param pool
+	 *            the pool to compute on
+	 */
+	public ForkJoinAggregationEngine(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void start(VirtualTable vt, int[] groupColumns, int[] valueColumns)
+	{
+		this.stop();
+		
+		this.vt = vt;
+		this.groupColumnIndices = groupColumns.clone();
+		this.valueColumnIndices = valueColumns.clone();
+		this.vt.addVirtualTableListener(this);
+		
+		this.compute();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void stop()
+	{
+		// discards running computations
+		this.generation++;
+		this.aggregation = null;
+		
+		if(this.vt != null)
+		{
+			this.vt.removeVirtualTableListener(this);
+			this.vt = null;
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public AggregationResult getResult()
+	{
+		return this.result;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addAggregationListener(AggregationListener listener)
+	{
+		this.listenerList.add(AggregationListener.class,listener);
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeAggregationListener(AggregationListener listener)
+	{
+		this.listenerList.remove(AggregationListener.class,listener);
+	}
+	
+	
+	private void compute()
+	{
+		this.aggregation = null;
+		this.changedWhileComputing = false;
+		
+		final int generation = ++this.generation;
+		final VirtualTable vt = this.vt;
+		final int rowCount = vt.getRowCount();
+		this.groupColumns = getColumns(vt,this.groupColumnIndices);
+		this.valueColumns = getColumns(vt,this.valueColumnIndices);
+		final VirtualTableColumn<?>[] groupColumns = this.groupColumns;
+		final VirtualTableColumn<?>[] valueColumns = this.valueColumns;
+		
+		this.pool.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				Aggregation aggregation = null;
+				RuntimeException exception = null;
+				try
+				{
+					VirtualTableRow[] rows = new VirtualTableRow[rowCount];
+					Contribution[] contributions = new Contribution[rowCount];
+					aggregation = new AggregationTask(vt,groupColumns,valueColumns,rows,
+							contributions,0,rowCount).invoke();
+					aggregation.indexRows(rows,contributions);
+				}
+				catch(RuntimeException e)
+				{
+					// probably the VirtualTable has been changed meanwhile
+					exception = e;
+				}
+				
+				final Aggregation computedAggregation = aggregation;
+				final RuntimeException computationException = exception;
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						computed(generation,computedAggregation,computationException);
+					}
+				});
+			}
+		});
+	}
+	
+	
+	private void computed(int generation, Aggregation aggregation, RuntimeException exception)
+	{
+		if(generation != this.generation)
+		{
+			// superseded or stopped
+			return;
+		}
+		
+		if(this.changedWhileComputing)
+		{
+			this.compute();
+		}
+		else if(exception != null)
+		{
+			log.error(exception);
+		}
+		else
+		{
+			this.aggregation = aggregation;
+			this.publish();
+		}
+	}
+	
+	
+	private void publish()
+	{
+		this.result = this.aggregation.createResult(this.groupColumnIndices,
+				this.valueColumnIndices);
+		
+		AggregationEvent event = null;
+		for(AggregationListener listener : this.listenerList
+				.getListeners(AggregationListener.class))
+		{
+			if(event == null)
+			{
+				event = new AggregationEvent(this,this.result);
+			}
+			listener.aggregationChanged(event);
+		}
+	}
+	
+	
+	private void schedulePublish()
+	{
+		// one result per event burst
+		if(!this.publishPending)
+		{
+			this.publishPending = true;
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					publishPending = false;
+					if(aggregation != null)
+					{
+						publish();
+					}
+				}
+			});
+		}
+	}
+	
+	
+	/**
+	 * Returns <code>true</code> if changes can be applied to the current
+	 * aggregates, otherwise the running computation gets restarted when it is
+	 * finished.
+	 */
+	private boolean isAggregated()
+	{
+		if(this.aggregation == null)
+		{
+			this.changedWhileComputing = true;
+			return false;
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowInserted(VirtualTableEvent event)
+	{
+		if(this.isAggregated())
+		{
+			this.aggregation.add(event.getRow());
+			this.schedulePublish();
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowUpdated(VirtualTableEvent event)
+	{
+		if(this.isAggregated())
+		{
+			if(this.aggregation.remove(event.getRow()))
+			{
+				this.aggregation.add(event.getRow());
+				this.schedulePublish();
+			}
+			else
+			{
+				this.compute();
+			}
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowDeleted(VirtualTableEvent event)
+	{
+		if(this.isAggregated())
+		{
+			if(this.aggregation.remove(event.getRow()))
+			{
+				this.schedulePublish();
+			}
+			else
+			{
+				this.compute();
+			}
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableDataChanged(VirtualTableEvent event)
+	{
+		this.compute();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableStructureChanged(VirtualTableEvent event)
+	{
+		this.compute();
+	}
+	
+	
+	private static VirtualTableColumn<?>[] getColumns(VirtualTable vt, int[] indices)
+	{
+		VirtualTableColumn<?>[] columns = new VirtualTableColumn<?>[indices.length];
+		for(int i = 0; i < indices.length; i++)
+		{
+			columns[i] = vt.getColumnAt(indices[i]);
+		}
+		return columns;
+	}
+	
+	
+	private static double toDouble(Object value)
+	{
+		// null and non-numeric values are not aggregated
+		return value instanceof Number ? ((Number)value).doubleValue() : Double.NaN;
+	}
+	
+	
+	
+	/**
+	 * Aggregates a range of rows, splits it if it exceeds {@link #CHUNK_SIZE}.
+	 */
+	private static class AggregationTask extends RecursiveTask<Aggregation>
+	{
+		private static final long				serialVersionUID	= 1L;
+		
+		private final VirtualTable				vt;
+		private final VirtualTableColumn<?>[]	groupColumns;
+		private final VirtualTableColumn<?>[]	valueColumns;
+		private final VirtualTableRow[]			rows;
+		private final Contribution[]			contributions;
+		private final int						from;
+		private final int						to;
+		
+		
+		AggregationTask(VirtualTable vt, VirtualTableColumn<?>[] groupColumns,
+				VirtualTableColumn<?>[] valueColumns, VirtualTableRow[] rows,
+				Contribution[] contributions, int from, int to)
+		{
+			this.vt = vt;
+			this.groupColumns = groupColumns;
+			this.valueColumns = valueColumns;
+			this.rows = rows;
+			this.contributions = contributions;
+			this.from = from;
+			this.to = to;
+		}
+		
+		
+		@Override
+		protected Aggregation compute()
+		{
+			if(this.to - this.from <= CHUNK_SIZE)
+			{
+				Aggregation aggregation = new Aggregation(this.groupColumns,this.valueColumns);
+				for(int i = this.from; i < this.to; i++)
+				{
+					VirtualTableRow row = this.vt.getRow(i);
+					this.rows[i] = row;
+					this.contributions[i] = aggregation.add(row);
+				}
+				return aggregation;
+			}
+			
+			int middle = (this.from + this.to) >>> 1;
+			AggregationTask left = new AggregationTask(this.vt,this.groupColumns,
+					this.valueColumns,this.rows,this.contributions,this.from,middle);
+			AggregationTask right = new AggregationTask(this.vt,this.groupColumns,
+					this.valueColumns,this.rows,this.contributions,middle,this.to);
+			right.fork();
+			Aggregation aggregation = left.compute();
+			// left first to keep the first-seen order of the groups
+			aggregation.merge(right.join());
+			return aggregation;
+		}
+	}
+	
+	
+	
+	/**
+	 * The values a row has added to the aggregates.
+	 */
+	private static class Contribution
+	{
+		final List<Object>	group;
+		final double[]		values;
+		
+		
+		Contribution(List<Object> group, double[] values)
+		{
+			this.group = group;
+			this.values = values;
+		}
+	}
+	
+	
+	
+	/**
+	 * The running aggregates of one group.
+	 */
+	private static class Accumulator
+	{
+		final List<Object>	group;
+		long				rowCount;
+		final long[]		counts;
+		final double[]		sums;
+		final double[]		mins;
+		final double[]		maxs;
+		
+		
+		Accumulator(List<Object> group, int valueCount)
+		{
+			this.group = group;
+			this.counts = new long[valueCount];
+			this.sums = new double[valueCount];
+			this.mins = new double[valueCount];
+			this.maxs = new double[valueCount];
+			Arrays.fill(this.mins,Double.POSITIVE_INFINITY);
+			Arrays.fill(this.maxs,Double.NEGATIVE_INFINITY);
+		}
+		
+		
+		void add(double[] values)
+		{
+			this.rowCount++;
+			for(int i = 0; i < values.length; i++)
+			{
+				double value = values[i];
+				if(!Double.isNaN(value))
+				{
+					this.counts[i]++;
+					this.sums[i] += value;
+					if(value < this.mins[i])
+					{
+						this.mins[i] = value;
+					}
+					if(value > this.maxs[i])
+					{
+						this.maxs[i] = value;
+					}
+				}
+			}
+		}
+		
+		
+		/**
+		 * @return <code>false</code> if a minimum or maximum has been removed
+		 *         and the aggregates have to be recomputed
+		 */
+		boolean remove(double[] values)
+		{
+			boolean exact = true;
+			
+			this.rowCount--;
+			for(int i = 0; i < values.length; i++)
+			{
+				double value = values[i];
+				if(!Double.isNaN(value))
+				{
+					this.counts[i]--;
+					this.sums[i] -= value;
+					if(this.counts[i] == 0)
+					{
+						this.mins[i] = Double.POSITIVE_INFINITY;
+						this.maxs[i] = Double.NEGATIVE_INFINITY;
+					}
+					else if(value <= this.mins[i] || value >= this.maxs[i])
+					{
+						exact = false;
+					}
+				}
+			}
+			
+			return exact;
+		}
+		
+		
+		void merge(Accumulator other)
+		{
+			this.rowCount += other.rowCount;
+			for(int i = 0; i < this.counts.length; i++)
+			{
+				this.counts[i] += other.counts[i];
+				this.sums[i] += other.sums[i];
+				this.mins[i] = Math.min(this.mins[i],other.mins[i]);
+				this.maxs[i] = Math.max(this.maxs[i],other.maxs[i]);
+			}
+		}
+		
+		
+		Aggregate[] createAggregates()
+		{
+			Aggregate[] aggregates = new Aggregate[this.counts.length];
+			for(int i = 0; i < aggregates.length; i++)
+			{
+				aggregates[i] = new Aggregate(this.counts[i],this.sums[i],this.mins[i],
+						this.maxs[i]);
+			}
+			return aggregates;
+		}
+	}
+	
+	
+	
+	/**
+	 * The aggregates of all groups and the contribution of every row.
+	 */
+	private static class Aggregation
+	{
+		final VirtualTableColumn<?>[]				groupColumns;
+		final VirtualTableColumn<?>[]				valueColumns;
+		final Map<List<Object>, Accumulator>		groups		= new LinkedHashMap<List<Object>, Accumulator>();
+		final Accumulator							grandTotal;
+		
+		/**
+		 * Reused key for group lookups.
+		 */
+		final List<Object>							probe;
+		
+		/**
+		 * Available after {@link #indexRows(VirtualTableRow[], Contribution[])}
+		 * .
+		 */
+		Map<VirtualTableRow, Contribution>			contributions;
+		
+		
+		Aggregation(VirtualTableColumn<?>[] groupColumns, VirtualTableColumn<?>[] valueColumns)
+		{
+			this.groupColumns = groupColumns;
+			this.valueColumns = valueColumns;
+			this.grandTotal = new Accumulator(Collections.emptyList(),valueColumns.length);
+			this.probe = new ArrayList<Object>(groupColumns.length);
+		}
+		
+		
+		Contribution add(VirtualTableRow row)
+		{
+			this.probe.clear();
+			for(VirtualTableColumn<?> column : this.groupColumns)
+			{
+				this.probe.add(row.get(column));
+			}
+			
+			Accumulator accumulator = this.groups.get(this.probe);
+			if(accumulator == null)
+			{
+				List<Object> group = Collections.unmodifiableList(new ArrayList<Object>(
+						this.probe));
+				accumulator = new Accumulator(group,this.valueColumns.length);
+				this.groups.put(group,accumulator);
+			}
+			
+			double[] values = new double[this.valueColumns.length];
+			for(int i = 0; i < values.length; i++)
+			{
+				values[i] = toDouble(row.get(this.valueColumns[i]));
+			}
+			
+			accumulator.add(values);
+			this.grandTotal.add(values);
+			
+			Contribution contribution = new Contribution(accumulator.group,values);
+			if(this.contributions != null)
+			{
+				this.contributions.put(row,contribution);
+			}
+			return contribution;
+		}
+		
+		
+		/**
+		 * @return <code>false</code> if the aggregates have to be recomputed
+		 */
+		boolean remove(VirtualTableRow row)
+		{
+			Contribution contribution = this.contributions.remove(row);
+			if(contribution == null)
+			{
+				return true;
+			}
+			
+			Accumulator accumulator = this.groups.get(contribution.group);
+			boolean exact = accumulator.remove(contribution.values);
+			exact &= this.grandTotal.remove(contribution.values);
+			if(accumulator.rowCount == 0)
+			{
+				this.groups.remove(contribution.group);
+			}
+			return exact;
+		}
+		
+		
+		void merge(Aggregation other)
+		{
+			for(Accumulator accumulator : other.groups.values())
+			{
+				Accumulator existing = this.groups.get(accumulator.group);
+				if(existing == null)
+				{
+					this.groups.put(accumulator.group,accumulator);
+				}
+				else
+				{
+					existing.merge(accumulator);
+				}
+			}
+			this.grandTotal.merge(other.grandTotal);
+		}
+		
+		
+		void indexRows(VirtualTableRow[] rows, Contribution[] contributions)
+		{
+			this.contributions = new IdentityHashMap<VirtualTableRow, Contribution>(rows.length);
+			for(int i = 0; i < rows.length; i++)
+			{
+				this.contributions.put(rows[i],contributions[i]);
+			}
+		}
+		
+		
+		AggregationResult createResult(int[] groupColumns, int[] valueColumns)
+		{
+			Map<List<Object>, Aggregate[]> groups = new LinkedHashMap<List<Object>, Aggregate[]>(
+					this.groups.size() * 4 / 3 + 1);
+			for(Accumulator accumulator : this.groups.values())
+			{
+				groups.put(accumulator.group,accumulator.createAggregates());
+			}
+			return new AggregationResult(groupColumns,valueColumns,groups,
+					this.grandTotal.createAggregates());
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.GridBagLayout;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+
+import javax.swing.JComponent;
+import javax.swing.JLayeredPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JRootPane;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+
+
+/**
+ * A translucent panel with an indeterminate progress bar which is laid over a
+ * table while its data is loaded in the background.
+ * <p>
+ * The overlay is placed in the {@link JLayeredPane} of the table's root pane,
+ * so the component hierarchy of the table is not altered. If the table is not
+ * showing yet, {@link #showOverlay()} is a no-op.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+class TableLoadingOverlay extends JPanel
+{
+	private static final long		serialVersionUID	= 2508229838053153837L;
+	
+	private final JComponent		table;
+	private JLayeredPane			layeredPane;
+	private Component				target;
+	
+	private final ComponentAdapter	boundsUpdater	= new ComponentAdapter()
+													{
+														@Override
+														public void componentResized(
+																ComponentEvent e)
+														{
+															updateBounds();
+														}
+														
+														
+														@Override
+														public void componentMoved(
+																ComponentEvent e)
+														{
+															updateBounds();
+														}
+													};
+	
+	
+	/**
+	 * Creates a new overlay for <code>table</code>.
+	 * 
+	 * @param table
+	 *            the table to cover while loading
+	 */
+	TableLoadingOverlay(JComponent table)
+	{
+		super(new GridBagLayout());
+		
+		this.table = table;
+		
+		setOpaque(false);
+		setBackground(new Color(255,255,255,160));
+		
+		JProgressBar progressBar = new JProgressBar();
+		progressBar.setIndeterminate(true);
+		add(progressBar);
+		
+		// swallow mouse input while the table's data is being replaced
+		addMouseListener(new MouseAdapter()
+		{
+		});
+	}
+	
+	
+	/**
+	 * Shows the overlay over the visible area of the table.
+	 */
+	void showOverlay()
+	{
+		if(this.layeredPane != null)
+		{
+			return;
+		}
+		
+		JRootPane rootPane = SwingUtilities.getRootPane(this.table);
+		if(rootPane == null || !this.table.isShowing())
+		{
+			return;
+		}
+		
+		JScrollPane scrollPane = (JScrollPane)SwingUtilities.getAncestorOfClass(
+				JScrollPane.class,this.table);
+		this.target = scrollPane != null ? scrollPane : this.table;
+		this.layeredPane = rootPane.getLayeredPane();
+		this.layeredPane.add(this,JLayeredPane.PALETTE_LAYER);
+		this.target.addComponentListener(this.boundsUpdater);
+		updateBounds();
+	}
+	
+	
+	/**
+	 * Removes the overlay if it is currently shown.
+	 */
+	void hideOverlay()
+	{
+		if(this.layeredPane == null)
+		{
+			return;
+		}
+		
+		this.target.removeComponentListener(this.boundsUpdater);
+		this.layeredPane.remove(this);
+		this.layeredPane.repaint(getBounds());
+		this.layeredPane = null;
+		this.target = null;
+	}
+	
+	
+	private void updateBounds()
+	{
+		if(this.layeredPane == null)
+		{
+			return;
+		}
+		
+		Rectangle bounds = SwingUtilities.convertRectangle(this.target.getParent(),
+				this.target.getBounds(),this.layeredPane);
+		setBounds(bounds);
+		revalidate();
+		repaint();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void paintComponent(Graphics g)
+	{
+		g.setColor(getBackground());
+		g.fillRect(0,0,getWidth(),getHeight());
+		super.paintComponent(g);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import java.util.List;
+
+import xdev.vt.VirtualTable.VirtualTableRow;
+
+
+/**
+ * A {@link XdevTreeTableExpandableRow} which creates its child rows not before
+ * they are requested, usually when the row is expanded for the first time.
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ * @see XdevTreeTableModel
+ */
+class XdevTreeTableLazyExpandableRow extends XdevTreeTableExpandableRow
+{
+	private final XdevTreeTableRowIndex	index;
+	private boolean						childrenLoaded	= false;
+	
+	
+	/**
+	 * Initializes a new {@link XdevTreeTableLazyExpandableRow}.
+	 * 
+	 * @param index
+	 *            the index of the tree
+	 * @param virtualTableRow
+	 *            the {@link VirtualTableRow} to wrap.
+	 */
+	XdevTreeTableLazyExpandableRow(XdevTreeTableRowIndex index, VirtualTableRow virtualTableRow)
+	{
+		super(virtualTableRow);
+		
+		this.index = index;
+	}
+	
+	
+	/**
+	 * Returns <code>true</code> if the child rows have been created.
+	 * 
+	 * @return <code>true</code> if the child rows have been created
+	 */
+	boolean isChildrenLoaded()
+	{
+		return this.childrenLoaded;
+	}
+	
+	
+	private void ensureChildrenLoaded()
+	{
+		if(!this.childrenLoaded)
+		{
+			// set first, setChildren may call back
+			this.childrenLoaded = true;
+			
+			VirtualTableRow[] childRows = this.index.getChildRows(this.index
+					.getId(getVirtualTableRow()));
+			if(childRows.length > 0)
+			{
+				setChildren(this.index.createRows(childRows));
+			}
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasChildren()
+	{
+		if(this.childrenLoaded)
+		{
+			return super.hasChildren();
+		}
+		return this.index.getChildCount(this.index.getId(getVirtualTableRow())) > 0;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<?> getChildren()
+	{
+		ensureChildrenLoaded();
+		return super.getChildren();
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getChildrenCount()
+	{
+		ensureChildrenLoaded();
+		return super.getChildrenCount();
+	}
+}
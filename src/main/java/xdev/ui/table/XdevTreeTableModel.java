@@ -18,6 +18,7 @@
 package xdev.ui.table;
 
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -25,8 +26,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import xdev.util.logging.LoggerFactory;
+import xdev.util.logging.XdevLogger;
 import xdev.vt.VirtualTable;
 import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableAdapter;
+import xdev.vt.VirtualTableEvent;
 import xdev.vt.VirtualTableWrapper;
 
 import com.jidesoft.grid.Row;
@@ -67,6 +72,12 @@ import com.jidesoft.grid.TreeTableModel;
  * (parent_id null) and one child of it (parent_id of child equals id of root).
  * </p>
  * <p>
+ * The model listens to its {@link VirtualTable}: inserted, updated and deleted
+ * rows are applied to the tree in place, including changes of the parent id,
+ * so that expansion and selection state are retained. Call {@link #dispose()}
+ * when the model is not used anymore.
+ * </p>
+ * <p>
  * <b>Note:</b> The current implementation expects the VirtualTable to be
  * ordered in a way, that parent rows appear before child rows.
  * </p>
@@ -86,6 +97,9 @@ public class XdevTreeTableModel<T extends Row> extends TreeTableModel<T> impleme
 	 */
 	private static final long	serialVersionUID	= 1L;
 	
+	private static final XdevLogger	log					= LoggerFactory
+																.getLogger(XdevTreeTableModel.class);
+	
 	/**
 	 * The underlying Virtual Table.
 	 */
@@ -96,6 +110,22 @@ public class XdevTreeTableModel<T extends Row> extends TreeTableModel<T> impleme
 	 */
 	private int[]				columnIndices;
 	
+	/**
+	 * The bookkeeping of the created rows.
+	 */
+	private final XdevTreeTableRowIndex	index;
+	
+	/**
+	 * Applies the changes of the Virtual Table to the tree.
+	 */
+	private final VirtualTableHandler	virtualTableHandler	= new VirtualTableHandler();
+	
+	/**
+	 * <code>true</code> if the last rebuild failed and the tree is empty, no
+	 * changes are applied in place until a rebuild succeeds.
+	 */
+	private boolean						rebuildFailed		= false;
+	
 	
 	/**
 	 * Initializes a new instance of {@link XdevTreeTableModel}.
@@ -158,30 +188,397 @@ public class XdevTreeTableModel<T extends Row> extends TreeTableModel<T> impleme
 	 *            an Object representing the parent id for determining root
 	 *            level columns (defaults to empty String)
 	 */
-	@SuppressWarnings("unchecked")
-	// super class uses untyped list
 	public XdevTreeTableModel(VirtualTable virtualTable, int columnIndexId, int columnIndexParent,
 			int[] visibleColumnIndices, Object rootIdentifier)
 	{
-		super(wrapVirtualTableRows(virtualTable,columnIndexId,columnIndexParent,rootIdentifier));
-		this.virtualTable = virtualTable;
-		this.columnIndices = visibleColumnIndices;
+		this(virtualTable,columnIndexId,columnIndexParent,visibleColumnIndices,rootIdentifier,
+				false);
 	}
 	
 	
-/**
-	 * Converts the contents of the virtual table to be useable as input for a
-	 * TreeTable.
+	/**
+	 * Initializes a new instance of {@link XdevTreeTableModel}.
+	 * <p>
+	 * If <code>lazyChildLoading</code> is <code>true</code> only the rows of
+	 * the root level are created initially. The parent-child relation is
+	 * indexed in primitive arrays and the child rows of a node are created
+	 * when they are requested for the first time, usually when the node is
+	 * expanded. This keeps the memory footprint proportional to the opened
+	 * part of large hierarchies.
+	 * </p>
 	 * 
 	 * @param virtualTable
-	 *            the virtual table to be represented as a tree.
+	 *            the {@link VirtualTable} to adapt.
 	 * @param columnIndexId
-	 *            the column to be used as an id for building the tree.
+	 *            the index of the column used as a unique identifier.
 	 * @param columnIndexParent
-	 *            the column to be used as an parent_id for building the tree.
+	 *            the index of the column used to relate child entities to their
+	 *            parents.
+	 * @param visibleColumnIndices
+	 *            the column indices of the virtual table to be used in the
+	 *            visual model
 	 * @param rootIdentifier
 	 *            an Object representing the parent id for determining root
 	 *            level columns (defaults to empty String)
+	 * @param lazyChildLoading
+	 *            <code>true</code> to create child rows on demand
+	 * @since 4.0
+	 */
+	public XdevTreeTableModel(VirtualTable virtualTable, int columnIndexId, int columnIndexParent,
+			int[] visibleColumnIndices, Object rootIdentifier, boolean lazyChildLoading)
+	{
+		this(virtualTable,visibleColumnIndices,new XdevTreeTableRowIndex(virtualTable,
+				columnIndexId,columnIndexParent,rootIdentifier,lazyChildLoading));
+	}
+	
+	
+	@SuppressWarnings("unchecked")
+	// super class uses untyped list
+	private XdevTreeTableModel(VirtualTable virtualTable, int[] visibleColumnIndices,
+			XdevTreeTableRowIndex index)
+	{
+		super(wrapRows(index));
+		this.virtualTable = virtualTable;
+		this.columnIndices = visibleColumnIndices;
+		this.index = index;
+		
+		virtualTable.addVirtualTableListener(virtualTableHandler);
+	}
+	
+	
+	/**
+	 * Creates the root rows of the tree.
+	 * 
+	 * @param index
+	 *            the index of the tree
+	 * @return a List of {@link XdevTreeTableExpandableRow} instances
+	 */
+	// super class uses untyped list
+	@SuppressWarnings("rawtypes")
+	private static List wrapRows(XdevTreeTableRowIndex index)
+	{
+		if(index.isLazyChildLoading())
+		{
+			return index.createRows(index.getRootRows());
+		}
+		return wrapVirtualTableRows(index);
+	}
+	
+	
+	/**
+	 * Returns <code>true</code> if the child rows of this model are created on
+	 * demand.
+	 * 
+	 * @return <code>true</code> if child rows are created lazily
+	 * @since 4.0
+	 */
+	public boolean isLazyChildLoading()
+	{
+		return index.isLazyChildLoading();
+	}
+	
+	
+	/**
+	 * Stops listening to the underlying {@link VirtualTable}. Should be called
+	 * when this model is not used anymore.
+	 * 
+	 * @since 4.0
+	 */
+	public void dispose()
+	{
+		virtualTable.removeVirtualTableListener(virtualTableHandler);
+	}
+	
+	
+	/**
+	 * Applies the changes of the {@link VirtualTable} to the tree.
+	 */
+	private class VirtualTableHandler extends VirtualTableAdapter implements Serializable
+	{
+		private static final long	serialVersionUID	= 1L;
+		
+		
+		@Override
+		public void virtualTableRowInserted(VirtualTableEvent event)
+		{
+			if(rebuildFailed)
+			{
+				rebuild();
+				return;
+			}
+			
+			index.rowInserted(event.getRow());
+			rowInserted(event.getRow());
+		}
+		
+		
+		@Override
+		public void virtualTableRowUpdated(VirtualTableEvent event)
+		{
+			if(rebuildFailed)
+			{
+				rebuild();
+				return;
+			}
+			
+			index.rowUpdated(event.getRow());
+			rowUpdated(event.getRow());
+		}
+		
+		
+		@Override
+		public void virtualTableRowDeleted(VirtualTableEvent event)
+		{
+			if(rebuildFailed)
+			{
+				rebuild();
+				return;
+			}
+			
+			index.rowDeleted(event.getRow());
+			rowDeleted(event.getRow());
+		}
+		
+		
+		@Override
+		public void virtualTableDataChanged(VirtualTableEvent event)
+		{
+			rebuild();
+		}
+		
+		
+		@Override
+		public void virtualTableStructureChanged(VirtualTableEvent event)
+		{
+			rebuild();
+		}
+	}
+	
+	
+	/**
+	 * Inserts the tree row for <code>row</code> below its parent. If the
+	 * parent has not been created yet, the row will be created together with
+	 * its siblings.
+	 */
+	@SuppressWarnings("unchecked")
+	private void rowInserted(VirtualTableRow row)
+	{
+		Object parentId = index.getParentId(row);
+		if(isParent(parentId,index.getRootIdentifier()))
+		{
+			addRow((T)index.createRow(row));
+			return;
+		}
+		
+		XdevTreeTableExpandableRow parentRow = index.getRowById(parentId);
+		if(parentRow == null)
+		{
+			if(!index.isLazyChildLoading())
+			{
+				// orphan, let the full build report it
+				rebuild();
+			}
+			return;
+		}
+		
+		attach(parentRow,index.createRow(row));
+	}
+	
+	
+	/**
+	 * Adds <code>treeRow</code> to the children of <code>parentRow</code>, or
+	 * discards it if the children of <code>parentRow</code> have not been
+	 * created yet.
+	 */
+	private void attach(XdevTreeTableExpandableRow parentRow, XdevTreeTableExpandableRow treeRow)
+	{
+		if(parentRow instanceof XdevTreeTableLazyExpandableRow
+				&& !((XdevTreeTableLazyExpandableRow)parentRow).isChildrenLoaded())
+		{
+			// will be created on expansion, only the expand icon may change
+			index.unregister(treeRow.getVirtualTableRow());
+			rowChanged(parentRow);
+		}
+		else
+		{
+			parentRow.addChild(treeRow);
+		}
+	}
+	
+	
+	/**
+	 * Moves the tree row of <code>row</code> if its parent has changed,
+	 * otherwise repaints it.
+	 */
+	@SuppressWarnings("unchecked")
+	private void rowUpdated(VirtualTableRow row)
+	{
+		XdevTreeTableExpandableRow treeRow = index.getRow(row);
+		if(treeRow == null)
+		{
+			// not created yet, may have been moved below a created parent
+			rowInserted(row);
+			return;
+		}
+		
+		index.updateId(row);
+		
+		boolean toRoot = isParent(index.getParentId(row),index.getRootIdentifier());
+		XdevTreeTableExpandableRow currentParent = getParentRow(treeRow);
+		XdevTreeTableExpandableRow newParent = null;
+		if(!toRoot)
+		{
+			newParent = index.getRowById(index.getParentId(row));
+			if(newParent == null && !index.isLazyChildLoading())
+			{
+				rebuild();
+				return;
+			}
+		}
+		
+		if(toRoot ? currentParent == null : newParent != null && newParent == currentParent)
+		{
+			rowChanged(treeRow);
+			return;
+		}
+		
+		if(newParent != null && isDescendant(newParent,treeRow))
+		{
+			// cycle, let the full build sort it out
+			rebuild();
+			return;
+		}
+		
+		detach(treeRow);
+		
+		if(toRoot)
+		{
+			addRow((T)treeRow);
+		}
+		else if(newParent != null)
+		{
+			attach(newParent,treeRow);
+		}
+		else
+		{
+			// new parent not created yet
+			index.unregister(row);
+		}
+	}
+	
+	
+	/**
+	 * Removes the tree row of <code>row</code> together with its subtree.
+	 */
+	private void rowDeleted(VirtualTableRow row)
+	{
+		XdevTreeTableExpandableRow treeRow = index.unregister(row);
+		if(treeRow != null)
+		{
+			detach(treeRow);
+		}
+		else
+		{
+			// the expand icon of the parent may change
+			XdevTreeTableExpandableRow parentRow = index.getRowById(index.getParentId(row));
+			if(parentRow != null)
+			{
+				rowChanged(parentRow);
+			}
+		}
+	}
+	
+	
+	@SuppressWarnings("unchecked")
+	private void detach(XdevTreeTableExpandableRow treeRow)
+	{
+		XdevTreeTableExpandableRow parentRow = getParentRow(treeRow);
+		if(parentRow != null)
+		{
+			parentRow.removeChild(treeRow);
+		}
+		else
+		{
+			removeRow((T)treeRow);
+		}
+	}
+	
+	
+	private static XdevTreeTableExpandableRow getParentRow(XdevTreeTableExpandableRow treeRow)
+	{
+		Object parent = treeRow.getParent();
+		return parent instanceof XdevTreeTableExpandableRow ? (XdevTreeTableExpandableRow)parent
+				: null;
+	}
+	
+	
+	private static boolean isDescendant(XdevTreeTableExpandableRow row,
+			XdevTreeTableExpandableRow ancestor)
+	{
+		for(XdevTreeTableExpandableRow current = row; current != null; current = getParentRow(current))
+		{
+			if(current == ancestor)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Repaints <code>treeRow</code>, if it is visible.
+	 */
+	@SuppressWarnings("unchecked")
+	private void rowChanged(XdevTreeTableExpandableRow treeRow)
+	{
+		int rowIndex = getRowIndex((T)treeRow);
+		if(rowIndex >= 0)
+		{
+			fireTableRowsUpdated(rowIndex,rowIndex);
+		}
+	}
+	
+	
+	/**
+	 * Rebuilds the whole tree, used if the virtual table has changed
+	 * completely or its changes cannot be applied in place.
+	 * <p>
+	 * If the virtual table can't be converted, the tree is emptied, so that
+	 * the displayed rows and the index stay consistent. Following changes
+	 * retry the rebuild.
+	 * </p>
+	 */
+	@SuppressWarnings("unchecked")
+	// super class uses untyped list
+	private void rebuild()
+	{
+		index.clear();
+		try
+		{
+			List rows = wrapRows(index);
+			rebuildFailed = false;
+			setOriginalRows(rows);
+		}
+		catch(IllegalStateException e)
+		{
+			log.error(e);
+			
+			// drop the partially registered rows together with the displayed ones
+			index.clear();
+			rebuildFailed = true;
+			setOriginalRows(new ArrayList());
+		}
+	}
+	
+	
+	/**
+	 * Converts the contents of the virtual table to be useable as input for a
+	 * TreeTable.
+	 * 
+	 * @param index
+	 *            the index of the tree, providing the virtual table, the id
+	 *            and parent id columns and the root identifier
 	 * @return a List of {@link XdevTreeTableExpandableRow) instances
 	 *         representing the virtual table a a tree.
 	 * 
@@ -189,11 +586,11 @@ public class XdevTreeTableModel<T extends Row> extends TreeTableModel<T> impleme
 	 */
 	// super class uses untyped list
 	@SuppressWarnings("rawtypes")
-	private static List wrapVirtualTableRows(VirtualTable virtualTable, int columnIndexId,
-			int columnIndexParent, Object rootIdentifier)
+	private static List wrapVirtualTableRows(XdevTreeTableRowIndex index)
 	{
-		Map<Object, XdevTreeTableExpandableRow> rootIdMap = fillUpRowMap(virtualTable,
-				columnIndexId,columnIndexParent,rootIdentifier);
+		int columnIndexParent = index.getColumnIndexParent();
+		Object rootIdentifier = index.getRootIdentifier();
+		Map<Object, XdevTreeTableExpandableRow> rootIdMap = fillUpRowMap(index);
 		
 		Iterator<Entry<Object, XdevTreeTableExpandableRow>> it = rootIdMap.entrySet().iterator();
 		
@@ -227,7 +624,7 @@ public class XdevTreeTableModel<T extends Row> extends TreeTableModel<T> impleme
 	 * 
 	 * @param rootIdMap
 	 *            the map returned from
-	 *            {@link XdevTreeTableModel#fillUpRowMap(VirtualTable, int, int, Object)}
+	 *            {@link XdevTreeTableModel#fillUpRowMap(XdevTreeTableRowIndex)}
 	 *            .
 	 * @param columnIndexParent
 	 *            the parent id index.
@@ -237,7 +634,7 @@ public class XdevTreeTableModel<T extends Row> extends TreeTableModel<T> impleme
 	 * @return return a {@link List} of Root -
 	 *         {@link XdevTreeTableExpandableRow}s.
 	 * 
-	 * @see XdevTreeTableModel#fillUpRowMap(VirtualTable, int, int, Object).
+	 * @see XdevTreeTableModel#fillUpRowMap(XdevTreeTableRowIndex).
 	 */
 	private static List<XdevTreeTableExpandableRow> getRootRows(
 			Map<Object, XdevTreeTableExpandableRow> rootIdMap, int columnIndexParent,
@@ -273,7 +670,7 @@ public class XdevTreeTableModel<T extends Row> extends TreeTableModel<T> impleme
 	 * @param rootIdentifier
 	 *            the identifier which is used to validate.
 	 */
-	private static boolean isChild(Object parentId, Object rootIdentifier)
+	static boolean isChild(Object parentId, Object rootIdentifier)
 	{
 		return parentId != null && parentId.equals(rootIdentifier) == false;
 	}
@@ -287,7 +684,7 @@ public class XdevTreeTableModel<T extends Row> extends TreeTableModel<T> impleme
 	 * @param rootIdentifier
 	 *            the identifier which is used to validate.
 	 */
-	private static boolean isParent(Object parentId, Object rootIdentifier)
+	static boolean isParent(Object parentId, Object rootIdentifier)
 	{
 		return parentId == null || parentId.equals(rootIdentifier);
 	}
@@ -296,29 +693,23 @@ public class XdevTreeTableModel<T extends Row> extends TreeTableModel<T> impleme
 	/**
 	 * Fills up a {@link Map} which contains all potential root or child rows.
 	 * 
-	 * @param virtualTable
-	 *            the {@link VirtualTable} to fill up the {@link Map} from.
-	 * @param columnIndexId
-	 *            the ids index.
-	 * @param columnIndexParent
-	 *            the parent id index.
-	 * @param rootIdentifier
-	 *            the value for identifying the root rows e.g. <code>null</code>
-	 *            .
+	 * @param index
+	 *            the index of the tree, the created rows are registered there
 	 * 
 	 * @return a {@link Map} containing {@link XdevTreeTableExpandableRow}s from
 	 *         the given {@link VirtualTable}.
 	 */
-	private static Map<Object, XdevTreeTableExpandableRow> fillUpRowMap(VirtualTable virtualTable,
-			int columnIndexId, int columnIndexParent, Object rootIdentifier)
+	private static Map<Object, XdevTreeTableExpandableRow> fillUpRowMap(
+			XdevTreeTableRowIndex index)
 	{
 		Map<Object, XdevTreeTableExpandableRow> rootIdMap = new LinkedHashMap<Object, XdevTreeTableExpandableRow>();
 		
+		VirtualTable virtualTable = index.getVirtualTable();
 		for(int i = 0; i < virtualTable.getRowCount(); i++)
 		{
 			VirtualTableRow vtr = virtualTable.getRow(i);
-			Object id = vtr.get(columnIndexId);
-			XdevTreeTableExpandableRow currentRow = new XdevTreeTableExpandableRow(vtr);
+			Object id = index.getId(vtr);
+			XdevTreeTableExpandableRow currentRow = index.createRow(vtr);
 			
 			if(rootIdMap.containsKey(id))
 			{
@@ -0,0 +1,661 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.table;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+
+
+/**
+ * Bookkeeping of the rows of a {@link XdevTreeTableModel}.
+ * <p>
+ * The index keeps track of the {@link XdevTreeTableExpandableRow}s created for
+ * the rows of the {@link VirtualTable}, by row and by id, so that changes of
+ * the virtual table can be applied to the tree in place.
+ * </p>
+ * <p>
+ * For lazily built trees it additionally indexes the parent-child relation of
+ * all rows in flat arrays. Every row gets a slot, its row index at build time,
+ * and the root rows get the slot after the last row: the children of slot
+ * <code>s</code> are the entries of <code>childRows</code> from
+ * <code>childOffsets[s]</code> to <code>childOffsets[s + 1]</code>, in the
+ * order of the {@link VirtualTable}. The arrays are built on demand.
+ * </p>
+ * <p>
+ * Inserted, updated and deleted rows only patch the child list of the
+ * affected parent, which is copied out of the arrays on its first change.
+ * Changes which can't be patched, e.g. a changed id or parent, rebuild the
+ * arrays on the next access.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+class XdevTreeTableRowIndex
+{
+	private final VirtualTable										virtualTable;
+	private final int												columnIndexId;
+	private final int												columnIndexParent;
+	private final Object											rootIdentifier;
+	private final boolean											lazyChildLoading;
+	
+	private final Map<VirtualTableRow, XdevTreeTableExpandableRow>	rowsByVirtualTableRow	= new IdentityHashMap<VirtualTableRow, XdevTreeTableExpandableRow>();
+	private final Map<VirtualTableRow, Object>						idsByVirtualTableRow	= new IdentityHashMap<VirtualTableRow, Object>();
+	private final Map<Object, XdevTreeTableExpandableRow>			rowsById				= new HashMap<Object, XdevTreeTableExpandableRow>();
+	
+	private boolean													valid					= false;
+	private Map<Object, Integer>									slotsById;
+	private VirtualTableRow[]										slotRows;
+	private int[]													childOffsets;
+	private VirtualTableRow[]										childRows;
+	private int														rootSlot;
+	private int														slotCount;
+	private Map<Integer, VirtualTableRow>							addedSlotRows;
+	private Map<Integer, List<VirtualTableRow>>						patchedChildren;
+	
+	
+	/**
+	 * Creates a new index for <code>virtualTable</code>.
+	 * 
+	 * @param virtualTable
+	 *            the virtual table to be represented as a tree.
+	 * @param columnIndexId
+	 *            the column to be used as an id for building the tree.
+	 * @param columnIndexParent
+	 *            the column to be used as an parent_id for building the tree.
+	 * @param rootIdentifier
+	 *            an Object representing the parent id for determining root
+	 *            level columns
+	 * @param lazyChildLoading
+	 *            <code>true</code> if child rows are created on demand
+	 */
+	XdevTreeTableRowIndex(VirtualTable virtualTable, int columnIndexId, int columnIndexParent,
+			Object rootIdentifier, boolean lazyChildLoading)
+	{
+		this.virtualTable = virtualTable;
+		this.columnIndexId = columnIndexId;
+		this.columnIndexParent = columnIndexParent;
+		this.rootIdentifier = rootIdentifier;
+		this.lazyChildLoading = lazyChildLoading;
+	}
+	
+	
+	VirtualTable getVirtualTable()
+	{
+		return this.virtualTable;
+	}
+	
+	
+	int getColumnIndexId()
+	{
+		return this.columnIndexId;
+	}
+	
+	
+	int getColumnIndexParent()
+	{
+		return this.columnIndexParent;
+	}
+	
+	
+	Object getRootIdentifier()
+	{
+		return this.rootIdentifier;
+	}
+	
+	
+	boolean isLazyChildLoading()
+	{
+		return this.lazyChildLoading;
+	}
+	
+	
+	/**
+	 * Returns the id of <code>row</code>.
+	 */
+	Object getId(VirtualTableRow row)
+	{
+		return row.get(this.columnIndexId);
+	}
+	
+	
+	/**
+	 * Returns the parent id of <code>row</code>.
+	 */
+	Object getParentId(VirtualTableRow row)
+	{
+		return row.get(this.columnIndexParent);
+	}
+	
+	
+	/**
+	 * Creates and registers the tree row for a row of the virtual table.
+	 * 
+	 * @param row
+	 *            the row to wrap
+	 * @return a {@link XdevTreeTableLazyExpandableRow} for lazily built trees,
+	 *         a {@link XdevTreeTableExpandableRow} otherwise
+	 */
+	XdevTreeTableExpandableRow createRow(VirtualTableRow row)
+	{
+		XdevTreeTableExpandableRow treeRow = this.lazyChildLoading ? new XdevTreeTableLazyExpandableRow(
+				this,row) : new XdevTreeTableExpandableRow(row);
+		register(treeRow);
+		return treeRow;
+	}
+	
+	
+	/**
+	 * Creates and registers the tree rows for rows of the virtual table.
+	 * 
+	 * @param rows
+	 *            the rows of the virtual table
+	 * @return the created rows
+	 */
+	List<XdevTreeTableExpandableRow> createRows(VirtualTableRow[] rows)
+	{
+		List<XdevTreeTableExpandableRow> list = new ArrayList<XdevTreeTableExpandableRow>(
+				rows.length);
+		for(VirtualTableRow row : rows)
+		{
+			list.add(createRow(row));
+		}
+		return list;
+	}
+	
+	
+	private void register(XdevTreeTableExpandableRow treeRow)
+	{
+		VirtualTableRow row = treeRow.getVirtualTableRow();
+		Object id = getId(row);
+		this.rowsByVirtualTableRow.put(row,treeRow);
+		this.idsByVirtualTableRow.put(row,id);
+		this.rowsById.put(id,treeRow);
+	}
+	
+	
+	/**
+	 * Removes the tree row of <code>row</code> and the tree rows of all its
+	 * created descendants from the registry.
+	 * 
+	 * @param row
+	 *            the row to unregister
+	 * @return the tree row, or <code>null</code> if none was created
+	 */
+	XdevTreeTableExpandableRow unregister(VirtualTableRow row)
+	{
+		XdevTreeTableExpandableRow treeRow = this.rowsByVirtualTableRow.remove(row);
+		if(treeRow != null)
+		{
+			Object id = this.idsByVirtualTableRow.remove(row);
+			if(this.rowsById.get(id) == treeRow)
+			{
+				this.rowsById.remove(id);
+			}
+			
+			List<?> children = getCreatedChildren(treeRow);
+			if(children != null)
+			{
+				for(Object child : children)
+				{
+					if(child instanceof XdevTreeTableExpandableRow)
+					{
+						unregister(((XdevTreeTableExpandableRow)child).getVirtualTableRow());
+					}
+				}
+			}
+		}
+		return treeRow;
+	}
+	
+	
+	private List<?> getCreatedChildren(XdevTreeTableExpandableRow treeRow)
+	{
+		if(treeRow instanceof XdevTreeTableLazyExpandableRow
+				&& !((XdevTreeTableLazyExpandableRow)treeRow).isChildrenLoaded())
+		{
+			return null;
+		}
+		return treeRow.getChildren();
+	}
+	
+	
+	/**
+	 * Updates the registered id of <code>row</code>, if it has changed.
+	 * 
+	 * @param row
+	 *            the updated row
+	 * @return <code>true</code> if the id has changed
+	 */
+	boolean updateId(VirtualTableRow row)
+	{
+		XdevTreeTableExpandableRow treeRow = this.rowsByVirtualTableRow.get(row);
+		if(treeRow == null)
+		{
+			return false;
+		}
+		
+		Object oldId = this.idsByVirtualTableRow.get(row);
+		Object newId = getId(row);
+		if(oldId == null ? newId == null : oldId.equals(newId))
+		{
+			return false;
+		}
+		
+		if(this.rowsById.get(oldId) == treeRow)
+		{
+			this.rowsById.remove(oldId);
+		}
+		this.idsByVirtualTableRow.put(row,newId);
+		this.rowsById.put(newId,treeRow);
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the created tree row of <code>row</code>.
+	 */
+	XdevTreeTableExpandableRow getRow(VirtualTableRow row)
+	{
+		return this.rowsByVirtualTableRow.get(row);
+	}
+	
+	
+	/**
+	 * Returns the created tree row with the id <code>id</code>.
+	 */
+	XdevTreeTableExpandableRow getRowById(Object id)
+	{
+		return this.rowsById.get(id);
+	}
+	
+	
+	/**
+	 * Clears the registry and the parent-child index.
+	 */
+	void clear()
+	{
+		this.rowsByVirtualTableRow.clear();
+		this.idsByVirtualTableRow.clear();
+		this.rowsById.clear();
+		invalidate();
+	}
+	
+	
+	/**
+	 * Marks the parent-child index as outdated, it is rebuilt when it is
+	 * accessed the next time.
+	 */
+	void invalidate()
+	{
+		this.valid = false;
+		this.slotsById = null;
+		this.slotRows = null;
+		this.childOffsets = null;
+		this.childRows = null;
+		this.addedSlotRows = null;
+		this.patchedChildren = null;
+	}
+	
+	
+	private void ensureValid() throws IllegalStateException
+	{
+		if(this.valid)
+		{
+			return;
+		}
+		
+		final int rowCount = this.virtualTable.getRowCount();
+		
+		Map<Object, Integer> slotsById = new HashMap<Object, Integer>(Math.max(16,
+				rowCount * 4 / 3 + 1));
+		VirtualTableRow[] slotRows = new VirtualTableRow[rowCount];
+		for(int row = 0; row < rowCount; row++)
+		{
+			slotRows[row] = this.virtualTable.getRow(row);
+			Object id = getId(slotRows[row]);
+			if(slotsById.put(id,row) != null)
+			{
+				throw new IllegalStateException("multiple occurences for value " + id
+						+ ", that has to be unique.");
+			}
+		}
+		
+		// the roots are the children of the last slot
+		final int rootSlot = rowCount;
+		int[] parentSlots = new int[rowCount];
+		int[] childCounts = new int[rowCount + 2];
+		for(int row = 0; row < rowCount; row++)
+		{
+			Object parentId = getParentId(slotRows[row]);
+			if(XdevTreeTableModel.isChild(parentId,this.rootIdentifier))
+			{
+				Integer parentSlot = slotsById.get(parentId);
+				if(parentSlot == null)
+				{
+					throw new IllegalStateException("no parent row found with id = " + parentId);
+				}
+				parentSlots[row] = parentSlot;
+			}
+			else
+			{
+				parentSlots[row] = rootSlot;
+			}
+			childCounts[parentSlots[row]]++;
+		}
+		
+		int[] offsets = new int[rowCount + 2];
+		for(int slot = 0; slot <= rootSlot; slot++)
+		{
+			offsets[slot + 1] = offsets[slot] + childCounts[slot];
+		}
+		
+		// reuse the counts as fill positions
+		System.arraycopy(offsets,0,childCounts,0,rowCount + 1);
+		VirtualTableRow[] children = new VirtualTableRow[rowCount];
+		for(int row = 0; row < rowCount; row++)
+		{
+			children[childCounts[parentSlots[row]]++] = slotRows[row];
+		}
+		
+		this.slotsById = slotsById;
+		this.slotRows = slotRows;
+		this.childOffsets = offsets;
+		this.childRows = children;
+		this.rootSlot = rootSlot;
+		this.slotCount = rootSlot + 1;
+		this.addedSlotRows = new HashMap<Integer, VirtualTableRow>();
+		this.patchedChildren = new HashMap<Integer, List<VirtualTableRow>>();
+		this.valid = true;
+	}
+	
+	
+	/**
+	 * Returns the slot of the children of the row with the id
+	 * <code>parentId</code>, or <code>null</code> if there is no such row.
+	 */
+	private Integer getParentSlot(Object parentId)
+	{
+		if(XdevTreeTableModel.isChild(parentId,this.rootIdentifier))
+		{
+			return this.slotsById.get(parentId);
+		}
+		return this.rootSlot;
+	}
+	
+	
+	private VirtualTableRow getSlotRow(int slot)
+	{
+		return slot < this.slotRows.length ? this.slotRows[slot] : this.addedSlotRows.get(slot);
+	}
+	
+	
+	private VirtualTableRow[] getSlotChildren(int slot)
+	{
+		List<VirtualTableRow> patched = this.patchedChildren.get(slot);
+		if(patched != null)
+		{
+			return patched.toArray(new VirtualTableRow[patched.size()]);
+		}
+		if(slot + 1 < this.childOffsets.length)
+		{
+			return Arrays.copyOfRange(this.childRows,this.childOffsets[slot],
+					this.childOffsets[slot + 1]);
+		}
+		return new VirtualTableRow[0];
+	}
+	
+	
+	private int getSlotChildCount(int slot)
+	{
+		List<VirtualTableRow> patched = this.patchedChildren.get(slot);
+		if(patched != null)
+		{
+			return patched.size();
+		}
+		if(slot + 1 < this.childOffsets.length)
+		{
+			return this.childOffsets[slot + 1] - this.childOffsets[slot];
+		}
+		return 0;
+	}
+	
+	
+	/**
+	 * Returns the child list of <code>slot</code> to be changed.
+	 */
+	private List<VirtualTableRow> getPatchedChildren(int slot)
+	{
+		List<VirtualTableRow> patched = this.patchedChildren.get(slot);
+		if(patched == null)
+		{
+			patched = new ArrayList<VirtualTableRow>(Arrays.asList(getSlotChildren(slot)));
+			this.patchedChildren.put(slot,patched);
+		}
+		return patched;
+	}
+	
+	
+	private boolean containsChild(int slot, VirtualTableRow row)
+	{
+		List<VirtualTableRow> patched = this.patchedChildren.get(slot);
+		if(patched != null)
+		{
+			return indexOf(patched,row) >= 0;
+		}
+		if(slot + 1 < this.childOffsets.length)
+		{
+			for(int i = this.childOffsets[slot], end = this.childOffsets[slot + 1]; i < end; i++)
+			{
+				if(this.childRows[i] == row)
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Adds an inserted row to the child list of its parent.
+	 * 
+	 * @param row
+	 *            the inserted row
+	 */
+	void rowInserted(VirtualTableRow row)
+	{
+		if(!this.valid)
+		{
+			return;
+		}
+		
+		Object id = getId(row);
+		Integer parentSlot = getParentSlot(getParentId(row));
+		if(parentSlot == null || this.slotsById.containsKey(id))
+		{
+			// orphan or duplicate id, let the full build report it
+			invalidate();
+			return;
+		}
+		
+		int slot = this.slotCount++;
+		this.slotsById.put(id,slot);
+		this.addedSlotRows.put(slot,row);
+		List<VirtualTableRow> children = getPatchedChildren(parentSlot);
+		children.add(insertionIndex(children,row.getIndex()),row);
+	}
+	
+	
+	/**
+	 * Returns the position in <code>rows</code>, which are in the order of the
+	 * {@link VirtualTable}, to insert the row at <code>rowIndex</code>.
+	 */
+	private static int insertionIndex(List<VirtualTableRow> rows, int rowIndex)
+	{
+		int low = 0;
+		int high = rows.size();
+		// rows are mostly appended to the virtual table
+		if(high == 0 || rows.get(high - 1).getIndex() < rowIndex)
+		{
+			return high;
+		}
+		while(low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if(rows.get(mid).getIndex() < rowIndex)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	
+	/**
+	 * Checks if an updated row is still a child of its parent, otherwise the
+	 * parent-child relation is rebuilt.
+	 * 
+	 * @param row
+	 *            the updated row
+	 */
+	void rowUpdated(VirtualTableRow row)
+	{
+		if(!this.valid)
+		{
+			return;
+		}
+		
+		Integer slot = this.slotsById.get(getId(row));
+		Integer parentSlot = getParentSlot(getParentId(row));
+		if(slot == null || getSlotRow(slot) != row || parentSlot == null
+				|| !containsChild(parentSlot,row))
+		{
+			// id or parent changed
+			invalidate();
+		}
+	}
+	
+	
+	/**
+	 * Removes a deleted row from the child list of its parent.
+	 * 
+	 * @param row
+	 *            the deleted row
+	 */
+	void rowDeleted(VirtualTableRow row)
+	{
+		if(!this.valid)
+		{
+			return;
+		}
+		
+		Object id = getId(row);
+		Integer slot = this.slotsById.get(id);
+		Integer parentSlot = getParentSlot(getParentId(row));
+		if(slot == null || getSlotRow(slot) != row || parentSlot == null
+				|| !containsChild(parentSlot,row))
+		{
+			invalidate();
+			return;
+		}
+		
+		this.slotsById.remove(id);
+		this.addedSlotRows.remove(slot);
+		List<VirtualTableRow> children = getPatchedChildren(parentSlot);
+		children.remove(indexOf(children,row));
+	}
+	
+	
+	private static int indexOf(List<VirtualTableRow> rows, VirtualTableRow row)
+	{
+		for(int i = 0, count = rows.size(); i < count; i++)
+		{
+			if(rows.get(i) == row)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	
+	/**
+	 * Returns the root rows.
+	 * 
+	 * @return the root rows in the order of the {@link VirtualTable}
+	 * @throws IllegalStateException
+	 *             if an id is not unique or a parent id cannot be resolved
+	 */
+	VirtualTableRow[] getRootRows() throws IllegalStateException
+	{
+		ensureValid();
+		return getSlotChildren(this.rootSlot);
+	}
+	
+	
+	/**
+	 * Returns the number of children of the row with the id
+	 * <code>parentId</code>.
+	 * 
+	 * @param parentId
+	 *            the id of the parent row
+	 * @return the number of children
+	 */
+	int getChildCount(Object parentId)
+	{
+		ensureValid();
+		Integer slot = this.slotsById.get(parentId);
+		if(slot == null)
+		{
+			return 0;
+		}
+		return getSlotChildCount(slot);
+	}
+	
+	
+	/**
+	 * Returns the children of the row with the id <code>parentId</code>.
+	 * 
+	 * @param parentId
+	 *            the id of the parent row
+	 * @return the child rows in the order of the {@link VirtualTable}
+	 */
+	VirtualTableRow[] getChildRows(Object parentId)
+	{
+		ensureValid();
+		Integer slot = this.slotsById.get(parentId);
+		if(slot == null)
+		{
+			return new VirtualTableRow[0];
+		}
+		return getSlotChildren(slot);
+	}
+}
@@ -39,6 +39,7 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 import xdev.lang.NotNull;
+import xdev.ui.TableSupport;
 import xdev.ui.UIUtils;
 import xdev.ui.XScrollPane;
 import xdev.ui.XdevCSResourceBundle;
@@ -123,6 +124,12 @@ public class DefaultVirtualTableValueChooser extends JDialog implements
 	 */
 	private XdevSortableTable			table						= null;
 	
+	/**
+	 * primary key index of {@link #virtualTable}, resolves the row to
+	 * preselect.
+	 */
+	private transient VirtualTablePrimaryKeyIndex	primaryKeyIndex;
+	
 	/**
 	 * a button for choosing the selection.
 	 */
@@ -210,7 +217,7 @@ public class DefaultVirtualTableValueChooser extends JDialog implements
 	 */
 	private void refreshUI()
 	{
-		this.filterField.setModel(this.virtualTable.createTableModel());
+		this.filterField.setModel(LookupVirtualTableCache.getTableModel(this.virtualTable));
 		this.table.setModel(this.filterField.getDisplayTableModel());
 	}
 	
@@ -231,7 +238,8 @@ public class DefaultVirtualTableValueChooser extends JDialog implements
 		this.setTitle(XdevCSResourceBundle.getString(KEY_TITLE));
 		this.setResizable(true);
 		
-		filterField = new XdevQuickTableFilterField(this.virtualTable.createTableModel());
+		filterField = new XdevQuickTableFilterField(
+				LookupVirtualTableCache.getTableModel(this.virtualTable));
 		filterField.setTabIndex(1);
 		filterField.setName(VALUE_FILTER_NAME);
 		
@@ -430,7 +438,16 @@ public class DefaultVirtualTableValueChooser extends JDialog implements
 		
 		if(selectedValue != null)
 		{
-			table.setSelectedVirtualTableRow(selectedValue);
+			int viewRow = getViewRow(selectedValue);
+			if(viewRow != -1)
+			{
+				table.getSelectionModel().setSelectionInterval(viewRow,viewRow);
+				table.ensureRowIsVisible(viewRow);
+			}
+			else
+			{
+				table.setSelectedVirtualTableRow(selectedValue);
+			}
 		}
 		else
 		{
@@ -441,6 +458,23 @@ public class DefaultVirtualTableValueChooser extends JDialog implements
 	}
 	
 	
+	/**
+	 * Returns the view index of the row with the same primary key as
+	 * <code>value</code>.
+	 * 
+	 * @param value
+	 *            the row to look up
+	 * @return the view index, or <code>-1</code> if the row isn't found
+	 */
+	private int getViewRow(final VirtualTableRow value)
+	{
+		primaryKeyIndex = LookupVirtualTableCache.getPrimaryKeyIndex(virtualTable,primaryKeyIndex);
+		VirtualTableRow row = primaryKeyIndex.getRow(value);
+		return row != null ? TableSupport.getTableRowConverter().modelToView(table,row.getIndex())
+				: -1;
+	}
+	
+	
 	/**
 	 * Is called when a value is chosen.
 	 */
@@ -503,6 +537,20 @@ public class DefaultVirtualTableValueChooser extends JDialog implements
 	}
 	
 	
+	/**
+	 * Returns the filter field of this chooser, in which the user types the
+	 * search text.
+	 * 
+	 * @return the filter field, or <code>null</code> if no
+	 *         {@link VirtualTable} has been set yet
+	 * @since 4.0
+	 */
+	public XdevQuickTableFilterField getFilterField()
+	{
+		return this.filterField;
+	}
+	
+	
 	@Override
 	public void setChooserSize(int width, int height)
 	{
@@ -0,0 +1,740 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.valuechooser;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import xdev.db.QueryInfo;
+import xdev.lang.NotNull;
+import xdev.ui.XdevValueChooserTextField;
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTableAdapter;
+import xdev.vt.VirtualTableEvent;
+import xdev.vt.VirtualTableModel;
+
+
+/**
+ * Shared cache of lookup {@link VirtualTable}s for value choosers.
+ * <p>
+ * Value chooser fields over the same lookup table, e.g. countries or
+ * currencies, share one snapshot of the table and one
+ * {@link VirtualTableModel} instead of holding a copy each. The snapshots are
+ * keyed by the name of the {@link VirtualTable} and its query, see
+ * {@link #acquire(Object, VirtualTable, boolean)}. They must be treated as
+ * read-only.
+ * </p>
+ * <p>
+ * A snapshot is referenced by its owners, which are held weakly, and stays in
+ * the cache as long as it is referenced. Unreferenced snapshots are kept for
+ * later use until their cell count exceeds {@link #getMaxIdleCellCount()}, the
+ * least recently used ones are evicted first. Snapshots older than
+ * {@link #getMaxAge()} are reloaded by the next
+ * {@link #acquire(Object, VirtualTable, boolean)}, owners of the old snapshot
+ * keep it until they acquire again.
+ * </p>
+ * <p>
+ * The snapshots are loaded outside of the cache's lock, concurrent requests
+ * of the same key wait for the same load. The other methods are meant to be
+ * called on the event dispatch thread.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ * @see XdevValueChooserTextField#setLookupCacheEnabled(boolean)
+ */
+public final class LookupVirtualTableCache
+{
+	private LookupVirtualTableCache()
+	{
+	}
+	
+	/**
+	 * The default maximum cell count of the unreferenced snapshots.
+	 */
+	public final static long				DEFAULT_MAX_IDLE_CELL_COUNT	= 1000000;
+	
+	/**
+	 * The newest snapshot per key.
+	 */
+	private final static Map<String, Lookup>	current						= new HashMap<String, Lookup>();
+	
+	/**
+	 * All snapshots which are either current or referenced.
+	 */
+	private final static List<Lookup>		lookups						= new ArrayList<Lookup>();
+	
+	/**
+	 * The loads in progress per key.
+	 */
+	private final static Map<String, FutureTask<Lookup>>	loading		= new HashMap<String, FutureTask<Lookup>>();
+	
+	private static long						maxAge						= 0;
+	private static long						maxIdleCellCount			= DEFAULT_MAX_IDLE_CELL_COUNT;
+	
+	
+	
+	/**
+	 * A shared snapshot of a lookup table.
+	 * <p>
+	 * The snapshot is read-only, its owners must not add, change or remove
+	 * rows. A snapshot which is modified nevertheless is dropped from the
+	 * cache, so it isn't handed out to new owners; its current owners keep it.
+	 * </p>
+	 */
+	public static final class Lookup extends VirtualTableAdapter
+	{
+		private final String						key;
+		private final VirtualTable					virtualTable;
+		private VirtualTableModel					tableModel;
+		private VirtualTablePrimaryKeyIndex			primaryKeyIndex;
+		private final long							loadTime;
+		private long								lastAccess;
+		private final Map<Object, Boolean>			owners	= new WeakHashMap<Object, Boolean>();
+		
+		
+		private Lookup(final String key, final VirtualTable virtualTable)
+		{
+			this.key = key;
+			this.virtualTable = virtualTable;
+			this.loadTime = this.lastAccess = System.currentTimeMillis();
+			
+			virtualTable.addVirtualTableListener(this);
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void virtualTableRowInserted(VirtualTableEvent event)
+		{
+			modified();
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void virtualTableRowUpdated(VirtualTableEvent event)
+		{
+			modified();
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void virtualTableRowDeleted(VirtualTableEvent event)
+		{
+			modified();
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void virtualTableDataChanged(VirtualTableEvent event)
+		{
+			modified();
+		}
+		
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void virtualTableStructureChanged(VirtualTableEvent event)
+		{
+			modified();
+		}
+		
+		
+		private void modified()
+		{
+			synchronized(current)
+			{
+				if(current.get(key) == this)
+				{
+					current.remove(key);
+				}
+				purge();
+			}
+		}
+		
+		
+		/**
+		 * Returns the shared {@link VirtualTable}, which must not be modified,
+		 * see {@link Lookup}.
+		 * 
+		 * @return the snapshot
+		 */
+		public VirtualTable getVirtualTable()
+		{
+			return virtualTable;
+		}
+		
+		
+		/**
+		 * Returns the {@link VirtualTableModel} shared by all owners.
+		 * 
+		 * @return the table model of the snapshot
+		 */
+		public VirtualTableModel getTableModel()
+		{
+			if(tableModel == null)
+			{
+				tableModel = virtualTable.createTableModel();
+			}
+			return tableModel;
+		}
+		
+		
+		/**
+		 * Returns the {@link VirtualTablePrimaryKeyIndex} shared by all owners.
+		 * 
+		 * @return the primary key index of the snapshot
+		 */
+		public VirtualTablePrimaryKeyIndex getPrimaryKeyIndex()
+		{
+			if(primaryKeyIndex == null)
+			{
+				primaryKeyIndex = new VirtualTablePrimaryKeyIndex(virtualTable);
+				primaryKeyIndex.shared = true;
+			}
+			return primaryKeyIndex;
+		}
+		
+		
+		/**
+		 * Returns the time the snapshot has been loaded.
+		 * 
+		 * @return the load time in milliseconds
+		 */
+		public long getLoadTime()
+		{
+			return loadTime;
+		}
+		
+		
+		/**
+		 * Returns the number of owners of this snapshot.
+		 * 
+		 * @return the reference count
+		 */
+		public int getReferenceCount()
+		{
+			synchronized(current)
+			{
+				return owners.size();
+			}
+		}
+		
+		
+		private long getCellCount()
+		{
+			return (long)virtualTable.getRowCount() * virtualTable.getColumnCount();
+		}
+	}
+	
+	
+	/**
+	 * Sets the time after which a snapshot is reloaded.
+	 * 
+	 * @param maxAge
+	 *            the maximum age in milliseconds, <code>0</code> to never
+	 *            reload
+	 */
+	public static void setMaxAge(final long maxAge)
+	{
+		LookupVirtualTableCache.maxAge = Math.max(0,maxAge);
+	}
+	
+	
+	/**
+	 * Returns the time after which a snapshot is reloaded.
+	 * 
+	 * @return the maximum age in milliseconds, <code>0</code> if snapshots are
+	 *         never reloaded
+	 */
+	public static long getMaxAge()
+	{
+		return maxAge;
+	}
+	
+	
+	/**
+	 * Sets the maximum number of cells (rows times columns) the unreferenced
+	 * snapshots may hold altogether.
+	 * 
+	 * @param maxIdleCellCount
+	 *            the maximum cell count, <code>0</code> to drop unreferenced
+	 *            snapshots immediately
+	 */
+	public static void setMaxIdleCellCount(final long maxIdleCellCount)
+	{
+		synchronized(current)
+		{
+			LookupVirtualTableCache.maxIdleCellCount = Math.max(0,maxIdleCellCount);
+			evict();
+		}
+	}
+	
+	
+	/**
+	 * Returns the maximum number of cells the unreferenced snapshots may hold.
+	 * 
+	 * @return the maximum cell count
+	 */
+	public static long getMaxIdleCellCount()
+	{
+		return maxIdleCellCount;
+	}
+	
+	
+	/**
+	 * Returns the shared snapshot of <code>virtualTable</code> and registers
+	 * <code>owner</code> as one of its references.
+	 * <p>
+	 * If <code>queryData</code> is <code>true</code> the snapshot is filled by
+	 * the default query of <code>virtualTable</code>. Otherwise it is a copy of
+	 * <code>virtualTable</code>, keyed by its last query; a
+	 * {@link VirtualTable} without last query can't be shared.
+	 * </p>
+	 * 
+	 * @param owner
+	 *            the owner of the reference, held weakly
+	 * @param virtualTable
+	 *            the lookup table
+	 * @param queryData
+	 *            <code>true</code> to fill the snapshot by the default query
+	 * @return the shared snapshot, or <code>null</code> if
+	 *         <code>virtualTable</code> can't be shared
+	 * @throws IllegalStateException
+	 *             if the query fails
+	 */
+	public static Lookup acquire(final @NotNull Object owner, final @NotNull VirtualTable virtualTable,
+			final boolean queryData) throws IllegalStateException
+	{
+		final String key = createKey(virtualTable,queryData);
+		if(key == null)
+		{
+			return null;
+		}
+		
+		FutureTask<Lookup> load;
+		boolean loader = false;
+		synchronized(current)
+		{
+			final Lookup lookup = current.get(key);
+			if(lookup != null
+					&& (maxAge == 0 || System.currentTimeMillis() - lookup.loadTime <= maxAge))
+			{
+				return register(owner,lookup);
+			}
+			
+			load = loading.get(key);
+			if(load == null)
+			{
+				load = new FutureTask<Lookup>(new Callable<Lookup>()
+				{
+					@Override
+					public Lookup call()
+					{
+						VirtualTable snapshot = lookup != null ? reload(lookup.virtualTable)
+								: load(virtualTable,queryData);
+						
+						synchronized(current)
+						{
+							if(lookup != null)
+							{
+								return replace(lookup,snapshot);
+							}
+							
+							Lookup loaded = new Lookup(key,snapshot);
+							current.put(key,loaded);
+							lookups.add(loaded);
+							return loaded;
+						}
+					}
+				});
+				loading.put(key,load);
+				loader = true;
+			}
+		}
+		
+		try
+		{
+			if(loader)
+			{
+				// outside of the lock, the other keys stay available
+				load.run();
+			}
+			
+			Lookup lookup = load.get();
+			synchronized(current)
+			{
+				return register(owner,lookup);
+			}
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("loading of virtualTable has been interrupted",e);
+		}
+		catch(ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException)
+			{
+				throw (RuntimeException)cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+		finally
+		{
+			if(loader)
+			{
+				synchronized(current)
+				{
+					loading.remove(key);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Registers <code>owner</code> as reference of <code>lookup</code>, which
+	 * is kept even if it has been evicted in the meantime.
+	 */
+	private static Lookup register(final Object owner, final Lookup lookup)
+	{
+		if(!lookups.contains(lookup))
+		{
+			lookups.add(lookup);
+		}
+		
+		lookup.owners.put(owner,Boolean.TRUE);
+		lookup.lastAccess = System.currentTimeMillis();
+		
+		purge();
+		evict();
+		
+		return lookup;
+	}
+	
+	
+	/**
+	 * Removes <code>owner</code> from the references of <code>lookup</code>.
+	 * 
+	 * @param owner
+	 *            the owner of the reference
+	 * @param lookup
+	 *            the snapshot
+	 */
+	public static void release(final Object owner, final Lookup lookup)
+	{
+		if(lookup == null)
+		{
+			return;
+		}
+		
+		synchronized(current)
+		{
+			if(lookup.owners.remove(owner) != null)
+			{
+				lookup.lastAccess = System.currentTimeMillis();
+			}
+			
+			purge();
+			evict();
+		}
+	}
+	
+	
+	/**
+	 * Reloads the snapshot of <code>lookup</code>. <code>owner</code> is moved
+	 * to the new snapshot, the other owners keep the old one until they
+	 * acquire again.
+	 * 
+	 * @param owner
+	 *            the owner of the reference
+	 * @param lookup
+	 *            the snapshot to reload
+	 * @return the new snapshot
+	 * @throws IllegalStateException
+	 *             if the query fails
+	 */
+	public static Lookup refresh(final Object owner, final @NotNull Lookup lookup)
+			throws IllegalStateException
+	{
+		VirtualTable snapshot = reload(lookup.virtualTable);
+		
+		synchronized(current)
+		{
+			Lookup refreshed = replace(lookup,snapshot);
+			
+			lookup.owners.remove(owner);
+			refreshed.owners.put(owner,Boolean.TRUE);
+			
+			purge();
+			evict();
+			
+			return refreshed;
+		}
+	}
+	
+	
+	/**
+	 * Returns the shared table model if <code>virtualTable</code> is a
+	 * snapshot of this cache, otherwise a new table model of
+	 * <code>virtualTable</code>.
+	 * 
+	 * @param virtualTable
+	 *            the {@link VirtualTable} to display
+	 * @return a table model of <code>virtualTable</code>
+	 */
+	public static VirtualTableModel getTableModel(final @NotNull VirtualTable virtualTable)
+	{
+		synchronized(current)
+		{
+			for(Lookup lookup : lookups)
+			{
+				if(lookup.virtualTable == virtualTable)
+				{
+					return lookup.getTableModel();
+				}
+			}
+		}
+		
+		return virtualTable.createTableModel();
+	}
+	
+	
+	/**
+	 * Returns the primary key index of <code>virtualTable</code>: the shared
+	 * index if <code>virtualTable</code> is a snapshot of this cache,
+	 * <code>previous</code> if it already indexes <code>virtualTable</code>,
+	 * otherwise a new index. <code>previous</code> is disposed if it isn't
+	 * returned and not shared.
+	 * 
+	 * @param virtualTable
+	 *            the {@link VirtualTable} to index
+	 * @param previous
+	 *            the index used so far, may be <code>null</code>
+	 * @return a primary key index of <code>virtualTable</code>
+	 */
+	public static VirtualTablePrimaryKeyIndex getPrimaryKeyIndex(
+			final @NotNull VirtualTable virtualTable, final VirtualTablePrimaryKeyIndex previous)
+	{
+		if(previous != null && previous.getVirtualTable() == virtualTable)
+		{
+			return previous;
+		}
+		
+		if(previous != null && !previous.shared)
+		{
+			previous.dispose();
+		}
+		
+		synchronized(current)
+		{
+			for(Lookup lookup : lookups)
+			{
+				if(lookup.virtualTable == virtualTable)
+				{
+					return lookup.getPrimaryKeyIndex();
+				}
+			}
+		}
+		
+		return new VirtualTablePrimaryKeyIndex(virtualTable);
+	}
+	
+	
+	/**
+	 * Drops the snapshots of the {@link VirtualTable} named <code>name</code>,
+	 * e.g. after the lookup table has been edited. The next
+	 * {@link #acquire(Object, VirtualTable, boolean)} loads a new snapshot,
+	 * current owners keep theirs.
+	 * 
+	 * @param name
+	 *            the name of the {@link VirtualTable}
+	 */
+	public static void invalidate(final String name)
+	{
+		synchronized(current)
+		{
+			for(Iterator<Lookup> it = current.values().iterator(); it.hasNext();)
+			{
+				if(it.next().virtualTable.getName().equals(name))
+				{
+					it.remove();
+				}
+			}
+			
+			purge();
+		}
+	}
+	
+	
+	/**
+	 * Drops all snapshots, current owners keep theirs.
+	 */
+	public static void invalidateAll()
+	{
+		synchronized(current)
+		{
+			current.clear();
+			purge();
+		}
+	}
+	
+	
+	private static String createKey(final VirtualTable virtualTable, final boolean queryData)
+	{
+		if(queryData)
+		{
+			return virtualTable.getName() + "\n" + virtualTable.getSelect();
+		}
+		
+		QueryInfo query = virtualTable.getLastQuery();
+		if(query == null)
+		{
+			return null;
+		}
+		
+		return virtualTable.getName() + "\n" + query.getSelect() + "\n"
+				+ Arrays.deepToString(query.getParameters());
+	}
+	
+	
+	private static VirtualTable load(final VirtualTable virtualTable, final boolean queryData)
+	{
+		if(!queryData)
+		{
+			return virtualTable.clone(true);
+		}
+		
+		VirtualTable snapshot = virtualTable.clone(false);
+		try
+		{
+			snapshot.queryAndFill();
+		}
+		catch(Exception e)
+		{
+			throw new IllegalStateException("query on virtualTable could not be performed",e);
+		}
+		return snapshot;
+	}
+	
+	
+	private static VirtualTable reload(final VirtualTable virtualTable)
+	{
+		VirtualTable snapshot = virtualTable.clone(true);
+		try
+		{
+			snapshot.reload();
+		}
+		catch(Exception e)
+		{
+			throw new IllegalStateException("query on virtualTable could not be performed",e);
+		}
+		return snapshot;
+	}
+	
+	
+	/**
+	 * Makes a new snapshot current instead of <code>lookup</code>.
+	 */
+	private static Lookup replace(final Lookup lookup, final VirtualTable snapshot)
+	{
+		Lookup replacement = new Lookup(lookup.key,snapshot);
+		if(current.get(lookup.key) == lookup)
+		{
+			current.put(lookup.key,replacement);
+		}
+		lookups.add(replacement);
+		return replacement;
+	}
+	
+	
+	/**
+	 * Removes the snapshots which are neither current nor referenced.
+	 */
+	private static void purge()
+	{
+		for(Iterator<Lookup> it = lookups.iterator(); it.hasNext();)
+		{
+			Lookup lookup = it.next();
+			if(lookup.owners.isEmpty() && current.get(lookup.key) != lookup)
+			{
+				it.remove();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Evicts the least recently used unreferenced snapshots until they fit
+	 * into {@link #maxIdleCellCount}.
+	 */
+	private static void evict()
+	{
+		List<Lookup> idle = new ArrayList<Lookup>();
+		long idleCellCount = 0;
+		for(Lookup lookup : current.values())
+		{
+			if(lookup.owners.isEmpty())
+			{
+				idle.add(lookup);
+				idleCellCount += lookup.getCellCount();
+			}
+		}
+		
+		while(idleCellCount > maxIdleCellCount && !idle.isEmpty())
+		{
+			Lookup eldest = idle.get(0);
+			for(Lookup lookup : idle)
+			{
+				if(lookup.lastAccess < eldest.lastAccess)
+				{
+					eldest = lookup;
+				}
+			}
+			
+			idle.remove(eldest);
+			idleCellCount -= eldest.getCellCount();
+			current.remove(eldest.key);
+			lookups.remove(eldest);
+		}
+	}
+}
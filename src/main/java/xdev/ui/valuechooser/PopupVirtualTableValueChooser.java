@@ -38,6 +38,7 @@ import javax.swing.event.ListSelectionListener;
 import javax.swing.event.PopupMenuEvent;
 
 import xdev.lang.NotNull;
+import xdev.ui.TableSupport;
 import xdev.ui.UIUtils;
 import xdev.ui.XScrollPane;
 import xdev.ui.XdevCSResourceBundle;
@@ -109,6 +110,12 @@ public class PopupVirtualTableValueChooser extends JidePopup implements
 	 */
 	private XdevSortableTable			table						= null;
 	
+	/**
+	 * primary key index of {@link #virtualTable}, resolves the row to
+	 * preselect.
+	 */
+	private transient VirtualTablePrimaryKeyIndex	primaryKeyIndex;
+	
 	/**
 	 * a button for choosing the selection.
 	 */
@@ -221,7 +228,7 @@ public class PopupVirtualTableValueChooser extends JidePopup implements
 	 */
 	private void refreshUI()
 	{
-		this.filterField.setModel(this.virtualTable.createTableModel());
+		this.filterField.setModel(LookupVirtualTableCache.getTableModel(this.virtualTable));
 		this.table.setModel(this.filterField.getDisplayTableModel());
 	}
 	
@@ -234,7 +241,8 @@ public class PopupVirtualTableValueChooser extends JidePopup implements
 		contentPane = new JPanel();
 		contentPane.setBorder(BorderFactory.createEmptyBorder(10,10,10,10));
 		
-		filterField = new XdevQuickTableFilterField(this.virtualTable.createTableModel());
+		filterField = new XdevQuickTableFilterField(
+				LookupVirtualTableCache.getTableModel(this.virtualTable));
 		filterField.setTabIndex(1);
 		filterField.setName(VALUE_FILTER_NAME);
 		setDefaultFocusComponent(filterField.getTextField());
@@ -436,7 +444,16 @@ public class PopupVirtualTableValueChooser extends JidePopup implements
 			// selectedRowIndexVt);
 			// table.setSelectedRows(new int[]{selectedRowIndexTable});
 			
-			table.setSelectedVirtualTableRow(selectedValue);
+			int viewRow = getViewRow(selectedValue);
+			if(viewRow != -1)
+			{
+				table.getSelectionModel().setSelectionInterval(viewRow,viewRow);
+				table.ensureRowIsVisible(viewRow);
+			}
+			else
+			{
+				table.setSelectedVirtualTableRow(selectedValue);
+			}
 		}
 		else
 		{
@@ -447,6 +464,23 @@ public class PopupVirtualTableValueChooser extends JidePopup implements
 	}
 	
 	
+	/**
+	 * Returns the view index of the row with the same primary key as
+	 * <code>value</code>.
+	 * 
+	 * @param value
+	 *            the row to look up
+	 * @return the view index, or <code>-1</code> if the row isn't found
+	 */
+	private int getViewRow(final VirtualTableRow value)
+	{
+		primaryKeyIndex = LookupVirtualTableCache.getPrimaryKeyIndex(virtualTable,primaryKeyIndex);
+		VirtualTableRow row = primaryKeyIndex.getRow(value);
+		return row != null ? TableSupport.getTableRowConverter().modelToView(table,row.getIndex())
+				: -1;
+	}
+	
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -457,6 +491,20 @@ public class PopupVirtualTableValueChooser extends JidePopup implements
 	}
 	
 	
+	/**
+	 * Returns the filter field of this chooser, in which the user types the
+	 * search text.
+	 * 
+	 * @return the filter field, or <code>null</code> if no
+	 *         {@link VirtualTable} has been set yet
+	 * @since 4.0
+	 */
+	public XdevQuickTableFilterField getFilterField()
+	{
+		return this.filterField;
+	}
+	
+	
 	@Override
 	public void setChooserSize(int width, int height)
 	{
@@ -0,0 +1,851 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.valuechooser;
+
+
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+import javax.swing.SwingWorker;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+
+import xdev.db.DBException;
+import xdev.db.sql.Condition;
+import xdev.db.sql.SELECT;
+import xdev.db.sql.WHERE;
+import xdev.lang.NotNull;
+import xdev.lang.Nullable;
+import xdev.ui.quickfilter.QuickFilterScheduler;
+import xdev.util.logging.LoggerFactory;
+import xdev.util.logging.XdevLogger;
+import xdev.vt.KeyValues;
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableColumn;
+import xdev.vt.VirtualTableException;
+
+
+/**
+ * Server side search as you type for value choosers.
+ * <p>
+ * The typed text is turned into a <code>SELECT ... WHERE ... LIKE</code>
+ * against the data source of the {@link VirtualTable}, which is executed page
+ * by page in the background. The rows of every page are appended to the
+ * {@link VirtualTable} as soon as they arrive, until
+ * {@link #getMaxRowCount()} rows are loaded. So the {@link VirtualTable}
+ * never holds more than the first rows of the current result.
+ * </p>
+ * <p>
+ * Searches are debounced, see {@link #setDelay(int)}, and a new search
+ * cancels the running one.
+ * </p>
+ * <p>
+ * The text is matched anywhere in the values of the search columns, the
+ * wildcards <code>*</code> and <code>?</code> are supported, <code>%</code>
+ * and <code>_</code> are matched literally. Whether the search is case
+ * sensitive depends on the database.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ */
+public class RemoteVirtualTableSearch implements Serializable
+{
+	private static final long			serialVersionUID		= -2671853301457120379L;
+	
+	/**
+	 * Logger instance for this class.
+	 */
+	private static final XdevLogger		log						= LoggerFactory
+																		.getLogger(RemoteVirtualTableSearch.class);
+	
+	/**
+	 * The default number of rows fetched per query.
+	 */
+	public static final int				DEFAULT_PAGE_SIZE		= 50;
+	
+	/**
+	 * The default maximum number of rows loaded for one search.
+	 */
+	public static final int				DEFAULT_MAX_ROW_COUNT	= 500;
+	
+	/**
+	 * The default debounce delay in milliseconds.
+	 */
+	public static final int				DEFAULT_DELAY			= 300;
+	
+	private final VirtualTable			virtualTable;
+	private VirtualTableColumn<?>[]		searchColumns;
+	private int							pageSize				= DEFAULT_PAGE_SIZE;
+	private int							maxRowCount				= DEFAULT_MAX_ROW_COUNT;
+	private Condition					condition;
+	private Object[]					conditionParams			= new Object[0];
+	private final QuickFilterScheduler	scheduler;
+	
+	private JTextComponent				textComponent;
+	private transient DocumentListener	documentListener;
+	private transient HierarchyListener	hierarchyListener;
+	
+	private String						searchText				= "";
+	private int							searchGeneration		= 0;
+	private transient SwingWorker<Void, Object[][]>	worker;
+	
+	
+	/**
+	 * Creates a new {@link RemoteVirtualTableSearch} which loads the rows of
+	 * <code>virtualTable</code>. The primary column of
+	 * <code>virtualTable</code> is searched by default.
+	 * 
+	 * @param virtualTable
+	 *            the {@link VirtualTable} to load the rows into
+	 */
+	public RemoteVirtualTableSearch(final @NotNull VirtualTable virtualTable)
+	{
+		if(virtualTable == null)
+		{
+			throw new IllegalArgumentException("virtualTable must not be null");
+		}
+		
+		this.virtualTable = virtualTable;
+		
+		VirtualTableColumn<?> primaryColumn = virtualTable.getPrimaryColumn();
+		this.searchColumns = primaryColumn != null ? new VirtualTableColumn<?>[]{primaryColumn}
+				: new VirtualTableColumn<?>[0];
+		
+		this.scheduler = new QuickFilterScheduler(new QuickFilterScheduler.FilterPass()
+		{
+			private static final long	serialVersionUID	= 1L;
+			
+			
+			@Override
+			public void applyFilter(String text)
+			{
+				searchNow(text);
+			}
+		});
+		this.scheduler.setDelay(DEFAULT_DELAY);
+	}
+	
+	
+	/**
+	 * Returns the {@link VirtualTable} the rows are loaded into.
+	 * 
+	 * @return the {@link VirtualTable} of this search
+	 */
+	public VirtualTable getVirtualTable()
+	{
+		return virtualTable;
+	}
+	
+	
+	/**
+	 * Sets the columns which are matched against the search text.
+	 * 
+	 * @param searchColumns
+	 *            the columns to search in
+	 */
+	public void setSearchColumns(final @NotNull VirtualTableColumn<?>... searchColumns)
+	{
+		if(searchColumns == null)
+		{
+			throw new IllegalArgumentException("searchColumns must not be null");
+		}
+		
+		this.searchColumns = searchColumns.clone();
+	}
+	
+	
+	/**
+	 * Returns the columns which are matched against the search text.
+	 * 
+	 * @return the columns to search in
+	 */
+	public VirtualTableColumn<?>[] getSearchColumns()
+	{
+		return searchColumns.clone();
+	}
+	
+	
+	/**
+	 * Sets the number of rows fetched per query.
+	 * 
+	 * @param pageSize
+	 *            the page size, at least <code>1</code>
+	 */
+	public void setPageSize(final int pageSize)
+	{
+		this.pageSize = Math.max(1,pageSize);
+	}
+	
+	
+	/**
+	 * Returns the number of rows fetched per query.
+	 * 
+	 * @return the page size
+	 */
+	public int getPageSize()
+	{
+		return pageSize;
+	}
+	
+	
+	/**
+	 * Sets the maximum number of rows loaded for one search.
+	 * 
+	 * @param maxRowCount
+	 *            the maximum row count, at least <code>1</code>
+	 */
+	public void setMaxRowCount(final int maxRowCount)
+	{
+		this.maxRowCount = Math.max(1,maxRowCount);
+	}
+	
+	
+	/**
+	 * Returns the maximum number of rows loaded for one search.
+	 * 
+	 * @return the maximum row count
+	 */
+	public int getMaxRowCount()
+	{
+		return maxRowCount;
+	}
+	
+	
+	/**
+	 * Sets the debounce delay of {@link #search(String)}.
+	 * 
+	 * @param delay
+	 *            the delay in milliseconds, <code>0</code> to search right
+	 *            away
+	 */
+	public void setDelay(final int delay)
+	{
+		scheduler.setDelay(delay);
+	}
+	
+	
+	/**
+	 * Returns the debounce delay of {@link #search(String)} in milliseconds.
+	 * 
+	 * @return the delay
+	 */
+	public int getDelay()
+	{
+		return scheduler.getDelay();
+	}
+	
+	
+	/**
+	 * Sets an additional condition which every row has to fulfill, e.g. the
+	 * master condition of a master detail relation.
+	 * 
+	 * @param condition
+	 *            the condition, or <code>null</code>
+	 * @param params
+	 *            the parameters of <code>condition</code>
+	 */
+	public void setCondition(final @Nullable Condition condition, final Object... params)
+	{
+		this.condition = condition;
+		this.conditionParams = params != null ? params.clone() : new Object[0];
+	}
+	
+	
+	/**
+	 * Returns the additional condition which every row has to fulfill.
+	 * 
+	 * @return the condition, or <code>null</code>
+	 */
+	public Condition getCondition()
+	{
+		return condition;
+	}
+	
+	
+	/**
+	 * Returns the parameters of the additional condition.
+	 * 
+	 * @return the parameters of {@link #getCondition()}
+	 */
+	public Object[] getConditionParams()
+	{
+		return conditionParams.clone();
+	}
+	
+	
+	/**
+	 * Searches the text of <code>textComponent</code> whenever it is edited
+	 * and loads the rows for the current text whenever it is shown.
+	 * 
+	 * @param textComponent
+	 *            the search field
+	 */
+	public void install(final @NotNull JTextComponent textComponent)
+	{
+		uninstall();
+		
+		this.textComponent = textComponent;
+		
+		documentListener = new DocumentListener()
+		{
+			@Override
+			public void insertUpdate(DocumentEvent e)
+			{
+				search(textComponent.getText());
+			}
+			
+			
+			@Override
+			public void removeUpdate(DocumentEvent e)
+			{
+				search(textComponent.getText());
+			}
+			
+			
+			@Override
+			public void changedUpdate(DocumentEvent e)
+			{
+				// attribute changes only
+			}
+		};
+		textComponent.getDocument().addDocumentListener(documentListener);
+		
+		hierarchyListener = new HierarchyListener()
+		{
+			@Override
+			public void hierarchyChanged(HierarchyEvent e)
+			{
+				if((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0
+						&& textComponent.isShowing())
+				{
+					searchNow(textComponent.getText());
+				}
+			}
+		};
+		textComponent.addHierarchyListener(hierarchyListener);
+	}
+	
+	
+	/**
+	 * Detaches this search from its search field and cancels a running
+	 * search.
+	 */
+	public void uninstall()
+	{
+		cancel();
+		
+		if(textComponent != null)
+		{
+			if(documentListener != null)
+			{
+				textComponent.getDocument().removeDocumentListener(documentListener);
+			}
+			if(hierarchyListener != null)
+			{
+				textComponent.removeHierarchyListener(hierarchyListener);
+			}
+			
+			textComponent = null;
+			documentListener = null;
+			hierarchyListener = null;
+		}
+	}
+	
+	
+	/**
+	 * Schedules a search for <code>text</code>, see {@link #setDelay(int)}.
+	 * 
+	 * @param text
+	 *            the search text
+	 */
+	public void search(final String text)
+	{
+		scheduler.schedule(text);
+	}
+	
+	
+	/**
+	 * Repeats the last search right away.
+	 */
+	public void refresh()
+	{
+		searchNow(searchText);
+	}
+	
+	
+	/**
+	 * Searches for <code>text</code> right away. The running search is
+	 * cancelled, the rows of the {@link VirtualTable} are replaced once the
+	 * first page has arrived.
+	 * 
+	 * @param text
+	 *            the search text
+	 */
+	public void searchNow(final String text)
+	{
+		cancel();
+		
+		final int generation = ++searchGeneration;
+		searchText = text != null ? text.trim() : "";
+		
+		final SELECT select = createSelect(searchText);
+		final Object[] params = conditionParams.clone();
+		final VirtualTable pageTable = virtualTable.clone(false);
+		final Pattern verification = createVerification(searchText);
+		final int[] searchColumnIndices = new int[searchColumns.length];
+		for(int i = 0; i < searchColumns.length; i++)
+		{
+			searchColumnIndices[i] = virtualTable.getColumnIndex(searchColumns[i]);
+		}
+		final int pageSize = this.pageSize;
+		final int maxRowCount = this.maxRowCount;
+		
+		worker = new SwingWorker<Void, Object[][]>()
+		{
+			private boolean	cleared	= false;
+			
+			
+			@Override
+			protected Void doInBackground() throws Exception
+			{
+				int columnCount = pageTable.getColumnCount();
+				int offset = 0;
+				
+				while(offset < maxRowCount && !isCancelled())
+				{
+					int count = Math.min(pageSize,maxRowCount - offset);
+					select.OFFSET(offset).FETCH_FIRST(count);
+					pageTable.queryAndFill(select,params);
+					
+					int rowCount = pageTable.getRowCount();
+					List<Object[]> page = new ArrayList<Object[]>(rowCount);
+					for(int row = 0; row < rowCount; row++)
+					{
+						VirtualTableRow pageRow = pageTable.getRow(row);
+						Object[] values = new Object[columnCount];
+						for(int col = 0; col < columnCount; col++)
+						{
+							values[col] = pageRow.get(pageTable.getColumnAt(col));
+						}
+						if(verification == null
+								|| matches(verification,values,searchColumnIndices))
+						{
+							page.add(values);
+						}
+					}
+					publish(page.toArray(new Object[page.size()][]));
+					
+					offset += rowCount;
+					if(rowCount < count)
+					{
+						break;
+					}
+				}
+				
+				return null;
+			}
+			
+			
+			@Override
+			protected void process(List<Object[][]> pages)
+			{
+				if(isCancelled() || generation != searchGeneration)
+				{
+					return;
+				}
+				
+				for(Object[][] page : pages)
+				{
+					appendRows(page);
+				}
+			}
+			
+			
+			@Override
+			protected void done()
+			{
+				if(isCancelled() || generation != searchGeneration)
+				{
+					return;
+				}
+				
+				worker = null;
+				
+				try
+				{
+					get();
+				}
+				catch(InterruptedException e)
+				{
+					log.error(e);
+				}
+				catch(ExecutionException e)
+				{
+					log.error(e.getCause());
+				}
+				
+				// no rows found
+				if(!cleared)
+				{
+					virtualTable.clear();
+				}
+			}
+			
+			
+			private void appendRows(Object[][] page)
+			{
+				if(!cleared)
+				{
+					virtualTable.clear();
+					cleared = true;
+				}
+				
+				int columnCount = virtualTable.getColumnCount();
+				for(Object[] values : page)
+				{
+					VirtualTableRow row = virtualTable.createRow();
+					for(int col = 0; col < columnCount; col++)
+					{
+						row.set(virtualTable.getColumnName(col),values[col]);
+					}
+					
+					try
+					{
+						virtualTable.addRow(row,false);
+					}
+					catch(VirtualTableException e)
+					{
+						log.error(e);
+					}
+					catch(DBException e)
+					{
+						log.error(e);
+					}
+				}
+			}
+		};
+		worker.execute();
+	}
+	
+	
+	/**
+	 * Cancels the pending and the running search. Rows which are already
+	 * loaded remain in the {@link VirtualTable}.
+	 */
+	public void cancel()
+	{
+		scheduler.cancel();
+		
+		if(worker != null)
+		{
+			worker.cancel(true);
+			worker = null;
+		}
+	}
+	
+	
+	/**
+	 * Returns if a search is pending or running.
+	 * 
+	 * @return <code>true</code> if a search is pending or running
+	 */
+	public boolean isSearching()
+	{
+		return scheduler.isPending() || worker != null;
+	}
+	
+	
+	/**
+	 * Prepares the query of the row with the primary key
+	 * <code>keyValues</code>, which is not loaded into the {@link VirtualTable}
+	 * yet, e.g. to display the value of a formular.
+	 * <p>
+	 * This method has to be called on the event dispatch thread, the returned
+	 * task runs the query and may be called in the background. It returns the
+	 * values of the row, which are added by {@link #addLoadedRow(Object[])}, or
+	 * <code>null</code> if the row doesn't exist.
+	 * </p>
+	 * 
+	 * @param keyValues
+	 *            the primary key values by column name
+	 * @return the query task, or <code>null</code> if the
+	 *         {@link VirtualTable} has no primary key
+	 */
+	public Callable<Object[]> prepareRowQuery(final Map<String, Object> keyValues)
+	{
+		Condition keyCondition = null;
+		for(VirtualTableColumn<?> column : virtualTable.getPrimaryKeyColumns())
+		{
+			Condition columnCondition = column.toSqlColumn().eq(
+					keyValues.get(column.getName()));
+			keyCondition = keyCondition == null ? columnCondition : keyCondition
+					.and(columnCondition);
+		}
+		if(keyCondition == null)
+		{
+			return null;
+		}
+		
+		final SELECT select = virtualTable.getSelect();
+		select.WHERE(new WHERE(keyCondition));
+		final VirtualTable rowTable = virtualTable.clone(false);
+		
+		return new Callable<Object[]>()
+		{
+			@Override
+			public Object[] call() throws Exception
+			{
+				rowTable.queryAndFill(select);
+				if(rowTable.getRowCount() == 0)
+				{
+					return null;
+				}
+				
+				VirtualTableRow rowTableRow = rowTable.getRow(0);
+				int columnCount = rowTable.getColumnCount();
+				Object[] values = new Object[columnCount];
+				for(int col = 0; col < columnCount; col++)
+				{
+					values[col] = rowTableRow.get(rowTable.getColumnAt(col));
+				}
+				return values;
+			}
+		};
+	}
+	
+	
+	/**
+	 * Adds the values returned by {@link #prepareRowQuery(Map)} to the
+	 * {@link VirtualTable}, unless the row has been loaded meanwhile.
+	 * 
+	 * @param values
+	 *            the values of the row
+	 * @return the row
+	 * @throws DBException
+	 *             if the row can't be added
+	 * @throws VirtualTableException
+	 *             if the row can't be added
+	 */
+	public VirtualTableRow addLoadedRow(final Object[] values) throws DBException,
+			VirtualTableException
+	{
+		Map<String, Object> keyValues = new HashMap<String, Object>();
+		for(VirtualTableColumn<?> column : virtualTable.getPrimaryKeyColumns())
+		{
+			keyValues.put(column.getName(),values[virtualTable.getColumnIndex(column)]);
+		}
+		VirtualTableRow row = virtualTable.getRow(new KeyValues(virtualTable,keyValues));
+		if(row != null)
+		{
+			return row;
+		}
+		
+		row = virtualTable.createRow();
+		for(int col = 0, columnCount = virtualTable.getColumnCount(); col < columnCount; col++)
+		{
+			row.set(virtualTable.getColumnName(col),values[col]);
+		}
+		return virtualTable.addRow(row,false);
+	}
+	
+	
+	/**
+	 * Creates the query for <code>text</code>, without paging.
+	 * 
+	 * @param text
+	 *            the search text
+	 * @return the query
+	 */
+	protected SELECT createSelect(final String text)
+	{
+		SELECT select = virtualTable.getSelect();
+		
+		Condition where = condition;
+		Condition searchCondition = createSearchCondition(text);
+		if(searchCondition != null)
+		{
+			where = where != null ? where.encloseWithPars().and(
+					searchCondition.encloseWithPars()) : searchCondition;
+		}
+		if(where != null)
+		{
+			select.WHERE(new WHERE(where));
+		}
+		
+		// paging needs a stable order, the primary key breaks ties
+		if(searchColumns.length > 0)
+		{
+			select.ORDER_BY(searchColumns[0],false);
+		}
+		for(VirtualTableColumn<?> column : virtualTable.getPrimaryKeyColumns())
+		{
+			if(searchColumns.length == 0 || column != searchColumns[0])
+			{
+				select.ORDER_BY(column,false);
+			}
+		}
+		
+		return select;
+	}
+	
+	
+	/**
+	 * Creates the condition which matches <code>text</code> anywhere in one of
+	 * the search columns.
+	 * 
+	 * @param text
+	 *            the search text
+	 * @return the condition, or <code>null</code> to match all rows
+	 */
+	protected Condition createSearchCondition(final String text)
+	{
+		if(text.length() == 0 || searchColumns.length == 0)
+		{
+			return null;
+		}
+		
+		String pattern = "%" + toLikePattern(text) + "%";
+		
+		Condition searchCondition = null;
+		for(VirtualTableColumn<?> column : searchColumns)
+		{
+			Condition columnCondition = column.toSqlColumn().LIKE(pattern);
+			searchCondition = searchCondition == null ? columnCondition : searchCondition
+					.or(columnCondition);
+		}
+		return searchCondition;
+	}
+	
+	
+	private static boolean matches(final Pattern verification, final Object[] values,
+			final int[] columnIndices)
+	{
+		for(int col : columnIndices)
+		{
+			Object value = values[col];
+			if(value != null && verification.matcher(value.toString()).find())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Converts <code>text</code> to a <code>LIKE</code> pattern, the wildcards
+	 * <code>*</code> and <code>?</code> become <code>%</code> and
+	 * <code>_</code>.
+	 * <p>
+	 * The pattern doesn't use an escape character, the default escape
+	 * character differs between the databases and some have none at all.
+	 * Instead <code>%</code>, <code>_</code> and the backslash are replaced by
+	 * <code>_</code>, which matches any single character, and the rows which
+	 * only match because of that are dropped, see
+	 * {@link #createVerification(String)}.
+	 * </p>
+	 * 
+	 * @param text
+	 *            the search text
+	 * @return the pattern, without the enclosing <code>%</code>
+	 */
+	protected String toLikePattern(final String text)
+	{
+		StringBuilder pattern = new StringBuilder(text.length());
+		for(int i = 0; i < text.length(); i++)
+		{
+			char ch = text.charAt(i);
+			switch(ch)
+			{
+				case '*':
+					pattern.append('%');
+				break;
+				
+				case '?':
+				case '%':
+				case '_':
+				case '\\':
+					pattern.append('_');
+				break;
+				
+				default:
+					pattern.append(ch);
+			}
+		}
+		return pattern.toString();
+	}
+	
+	
+	/**
+	 * Creates the pattern which checks the values of the rows returned for
+	 * <code>text</code>, if the <code>LIKE</code> pattern of
+	 * {@link #toLikePattern(String)} matches more than <code>text</code>.
+	 * <p>
+	 * The check ignores the case, so it never drops a row the database has
+	 * matched case insensitively.
+	 * </p>
+	 * 
+	 * @param text
+	 *            the search text
+	 * @return the pattern, or <code>null</code> if all returned rows match
+	 */
+	protected Pattern createVerification(final String text)
+	{
+		if(text.indexOf('%') < 0 && text.indexOf('_') < 0 && text.indexOf('\\') < 0)
+		{
+			return null;
+		}
+		
+		StringBuilder regex = new StringBuilder(text.length() * 2);
+		StringBuilder literal = new StringBuilder();
+		for(int i = 0; i < text.length(); i++)
+		{
+			char ch = text.charAt(i);
+			if(ch == '*' || ch == '?')
+			{
+				if(literal.length() > 0)
+				{
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append(ch == '*' ? ".*" : ".");
+			}
+			else
+			{
+				literal.append(ch);
+			}
+		}
+		if(literal.length() > 0)
+		{
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return Pattern.compile(regex.toString(),Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
+				| Pattern.DOTALL);
+	}
+}
@@ -0,0 +1,385 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.valuechooser;
+
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTable.VirtualTableRow;
+import xdev.vt.VirtualTableAdapter;
+import xdev.vt.VirtualTableColumn;
+import xdev.vt.VirtualTableEvent;
+
+
+/**
+ * Maintained index from the primary key values to the
+ * {@link VirtualTableRow}s of a lookup table, used by the value choosers to
+ * resolve formular values and the preselected row.
+ * <p>
+ * Integral numbers are compared by their value, so a <code>Long</code> key
+ * finds an <code>Integer</code> column value.
+ * </p>
+ * <p>
+ * The index follows the row events of its {@link VirtualTable}. It is rebuilt
+ * lazily if the whole data or the structure of the {@link VirtualTable}
+ * changes.
+ * </p>
+ * 
+ * @author XDEV Software
+ * @since 4.0
+ * @see LookupVirtualTableCache#getPrimaryKeyIndex(VirtualTable,
+ *      VirtualTablePrimaryKeyIndex)
+ */
+public class VirtualTablePrimaryKeyIndex extends VirtualTableAdapter
+{
+	private final VirtualTable					vt;
+	private VirtualTableColumn<?>[]				keyColumns;
+	private final Map<Object, VirtualTableRow>	rowsByKey	= new HashMap<Object, VirtualTableRow>();
+	private boolean								valid		= false;
+	
+	/**
+	 * if the index belongs to a shared snapshot of
+	 * {@link LookupVirtualTableCache}.
+	 */
+	boolean										shared		= false;
+	
+	
+	/**
+	 * 
+	 * @param vt
+	 *            the {@link VirtualTable} to index
+	 */
+	public VirtualTablePrimaryKeyIndex(VirtualTable vt)
+	{
+		this.vt = vt;
+		
+		vt.addVirtualTableListener(this);
+	}
+	
+	
+	/**
+	 * Returns the indexed {@link VirtualTable}.
+	 * 
+	 * @return the {@link VirtualTable}
+	 */
+	public VirtualTable getVirtualTable()
+	{
+		return vt;
+	}
+	
+	
+	/**
+	 * Returns the row of a {@link VirtualTable} with a single primary key
+	 * column.
+	 * 
+	 * @param key
+	 *            the primary key value
+	 * @return the row or <code>null</code> if no row with this key exists
+	 */
+	public VirtualTableRow getRow(Object key)
+	{
+		if(key == null)
+		{
+			return null;
+		}
+		
+		ensureValid();
+		
+		if(keyColumns.length != 1)
+		{
+			return null;
+		}
+		
+		return verify(normalize(key));
+	}
+	
+	
+	/**
+	 * Returns the row with the primary key <code>keyValues</code>, given in
+	 * the order of the primary key columns.
+	 * 
+	 * @param keyValues
+	 *            the primary key values
+	 * @return the row or <code>null</code> if no row with this key exists
+	 */
+	public VirtualTableRow getRow(Collection<?> keyValues)
+	{
+		ensureValid();
+		
+		if(keyColumns.length == 0 || keyValues.size() != keyColumns.length)
+		{
+			return null;
+		}
+		
+		Iterator<?> it = keyValues.iterator();
+		if(keyColumns.length == 1)
+		{
+			Object key = it.next();
+			return key != null ? verify(normalize(key)) : null;
+		}
+		
+		Object[] values = new Object[keyColumns.length];
+		for(int i = 0; i < values.length; i++)
+		{
+			values[i] = normalize(it.next());
+		}
+		return verify(new CompositeKey(values));
+	}
+	
+	
+	/**
+	 * Returns the row of the indexed {@link VirtualTable} with the same
+	 * primary key as <code>row</code>, which may belong to another instance of
+	 * the same {@link VirtualTable}.
+	 * 
+	 * @param row
+	 *            a row of the same {@link VirtualTable}
+	 * @return the row or <code>null</code> if no row with this key exists
+	 */
+	public VirtualTableRow getRow(VirtualTableRow row)
+	{
+		if(row == null)
+		{
+			return null;
+		}
+		
+		VirtualTable rowVT = row.getVirtualTable();
+		if(rowVT == vt)
+		{
+			return row;
+		}
+		
+		ensureValid();
+		
+		if(keyColumns.length == 0)
+		{
+			return null;
+		}
+		
+		Object[] values = new Object[keyColumns.length];
+		for(int i = 0; i < values.length; i++)
+		{
+			VirtualTableColumn<?> column = rowVT.getColumn(keyColumns[i].getName());
+			if(column == null)
+			{
+				return null;
+			}
+			values[i] = normalize(row.get(column));
+		}
+		return verify(values.length == 1 ? values[0] : new CompositeKey(values));
+	}
+	
+	
+	/**
+	 * Unregisters the index from its {@link VirtualTable}.
+	 */
+	public void dispose()
+	{
+		vt.removeVirtualTableListener(this);
+		rowsByKey.clear();
+		valid = false;
+	}
+	
+	
+	private VirtualTableRow verify(Object key)
+	{
+		if(key == null)
+		{
+			return null;
+		}
+		
+		VirtualTableRow row = rowsByKey.get(key);
+		if(row != null && !key.equals(getKey(row)))
+		{
+			// key has been changed without notification
+			valid = false;
+			ensureValid();
+			row = rowsByKey.get(key);
+		}
+		
+		return row;
+	}
+	
+	
+	private void ensureValid()
+	{
+		if(!valid)
+		{
+			rowsByKey.clear();
+			keyColumns = vt.getPrimaryKeyColumns();
+			
+			// reverse order, the first row wins for duplicate keys
+			for(int i = vt.getRowCount() - 1; i >= 0; i--)
+			{
+				VirtualTableRow row = vt.getRow(i);
+				Object key = getKey(row);
+				if(key != null)
+				{
+					rowsByKey.put(key,row);
+				}
+			}
+			
+			valid = true;
+		}
+	}
+	
+	
+	private Object getKey(VirtualTableRow row)
+	{
+		if(keyColumns.length == 0)
+		{
+			return null;
+		}
+		
+		if(keyColumns.length == 1)
+		{
+			return normalize(row.get(keyColumns[0]));
+		}
+		
+		Object[] values = new Object[keyColumns.length];
+		for(int i = 0; i < values.length; i++)
+		{
+			values[i] = normalize(row.get(keyColumns[i]));
+		}
+		return new CompositeKey(values);
+	}
+	
+	
+	private static Object normalize(Object value)
+	{
+		if(value instanceof Integer || value instanceof Short || value instanceof Byte)
+		{
+			return Long.valueOf(((Number)value).longValue());
+		}
+		
+		return value;
+	}
+	
+	
+	private void put(VirtualTableRow row)
+	{
+		Object key = getKey(row);
+		if(key != null && !rowsByKey.containsKey(key))
+		{
+			rowsByKey.put(key,row);
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowInserted(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			put(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowUpdated(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			// stale keys of a changed key are detected in verify
+			put(event.getRow());
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableRowDeleted(VirtualTableEvent event)
+	{
+		if(valid)
+		{
+			VirtualTableRow row = event.getRow();
+			Object key = getKey(row);
+			if(key != null && rowsByKey.get(key) == row)
+			{
+				rowsByKey.remove(key);
+			}
+		}
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableDataChanged(VirtualTableEvent event)
+	{
+		valid = false;
+	}
+	
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void virtualTableStructureChanged(VirtualTableEvent event)
+	{
+		valid = false;
+	}
+	
+	
+	
+	/**
+	 * Key of a composite primary key.
+	 */
+	private static final class CompositeKey
+	{
+		private final Object[]	values;
+		private final int		hash;
+		
+		
+		CompositeKey(Object[] values)
+		{
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+		
+		
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+		
+		
+		@Override
+		public boolean equals(Object obj)
+		{
+			return obj instanceof CompositeKey
+					&& Arrays.equals(values,((CompositeKey)obj).values);
+		}
+	}
+}
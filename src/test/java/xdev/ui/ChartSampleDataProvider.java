@@ -22,6 +22,7 @@ package xdev.ui;
 
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Random;
 
@@ -232,4 +233,60 @@ public final class ChartSampleDataProvider
 		}
 		return vt;
 	}
+	
+	
+	/**
+	 * Returns a {@link VirtualTable} with <code>rowCount</code> rows of the
+	 * sample categories, values and dates, e.g. for benchmarks.
+	 * 
+	 * @param name
+	 *            the sample {@link VirtualTable} name.
+	 * @param alias
+	 *            the sample {@link VirtualTable} alias.
+	 * @param rowCount
+	 *            the count of rows to create.
+	 * @return the sample model as {@link VirtualTable}.
+	 */
+	public static VirtualTable createScaledChartSampleDataVT(String name, String alias,
+			int rowCount)
+	{
+		VirtualTableColumn<?>[] columns = new VirtualTableColumn<?>[4];
+		columns[0] = new VirtualTableColumn<String>("Categories");
+		columns[0].setType(DataType.VARCHAR);
+		
+		columns[1] = new VirtualTableColumn<Integer>("Values");
+		columns[1].setType(DataType.INTEGER);
+		
+		columns[2] = new VirtualTableColumn<Integer>("Values2");
+		columns[2].setType(DataType.INTEGER);
+		
+		columns[3] = new VirtualTableColumn<Date>("Dates");
+		columns[3].setType(DataType.DATE);
+		
+		VirtualTable vt = new VirtualTable(name,alias,columns);
+		try
+		{
+			Random rand = new Random(rowCount);
+			long now = System.currentTimeMillis();
+			for(int r = 0; r < rowCount; r++)
+			{
+				List<Object> values = new ArrayList<Object>();
+				values.add(string_categories[r % string_categories.length] + (r % 1000));
+				values.add(integer_values[r % integer_values.length] * rand.nextInt(1000));
+				values.add(rand.nextInt(100000));
+				values.add(new Date(now + r * 60L * 1000));
+				
+				vt.addRow(values,false);
+			}
+		}
+		catch(VirtualTableException e)
+		{
+			e.printStackTrace();
+		}
+		catch(DBException e)
+		{
+			e.printStackTrace();
+		}
+		return vt;
+	}
 }
@@ -279,4 +279,66 @@ public class TestVtCreator
 		return vt;
 	}
 	
+	
+	/**
+	 * Creates a gantt data {@link VirtualTable} with <code>rowCount</code>
+	 * activities. The first {@link #TREETABLE_NODE_PER_LEVEL_COUNT} rows are
+	 * roots (parent id <code>null</code>), every further row <code>i</code> is
+	 * a child of row <code>i / TREETABLE_NODE_PER_LEVEL_COUNT</code>.
+	 * <p>
+	 * Columns: id, parent id, description, start, end, completion.
+	 * </p>
+	 */
+	@SuppressWarnings({"rawtypes","unchecked"})
+	public static VirtualTable createGanttVt(String name, String alias, int rowCount)
+	{
+		VirtualTableColumn[] columns = new VirtualTableColumn[6];
+		columns[0] = new VirtualTableColumn<Integer>("Id");
+		columns[0].setType(DataType.INTEGER);
+		
+		columns[1] = new VirtualTableColumn<Integer>("ParentId");
+		columns[1].setType(DataType.INTEGER);
+		
+		columns[2] = new VirtualTableColumn<String>("Description");
+		columns[2].setType(DataType.VARCHAR);
+		
+		columns[3] = new VirtualTableColumn<Date>("Start");
+		columns[3].setType(DataType.DATE);
+		
+		columns[4] = new VirtualTableColumn<Date>("End");
+		columns[4].setType(DataType.DATE);
+		
+		columns[5] = new VirtualTableColumn<Double>("Completion");
+		columns[5].setType(DataType.DOUBLE);
+		
+		VirtualTable vt = new VirtualTable(name,alias,columns);
+		try
+		{
+			long day = 24L * 60 * 60 * 1000;
+			long begin = new GregorianCalendar(2010,0,1).getTimeInMillis();
+			for(int r = 0; r < rowCount; r++)
+			{
+				List values = new ArrayList();
+				values.add(r);
+				values.add(r < TREETABLE_NODE_PER_LEVEL_COUNT ? null : r
+						/ TREETABLE_NODE_PER_LEVEL_COUNT);
+				values.add("activity " + r);
+				values.add(new Date(begin + (r % 365) * day));
+				values.add(new Date(begin + (r % 365 + 5) * day));
+				values.add(0.0);
+				
+				vt.addRow(values,false);
+			}
+		}
+		catch(VirtualTableException e)
+		{
+			e.printStackTrace();
+		}
+		catch(DBException e)
+		{
+			e.printStackTrace();
+		}
+		return vt;
+	}
+	
 }
@@ -0,0 +1,247 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.charts.utils;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import xdev.ui.ChartSampleDataProvider;
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTableColumn;
+
+import com.jidesoft.chart.model.ChartCategory;
+import com.jidesoft.range.CategoryRange;
+import com.jidesoft.range.NumericRange;
+import com.jidesoft.range.Range;
+import com.jidesoft.range.TimeRange;
+
+
+/**
+ * Compares the range computation of {@link ChartRangeComputationUtils} with
+ * the previous list based implementation on scaled up
+ * {@link ChartSampleDataProvider} data.
+ * <p>
+ * This is not a unit test, run it manually via {@link #main(String[])}. Each
+ * measurement is preceded by warmup iterations, the reported time is the
+ * average of the measurement iterations.
+ * </p>
+ * 
+ * @author XDEV Software
+ */
+public class ChartRangeComputationUtilsBenchmark
+{
+	private final static int[]	ROW_COUNTS			= {1000,5000,20000};
+	
+	private final static int	WARMUP_ITERATIONS	= 3;
+	
+	private final static int	ITERATIONS			= 5;
+	
+	
+	private static interface Computation
+	{
+		public Object compute(VirtualTable vt);
+	}
+	
+	
+	public static void main(String[] args)
+	{
+		for(int rowCount : ROW_COUNTS)
+		{
+			VirtualTable vt = ChartSampleDataProvider.createScaledChartSampleDataVT("chart",
+					"chart",rowCount);
+			
+			System.out.printf("%d rows%n",rowCount);
+			
+			compare("numeric value range",vt,new Computation()
+			{
+				@Override
+				public Object compute(VirtualTable vt)
+				{
+					return legacyComputeNumericValueRange(vt,1,2);
+				}
+			},new Computation()
+			{
+				@Override
+				public Object compute(VirtualTable vt)
+				{
+					return ChartRangeComputationUtils.computeNumericValueRange(vt,1,2);
+				}
+			});
+			
+			compare("time value range",vt,new Computation()
+			{
+				@Override
+				public Object compute(VirtualTable vt)
+				{
+					return legacyComputeTimeValueRange(vt,3);
+				}
+			},new Computation()
+			{
+				@Override
+				public Object compute(VirtualTable vt)
+				{
+					return ChartRangeComputationUtils.computeTimeValueRange(vt,3);
+				}
+			});
+			
+			compare("string range",vt,new Computation()
+			{
+				@Override
+				public Object compute(VirtualTable vt)
+				{
+					return legacyComputeStringRange(vt,0).size();
+				}
+			},new Computation()
+			{
+				@Override
+				public Object compute(VirtualTable vt)
+				{
+					return ChartRangeComputationUtils.computeStringRange(vt,0).size();
+				}
+			});
+		}
+	}
+	
+	
+	private static void compare(String name, VirtualTable vt, Computation legacy,
+			Computation current)
+	{
+		Object legacyResult = legacy.compute(vt);
+		Object currentResult = current.compute(vt);
+		
+		System.out.printf("  %-20s legacy %10.3f ms, current %10.3f ms, equal results: %b%n",
+				name,measure(vt,legacy),measure(vt,current),
+				String.valueOf(legacyResult).equals(String.valueOf(currentResult)));
+	}
+	
+	
+	private static double measure(VirtualTable vt, Computation computation)
+	{
+		for(int i = 0; i < WARMUP_ITERATIONS; i++)
+		{
+			computation.compute(vt);
+		}
+		
+		long total = 0;
+		for(int i = 0; i < ITERATIONS; i++)
+		{
+			long start = System.nanoTime();
+			computation.compute(vt);
+			total += System.nanoTime() - start;
+		}
+		return total / ITERATIONS / 1e6;
+	}
+	
+	
+	// previous implementations
+	
+	private static CategoryRange<String> legacyComputeStringRange(VirtualTable container,
+			Integer categoryColumnIndex)
+	{
+		CategoryRange<String> categoryRange = new CategoryRange<String>();
+		
+		for(int row = 0; row < container.getRowCount(); row++)
+		{
+			String category = (String)container.getValueAt(row,
+					container.getColumnAt(categoryColumnIndex));
+			if(!categoryRange.contains(category))
+			{
+				categoryRange.add(new ChartCategory<String>(category));
+			}
+		}
+		
+		return categoryRange;
+	}
+	
+	
+	private static Range<Double> legacyComputeNumericValueRange(VirtualTable container,
+			int... valueColumnIndices)
+	{
+		Double minValue = null;
+		Double maxValue = null;
+		List<Double> possibleValues = new ArrayList<Double>();
+		
+		for(int i = 0; i < valueColumnIndices.length; i++)
+		{
+			VirtualTableColumn<? extends Number> valueColumn = VirtualTableColumnTypeUtils
+					.isNumericColumn(container.getColumnAt(valueColumnIndices[i]));
+			
+			for(int row = 0; row < container.getRowCount(); row++)
+			{
+				Number value = container.getValueAt(row,valueColumn);
+				if(!possibleValues.contains(value.doubleValue()))
+				{
+					possibleValues.add(value.doubleValue());
+				}
+			}
+			
+			if(minValue == null || Collections.min(possibleValues) < minValue)
+			{
+				minValue = Collections.min(possibleValues);
+			}
+			
+			if(maxValue == null || Collections.max(possibleValues) > maxValue)
+			{
+				maxValue = Collections.max(possibleValues);
+				maxValue += (maxValue * 0.1);
+			}
+		}
+		
+		return new NumericRange(minValue - minValue,maxValue);
+	}
+	
+	
+	private static TimeRange legacyComputeTimeValueRange(VirtualTable container,
+			int... valueColumnIndices)
+	{
+		Long minValue = null;
+		Long maxValue = null;
+		List<Long> possibleValues = new ArrayList<Long>();
+		
+		for(int i = 0; i < valueColumnIndices.length; i++)
+		{
+			VirtualTableColumn<? extends Date> valueColumn = VirtualTableColumnTypeUtils
+					.isDateColumn(container.getColumnAt(valueColumnIndices[i]));
+			
+			for(int row = 0; row < container.getRowCount(); row++)
+			{
+				Date value = container.getValueAt(row,valueColumn);
+				if(!possibleValues.contains(value.getTime()))
+				{
+					possibleValues.add(value.getTime());
+				}
+			}
+			
+			if(minValue == null || Collections.min(possibleValues) < minValue)
+			{
+				minValue = Collections.min(possibleValues);
+			}
+			
+			if(maxValue == null || Collections.max(possibleValues) > maxValue)
+			{
+				maxValue = Collections.max(possibleValues);
+				maxValue += (maxValue / 100 * 10);
+			}
+		}
+		
+		return new TimeRange(minValue - minValue,maxValue);
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * XDEV Component Suite - XDEV Component Suite
+ * Copyright © 2011 XDEV Software (https://xdev.software)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package xdev.ui.ganttchart.model;
+
+
+import java.util.Date;
+
+import xdev.ui.TestVtCreator;
+import xdev.ui.ganttchart.DateRangeProvider;
+import xdev.ui.ganttchart.UpdateableGanttEntry;
+import xdev.ui.ganttchart.XdevVirtualTableGanttEntryCreator;
+import xdev.vt.VirtualTable;
+import xdev.vt.VirtualTableColumn;
+
+
+/**
+ * Measures the construction time of {@link XdevVirtualTableGanttModel} for
+ * synthetic gantt data from 1k up to 100k rows.
+ * <p>
+ * This is not a unit test, run it manually via {@link #main(String[])}.
+ * </p>
+ * 
+ * @author XDEV Software
+ */
+public class XdevVirtualTableGanttModelBenchmark
+{
+	private final static int[]	ROW_COUNTS	= {1000,5000,10000,50000,100000};
+	
+	private final static int	WARMUP_RUNS	= 3;
+	
+	private final static int	RUNS		= 5;
+	
+	
+	public static void main(String[] args)
+	{
+		for(int rowCount : ROW_COUNTS)
+		{
+			VirtualTable vt = TestVtCreator.createGanttVt("gantt","gantt",rowCount);
+			
+			for(int i = 0; i < WARMUP_RUNS; i++)
+			{
+				createModel(vt);
+			}
+			
+			long total = 0;
+			for(int i = 0; i < RUNS; i++)
+			{
+				long start = System.nanoTime();
+				createModel(vt);
+				total += System.nanoTime() - start;
+			}
+			
+			System.out.printf("%7d rows: %8.2f ms%n",rowCount,total / RUNS / 1e6);
+		}
+	}
+	
+	
+	private static XdevVirtualTableGanttModel<Date, UpdateableGanttEntry<Date>> createModel(
+			VirtualTable vt)
+	{
+		XdevGanttEntryVTMappings<Date> dataContainer = createMappings(vt);
+		EntryVTMapper<UpdateableGanttEntry<Date>, Date> mapper = new EntryVTMapper<UpdateableGanttEntry<Date>, Date>(
+				new DateRangeProvider(),new XdevVirtualTableGanttEntryCreator<Date>(),
+				dataContainer);
+		return new XdevVirtualTableGanttModel<Date, UpdateableGanttEntry<Date>>(dataContainer,
+				mapper);
+	}
+	
+	
+	@SuppressWarnings("unchecked")
+	private static XdevGanttEntryVTMappings<Date> createMappings(VirtualTable vt)
+	{
+		XdevGanttEntryVTMappings<Date> dataContainer = new XdevGanttEntryVTMappings<Date>(vt);
+		dataContainer.setId(vt.getColumnAt(0));
+		dataContainer.setRoot(vt.getColumnAt(1));
+		dataContainer.setDescription((VirtualTableColumn<String>)vt.getColumnAt(2));
+		dataContainer.setStart((VirtualTableColumn<Date>)vt.getColumnAt(3));
+		dataContainer.setEnd((VirtualTableColumn<Date>)vt.getColumnAt(4));
+		dataContainer.setCompletion((VirtualTableColumn<Double>)vt.getColumnAt(5));
+		return dataContainer;
+	}
+}